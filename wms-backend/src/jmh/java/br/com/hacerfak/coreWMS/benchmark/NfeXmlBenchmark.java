@@ -0,0 +1,144 @@
+package br.com.hacerfak.coreWMS.benchmark;
+
+import br.com.hacerfak.coreWMS.modules.operacao.dto.NfeXmlDados;
+import br.com.hacerfak.coreWMS.modules.operacao.service.NfeXmlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura de um XML de NF-e (nfeProc com assinatura e protocolo) com N itens.
+ *
+ * "antigo" repete o caminho da portaria antes do NfeXmlParser: DOM montado
+ * uma vez para a nota (emitente, ide e um getElementsByTagName por campo de
+ * cada det/prod) e de novo para achar a transportadora. Só a leitura: a
+ * gravação de parceiros e produtos não entra (depende de banco).
+ *
+ * "atual" é uma passada StAX do NfeXmlParser, que já traz tudo isso.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NfeXmlBenchmark {
+
+    private static final String[] CAMPOS_EMIT = { "CNPJ", "CPF", "xNome", "xFant", "IE", "CRT" };
+    private static final String[] CAMPOS_ENDER = { "xLgr", "nro", "xBairro", "xMun", "UF", "CEP", "fone" };
+    private static final String[] CAMPOS_PROD = { "cProd", "xProd", "cEAN", "NCM", "CEST", "uCom", "vUnCom" };
+
+    @Param({ "10", "500", "1000" })
+    public int itens;
+
+    private NfeXmlParser parser;
+    private byte[] xml;
+
+    @Setup
+    public void preparar() {
+        parser = new NfeXmlParser();
+        xml = montarXml(itens).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void antigo(Blackhole bh) throws Exception {
+        // importarXml
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(xml));
+        doc.getDocumentElement().normalize();
+
+        Element emit = (Element) doc.getElementsByTagName("emit").item(0);
+        for (String campo : CAMPOS_EMIT)
+            bh.consume(valor(campo, emit));
+        Element ender = (Element) emit.getElementsByTagName("enderEmit").item(0);
+        for (String campo : CAMPOS_ENDER)
+            bh.consume(valor(campo, ender));
+
+        bh.consume(valor("nNF", doc.getDocumentElement()));
+        bh.consume(((Element) doc.getElementsByTagName("infNFe").item(0)).getAttribute("Id"));
+        bh.consume(valor("dhEmi", doc.getDocumentElement()));
+
+        NodeList dets = doc.getElementsByTagName("det");
+        for (int i = 0; i < dets.getLength(); i++) {
+            Element prod = (Element) ((Element) dets.item(i)).getElementsByTagName("prod").item(0);
+            for (String campo : CAMPOS_PROD)
+                bh.consume(valor(campo, prod));
+            bh.consume(valor("qCom", prod));
+        }
+
+        // extrairTransportadoraDoXml
+        Document outro = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(xml));
+        outro.getDocumentElement().normalize();
+        Element transp = (Element) outro.getElementsByTagName("transp").item(0);
+        Element transporta = (Element) transp.getElementsByTagName("transporta").item(0);
+        bh.consume(valor("CNPJ", transporta));
+        bh.consume(valor("CPF", transporta));
+        bh.consume(valor("xNome", transporta));
+    }
+
+    @Benchmark
+    public NfeXmlDados atual() throws Exception {
+        return parser.ler(new ByteArrayInputStream(xml));
+    }
+
+    // Mesmo getTagValue do NfeImportService antigo
+    private static String valor(String tag, Element elemento) {
+        NodeList lista = elemento.getElementsByTagName(tag);
+        return lista.getLength() > 0 ? lista.item(0).getTextContent() : null;
+    }
+
+    private static String montarXml(int itens) {
+        StringBuilder sb = new StringBuilder(2048 + itens * 700);
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<nfeProc xmlns=\"http://www.portalfiscal.inf.br/nfe\" versao=\"4.00\"><NFe>")
+                .append("<infNFe Id=\"NFe35240112345678000199550010000012341000012345\" versao=\"4.00\">")
+                .append("<ide><cUF>35</cUF><natOp>VENDA</natOp><mod>55</mod><serie>1</serie><nNF>1234</nNF>")
+                .append("<dhEmi>2024-01-15T10:30:00-03:00</dhEmi><tpNF>1</tpNF></ide>")
+                .append("<emit><CNPJ>12345678000199</CNPJ><xNome>Fornecedor Exemplo LTDA</xNome>")
+                .append("<xFant>Exemplo</xFant><enderEmit><xLgr>Rua das Flores</xLgr><nro>100</nro>")
+                .append("<xBairro>Centro</xBairro><cMun>3550308</cMun><xMun>Sao Paulo</xMun><UF>SP</UF>")
+                .append("<CEP>01001000</CEP><fone>1133334444</fone></enderEmit><IE>123456789</IE><CRT>3</CRT></emit>")
+                .append("<dest><CNPJ>98765432000188</CNPJ><xNome>Destinatario SA</xNome></dest>");
+        for (int i = 1; i <= itens; i++) {
+            sb.append("<det nItem=\"").append(i).append("\"><prod>")
+                    .append("<cProd>SKU").append(i).append("</cProd>")
+                    .append("<cEAN>789").append(String.format("%010d", i)).append("</cEAN>")
+                    .append("<xProd>Produto de exemplo numero ").append(i).append("</xProd>")
+                    .append("<NCM>84713012</NCM><CEST>2106400</CEST><CFOP>5102</CFOP><uCom>UN</uCom>")
+                    .append("<qCom>").append(i % 50 + 1).append(".0000</qCom>")
+                    .append("<vUnCom>19.9000000000</vUnCom><vProd>19.90</vProd></prod>")
+                    .append("<imposto><ICMS><ICMS00><orig>0</orig><CST>00</CST><vBC>19.90</vBC>")
+                    .append("<pICMS>18.00</pICMS><vICMS>3.58</vICMS></ICMS00></ICMS>")
+                    .append("<PIS><PISAliq><CST>01</CST><vBC>19.90</vBC><pPIS>1.65</pPIS><vPIS>0.33</vPIS>")
+                    .append("</PISAliq></PIS></imposto></det>");
+        }
+        sb.append("<total><ICMSTot><vNF>").append(itens * 19.9).append("</vNF></ICMSTot></total>")
+                .append("<transp><modFrete>0</modFrete><transporta><CNPJ>11222333000144</CNPJ>")
+                .append("<xNome>Transportadora Exemplo</xNome></transporta></transp>")
+                .append("</infNFe>")
+                .append("<Signature xmlns=\"http://www.w3.org/2000/09/xmldsig#\"><SignedInfo>")
+                .append("<DigestValue>").append("A".repeat(28)).append("</DigestValue></SignedInfo>")
+                .append("<SignatureValue>").append("B".repeat(344)).append("</SignatureValue></Signature>")
+                .append("</NFe><protNFe versao=\"4.00\"><infProt><chNFe>35240112345678000199550010000012341000012345")
+                .append("</chNFe><nProt>135240000000001</nProt><cStat>100</cStat></infProt></protNFe></nfeProc>");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package br.com.hacerfak.coreWMS.benchmark;
+
+import br.com.hacerfak.coreWMS.modules.seguranca.config.PermissaoExpressionHandler;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.PermissaoEnum;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.UserRole;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.Usuario;
+import br.com.hacerfak.coreWMS.modules.seguranca.service.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.expression.Expression;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de uma checagem de @PreAuthorize, do contexto de avaliação ao
+ * resultado: expressão antiga "hasAuthority('X') or hasRole('ADMIN')" no
+ * handler padrão contra "hasPermission('X')" no PermissaoExpressionHandler.
+ *
+ * O usuário tem todas as permissões exceto a última do enum; "concedida"
+ * pede a penúltima (fim da lista de autoridades) e "negada" a última (a
+ * expressão antiga ainda avalia hasRole).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermissaoBenchmark {
+
+    @Param({ "concedida", "negada" })
+    public String caso;
+
+    private DefaultMethodSecurityExpressionHandler handlerPadrao;
+    private PermissaoExpressionHandler handlerBitset;
+    private Expression expressaoAntiga;
+    private Expression expressaoBitset;
+    private Authentication autenticacao;
+    private SimpleMethodInvocation invocacao;
+
+    @Setup
+    public void preparar() throws NoSuchMethodException {
+        PermissaoEnum[] todas = PermissaoEnum.values();
+        BitSet bits = new BitSet();
+        bits.set(0, todas.length - 1);
+        long[] permissoes = bits.toLongArray();
+
+        Usuario usuario = Usuario.builder().id(1L).login("operador").role(UserRole.USER).ativo(true)
+                .permissoes(permissoes).build();
+        autenticacao = new UsernamePasswordAuthenticationToken(usuario, null,
+                new ArrayList<>(new TokenService().getAuthorities(false, permissoes)));
+        invocacao = new SimpleMethodInvocation(this, PermissaoBenchmark.class.getMethod("preparar"));
+
+        String alvo = "concedida".equals(caso) ? todas[todas.length - 2].name() : todas[todas.length - 1].name();
+
+        handlerPadrao = new DefaultMethodSecurityExpressionHandler();
+        expressaoAntiga = handlerPadrao.getExpressionParser()
+                .parseExpression("hasAuthority('" + alvo + "') or hasRole('ADMIN')");
+        handlerBitset = new PermissaoExpressionHandler();
+        expressaoBitset = handlerBitset.getExpressionParser().parseExpression("hasPermission('" + alvo + "')");
+    }
+
+    @Benchmark
+    public boolean autoridades() {
+        return ExpressionUtils.evaluateAsBoolean(expressaoAntiga,
+                handlerPadrao.createEvaluationContext(() -> autenticacao, invocacao));
+    }
+
+    @Benchmark
+    public boolean bitset() {
+        return ExpressionUtils.evaluateAsBoolean(expressaoBitset,
+                handlerBitset.createEvaluationContext(() -> autenticacao, invocacao));
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.hacerfak.coreWMS.benchmark;
+
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.PermissaoEnum;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.UserRole;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.Usuario;
+import br.com.hacerfak.coreWMS.modules.seguranca.service.TokenService;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parte em CPU da autenticação de uma requisição com JWT.
+ *
+ * "antigo" repete o que o SecurityFilter fazia: dois verifiers montados e
+ * duas verificações (validateToken + getTenantFromToken). A ida ao master
+ * para carregar o usuário com os acessos, que vinha em seguida, não entra
+ * aqui (depende de banco).
+ *
+ * "atual" é o caminho de hoje: uma verificação, claims, autoridades do
+ * bitset e um hit no cache de revogação (mesma configuração do
+ * RevogacaoTokenService, sem o carregamento JDBC).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBenchmark {
+
+    private static final String SEGREDO = "segredo-de-benchmark";
+
+    private TokenService tokenService;
+    private LoadingCache<Long, Integer> versoes;
+    private String token;
+
+    @Setup
+    public void preparar() {
+        tokenService = new TokenService();
+        ReflectionTestUtils.setField(tokenService, "secret", SEGREDO);
+        tokenService.iniciar();
+
+        Usuario usuario = Usuario.builder().id(42L).login("operador").role(UserRole.USER).ativo(true).build();
+        // Perfil típico de operador: metade das permissões
+        List<String> autoridades = Arrays.stream(PermissaoEnum.values())
+                .filter(p -> p.ordinal() % 2 == 0)
+                .map(PermissaoEnum::name)
+                .toList();
+        token = tokenService.generateToken(usuario, "tenant_benchmark", autoridades);
+
+        versoes = Caffeine.newBuilder().maximumSize(10_000).build(id -> 0);
+        versoes.get(42L);
+    }
+
+    @Benchmark
+    public void antigo(Blackhole bh) {
+        // validateToken
+        DecodedJWT jwt = JWT.require(Algorithm.HMAC256(SEGREDO)).withIssuer("wms-api").build().verify(token);
+        bh.consume(jwt.getSubject());
+        // getTenantFromToken
+        DecodedJWT deNovo = JWT.require(Algorithm.HMAC256(SEGREDO)).withIssuer("wms-api").build().verify(token);
+        bh.consume(deNovo.getClaim("tenant").asString());
+    }
+
+    @Benchmark
+    public void atual(Blackhole bh) {
+        DecodedJWT jwt = tokenService.verificar(token);
+        Long usuarioId = tokenService.getUsuarioId(jwt);
+        bh.consume(versoes.get(usuarioId) == tokenService.getVersao(jwt));
+        bh.consume(tokenService.getTenant(jwt));
+        boolean admin = tokenService.isAdmin(jwt);
+        bh.consume(tokenService.getAuthorities(admin, tokenService.getPermissoes(jwt)));
+    }
+}
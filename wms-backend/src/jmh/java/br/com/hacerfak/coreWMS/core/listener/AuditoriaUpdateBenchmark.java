@@ -0,0 +1,139 @@
+package br.com.hacerfak.coreWMS.core.listener;
+
+import br.com.hacerfak.coreWMS.core.util.DiffUtils;
+import br.com.hacerfak.coreWMS.modules.cadastro.domain.Parceiro;
+import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Transient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de auditar o UPDATE de um produto que mudou nome e preço.
+ *
+ * "antigo" repete o que o UPDATE custava antes do DirtyStateAuditListener: o
+ * GlobalAuditListener mandava a entidade sem estado anterior e o DiffUtils
+ * montava o snapshot inteiro (árvore Jackson, associações reduzidas a "ID: x").
+ *
+ * "atual" é o PerfilEntidade do listener sobre os arrays de estado que o
+ * Hibernate entrega, mais a serialização do mapa de campos alterados feita no
+ * AuditLotePublisher. Fica no pacote do listener para chamar o perfil direto.
+ * As propriedades saem dos campos persistentes do Produto em ordem alfabética,
+ * a mesma do persister do Hibernate 6; o setup lê os arrays por reflection,
+ * fora da medição.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditoriaUpdateBenchmark {
+
+    private ObjectMapper objectMapper;
+    private DiffUtils diffUtils;
+    private Produto produto;
+
+    private DirtyStateAuditListener.PerfilEntidade perfil;
+    private Object[] estadoAntigo;
+    private Object[] estadoAtual;
+    private int[] sujos;
+
+    @Setup
+    public void preparar() throws Exception {
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+        diffUtils = new DiffUtils(objectMapper);
+
+        Parceiro depositante = Parceiro.builder().id(7L).cpfCnpj("12345678000199").nome("Depositante Exemplo")
+                .tipo("CLIENTE").build();
+        LocalDateTime criacao = LocalDateTime.of(2024, 1, 15, 10, 30);
+        produto = Produto.builder().id(42L).sku("SKU-42").nome("Produto alterado").ean13("7891234567895")
+                .dun14("17891234567892").unidadeMedida("UN").pesoBrutoKg(new BigDecimal("1.250")).ncm("84713012")
+                .cest("2106400").valorUnitarioPadrao(new BigDecimal("21.9000")).depositante(depositante)
+                .controlaLote(true).unidadeArmazenagem("CX").fatorConversao(12).fatorEmpilhamento(3)
+                .criadoPor("admin").atualizadoPor("operador").dataCriacao(criacao)
+                .dataAtualizacao(criacao.plusDays(3)).build();
+        Produto original = Produto.builder().id(42L).sku("SKU-42").nome("Produto original").ean13("7891234567895")
+                .dun14("17891234567892").unidadeMedida("UN").pesoBrutoKg(new BigDecimal("1.250")).ncm("84713012")
+                .cest("2106400").valorUnitarioPadrao(new BigDecimal("19.9000")).depositante(depositante)
+                .controlaLote(true).unidadeArmazenagem("CX").fatorConversao(12).fatorEmpilhamento(3)
+                .criadoPor("admin").atualizadoPor("admin").dataCriacao(criacao).dataAtualizacao(criacao).build();
+
+        List<Field> campos = camposPersistentes(Produto.class);
+        String[] nomes = new String[campos.size()];
+        boolean[] colecao = new boolean[campos.size()];
+        boolean[] entidade = new boolean[campos.size()];
+        estadoAtual = new Object[campos.size()];
+        estadoAntigo = new Object[campos.size()];
+        List<Integer> alterados = new ArrayList<>();
+        for (int i = 0; i < campos.size(); i++) {
+            Field f = campos.get(i);
+            f.setAccessible(true);
+            nomes[i] = f.getName();
+            colecao[i] = Collection.class.isAssignableFrom(f.getType());
+            entidade[i] = f.isAnnotationPresent(ManyToOne.class) || f.isAnnotationPresent(OneToOne.class);
+            estadoAtual[i] = f.get(produto);
+            estadoAntigo[i] = f.get(original);
+            // Dirty checking: nome e preço, mais os campos técnicos de atualização
+            if (!Objects.equals(estadoAntigo[i], estadoAtual[i]))
+                alterados.add(i);
+        }
+        sujos = alterados.stream().mapToInt(Integer::intValue).toArray();
+        perfil = DirtyStateAuditListener.PerfilEntidade.de(Produto.class, nomes, colecao, entidade);
+
+        if (perfil.alteracoes(estadoAntigo, estadoAtual, sujos).size() != 2)
+            throw new IllegalStateException("Esperado nome e preço: " + List.of(nomes));
+        // O DiffUtils engole exceções e devolve um JSON de erro, que mediria outra coisa
+        if (antigo().contains("\"erro\""))
+            throw new IllegalStateException("DiffUtils não serializou o produto: " + antigo());
+    }
+
+    @Benchmark
+    public String antigo() {
+        return diffUtils.gerarDiff(null, produto);
+    }
+
+    @Benchmark
+    public String atual() throws Exception {
+        return objectMapper.writeValueAsString(perfil.alteracoes(estadoAntigo, estadoAtual, sujos));
+    }
+
+    // Campos mapeados da hierarquia (sem id, estáticos e @Transient), em ordem alfabética
+    static List<Field> camposPersistentes(Class<?> classe) {
+        List<Field> campos = new ArrayList<>();
+        for (Class<?> c = classe; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                int mod = f.getModifiers();
+                if (Modifier.isStatic(mod) || Modifier.isTransient(mod) || f.isAnnotationPresent(Transient.class)
+                        || f.isAnnotationPresent(Id.class))
+                    continue;
+                campos.add(f);
+            }
+        }
+        campos.sort(Comparator.comparing(Field::getName));
+        return campos;
+    }
+}
@@ -0,0 +1,35 @@
+package br.com.hacerfak.coreWMS.core.async;
+
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Leva o tenant e o usuário autenticado da thread que agenda a tarefa para a
+ * thread que a executa, e limpa os dois no fim (ThreadLocals não podem vazar
+ * para a próxima tarefa).
+ */
+public class ContextoTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable tarefa) {
+        String tenant = TenantContext.getTenant();
+        Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+
+        return () -> {
+            TenantContext.setTenant(tenant);
+            // Contexto novo: o original continua sendo da requisição
+            SecurityContext contexto = SecurityContextHolder.createEmptyContext();
+            contexto.setAuthentication(autenticacao);
+            SecurityContextHolder.setContext(contexto);
+            try {
+                tarefa.run();
+            } finally {
+                SecurityContextHolder.clearContext();
+                TenantContext.clear();
+            }
+        };
+    }
+}
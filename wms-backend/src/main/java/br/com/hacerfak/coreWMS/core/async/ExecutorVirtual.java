@@ -0,0 +1,138 @@
+package br.com.hacerfak.coreWMS.core.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor do @Async: uma virtual thread por tarefa, com teto de tarefas
+ * rodando ao mesmo tempo e de tarefas esperando vaga.
+ *
+ * A espera é a própria virtual thread estacionada no semáforo (barata); só a
+ * fila tem limite, e acima dele a tarefa é rejeitada em vez de acumular
+ * memória sem fim num pico.
+ *
+ * Quem precisa esperar outro limite dentro da tarefa (@LimiteConcorrencia)
+ * espera por aguardarForaDaVaga: a vaga global é devolvida durante a espera,
+ * senão tarefas paradas num limite estreito ocupariam as vagas de todas as
+ * outras.
+ */
+public class ExecutorVirtual implements Executor, AutoCloseable {
+
+    // Executor cuja vaga a tarefa desta thread ocupa
+    private static final ThreadLocal<ExecutorVirtual> VAGA_OCUPADA = new ThreadLocal<>();
+
+    private final ExecutorService threads = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("wms-async-", 0).factory());
+    private final TaskDecorator decorator;
+    private final Semaphore vagas;
+    private final int maxFila;
+    private final AtomicInteger naFila = new AtomicInteger();
+    private final AtomicInteger executando = new AtomicInteger();
+
+    private final Timer tempoExecucao;
+    private final Timer tempoEspera;
+    private final Counter rejeitadas;
+
+    public ExecutorVirtual(TaskDecorator decorator, int maxConcorrencia, int maxFila, MeterRegistry meterRegistry) {
+        this.decorator = decorator;
+        this.vagas = new Semaphore(Math.max(1, maxConcorrencia));
+        this.maxFila = Math.max(0, maxFila);
+
+        Gauge.builder("wms.async.fila", naFila, AtomicInteger::get)
+                .description("Tarefas @Async aguardando vaga no executor")
+                .register(meterRegistry);
+        Gauge.builder("wms.async.executando", executando, AtomicInteger::get)
+                .description("Tarefas @Async em execução")
+                .register(meterRegistry);
+        this.tempoExecucao = Timer.builder("wms.async.execucao")
+                .description("Tempo de execução das tarefas @Async")
+                .register(meterRegistry);
+        this.tempoEspera = Timer.builder("wms.async.espera")
+                .description("Tempo entre o agendamento e o início da tarefa @Async")
+                .register(meterRegistry);
+        this.rejeitadas = Counter.builder("wms.async.rejeitadas")
+                .description("Tarefas @Async rejeitadas com a fila cheia")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void execute(Runnable tarefa) {
+        // Conta da submissão até ganhar vaga
+        if (naFila.incrementAndGet() > maxFila) {
+            naFila.decrementAndGet();
+            rejeitadas.increment();
+            throw new TaskRejectedException("Executor assíncrono saturado: " + maxFila + " tarefas aguardando");
+        }
+
+        Runnable decorada = decorator.decorate(tarefa);
+        long agendadaEm = System.nanoTime();
+        try {
+            threads.execute(() -> {
+                vagas.acquireUninterruptibly();
+                naFila.decrementAndGet();
+                executando.incrementAndGet();
+                long inicio = System.nanoTime();
+                tempoEspera.record(inicio - agendadaEm, TimeUnit.NANOSECONDS);
+                VAGA_OCUPADA.set(this);
+                try {
+                    decorada.run();
+                } finally {
+                    VAGA_OCUPADA.remove();
+                    tempoExecucao.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                    executando.decrementAndGet();
+                    vagas.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            naFila.decrementAndGet();
+            rejeitadas.increment();
+            throw new TaskRejectedException("Executor assíncrono encerrado", e);
+        }
+    }
+
+    /**
+     * Adquire o semáforo. Numa tarefa deste executor, devolve a vaga global
+     * enquanto espera e a pega de volta depois (ordem sempre semáforo ->
+     * vaga: ninguém espera o semáforo segurando vaga). Fora dele, só espera.
+     */
+    public static void aguardarForaDaVaga(Semaphore semaforo) throws InterruptedException {
+        ExecutorVirtual executor = VAGA_OCUPADA.get();
+        if (executor == null) {
+            semaforo.acquire();
+            return;
+        }
+        // Parada aqui volta a contar na fila: o teto de tarefas esperando vale para as duas esperas
+        executor.executando.decrementAndGet();
+        executor.naFila.incrementAndGet();
+        executor.vagas.release();
+        try {
+            semaforo.acquire();
+        } finally {
+            // Também se interrompida: o finally da tarefa devolve a vaga
+            executor.vagas.acquireUninterruptibly();
+            executor.naFila.decrementAndGet();
+            executor.executando.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() {
+        threads.shutdown();
+        try {
+            threads.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package br.com.hacerfak.coreWMS.core.async;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limita quantas execuções do método rodam ao mesmo tempo (semáforo por
+ * nome). Em métodos @Async o limite vale dentro da thread assíncrona: o
+ * excedente espera vaga sem ocupar conexão do banco.
+ *
+ * O teto pode ser trocado por configuração: wms.async.limites.&lt;nome&gt;.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LimiteConcorrencia {
+
+    /** Nome do limite (métricas e chave de configuração). */
+    String nome();
+
+    /** Execuções simultâneas quando não houver configuração. */
+    int padrao();
+}
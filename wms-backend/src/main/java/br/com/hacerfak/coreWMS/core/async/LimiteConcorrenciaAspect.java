@@ -0,0 +1,73 @@
+package br.com.hacerfak.coreWMS.core.async;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Aplica o @LimiteConcorrencia. Um semáforo justo por nome, criado no
+ * primeiro uso com o teto da configuração (ou o padrão da anotação). Sem
+ * vaga no limite, a espera é feita fora da vaga global do ExecutorVirtual.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class LimiteConcorrenciaAspect {
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Limite> limites = new ConcurrentHashMap<>();
+
+    @Around("@annotation(limiteConcorrencia)")
+    public Object limitar(ProceedingJoinPoint joinPoint, LimiteConcorrencia limiteConcorrencia) throws Throwable {
+        Limite limite = limites.computeIfAbsent(limiteConcorrencia.nome(), nome -> criar(nome,
+                environment.getProperty("wms.async.limites." + nome, Integer.class, limiteConcorrencia.padrao())));
+
+        long inicio = System.nanoTime();
+        // tryAcquire com prazo zero respeita a fila do semáforo justo
+        if (!limite.semaforo().tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            limite.aguardando().incrementAndGet();
+            try {
+                ExecutorVirtual.aguardarForaDaVaga(limite.semaforo());
+            } finally {
+                limite.aguardando().decrementAndGet();
+            }
+        }
+        limite.espera().record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+
+        try {
+            return joinPoint.proceed();
+        } finally {
+            limite.semaforo().release();
+        }
+    }
+
+    private Limite criar(String nome, int maximo) {
+        Limite limite = new Limite(new Semaphore(Math.max(1, maximo), true), new AtomicInteger(),
+                Timer.builder("wms.async.limite.espera")
+                        .description("Espera por vaga no limite de concorrência")
+                        .tag("limite", nome)
+                        .register(meterRegistry));
+        Gauge.builder("wms.async.limite.fila", limite.aguardando(), AtomicInteger::get)
+                .description("Execuções aguardando vaga no limite de concorrência")
+                .tag("limite", nome)
+                .register(meterRegistry);
+        return limite;
+    }
+
+    private record Limite(Semaphore semaforo, AtomicInteger aguardando, Timer espera) {
+    }
+}
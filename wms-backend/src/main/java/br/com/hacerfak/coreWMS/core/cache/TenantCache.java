@@ -0,0 +1,190 @@
+package br.com.hacerfak.coreWMS.core.cache;
+
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache de dois níveis com chave isolada por tenant.
+ *
+ * Toda chave vira "tenant:chave" antes de chegar em qualquer nível, então ids
+ * iguais em bancos de tenants diferentes nunca se misturam.
+ *
+ * L1 (Caffeine, no processo) guarda o valor já serializado e devolve uma cópia
+ * a cada leitura: entidades JPA em cache não são compartilhadas entre threads.
+ * L2 é o RedisCache de sempre. Escritas e remoções passam pelos dois níveis e
+ * são avisadas aos outros nós pelo TenantCacheManager.
+ */
+public class TenantCache implements org.springframework.cache.Cache {
+
+    static final String SEPARADOR = ":";
+
+    private final String nome;
+    private final RedisCache l2;
+    private final Cache<String, byte[]> l1;
+    private final SerializationPair<Object> serializacao;
+    private final TenantCacheManager manager;
+
+    // Contadores wms.cache.acessos do tenant, registrados uma vez
+    private final Map<String, Acessos> acessosPorTenant = new ConcurrentHashMap<>();
+
+    TenantCache(String nome, RedisCache l2, Cache<String, byte[]> l1, TenantCacheManager manager) {
+        this.nome = nome;
+        this.l2 = l2;
+        this.l1 = l1;
+        this.serializacao = l2.getCacheConfiguration().getValueSerializationPair();
+        this.manager = manager;
+    }
+
+    @Override
+    public String getName() {
+        return nome;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l2.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String tenant = TenantContext.getTenant();
+        String chave = chave(tenant, key);
+
+        Acessos acessos = acessos(tenant);
+        byte[] local = l1.getIfPresent(chave);
+        if (local != null) {
+            acessos.l1Hit().increment();
+            return new SimpleValueWrapper(ler(local));
+        }
+        acessos.l1Miss().increment();
+
+        ValueWrapper remoto = l2.get(chave);
+        (remoto != null ? acessos.l2Hit() : acessos.l2Miss()).increment();
+        if (remoto != null) {
+            guardarLocal(chave, remoto.get());
+        }
+        return remoto;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object valor = wrapper != null ? wrapper.get() : null;
+        if (valor != null && type != null && !type.isInstance(valor)) {
+            throw new IllegalStateException(
+                    "Valor em cache não é do tipo [" + type.getName() + "]: " + valor);
+        }
+        return (T) valor;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String tenant = TenantContext.getTenant();
+        String chave = chave(tenant, key);
+
+        Acessos acessos = acessos(tenant);
+        byte[] local = l1.getIfPresent(chave);
+        if (local != null) {
+            acessos.l1Hit().increment();
+            return (T) ler(local);
+        }
+        acessos.l1Miss().increment();
+
+        // O RedisCache já serializa a carga (sync) e grava no L2; o loader só
+        // roda quando o L2 não tem a chave
+        boolean[] carregou = new boolean[1];
+        T valor = l2.get(chave, () -> {
+            carregou[0] = true;
+            return valueLoader.call();
+        });
+        (carregou[0] ? acessos.l2Miss() : acessos.l2Hit()).increment();
+        guardarLocal(chave, valor);
+        return valor;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String chave = chave(TenantContext.getTenant(), key);
+        l2.put(chave, value);
+        guardarLocal(chave, value);
+        manager.publicarInvalidacao(nome, chave);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String chave = chave(TenantContext.getTenant(), key);
+        l1.invalidate(chave);
+        l2.evict(chave);
+        manager.publicarInvalidacao(nome, chave);
+    }
+
+    /**
+     * Limpa só as entradas do tenant corrente (@CacheEvict(allEntries = true)
+     * de um tenant não derruba o cache dos outros).
+     */
+    @Override
+    public void clear() {
+        String prefixo = TenantContext.getTenant() + SEPARADOR;
+        invalidarLocalPorPrefixo(prefixo);
+        // O RedisCache aplica o prefixo do cache ao padrão; a remoção segue a
+        // BatchStrategy do writer (SCAN, ver CacheConfig)
+        l2.clear(prefixo + "*");
+        manager.publicarInvalidacao(nome, prefixo + "*");
+    }
+
+    // --- Usados pelo TenantCacheManager ao receber invalidação de outro nó ---
+
+    void invalidarLocal(String chave) {
+        if (chave.endsWith("*")) {
+            invalidarLocalPorPrefixo(chave.substring(0, chave.length() - 1));
+        } else {
+            l1.invalidate(chave);
+        }
+    }
+
+    long tamanhoLocal() {
+        return l1.estimatedSize();
+    }
+
+    private Acessos acessos(String tenant) {
+        return acessosPorTenant.computeIfAbsent(tenant, t -> new Acessos(
+                manager.contadorAcesso(nome, t, "l1", true),
+                manager.contadorAcesso(nome, t, "l1", false),
+                manager.contadorAcesso(nome, t, "l2", true),
+                manager.contadorAcesso(nome, t, "l2", false)));
+    }
+
+    private void invalidarLocalPorPrefixo(String prefixo) {
+        l1.asMap().keySet().removeIf(k -> k.startsWith(prefixo));
+    }
+
+    private void guardarLocal(String chave, Object valor) {
+        // Nulos não vão para o L1 (o L2 também não guarda nulos)
+        if (valor != null) {
+            l1.put(chave, ByteUtils.getBytes(serializacao.write(valor)));
+        }
+    }
+
+    private Object ler(byte[] bytes) {
+        return serializacao.read(ByteBuffer.wrap(bytes));
+    }
+
+    private static String chave(String tenant, Object key) {
+        return tenant + SEPARADOR + key;
+    }
+
+    private record Acessos(Counter l1Hit, Counter l1Miss, Counter l2Hit, Counter l2Miss) {
+    }
+}
@@ -0,0 +1,140 @@
+package br.com.hacerfak.coreWMS.core.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CacheManager tenant-aware com L1 Caffeine na frente do Redis.
+ *
+ * Coerência entre nós: put/evict/clear publicam a chave afetada no canal
+ * CANAL_INVALIDACAO; cada nó remove a chave do próprio L1 (mensagens do
+ * próprio nó são ignoradas). Se uma mensagem se perder, o TTL curto do L1
+ * limita o tempo de leitura desatualizada. O mesmo canal leva as invalidações
+ * do índice ATP (AtpIndexService); aqui elas caem fora por não serem de um cache.
+ *
+ * Métricas (por cache e tenant):
+ * - wms.cache.acessos{nivel=l1|l2, resultado=hit|miss}
+ * - wms.cache.remocoes{causa=SIZE|EXPIRED} (remoções automáticas do L1)
+ * - wms.cache.l1.tamanho (por cache)
+ */
+@Slf4j
+public class TenantCacheManager implements CacheManager, MessageListener {
+
+    public static final String CANAL_INVALIDACAO = "wms:cache:invalidacao";
+
+    // Campos da mensagem: origem, cache, chave
+    private static final String SEPARADOR_MENSAGEM = "\u001F";
+
+    private final RedisCacheManager redisCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long l1MaxEntradas;
+    private final Duration l1Ttl;
+    private final String noId = UUID.randomUUID().toString();
+
+    private final Map<String, TenantCache> caches = new ConcurrentHashMap<>();
+
+    public TenantCacheManager(RedisCacheManager redisCacheManager, StringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry, long l1MaxEntradas, Duration l1Ttl) {
+        this.redisCacheManager = redisCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.l1MaxEntradas = l1MaxEntradas;
+        this.l1Ttl = l1Ttl;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::criar);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TenantCache criar(String nome) {
+        RedisCache l2 = (RedisCache) redisCacheManager.getCache(nome);
+        if (l2 == null)
+            return null;
+
+        com.github.benmanes.caffeine.cache.Cache<String, byte[]> l1 = Caffeine.newBuilder()
+                .maximumSize(l1MaxEntradas)
+                .expireAfterWrite(l1Ttl)
+                .<String, byte[]>removalListener((chave, valor, causa) -> registrarRemocao(nome, chave, causa))
+                .build();
+
+        TenantCache cache = new TenantCache(nome, l2, l1, this);
+        Gauge.builder("wms.cache.l1.tamanho", cache, TenantCache::tamanhoLocal)
+                .description("Entradas no L1 (Caffeine) do cache")
+                .tag("cache", nome)
+                .register(meterRegistry);
+        return cache;
+    }
+
+    // --- INVALIDAÇÃO ENTRE NÓS ---
+
+    void publicarInvalidacao(String cache, String chave) {
+        try {
+            redisTemplate.convertAndSend(CANAL_INVALIDACAO,
+                    noId + SEPARADOR_MENSAGEM + cache + SEPARADOR_MENSAGEM + chave);
+        } catch (Exception e) {
+            // Sem Redis o L2 também falhou; o TTL do L1 cobre os outros nós
+            log.warn("Falha ao publicar invalidação de cache {} [{}]: {}", cache, chave, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] partes = new String(message.getBody(), StandardCharsets.UTF_8).split(SEPARADOR_MENSAGEM, 3);
+        if (partes.length < 3 || noId.equals(partes[0]))
+            return;
+
+        TenantCache cache = caches.get(partes[1]);
+        if (cache != null) {
+            cache.invalidarLocal(partes[2]);
+        }
+    }
+
+    // --- MÉTRICAS ---
+
+    // Chamado uma vez por cache + tenant + nível + resultado; o TenantCache guarda o contador
+    Counter contadorAcesso(String cache, String tenant, String nivel, boolean hit) {
+        return Counter.builder("wms.cache.acessos")
+                .description("Leituras de cache por nível")
+                .tags("cache", cache, "tenant", tenant, "nivel", nivel, "resultado", hit ? "hit" : "miss")
+                .register(meterRegistry);
+    }
+
+    private void registrarRemocao(String cache, String chave, RemovalCause causa) {
+        // Só remoções automáticas (tamanho/TTL); evict explícito não conta
+        if (chave == null || !causa.wasEvicted())
+            return;
+        int fim = chave.indexOf(TenantCache.SEPARADOR);
+        String tenant = fim > 0 ? chave.substring(0, fim) : "desconhecido";
+        Counter.builder("wms.cache.remocoes")
+                .description("Entradas removidas do L1 por tamanho ou expiração")
+                .tags("cache", cache, "tenant", tenant, "causa", causa.name())
+                .register(meterRegistry)
+                .increment();
+    }
+}
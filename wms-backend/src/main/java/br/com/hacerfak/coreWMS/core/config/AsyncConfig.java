@@ -0,0 +1,59 @@
+package br.com.hacerfak.coreWMS.core.config;
+
+import br.com.hacerfak.coreWMS.core.async.ContextoTaskDecorator;
+import br.com.hacerfak.coreWMS.core.async.ExecutorVirtual;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executor dos métodos @Async (inclusive listeners de evento).
+ *
+ * Virtual threads com teto de concorrência e de fila (wms.async.*), e o
+ * ContextoTaskDecorator propagando tenant e usuário: os listeners não
+ * precisam mais setar o TenantContext na mão.
+ */
+@Configuration
+@Slf4j
+public class AsyncConfig implements AsyncConfigurer {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxConcorrencia;
+    private final int maxFila;
+
+    private ExecutorVirtual executor;
+
+    public AsyncConfig(MeterRegistry meterRegistry,
+            @Value("${wms.async.max-concorrencia:200}") int maxConcorrencia,
+            @Value("${wms.async.max-fila:10000}") int maxFila) {
+        this.meterRegistry = meterRegistry;
+        this.maxConcorrencia = maxConcorrencia;
+        this.maxFila = maxFila;
+    }
+
+    // Fora do contexto como bean: não substitui o applicationTaskExecutor do Boot
+    @Override
+    public synchronized Executor getAsyncExecutor() {
+        if (executor == null)
+            executor = new ExecutorVirtual(new ContextoTaskDecorator(), maxConcorrencia, maxFila, meterRegistry);
+        return executor;
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (erro, metodo, parametros) -> log.error("Erro em {}.{} (@Async)",
+                metodo.getDeclaringClass().getSimpleName(), metodo.getName(), erro);
+    }
+
+    @PreDestroy
+    public synchronized void encerrar() {
+        if (executor != null)
+            executor.close();
+    }
+}
@@ -1,11 +1,20 @@
 package br.com.hacerfak.coreWMS.core.config;
 
+import br.com.hacerfak.coreWMS.core.cache.TenantCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
 import java.time.Duration;
 
 @Configuration
@@ -13,16 +22,38 @@ import java.time.Duration;
 public class CacheConfig {
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public TenantCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+            StringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${wms.cache.l1.max-entradas:10000}") long l1MaxEntradas,
+            @Value("${wms.cache.l1.ttl-segundos:60}") long l1TtlSegundos) {
         // Configuração padrão: TTL de 10 minutos e sem cachear nulos
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(10))
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(redisConnectionFactory)
+        // clear() por tenant remove por padrão: SCAN em blocos em vez de KEYS (que trava o Redis)
+        RedisCacheWriter writer = RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory,
+                BatchStrategies.scan(1000));
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(writer)
                 .cacheDefaults(config)
                 // É possível definir TTLs específicos por cache se necessário
                 // .withCacheConfiguration("produtos", config.entryTtl(Duration.ofHours(1)))
                 .build();
+        redisCacheManager.initializeCaches();
+
+        // L2 (Redis) fica atrás do L1 (Caffeine); chaves prefixadas pelo tenant
+        return new TenantCacheManager(redisCacheManager, redisTemplate, meterRegistry,
+                l1MaxEntradas, Duration.ofSeconds(l1TtlSegundos));
+    }
+
+    // Invalidação do L1 entre nós (Redis pub/sub)
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidacaoContainer(RedisConnectionFactory redisConnectionFactory,
+            TenantCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TenantCacheManager.CANAL_INVALIDACAO));
+        return container;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package br.com.hacerfak.coreWMS.core.config;
+
+import br.com.hacerfak.coreWMS.core.listener.DirtyStateAuditListener;
+import br.com.hacerfak.coreWMS.modules.auditoria.service.AuditService;
+import br.com.hacerfak.coreWMS.modules.auditoria.service.PoliticaAuditoriaService;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registra o DirtyStateAuditListener no SessionFactory (UPDATE auditado pelo
+ * estado sujo do Hibernate em vez do @PostUpdate do GlobalAuditListener).
+ */
+@Configuration
+@RequiredArgsConstructor
+public class HibernateAuditConfig {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final AuditService auditService;
+    private final PoliticaAuditoriaService politicaAuditoriaService;
+
+    @PostConstruct
+    public void registrarListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_UPDATE, new DirtyStateAuditListener(auditService, politicaAuditoriaService));
+    }
+}
@@ -2,10 +2,12 @@ package br.com.hacerfak.coreWMS.core.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter; // Usamos a classe comprovada
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,6 +15,7 @@ import org.springframework.context.annotation.Configuration;
 public class MessagingConfig {
 
     public static final String QUEUE_AUDITORIA = "wms.auditoria.queue";
+    public static final String QUEUE_AUDITORIA_LOTE = "wms.auditoria.lote.queue";
     public static final String QUEUE_FATURAMENTO = "wms.faturamento.queue";
 
     @Bean
@@ -20,6 +23,11 @@ public class MessagingConfig {
         return new Queue(QUEUE_AUDITORIA, true);
     }
 
+    @Bean
+    public Queue auditoriaLoteQueue() {
+        return new Queue(QUEUE_AUDITORIA_LOTE, true);
+    }
+
     @Bean
     public Queue faturamentoQueue() {
         return new Queue(QUEUE_FATURAMENTO, true);
@@ -42,4 +50,24 @@ public class MessagingConfig {
         template.setMessageConverter(jsonMessageConverter);
         return template;
     }
-}
\ No newline at end of file
+
+    /**
+     * Consumidores da auditoria: ack manual (feito pelo AuditLogBulkWriter após
+     * gravar no Mongo) e prefetch alto para o bulk encher sem esperar o broker.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory auditoriaListenerFactory(ConnectionFactory connectionFactory,
+            MessageConverter jsonMessageConverter,
+            @Value("${wms.auditoria.consumer.prefetch:250}") int prefetch,
+            @Value("${wms.auditoria.consumer.concorrencia:1}") int concorrencia,
+            @Value("${wms.auditoria.consumer.max-concorrencia:4}") int maxConcorrencia) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(prefetch);
+        factory.setConcurrentConsumers(concorrencia);
+        factory.setMaxConcurrentConsumers(Math.max(concorrencia, maxConcorrencia));
+        return factory;
+    }
+}
@@ -1,8 +1,9 @@
 package br.com.hacerfak.coreWMS.core.config;
 
 import br.com.hacerfak.coreWMS.core.multitenant.MultiTenantDataSource;
-import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
 import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,10 +12,9 @@ import org.springframework.jdbc.core.JdbcTemplate;
 
 import javax.sql.DataSource;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
+@Slf4j
 public class MultiTenantConfig {
 
     @Value("${spring.datasource.url}")
@@ -26,6 +26,18 @@ public class MultiTenantConfig {
     @Value("${spring.datasource.driver-class-name}")
     private String driverClassName;
 
+    // Teto da soma dos pools de tenants neste nó (o master tem o seu, de 20)
+    @Value("${wms.tenant.pool.max-conexoes:150}")
+    private int maxConexoesTenants;
+    @Value("${wms.tenant.pool.max-por-tenant:10}")
+    private int maxPorTenant;
+    @Value("${wms.tenant.pool.min-por-tenant:2}")
+    private int minPorTenant;
+    @Value("${wms.tenant.pool.ocioso-ms:600000}")
+    private long poolOciosoMs;
+    @Value("${wms.tenant.pool.conexao-ociosa-ms:60000}")
+    private long conexaoOciosaMs;
+
     @Bean
     public DataSource masterDataSource() {
         HikariDataSource dataSource = new HikariDataSource();
@@ -41,15 +53,13 @@ public class MultiTenantConfig {
 
     @Bean
     @Primary
-    public MultiTenantDataSource dataSource(DataSource masterDataSource) { // REMOVIDO: EmpresaRepository
-        MultiTenantDataSource routingDataSource = new MultiTenantDataSource();
-
-        Map<Object, Object> targetDataSources = new ConcurrentHashMap<>();
+    public MultiTenantDataSource dataSource(DataSource masterDataSource, MeterRegistry meterRegistry) {
+        // Pools dos tenants abrem no primeiro uso (MultiTenantDataSource)
+        MultiTenantDataSource routingDataSource = new MultiTenantDataSource(masterDataSource,
+                this::createTenantDataSource, meterRegistry, maxConexoesTenants, maxPorTenant, minPorTenant,
+                poolOciosoMs);
 
-        // 1. Define o Master
-        targetDataSources.put(TenantContext.DEFAULT_TENANT_ID, masterDataSource);
-
-        // 2. Carrega tenants usando JDBC PURO (Para evitar ciclo com JPA)
+        // Carrega só os IDs dos tenants usando JDBC PURO (Para evitar ciclo com JPA)
         try {
             JdbcTemplate jdbcTemplate = new JdbcTemplate(masterDataSource);
 
@@ -57,41 +67,44 @@ public class MultiTenantConfig {
             String sql = "SELECT tenant_id FROM tb_empresa WHERE ativo = true";
 
             List<String> tenantIds = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getString("tenant_id"));
+            routingDataSource.registrarTenants(tenantIds);
 
-            for (String tenantId : tenantIds) {
-                targetDataSources.put(tenantId, createTenantDataSource(tenantId));
-            }
-
-            System.out.println(">>> MULTI-TENANT: " + tenantIds.size() + " tenants carregados via JDBC.");
+            log.info(">>> MULTI-TENANT: {} tenants registrados (pools sob demanda).", tenantIds.size());
 
         } catch (Exception e) {
             // No primeiro boot (tabela não existe), é normal falhar. O Flyway vai criar
             // depois.
-            System.err
-                    .println(">>> Aviso: Não foi possível carregar tenants iniciais (Tabela pode não existir ainda).");
+            log.warn(">>> Aviso: Não foi possível carregar tenants iniciais (Tabela pode não existir ainda): {}",
+                    e.getMessage());
         }
 
-        routingDataSource.setTargetDataSources(targetDataSources);
-        routingDataSource.setDefaultTargetDataSource(masterDataSource);
         routingDataSource.afterPropertiesSet();
 
         return routingDataSource;
     }
 
-    public DataSource createTenantDataSource(String tenantDbName) {
+    /**
+     * Pool de um tenant. Sem conexões mínimas: as ociosas fecham sozinhas e
+     * o pool inteiro é fechado pelo MultiTenantDataSource quando fica parado.
+     */
+    public HikariDataSource createTenantDataSource(String tenantDbName, int maximoConexoes) {
         HikariDataSource dataSource = new HikariDataSource();
         dataSource.setDriverClassName(driverClassName);
+        dataSource.setJdbcUrl(urlDoTenant(tenantDbName));
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setPoolName("TenantPool-" + tenantDbName);
+        dataSource.setMaximumPoolSize(maximoConexoes);
+        dataSource.setMinimumIdle(0);
+        dataSource.setIdleTimeout(Math.max(10_000, conexaoOciosaMs));
+        return dataSource;
+    }
 
+    public String urlDoTenant(String tenantDbName) {
         String tenantUrl = url.replace("wms_master", tenantDbName);
         if (tenantUrl.equals(url)) {
             tenantUrl = url.substring(0, url.lastIndexOf("/") + 1) + tenantDbName;
         }
-
-        dataSource.setJdbcUrl(tenantUrl);
-        dataSource.setUsername(username);
-        dataSource.setPassword(password);
-        dataSource.setPoolName("TenantPool-" + tenantDbName);
-        dataSource.setMaximumPoolSize(10);
-        return dataSource;
+        return tenantUrl;
     }
-}
\ No newline at end of file
+}
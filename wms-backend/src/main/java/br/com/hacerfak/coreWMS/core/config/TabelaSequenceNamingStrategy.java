@@ -0,0 +1,47 @@
+package br.com.hacerfak.coreWMS.core.config;
+
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.relational.QualifiedName;
+import org.hibernate.boot.model.relational.QualifiedSequenceName;
+import org.hibernate.boot.model.relational.QualifiedTableName;
+import org.hibernate.engine.jdbc.env.spi.JdbcEnvironment;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.ImplicitDatabaseObjectNamingStrategy;
+import org.hibernate.service.ServiceRegistry;
+
+import java.util.Map;
+
+/**
+ * Nome implícito das sequences de ID: "<tabela>_id_seq".
+ *
+ * É exatamente o nome que o Postgres criou para as colunas BIGSERIAL, então o
+ * BaseEntity passa a usar SEQUENCE (com otimizador pooled-lo e INSERT em
+ * batch) reaproveitando as sequences existentes, uma por tabela.
+ *
+ * Registrado em spring.jpa.properties.hibernate.id.db_structure_naming_strategy.
+ */
+public class TabelaSequenceNamingStrategy implements ImplicitDatabaseObjectNamingStrategy {
+
+    @Override
+    public QualifiedName determineSequenceName(Identifier catalogName, Identifier schemaName,
+            Map<?, ?> configValues, ServiceRegistry serviceRegistry) {
+        Object tabela = configValues.get(PersistentIdentifierGenerator.TABLE);
+        if (tabela == null) {
+            throw new IllegalStateException("Tabela não informada para a sequence implícita.");
+        }
+        return new QualifiedSequenceName(catalogName, schemaName,
+                identificador(tabela + "_id_seq", serviceRegistry));
+    }
+
+    @Override
+    public QualifiedName determineTableName(Identifier catalogName, Identifier schemaName,
+            Map<?, ?> configValues, ServiceRegistry serviceRegistry) {
+        // Não usamos TABLE generator; mantém o nome padrão do Hibernate
+        return new QualifiedTableName(catalogName, schemaName,
+                identificador("hibernate_sequences", serviceRegistry));
+    }
+
+    private Identifier identificador(String nome, ServiceRegistry serviceRegistry) {
+        return serviceRegistry.requireService(JdbcEnvironment.class).getIdentifierHelper().toIdentifier(nome);
+    }
+}
@@ -24,8 +24,11 @@ public abstract class BaseEntity implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    // SEQUENCE (uma por tabela, "<tabela>_id_seq", incremento 50) com otimizador
+    // pooled-lo: o Hibernate reserva 50 ids por ida ao banco e consegue agrupar
+    // os INSERTs em batch (com IDENTITY cada INSERT precisava voltar o id)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @CreatedBy
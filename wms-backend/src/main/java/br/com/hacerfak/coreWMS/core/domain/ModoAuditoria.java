@@ -0,0 +1,15 @@
+package br.com.hacerfak.coreWMS.core.domain;
+
+/**
+ * Quanto registrar de uma operação (CREATE/UPDATE/DELETE) auditada.
+ */
+public enum ModoAuditoria {
+    /** Estado completo da entidade (snapshot). */
+    COMPLETA,
+    /** UPDATE: só os campos alterados. CREATE/DELETE: só o evento e o id. */
+    ALTERACOES,
+    /** Como ALTERACOES, mas só para um percentual das operações. */
+    AMOSTRAGEM,
+    /** Não audita. */
+    DESLIGADA
+}
@@ -0,0 +1,26 @@
+package br.com.hacerfak.coreWMS.core.domain;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Política de auditoria da entidade, por operação. Sem a anotação vale o
+ * padrão abaixo. Cada tenant pode sobrescrever em tb_sistema_config com a
+ * chave AUDITORIA_<ENTIDADE>_<CREATE|UPDATE|DELETE> e valor no formato
+ * "DESLIGADA" ou "AMOSTRAGEM:5" (ex: AUDITORIA_ESTOQUESALDO_UPDATE).
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PoliticaAuditoria {
+
+    ModoAuditoria criacao() default ModoAuditoria.COMPLETA;
+
+    ModoAuditoria alteracao() default ModoAuditoria.ALTERACOES;
+
+    ModoAuditoria exclusao() default ModoAuditoria.COMPLETA;
+
+    /** Percentual (1-100) auditado nas operações em AMOSTRAGEM. */
+    int amostragem() default 10;
+}
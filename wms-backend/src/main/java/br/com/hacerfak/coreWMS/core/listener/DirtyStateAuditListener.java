@@ -0,0 +1,160 @@
+package br.com.hacerfak.coreWMS.core.listener;
+
+import br.com.hacerfak.coreWMS.core.domain.BaseEntity;
+import br.com.hacerfak.coreWMS.core.domain.ModoAuditoria;
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.core.util.DiffUtils;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.AlteracaoCampo;
+import br.com.hacerfak.coreWMS.modules.auditoria.service.AuditService;
+import br.com.hacerfak.coreWMS.modules.auditoria.service.PoliticaAuditoriaService;
+import jakarta.persistence.EntityListeners;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.Type;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Auditoria de UPDATE a partir do estado que o Hibernate já tem em mãos.
+ *
+ * O dirty checking já comparou o estado carregado com o atual; aqui só se lê
+ * event.getOldState()/getState() nas posições de getDirtyProperties(), sem
+ * passar a entidade por Jackson nem reflection. Associações viram "ID: x"
+ * (sem inicializar proxies) e coleções ficam de fora.
+ *
+ * Vale para as mesmas entidades do GlobalAuditListener (que cuida de CREATE
+ * e DELETE). O que auditar de cada entidade é decidido uma vez, no primeiro
+ * UPDATE dela; a PoliticaAuditoria é consultada antes de montar o diff.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class DirtyStateAuditListener implements PostUpdateEventListener {
+
+    private static final Set<String> CAMPOS_IGNORADOS = Set.copyOf(DiffUtils.CAMPOS_IGNORADOS);
+
+    private final AuditService auditService;
+    private final PoliticaAuditoriaService politicaService;
+
+    private final Map<String, PerfilEntidade> perfis = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        try {
+            PerfilEntidade perfil = perfis.computeIfAbsent(event.getPersister().getEntityName(),
+                    nome -> PerfilEntidade.de(event.getPersister()));
+            if (!perfil.auditavel())
+                return;
+
+            ModoAuditoria modo = politicaService.decidir(event.getPersister().getMappedClass(), "UPDATE");
+            if (modo == ModoAuditoria.DESLIGADA)
+                return;
+            if (modo == ModoAuditoria.COMPLETA) {
+                // Snapshot do estado atual (DiffUtils), como na auditoria de CREATE
+                auditService.registrarAuditoria("UPDATE", event.getEntity(), String.valueOf(event.getId()), null,
+                        event.getEntity(), TenantContext.getTenant(), GlobalAuditListener.getUsuarioLogado(),
+                        GlobalAuditListener.getIpCliente(), GlobalAuditListener.getUserAgent());
+                return;
+            }
+
+            Map<String, AlteracaoCampo> alteracoes = perfil.alteracoes(event.getOldState(), event.getState(),
+                    event.getDirtyProperties());
+            // Só mudaram campos técnicos (data/usuário de atualização, versão...)
+            if (alteracoes.isEmpty())
+                return;
+
+            auditService.registrarAlteracoes(event.getEntity(), String.valueOf(event.getId()), alteracoes,
+                    TenantContext.getTenant(), GlobalAuditListener.getUsuarioLogado(),
+                    GlobalAuditListener.getIpCliente(), GlobalAuditListener.getUserAgent());
+        } catch (Exception e) {
+            log.error("Erro ao processar auditoria: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Propriedades da entidade na ordem dos arrays de estado do Hibernate, com
+     * a decisão (auditar ou não, como renderizar) já tomada por posição.
+     */
+    record PerfilEntidade(boolean auditavel, String[] nomes, boolean[] ignorar, boolean[] associacao) {
+
+        static PerfilEntidade de(EntityPersister persister) {
+            String[] nomes = persister.getPropertyNames();
+            Type[] tipos = persister.getPropertyTypes();
+            boolean[] colecao = new boolean[nomes.length];
+            boolean[] entidade = new boolean[nomes.length];
+            for (int i = 0; i < nomes.length; i++) {
+                colecao[i] = tipos[i].isCollectionType();
+                entidade[i] = tipos[i].isEntityType();
+            }
+            return de(persister.getMappedClass(), nomes, colecao, entidade);
+        }
+
+        /**
+         * Mesmo perfil a partir de nomes e tipos já resolvidos, sem persister
+         * (testes e benchmark).
+         */
+        static PerfilEntidade de(Class<?> classe, String[] nomes, boolean[] colecao, boolean[] entidade) {
+            boolean[] ignorar = new boolean[nomes.length];
+            for (int i = 0; i < nomes.length; i++) {
+                ignorar[i] = CAMPOS_IGNORADOS.contains(nomes[i]) || colecao[i];
+            }
+            return new PerfilEntidade(usaGlobalAuditListener(classe), nomes, ignorar, entidade.clone());
+        }
+
+        Map<String, AlteracaoCampo> alteracoes(Object[] antigo, Object[] atual, int[] sujos) {
+            Map<String, AlteracaoCampo> resultado = new LinkedHashMap<>();
+            if (sujos != null) {
+                for (int i : sujos)
+                    adicionar(resultado, i, antigo, atual);
+            } else {
+                // Sem dirty checking (ex: update de entidade destacada): compara tudo
+                for (int i = 0; i < nomes.length; i++) {
+                    if (antigo == null || !Objects.equals(antigo[i], atual[i]))
+                        adicionar(resultado, i, antigo, atual);
+                }
+            }
+            return resultado;
+        }
+
+        private void adicionar(Map<String, AlteracaoCampo> resultado, int i, Object[] antigo, Object[] atual) {
+            if (ignorar[i])
+                return;
+            Object de = antigo != null ? valor(i, antigo[i]) : null;
+            Object para = valor(i, atual[i]);
+            if (!Objects.equals(de, para))
+                resultado.put(nomes[i], new AlteracaoCampo(de, para));
+        }
+
+        private Object valor(int i, Object valor) {
+            if (valor == null || !associacao[i])
+                return valor;
+            if (valor instanceof HibernateProxy proxy)
+                return "ID: " + proxy.getHibernateLazyInitializer().getIdentifier();
+            if (valor instanceof BaseEntity entidade)
+                return "ID: " + entidade.getId();
+            return String.valueOf(valor);
+        }
+
+        private static boolean usaGlobalAuditListener(Class<?> classe) {
+            for (Class<?> c = classe; c != null && c != Object.class; c = c.getSuperclass()) {
+                EntityListeners listeners = c.getAnnotation(EntityListeners.class);
+                if (listeners != null && Arrays.asList(listeners.value()).contains(GlobalAuditListener.class))
+                    return true;
+            }
+            return false;
+        }
+    }
+}
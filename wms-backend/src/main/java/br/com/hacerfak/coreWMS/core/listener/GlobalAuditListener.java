@@ -1,11 +1,13 @@
 package br.com.hacerfak.coreWMS.core.listener;
 
+import br.com.hacerfak.coreWMS.core.domain.BaseEntity;
+import br.com.hacerfak.coreWMS.core.domain.ModoAuditoria;
 import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
 import br.com.hacerfak.coreWMS.core.util.BeanUtil;
 import br.com.hacerfak.coreWMS.modules.auditoria.service.AuditService;
+import br.com.hacerfak.coreWMS.modules.auditoria.service.PoliticaAuditoriaService;
 import jakarta.persistence.PostPersist;
 import jakarta.persistence.PostRemove;
-import jakarta.persistence.PostUpdate;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
@@ -13,31 +15,57 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+/**
+ * Auditoria de CREATE e DELETE das entidades que declaram este listener.
+ * UPDATE é auditado pelo DirtyStateAuditListener (evento do Hibernate), que
+ * tem o estado anterior e os campos alterados.
+ *
+ * Entidades gravadas por JDBC (repositórios *BatchRepository) não passam pelo
+ * @PostPersist; quem grava chama registrarCriacao para cada uma.
+ */
 @Slf4j
 public class GlobalAuditListener {
 
+    // Resolvidos uma vez: o listener roda em todo flush de toda entidade
+    private static volatile AuditService auditService;
+    private static volatile PoliticaAuditoriaService politicaService;
+
     @PostPersist
     public void onPersist(Object entity) {
         enviarParaAuditoria("CREATE", null, entity);
     }
 
-    @PostUpdate
-    public void onUpdate(Object entity) {
-        enviarParaAuditoria("UPDATE", null, entity);
-    }
-
     @PostRemove
     public void onRemove(Object entity) {
         enviarParaAuditoria("DELETE", entity, null);
     }
 
-    private void enviarParaAuditoria(String evento, Object antigo, Object novo) {
+    /**
+     * CREATE de uma entidade inserida fora do Hibernate (já com id). Mesma
+     * política e mesmo contexto (usuário, IP) do @PostPersist.
+     */
+    public static void registrarCriacao(Object entity) {
+        enviarParaAuditoria("CREATE", null, entity);
+    }
+
+    private static void enviarParaAuditoria(String evento, Object antigo, Object novo) {
         try {
-            AuditService auditService = BeanUtil.getBean(AuditService.class);
+            AuditService auditService = auditService();
             if (auditService == null)
                 return;
 
             Object alvo = (novo != null) ? novo : antigo;
+
+            // Política antes de qualquer captura ou serialização
+            ModoAuditoria modo = politicaService().decidir(alvo.getClass(), evento);
+            if (modo == ModoAuditoria.DESLIGADA)
+                return;
+            if (modo != ModoAuditoria.COMPLETA) {
+                // Só o evento e o id
+                antigo = null;
+                novo = null;
+            }
+
             String entidadeId = safeGetId(alvo);
 
             // --- CAPTURA DE CONTEXTO (THREAD PRINCIPAL) ---
@@ -55,11 +83,31 @@ public class GlobalAuditListener {
         }
     }
 
+    private static AuditService auditService() {
+        AuditService service = auditService;
+        if (service == null) {
+            service = BeanUtil.getBean(AuditService.class);
+            auditService = service;
+        }
+        return service;
+    }
+
+    private static PoliticaAuditoriaService politicaService() {
+        PoliticaAuditoriaService service = politicaService;
+        if (service == null) {
+            service = BeanUtil.getBean(PoliticaAuditoriaService.class);
+            politicaService = service;
+        }
+        return service;
+    }
+
     // --- Helpers de Extração ---
 
-    private String safeGetId(Object entity) {
+    private static String safeGetId(Object entity) {
         if (entity == null)
             return "N/A";
+        if (entity instanceof BaseEntity base)
+            return String.valueOf(base.getId());
         try {
             return String.valueOf(entity.getClass().getMethod("getId").invoke(entity));
         } catch (Exception e) {
@@ -67,7 +115,7 @@ public class GlobalAuditListener {
         }
     }
 
-    private String getUsuarioLogado() {
+    static String getUsuarioLogado() {
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             return (auth != null && auth.isAuthenticated()) ? auth.getName() : "SISTEMA";
@@ -76,7 +124,7 @@ public class GlobalAuditListener {
         }
     }
 
-    private String getIpCliente() {
+    static String getIpCliente() {
         try {
             ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
             if (attrs != null) {
@@ -89,7 +137,7 @@ public class GlobalAuditListener {
         return "DESCONHECIDO";
     }
 
-    private String getUserAgent() {
+    static String getUserAgent() {
         try {
             ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
             if (attrs != null) {
@@ -1,15 +1,100 @@
 package br.com.hacerfak.coreWMS.core.multitenant;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+/**
+ * Roteia as conexões para o banco do tenant corrente.
+ *
+ * Os pools dos tenants são criados no primeiro uso e fechados depois de um
+ * tempo sem uso. A soma dos tamanhos máximos dos pools abertos respeita um
+ * teto por nó: para abrir um pool novo sem espaço, o pool ocioso usado há
+ * mais tempo é fechado (LRU). Pools novos recebem o espaço que houver (entre
+ * o mínimo e o máximo por tenant) e crescem na manutenção se tiverem
+ * threads esperando conexão.
+ */
+@Slf4j
 public class MultiTenantDataSource extends AbstractRoutingDataSource {
 
-    // Mantemos nossa própria lista de DataSources para poder adicionar novos depois
-    private final Map<Object, Object> targetDataSources = new ConcurrentHashMap<>();
+    // Tenant fora da lista é conferido no master de novo depois disso
+    private static final long CACHE_DESCONHECIDO_MS = 30_000;
+    // O X-Tenant-ID vem antes da autenticação: o cache de recusas não pode crescer sem limite
+    private static final long MAX_DESCONHECIDOS = 10_000;
+
+    private final DataSource masterDataSource;
+    private final BiFunction<String, Integer, HikariDataSource> fabricaPool;
+    private final MeterRegistry meterRegistry;
+    private final int maxConexoes;
+    private final int maxPorTenant;
+    private final int minPorTenant;
+    private final long ociosoMs;
+
+    // Tenants ativos conhecidos (com ou sem pool aberto)
+    private final Set<String> tenants = ConcurrentHashMap.newKeySet();
+    private final Cache<String, Boolean> desconhecidos = Caffeine.newBuilder()
+            .maximumSize(MAX_DESCONHECIDOS)
+            .expireAfterWrite(Duration.ofMillis(CACHE_DESCONHECIDO_MS))
+            .build();
+    private final Map<String, PoolTenant> pools = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> semRenovarUso = new ThreadLocal<>();
+    private final ScheduledExecutorService manutencao;
+    // Roda antes de abrir o pool de um tenant (migração do schema)
+    private volatile Consumer<String> preparacao = tenant -> {
+    };
+
+    public MultiTenantDataSource(DataSource masterDataSource,
+            BiFunction<String, Integer, HikariDataSource> fabricaPool, MeterRegistry meterRegistry,
+            int maxConexoes, int maxPorTenant, int minPorTenant, long ociosoMs) {
+        this.masterDataSource = masterDataSource;
+        this.fabricaPool = fabricaPool;
+        this.meterRegistry = meterRegistry;
+        this.maxConexoes = maxConexoes;
+        this.maxPorTenant = Math.max(1, maxPorTenant);
+        this.minPorTenant = Math.max(1, Math.min(minPorTenant, this.maxPorTenant));
+        this.ociosoMs = ociosoMs;
+
+        setTargetDataSources(Map.of(TenantContext.DEFAULT_TENANT_ID, masterDataSource));
+        setDefaultTargetDataSource(masterDataSource);
+
+        Gauge.builder("wms.tenant.pool.abertos", pools, Map::size)
+                .description("Pools de conexão de tenants abertos neste nó")
+                .register(meterRegistry);
+        Gauge.builder("wms.tenant.pool.conexoes", this, MultiTenantDataSource::conexoesReservadas)
+                .description("Soma do tamanho máximo dos pools de tenants abertos")
+                .register(meterRegistry);
+
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tenant-pool-manutencao");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalo = Math.max(5_000, Math.min(ociosoMs / 4, 60_000));
+        manutencao.scheduleWithFixedDelay(this::manter, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
 
     @Override
     protected Object determineCurrentLookupKey() {
@@ -17,21 +102,226 @@ public class MultiTenantDataSource extends AbstractRoutingDataSource {
     }
 
     @Override
-    public void setTargetDataSources(Map<Object, Object> targetDataSources) {
-        // Atualiza nosso mapa local e passa para o pai (Spring)
-        this.targetDataSources.putAll(targetDataSources);
-        super.setTargetDataSources(this.targetDataSources);
+    protected DataSource determineTargetDataSource() {
+        String tenant = TenantContext.getTenant();
+        // Tenant inexistente cai no master, como no roteamento padrão do Spring
+        if (TenantContext.DEFAULT_TENANT_ID.equals(tenant) || !existe(tenant))
+            return masterDataSource;
+        return pool(tenant).dataSource;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        while (true) {
+            DataSource alvo = determineTargetDataSource();
+            try {
+                return alvo.getConnection();
+            } catch (SQLException e) {
+                // Pool fechado pela manutenção entre a escolha e o getConnection: abre de novo
+                if (alvo instanceof HikariDataSource hikari && hikari.isClosed())
+                    continue;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Registra tenants sem abrir conexões (carga inicial e onboarding).
+     */
+    public void registrarTenants(Collection<String> tenantIds) {
+        for (String tenantId : tenantIds) {
+            tenants.add(tenantId);
+            desconhecidos.invalidate(tenantId);
+        }
     }
 
     /**
-     * Permite adicionar novos Tenants em tempo de execução (Onboarding)
-     * e força o Spring a reconhecê-los imediatamente.
+     * Tenants ativos conhecidos por este nó, sem o master.
      */
-    public void addTenant(String tenantId, DataSource dataSource) {
-        this.targetDataSources.put(tenantId, dataSource);
+    public Set<String> getTenantIds() {
+        return new LinkedHashSet<>(tenants);
+    }
+
+    /**
+     * Tenants com pool aberto agora.
+     */
+    public Set<String> getTenantsComPool() {
+        return new LinkedHashSet<>(pools.keySet());
+    }
+
+    /**
+     * Executa sem contar como uso do pool (varreduras periódicas não devem
+     * manter aberto o pool de um tenant parado).
+     */
+    public <T> T semRenovarUso(Supplier<T> acao) {
+        semRenovarUso.set(Boolean.TRUE);
+        try {
+            return acao.get();
+        } finally {
+            semRenovarUso.remove();
+        }
+    }
+
+    /**
+     * Ação executada antes do primeiro pool de cada tenant (deve ser rápida
+     * quando não houver nada a fazer; chamada de novo a cada reabertura).
+     */
+    public void registrarPreparacao(Consumer<String> preparacao) {
+        this.preparacao = preparacao;
+    }
+
+    public void close() {
+        manutencao.shutdownNow();
+        synchronized (this) {
+            for (String tenant : Set.copyOf(pools.keySet()))
+                fechar(tenant, "encerramento");
+        }
+    }
+
+    // --- POOLS ---
+
+    private boolean existe(String tenant) {
+        if (tenants.contains(tenant))
+            return true;
+        if (desconhecidos.getIfPresent(tenant) != null)
+            return false;
+
+        // Tenant criado por outro nó depois da nossa carga inicial
+        Integer ativos = new JdbcTemplate(masterDataSource).queryForObject(
+                "SELECT count(*) FROM tb_empresa WHERE tenant_id = ? AND ativo = true", Integer.class, tenant);
+        if (ativos != null && ativos > 0) {
+            registrarTenants(Set.of(tenant));
+            return true;
+        }
+        desconhecidos.put(tenant, Boolean.TRUE);
+        log.warn("Tenant '{}' não encontrado ou inativo; usando o master", tenant);
+        return false;
+    }
+
+    private PoolTenant pool(String tenant) {
+        PoolTenant pool = pools.get(tenant);
+        if (pool == null) {
+            // Fora do lock de abertura: a preparação pode demorar e não deve travar os outros tenants
+            preparacao.accept(tenant);
+            pool = abrir(tenant);
+        }
+        if (semRenovarUso.get() == null)
+            pool.ultimoUso = System.currentTimeMillis();
+        return pool;
+    }
+
+    private synchronized PoolTenant abrir(String tenant) {
+        PoolTenant existente = pools.get(tenant);
+        if (existente != null)
+            return existente;
+
+        int livre = maxConexoes - conexoesReservadas();
+        while (livre < minPorTenant && fecharMenosRecente()) {
+            livre = maxConexoes - conexoesReservadas();
+        }
+        if (livre < minPorTenant) {
+            log.warn("Teto de {} conexões de tenants atingido e nenhum pool ocioso; abrindo '{}' mesmo assim",
+                    maxConexoes, tenant);
+        }
+
+        int tamanho = Math.max(minPorTenant, Math.min(maxPorTenant, livre));
+        PoolTenant pool = new PoolTenant(fabricaPool.apply(tenant, tamanho), tamanho);
+        pools.put(tenant, pool);
+
+        Counter.builder("wms.tenant.pool.criados")
+                .description("Pools de conexão de tenants abertos sob demanda")
+                .register(meterRegistry)
+                .increment();
+        log.info("Pool do tenant '{}' aberto com até {} conexões ({} pools, {}/{} conexões)", tenant, tamanho,
+                pools.size(), conexoesReservadas(), maxConexoes);
+        return pool;
+    }
+
+    private boolean fecharMenosRecente() {
+        String candidato = null;
+        long maisAntigo = Long.MAX_VALUE;
+        for (Map.Entry<String, PoolTenant> entrada : pools.entrySet()) {
+            PoolTenant pool = entrada.getValue();
+            if (pool.ativas() == 0 && pool.ultimoUso < maisAntigo) {
+                maisAntigo = pool.ultimoUso;
+                candidato = entrada.getKey();
+            }
+        }
+        if (candidato == null)
+            return false;
+        fechar(candidato, "lru");
+        return true;
+    }
+
+    private void fechar(String tenant, String motivo) {
+        PoolTenant pool = pools.remove(tenant);
+        if (pool == null)
+            return;
+        pool.dataSource.close();
+        Counter.builder("wms.tenant.pool.removidos")
+                .description("Pools de conexão de tenants fechados")
+                .tag("motivo", motivo)
+                .register(meterRegistry)
+                .increment();
+        log.info("Pool do tenant '{}' fechado ({})", tenant, motivo);
+    }
+
+    private void manter() {
+        try {
+            long agora = System.currentTimeMillis();
+            synchronized (this) {
+                for (Map.Entry<String, PoolTenant> entrada : Set.copyOf(pools.entrySet())) {
+                    PoolTenant pool = entrada.getValue();
+                    if (agora - pool.ultimoUso > ociosoMs && pool.ativas() == 0) {
+                        fechar(entrada.getKey(), "ocioso");
+                    } else if (pool.aguardando() > 0 && pool.maximo < maxPorTenant
+                            && conexoesReservadas() < maxConexoes) {
+                        ampliar(entrada.getKey(), pool);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Falha na manutenção dos pools de tenants", e);
+        }
+    }
+
+    private void ampliar(String tenant, PoolTenant pool) {
+        int novo = Math.min(maxPorTenant, pool.maximo + Math.min(minPorTenant, maxConexoes - conexoesReservadas()));
+        pool.dataSource.getHikariConfigMXBean().setMaximumPoolSize(novo);
+        log.info("Pool do tenant '{}' ampliado de {} para {} conexões (threads esperando)", tenant, pool.maximo,
+                novo);
+        pool.maximo = novo;
+        Counter.builder("wms.tenant.pool.ampliados")
+                .description("Pools de tenants ampliados por espera de conexão")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private int conexoesReservadas() {
+        int total = 0;
+        for (PoolTenant pool : pools.values())
+            total += pool.maximo;
+        return total;
+    }
+
+    private static final class PoolTenant {
+        final HikariDataSource dataSource;
+        volatile int maximo;
+        volatile long ultimoUso = System.currentTimeMillis();
+
+        PoolTenant(HikariDataSource dataSource, int maximo) {
+            this.dataSource = dataSource;
+            this.maximo = maximo;
+        }
+
+        int ativas() {
+            HikariPoolMXBean mx = dataSource.getHikariPoolMXBean();
+            return mx != null ? mx.getActiveConnections() : 0;
+        }
 
-        // Avisa o Spring que a lista mudou
-        super.setTargetDataSources(this.targetDataSources);
-        super.afterPropertiesSet();
+        int aguardando() {
+            HikariPoolMXBean mx = dataSource.getHikariPoolMXBean();
+            return mx != null ? mx.getThreadsAwaitingConnection() : 0;
+        }
     }
-}
\ No newline at end of file
+}
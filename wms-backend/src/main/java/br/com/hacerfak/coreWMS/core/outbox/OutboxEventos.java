@@ -0,0 +1,19 @@
+package br.com.hacerfak.coreWMS.core.outbox;
+
+/**
+ * Eventos de domínio entregues pelo outbox.
+ */
+public final class OutboxEventos {
+
+    /** Saídas de estoque de um movimentarLote (EstoqueMovimentadoLoteEvent). */
+    public static final String SAIDA_ESTOQUE = "SAIDA_ESTOQUE";
+
+    /** LPN criada/fechada (LpnCriadaEvent). */
+    public static final String LPN_CRIADA = "LPN_CRIADA";
+
+    /** Recebimento concluído (FaturamentoEvent: id da solicitação + tenant). */
+    public static final String ENTRADA_FINALIZADA = "ENTRADA_FINALIZADA";
+
+    private OutboxEventos() {
+    }
+}
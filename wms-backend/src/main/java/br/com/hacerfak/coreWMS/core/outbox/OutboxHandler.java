@@ -0,0 +1,24 @@
+package br.com.hacerfak.coreWMS.core.outbox;
+
+/**
+ * Consumidor local de um evento do outbox.
+ *
+ * O processar roda numa transação do tenant do evento, a mesma que marca a
+ * linha como processada: efeitos no banco do tenant acontecem uma única vez.
+ * Efeitos fora do banco (fila, impressora, e-mail) podem se repetir se a
+ * transação falhar depois deles; use a chave de idempotência para descartar
+ * repetições.
+ */
+public interface OutboxHandler<T> {
+
+    /** Evento atendido (constantes em OutboxEventos). */
+    String evento();
+
+    /** Identifica o handler na coluna destino da tb_outbox. Não renomear com linhas pendentes. */
+    String nome();
+
+    /** Tipo para desserializar o payload. */
+    Class<T> tipoPayload();
+
+    void processar(String chaveIdempotencia, T payload);
+}
@@ -0,0 +1,384 @@
+package br.com.hacerfak.coreWMS.core.outbox;
+
+import br.com.hacerfak.coreWMS.core.multitenant.MultiTenantDataSource;
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Entrega os eventos da tb_outbox de cada tenant.
+ *
+ * Uma thread reivindica lotes com FOR UPDATE SKIP LOCKED (vários nós podem
+ * rodar o relay sem pegar a mesma linha) e empurra o disponivel_em para o fim
+ * de uma reserva; se o nó cair no meio, a linha volta a ficar visível quando
+ * a reserva vence. Os registros do lote rodam num pool de tamanho fixo, cada
+ * um na sua transação, que também marca a linha como processada.
+ *
+ * Falhas voltam para PENDENTE com espera exponencial; esgotadas as
+ * tentativas, ficam em ERRO para análise. Tenants com commit recente são
+ * atendidos na hora (OutboxService acorda a thread); os com pool aberto, na
+ * varredura periódica; os demais, na varredura completa.
+ */
+@Component
+@Slf4j
+public class OutboxRelay implements Runnable {
+
+    private static final long ESPERA_MAXIMA_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final long INTERVALO_LIMPEZA_MS = TimeUnit.HOURS.toMillis(1);
+    // Lotes seguidos do mesmo tenant antes de passar para o próximo
+    private static final int MAX_LOTES_POR_VEZ = 10;
+
+    private static final String SQL_REIVINDICAR = """
+            UPDATE tb_outbox o
+               SET tentativas = o.tentativas + 1,
+                   disponivel_em = now() + (? * INTERVAL '1 millisecond')
+             WHERE o.id IN (SELECT id FROM tb_outbox
+                             WHERE status = 'PENDENTE' AND disponivel_em <= now()
+                             ORDER BY id
+                             LIMIT ?
+                             FOR UPDATE SKIP LOCKED)
+            RETURNING o.id, o.evento, o.destino, o.chave_idempotencia, o.tipo_payload, o.payload::text AS payload,
+                      o.tentativas,
+                      -- Idade calculada no banco: criado_em é TIMESTAMP sem fuso, gravado pelo now() do banco
+                      (extract(epoch FROM now() - o.criado_em) * 1000000)::bigint AS idade_us
+            """;
+
+    // tentativas = ? garante que a reserva ainda é nossa (não venceu e foi reivindicada por outro)
+    private static final String SQL_CONCLUIR = """
+            UPDATE tb_outbox SET status = 'PROCESSADO', processado_em = now(), ultimo_erro = NULL
+             WHERE id = ? AND status = 'PENDENTE' AND tentativas = ?
+            """;
+
+    private static final String SQL_FALHAR = """
+            UPDATE tb_outbox
+               SET status = CASE WHEN tentativas >= ? THEN 'ERRO' ELSE 'PENDENTE' END,
+                   disponivel_em = now() + (? * INTERVAL '1 millisecond'),
+                   ultimo_erro = ?
+             WHERE id = ? AND status = 'PENDENTE' AND tentativas = ?
+            """;
+
+    private static final String SQL_LIMPAR = """
+            DELETE FROM tb_outbox
+             WHERE status = 'PROCESSADO' AND processado_em < now() - (? * INTERVAL '1 day')
+            """;
+
+    private final OutboxService outboxService;
+    private final MultiTenantDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OutboxHandler<?>> handlersPorNome = new HashMap<>();
+
+    private final int tamanhoLote;
+    private final long reservaMs;
+    private final int maxTentativas;
+    private final long intervaloMs;
+    private final long varreduraCompletaMs;
+    private final int retencaoDias;
+    private final long timeoutConfirmacaoMs;
+    private final ExecutorService executor;
+
+    private final Map<String, Long> ultimaLimpeza = new ConcurrentHashMap<>();
+    private volatile boolean ativo = true;
+    private Thread thread;
+
+    public OutboxRelay(OutboxService outboxService, MultiTenantDataSource dataSource, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager, RabbitTemplate rabbitTemplate,
+            ObjectMapper objectMapper, MeterRegistry meterRegistry, List<OutboxHandler<?>> handlers,
+            @Value("${wms.outbox.lote:100}") int tamanhoLote,
+            @Value("${wms.outbox.threads:4}") int threads,
+            @Value("${wms.outbox.reserva-ms:60000}") long reservaMs,
+            @Value("${wms.outbox.max-tentativas:10}") int maxTentativas,
+            @Value("${wms.outbox.intervalo-ms:1000}") long intervaloMs,
+            @Value("${wms.outbox.varredura-completa-ms:300000}") long varreduraCompletaMs,
+            @Value("${wms.outbox.retencao-dias:7}") int retencaoDias,
+            @Value("${wms.spool.timeout-confirmacao-ms:5000}") long timeoutConfirmacaoMs) {
+        this.outboxService = outboxService;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+        this.reservaMs = reservaMs;
+        this.maxTentativas = Math.max(1, maxTentativas);
+        this.intervaloMs = intervaloMs;
+        this.varreduraCompletaMs = varreduraCompletaMs;
+        this.retencaoDias = retencaoDias;
+        this.timeoutConfirmacaoMs = timeoutConfirmacaoMs;
+
+        for (OutboxHandler<?> handler : handlers) {
+            OutboxHandler<?> anterior = handlersPorNome.put(handler.nome(), handler);
+            if (anterior != null)
+                throw new IllegalStateException("Dois handlers de outbox com o nome " + handler.nome());
+        }
+
+        AtomicInteger sequencia = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "outbox-handler-" + sequencia.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        thread = new Thread(this, "outbox-relay");
+        thread.setDaemon(true);
+        outboxService.registrarRelay(thread);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void parar() throws InterruptedException {
+        ativo = false;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void run() {
+        long ultimaVarredura = 0;
+        long ultimaVarreduraCompleta = 0;
+        while (ativo) {
+            Set<String> tenants = new LinkedHashSet<>(outboxService.drenarSinalizados());
+            long agora = System.currentTimeMillis();
+            if (agora - ultimaVarreduraCompleta >= varreduraCompletaMs) {
+                // Inclui tenants sem pool aberto (retentativas pendentes de tenants parados)
+                tenants.addAll(dataSource.getTenantIds());
+                ultimaVarreduraCompleta = agora;
+                ultimaVarredura = agora;
+            } else if (agora - ultimaVarredura >= intervaloMs) {
+                tenants.addAll(dataSource.getTenantsComPool());
+                ultimaVarredura = agora;
+            }
+
+            for (String tenant : tenants) {
+                if (!ativo)
+                    break;
+                processarTenant(tenant);
+            }
+
+            // Acordado pelo próximo commit com eventos ou pela varredura
+            if (ativo)
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(intervaloMs));
+        }
+    }
+
+    void processarTenant(String tenant) {
+        for (int i = 0; i < MAX_LOTES_POR_VEZ; i++) {
+            List<RegistroOutbox> lote;
+            TenantContext.setTenant(tenant);
+            try {
+                // A varredura não conta como uso: o pool de um tenant parado pode fechar
+                lote = dataSource.semRenovarUso(() -> {
+                    List<RegistroOutbox> reivindicados = jdbcTemplate.query(SQL_REIVINDICAR,
+                            (rs, rowNum) -> new RegistroOutbox(
+                                    rs.getLong("id"),
+                                    rs.getString("evento"),
+                                    rs.getString("destino"),
+                                    rs.getString("chave_idempotencia"),
+                                    rs.getString("tipo_payload"),
+                                    rs.getString("payload"),
+                                    rs.getInt("tentativas"),
+                                    rs.getLong("idade_us"),
+                                    System.nanoTime()),
+                            reservaMs, tamanhoLote);
+                    limparSeDevido(tenant);
+                    return reivindicados;
+                });
+            } catch (Exception e) {
+                log.warn("Outbox do tenant {} indisponível: {}", tenant, e.getMessage());
+                return;
+            } finally {
+                TenantContext.clear();
+            }
+
+            if (lote.isEmpty())
+                return;
+
+            DistributionSummary.builder("wms.outbox.lote")
+                    .description("Registros reivindicados por lote")
+                    .register(meterRegistry)
+                    .record(lote.size());
+
+            List<Callable<Void>> tarefas = new ArrayList<>(lote.size());
+            for (RegistroOutbox registro : lote) {
+                tarefas.add(() -> {
+                    processar(tenant, registro);
+                    return null;
+                });
+            }
+            try {
+                executor.invokeAll(tarefas);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (lote.size() < tamanhoLote)
+                return;
+        }
+        // Ainda há trabalho: volta na próxima volta sem esperar a varredura
+        outboxService.sinalizar(tenant);
+    }
+
+    private void processar(String tenant, RegistroOutbox registro) {
+        TenantContext.setTenant(tenant);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                despachar(registro);
+                if (jdbcTemplate.update(SQL_CONCLUIR, registro.id(), registro.tentativas()) == 0) {
+                    // Desfaz os efeitos do handler: a linha já é de outra reivindicação
+                    throw new IllegalStateException("Reserva do registro " + registro.id() + " expirou");
+                }
+            });
+
+            contar(registro, "sucesso");
+            // Atraso ponta a ponta: idade na reivindicação (relógio do banco) + tempo
+            // desde então (relógio deste nó), sem misturar os dois relógios
+            long atrasoNs = TimeUnit.MICROSECONDS.toNanos(Math.max(0, registro.idadeUs()))
+                    + (System.nanoTime() - registro.reivindicadoNs());
+            Timer.builder("wms.outbox.atraso")
+                    .description("Tempo entre a gravação do evento no outbox e a entrega")
+                    .tag("evento", registro.evento())
+                    .register(meterRegistry)
+                    .record(atrasoNs, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            registrarFalha(registro, e);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    private void despachar(RegistroOutbox registro) {
+        if (registro.destino().startsWith(OutboxService.PREFIXO_FILA)) {
+            enviarParaFila(registro.destino().substring(OutboxService.PREFIXO_FILA.length()), registro);
+            return;
+        }
+        OutboxHandler<?> handler = handlersPorNome.get(registro.destino());
+        if (handler == null)
+            throw new IllegalStateException("Nenhum handler de outbox com o nome " + registro.destino());
+        executar(handler, registro);
+    }
+
+    private <T> void executar(OutboxHandler<T> handler, RegistroOutbox registro) {
+        T payload;
+        try {
+            payload = objectMapper.readValue(registro.payload(), handler.tipoPayload());
+        } catch (Exception e) {
+            throw new IllegalStateException("Payload inválido para " + handler.nome() + ": " + e.getMessage(), e);
+        }
+        handler.processar(registro.chaveIdempotencia(), payload);
+    }
+
+    private void enviarParaFila(String fila, RegistroOutbox registro) {
+        MessageProperties propriedades = new MessageProperties();
+        propriedades.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        propriedades.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        // Consumidores deduplicam pelo messageId
+        propriedades.setMessageId(registro.chaveIdempotencia());
+        propriedades.setHeader("__TypeId__", registro.tipoPayload());
+        Message mensagem = new Message(registro.payload().getBytes(StandardCharsets.UTF_8), propriedades);
+
+        rabbitTemplate.invoke(operacoes -> {
+            operacoes.send("", fila, mensagem);
+            operacoes.waitForConfirmsOrDie(timeoutConfirmacaoMs);
+            return null;
+        });
+    }
+
+    private void registrarFalha(RegistroOutbox registro, Exception e) {
+        boolean esgotou = registro.tentativas() >= maxTentativas;
+        long espera = Math.min(1000L << Math.min(registro.tentativas() - 1, 20), ESPERA_MAXIMA_MS);
+        String erro = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+        if (erro.length() > 1000)
+            erro = erro.substring(0, 1000);
+
+        if (esgotou) {
+            log.error("Outbox {} (evento {}, destino {}) em ERRO após {} tentativas", registro.id(),
+                    registro.evento(), registro.destino(), registro.tentativas(), e);
+        } else {
+            log.warn("Falha no outbox {} (evento {}, destino {}), tentativa {}; nova em {} ms: {}", registro.id(),
+                    registro.evento(), registro.destino(), registro.tentativas(), espera, erro);
+        }
+
+        try {
+            jdbcTemplate.update(SQL_FALHAR, maxTentativas, espera, erro, registro.id(), registro.tentativas());
+        } catch (Exception ex) {
+            // A reserva vence e a linha volta sozinha
+            log.error("Não foi possível registrar a falha do outbox {}", registro.id(), ex);
+        }
+        contar(registro, esgotou ? "erro" : "falha");
+    }
+
+    private void limparSeDevido(String tenant) {
+        long agora = System.currentTimeMillis();
+        Long anterior = ultimaLimpeza.get(tenant);
+        if (anterior != null && agora - anterior < INTERVALO_LIMPEZA_MS)
+            return;
+        ultimaLimpeza.put(tenant, agora);
+        int removidos = jdbcTemplate.update(SQL_LIMPAR, retencaoDias);
+        if (removidos > 0)
+            log.info("Outbox do tenant {}: {} registros processados removidos", tenant, removidos);
+    }
+
+    private void contar(RegistroOutbox registro, String resultado) {
+        // Vazão: rate() deste contador
+        Counter.builder("wms.outbox.processados")
+                .description("Registros do outbox entregues ou que falharam")
+                .tag("evento", registro.evento())
+                .tag("destino", registro.destino())
+                .tag("resultado", resultado)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private record RegistroOutbox(
+            long id,
+            String evento,
+            String destino,
+            String chaveIdempotencia,
+            String tipoPayload,
+            String payload,
+            int tentativas,
+            // Idade (now() - criado_em) no momento da reivindicação, e o nanoTime de lá
+            long idadeUs,
+            long reivindicadoNs) {
+    }
+}
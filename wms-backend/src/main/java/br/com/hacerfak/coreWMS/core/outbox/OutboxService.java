@@ -0,0 +1,160 @@
+package br.com.hacerfak.coreWMS.core.outbox;
+
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Grava eventos na tb_outbox do tenant, dentro da transação de quem chama.
+ *
+ * O evento só existe se a alteração de negócio for commitada, e existe mesmo
+ * que o nó caia logo depois do commit: o OutboxRelay entrega a partir da
+ * tabela. Cada handler registrado para o evento recebe sua própria linha, e
+ * a chave de idempotência (única por destino) descarta regravações do mesmo
+ * fato.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxService {
+
+    static final String PREFIXO_FILA = "fila:";
+
+    private static final String SQL_INSERIR = """
+            INSERT INTO tb_outbox (evento, destino, chave_idempotencia, tipo_payload, payload)
+            VALUES (?, ?, ?, ?, ?::jsonb)
+            ON CONFLICT (destino, chave_idempotencia) DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    // Resolvidos na primeira publicação: os handlers dependem de serviços que publicam
+    private final ObjectProvider<OutboxHandler<?>> handlers;
+
+    private volatile Map<String, List<String>> destinosPorEvento;
+
+    // Tenants com commit recente de eventos, consumidos pelo relay
+    private final Set<String> tenantsSinalizados = ConcurrentHashMap.newKeySet();
+    private volatile Thread relay;
+
+    /**
+     * Registra o evento para todos os handlers locais dele.
+     */
+    public void publicar(String evento, String chaveIdempotencia, Object payload) {
+        publicar(evento, Map.of(chaveIdempotencia, payload));
+    }
+
+    /**
+     * Vários eventos do mesmo tipo num único batch (chave de idempotência ->
+     * payload).
+     */
+    public void publicar(String evento, Map<String, ?> payloadsPorChave) {
+        List<String> destinos = destinosPorEvento().getOrDefault(evento, List.of());
+        if (destinos.isEmpty()) {
+            log.debug("Evento {} sem handlers registrados; nada gravado no outbox", evento);
+            return;
+        }
+        gravar(evento, destinos, payloadsPorChave);
+    }
+
+    /**
+     * Registra uma mensagem para a fila do RabbitMQ; o relay publica com
+     * confirmação do broker e messageId = chave de idempotência.
+     */
+    public void publicarNaFila(String fila, String chaveIdempotencia, Object payload) {
+        gravar(fila, List.of(PREFIXO_FILA + fila), Map.of(chaveIdempotencia, payload));
+    }
+
+    private void gravar(String evento, List<String> destinos, Map<String, ?> payloadsPorChave) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException(
+                    "Outbox exige transação ativa: o evento " + evento + " precisa ser gravado com a alteração");
+        }
+
+        List<Object[]> linhas = new ArrayList<>(destinos.size() * payloadsPorChave.size());
+        for (Map.Entry<String, ?> entrada : payloadsPorChave.entrySet()) {
+            Object payload = entrada.getValue();
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(payload);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Payload do evento " + evento + " não serializável", e);
+            }
+            for (String destino : destinos) {
+                linhas.add(new Object[] { evento, destino, entrada.getKey(), payload.getClass().getName(), json });
+            }
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERIR, linhas);
+
+        sinalizarNoCommit(TenantContext.getTenant());
+    }
+
+    // --- SINAL PARA O RELAY ---
+
+    private void sinalizarNoCommit(String tenant) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this))
+            return;
+        TransactionSynchronizationManager.bindResource(this, tenant);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                sinalizar(tenant);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(OutboxService.this);
+            }
+        });
+    }
+
+    void sinalizar(String tenant) {
+        tenantsSinalizados.add(tenant);
+        Thread t = relay;
+        if (t != null)
+            LockSupport.unpark(t);
+    }
+
+    void registrarRelay(Thread thread) {
+        this.relay = thread;
+    }
+
+    /** Tenants sinalizados desde a última chamada. */
+    Set<String> drenarSinalizados() {
+        Set<String> tenants = new HashSet<>();
+        for (String tenant : tenantsSinalizados) {
+            if (tenantsSinalizados.remove(tenant))
+                tenants.add(tenant);
+        }
+        return tenants;
+    }
+
+    private Map<String, List<String>> destinosPorEvento() {
+        Map<String, List<String>> destinos = destinosPorEvento;
+        if (destinos == null) {
+            Map<String, List<String>> mapa = new HashMap<>();
+            handlers.orderedStream().forEach(h -> mapa.computeIfAbsent(h.evento(), e -> new ArrayList<>()).add(h.nome()));
+            mapa.replaceAll((evento, nomes) -> List.copyOf(nomes));
+            destinos = Map.copyOf(mapa);
+            destinosPorEvento = destinos;
+        }
+        return destinos;
+    }
+}
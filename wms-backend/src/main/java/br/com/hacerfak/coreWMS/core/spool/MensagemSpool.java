@@ -0,0 +1,27 @@
+package br.com.hacerfak.coreWMS.core.spool;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * Mensagem já convertida (JSON) guardada no spool, pronta para reenvio.
+ */
+public record MensagemSpool(
+        long criadoEm,
+        String fila,
+        String tipo,
+        String contentType,
+        byte[] corpo) {
+
+    static final String HEADER_TIPO = "__TypeId__";
+
+    Message paraMensagem() {
+        MessageProperties propriedades = new MessageProperties();
+        propriedades.setContentType(contentType);
+        propriedades.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        if (tipo != null && !tipo.isEmpty())
+            propriedades.setHeader(HEADER_TIPO, tipo);
+        return new Message(corpo, propriedades);
+    }
+}
@@ -0,0 +1,130 @@
+package br.com.hacerfak.coreWMS.core.spool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread única que esvazia o SpoolMensagens no RabbitMQ, na ordem de
+ * gravação.
+ *
+ * Cada lote é publicado num canal dedicado e só é confirmado no spool depois
+ * do waitForConfirmsOrDie (publisher confirms do broker). Se o broker cair,
+ * o mesmo lote é tentado de novo com espera crescente (até 30 s) e, quando
+ * ele volta, o acúmulo é reenviado em ordem.
+ */
+@Component
+@Slf4j
+public class SpoolEncaminhador implements Runnable {
+
+    private static final long ESPERA_MAXIMA_MS = 30_000;
+
+    private final SpoolMensagens spool;
+    private final RabbitTemplate rabbitTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int tamanhoLote;
+    private final long timeoutConfirmacaoMs;
+    private final long intervaloOciosoMs;
+
+    private volatile boolean ativo = true;
+    private Thread thread;
+
+    public SpoolEncaminhador(SpoolMensagens spool, RabbitTemplate rabbitTemplate, MeterRegistry meterRegistry,
+            @Value("${wms.spool.lote:200}") int tamanhoLote,
+            @Value("${wms.spool.timeout-confirmacao-ms:5000}") long timeoutConfirmacaoMs,
+            @Value("${wms.spool.intervalo-ocioso-ms:200}") long intervaloOciosoMs) {
+        this.spool = spool;
+        this.rabbitTemplate = rabbitTemplate;
+        this.meterRegistry = meterRegistry;
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+        this.timeoutConfirmacaoMs = timeoutConfirmacaoMs;
+        this.intervaloOciosoMs = intervaloOciosoMs;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        thread = new Thread(this, "spool-encaminhador");
+        thread.setDaemon(true);
+        spool.registrarEncaminhador(thread);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void parar() throws InterruptedException {
+        ativo = false;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Override
+    public void run() {
+        long espera = 0;
+        while (ativo) {
+            List<MensagemSpool> lote;
+            try {
+                lote = spool.ler(tamanhoLote);
+            } catch (Exception e) {
+                log.error("Falha ao ler o spool", e);
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                continue;
+            }
+
+            if (lote.isEmpty()) {
+                // Acordado pela próxima gravação ou pelo intervalo
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(intervaloOciosoMs));
+                continue;
+            }
+
+            try {
+                enviar(lote);
+                spool.confirmar();
+                spool.sincronizar();
+                if (espera > 0)
+                    log.info("RabbitMQ disponível de novo; reenvio do spool retomado");
+                espera = 0;
+            } catch (Exception e) {
+                espera = espera == 0 ? 500 : Math.min(espera * 2, ESPERA_MAXIMA_MS);
+                log.warn("Falha ao encaminhar {} mensagens do spool (nova tentativa em {} ms): {}", lote.size(),
+                        espera, e.getMessage());
+                Counter.builder("wms.spool.falhas")
+                        .description("Lotes do spool que falharam no envio ao RabbitMQ")
+                        .register(meterRegistry)
+                        .increment();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(espera));
+            }
+        }
+    }
+
+    private void enviar(List<MensagemSpool> lote) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        rabbitTemplate.invoke(operacoes -> {
+            for (MensagemSpool mensagem : lote) {
+                operacoes.send("", mensagem.fila(), mensagem.paraMensagem());
+            }
+            operacoes.waitForConfirmsOrDie(timeoutConfirmacaoMs);
+            return null;
+        });
+        sample.stop(Timer.builder("wms.spool.lote")
+                .description("Tempo para publicar e confirmar um lote do spool")
+                .register(meterRegistry));
+
+        // Taxa de encaminhamento: rate() deste contador
+        for (MensagemSpool mensagem : lote) {
+            Counter.builder("wms.spool.encaminhadas")
+                    .description("Mensagens do spool confirmadas pelo RabbitMQ")
+                    .tag("fila", mensagem.fila())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package br.com.hacerfak.coreWMS.core.spool;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Spool local (append-only) das mensagens para o RabbitMQ.
+ *
+ * Quem publica só grava no segmento mapeado em memória (sem rede, sem
+ * esperar o broker); o SpoolEncaminhador lê em ordem e envia com publisher
+ * confirms. A posição confirmada fica em "posicao.chk", então um restart
+ * continua de onde parou. Entrega é at-least-once: o que foi enviado mas não
+ * chegou a ser marcado é reenviado.
+ *
+ * Arquivos: seg-<sequência>.spool de tamanho fixo. Registro:
+ * [int tamanho][int crc32][long criadoEm][fila][tipo][contentType][corpo],
+ * textos como [short tamanho][bytes UTF-8]. Tamanho -1 fecha o segmento;
+ * 0 (arquivo ainda zerado) é o fim do que foi escrito. Registro com CRC
+ * inválido (queda no meio da escrita) encerra o segmento.
+ *
+ * Os dados sobrevivem à queda do processo (ficam no page cache); o
+ * encaminhador força o segmento em disco a cada lote enviado.
+ */
+@Component
+@Slf4j
+public class SpoolMensagens {
+
+    private static final int FIM_SEGMENTO = -1;
+    private static final int CABECALHO = 8; // tamanho + crc
+    private static final String PREFIXO = "seg-";
+    private static final String EXTENSAO = ".spool";
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final MessageConverter messageConverter;
+    private final RabbitTemplate rabbitTemplate;
+
+    // --- ESCRITA (qualquer thread, sob a trava) ---
+    private final Object travaEscrita = new Object();
+    private FileChannel canalEscrita;
+    private MappedByteBuffer bufferEscrita;
+    // Até onde o leitor pode ir: segmento corrente e posição publicada
+    private volatile Fronteira fronteira;
+
+    // --- LEITURA (só a thread do SpoolEncaminhador) ---
+    private final MappedByteBuffer checkpoint;
+    private long seqConfirmada;
+    private int posConfirmada;
+    private ByteBuffer bufferConfirmado;
+    private Leitura leituraPendente;
+
+    private final AtomicLong pendentes = new AtomicLong();
+    private volatile long criadoEmMaisAntigo;
+    private volatile Thread encaminhador;
+
+    public SpoolMensagens(MessageConverter messageConverter, RabbitTemplate rabbitTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${wms.spool.diretorio:${java.io.tmpdir}/wms-spool}") String diretorio,
+            @Value("${wms.spool.segmento-bytes:67108864}") int tamanhoSegmento) throws IOException {
+        this.messageConverter = messageConverter;
+        this.rabbitTemplate = rabbitTemplate;
+        this.diretorio = Path.of(diretorio);
+        this.tamanhoSegmento = tamanhoSegmento;
+        Files.createDirectories(this.diretorio);
+
+        try (FileChannel canal = FileChannel.open(this.diretorio.resolve("posicao.chk"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            this.checkpoint = canal.map(FileChannel.MapMode.READ_WRITE, 0, 16);
+        }
+
+        List<Long> existentes = segmentosExistentes();
+        long ultimo = existentes.isEmpty() ? 0 : existentes.get(existentes.size() - 1);
+
+        // Leitura retoma do checkpoint (ou do segmento mais antigo que sobrou)
+        seqConfirmada = checkpoint.getLong(0);
+        posConfirmada = (int) checkpoint.getLong(8);
+        if (!existentes.contains(seqConfirmada)) {
+            seqConfirmada = existentes.isEmpty() ? ultimo + 1 : existentes.get(0);
+            posConfirmada = 0;
+        }
+
+        // Escrita sempre em segmento novo: não é preciso achar o fim do último
+        abrirSegmentoEscrita(ultimo + 1);
+        bufferConfirmado = seqConfirmada == ultimo + 1 ? fronteira.buffer() : mapearLeitura(seqConfirmada);
+
+        contarPendentes();
+        if (pendentes.get() > 0)
+            log.info("Spool {}: {} mensagens pendentes de envio", this.diretorio, pendentes.get());
+
+        Gauge.builder("wms.spool.profundidade", pendentes, AtomicLong::get)
+                .description("Mensagens no spool aguardando envio ao RabbitMQ")
+                .register(meterRegistry);
+        Gauge.builder("wms.spool.idade.mais.antiga", this, SpoolMensagens::idadeMaisAntigaSegundos)
+                .description("Idade (s) da mensagem mais antiga ainda no spool")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Grava a mensagem para envio assíncrono à fila. Se o spool falhar (disco),
+     * tenta o envio direto.
+     */
+    public void publicar(String fila, Object mensagem) {
+        Message convertida = messageConverter.toMessage(mensagem, new MessageProperties());
+        MessageProperties propriedades = convertida.getMessageProperties();
+        Object tipo = propriedades.getHeaders().get(MensagemSpool.HEADER_TIPO);
+        MensagemSpool registro = new MensagemSpool(System.currentTimeMillis(), fila,
+                tipo != null ? tipo.toString() : null, propriedades.getContentType(), convertida.getBody());
+        try {
+            gravar(registro);
+        } catch (RuntimeException e) {
+            log.error("Falha ao gravar no spool; enviando direto para {}", fila, e);
+            rabbitTemplate.send(fila, convertida);
+        }
+    }
+
+    void gravar(MensagemSpool m) {
+        byte[] registro = serializar(m);
+        if (CABECALHO + registro.length + 4 > tamanhoSegmento)
+            throw new IllegalArgumentException("Mensagem maior que o segmento do spool: " + registro.length);
+
+        CRC32 crc = new CRC32();
+        crc.update(registro);
+
+        synchronized (travaEscrita) {
+            if (bufferEscrita.remaining() < CABECALHO + registro.length + 4) {
+                bufferEscrita.putInt(FIM_SEGMENTO);
+                abrirSegmentoEscrita(fronteira.seq() + 1);
+            }
+            bufferEscrita.putInt(registro.length);
+            bufferEscrita.putInt((int) crc.getValue());
+            bufferEscrita.put(registro);
+            // Conta antes de publicar: o encaminhador só desconta o que já enxergou
+            if (pendentes.getAndIncrement() == 0)
+                criadoEmMaisAntigo = m.criadoEm();
+            fronteira = new Fronteira(fronteira.seq(), bufferEscrita.position(), fronteira.buffer());
+        }
+
+        Thread t = encaminhador;
+        if (t != null)
+            LockSupport.unpark(t);
+    }
+
+    // --- LEITURA (SpoolEncaminhador) ---
+
+    void registrarEncaminhador(Thread thread) {
+        this.encaminhador = thread;
+    }
+
+    /**
+     * Próximas mensagens a partir da última posição confirmada. Chamadas
+     * repetidas sem confirmar() devolvem as mesmas mensagens.
+     */
+    List<MensagemSpool> ler(int maximo) {
+        List<MensagemSpool> lote = new ArrayList<>(Math.min(maximo, 256));
+        long seq = seqConfirmada;
+        int pos = posConfirmada;
+        ByteBuffer buffer = bufferConfirmado;
+        List<Long> concluidos = new ArrayList<>();
+
+        while (lote.size() < maximo) {
+            Fronteira f = fronteira;
+            boolean corrente = seq == f.seq();
+            int limite = corrente ? f.posicao() : buffer.capacity();
+
+            int tamanho = pos + CABECALHO <= limite ? buffer.getInt(pos) : 0;
+            MensagemSpool registro = tamanho > 0 && pos + CABECALHO + tamanho <= limite
+                    ? ler(buffer, pos, tamanho)
+                    : null;
+
+            if (registro != null) {
+                lote.add(registro);
+                pos += CABECALHO + tamanho;
+                continue;
+            }
+            if (corrente)
+                break; // Alcançou a escrita
+
+            // Segmento fechado acabou (marcador, área zerada ou registro truncado)
+            concluidos.add(seq);
+            seq++;
+            pos = 0;
+            buffer = seq == fronteira.seq() ? fronteira.buffer() : mapearLeitura(seq);
+        }
+
+        leituraPendente = new Leitura(seq, pos, buffer, concluidos, lote.size());
+        if (!lote.isEmpty())
+            criadoEmMaisAntigo = lote.get(0).criadoEm();
+        return lote;
+    }
+
+    /** Marca como entregue tudo o que o último ler() devolveu. */
+    void confirmar() {
+        Leitura l = leituraPendente;
+        if (l == null)
+            return;
+        leituraPendente = null;
+
+        seqConfirmada = l.seq();
+        posConfirmada = l.pos();
+        bufferConfirmado = l.buffer();
+        checkpoint.putLong(0, seqConfirmada);
+        checkpoint.putLong(8, posConfirmada);
+        checkpoint.force();
+
+        for (Long seq : l.concluidos()) {
+            try {
+                Files.deleteIfExists(arquivo(seq));
+            } catch (IOException e) {
+                log.warn("Não foi possível remover o segmento {} do spool: {}", seq, e.getMessage());
+            }
+        }
+
+        if (pendentes.addAndGet(-l.quantidade()) == 0) {
+            criadoEmMaisAntigo = 0;
+        } else {
+            MensagemSpool proxima = espiarProxima();
+            criadoEmMaisAntigo = proxima != null ? proxima.criadoEm() : 0;
+        }
+    }
+
+    /** Força em disco o segmento de escrita corrente. */
+    void sincronizar() {
+        synchronized (travaEscrita) {
+            bufferEscrita.force();
+        }
+    }
+
+    @PreDestroy
+    public void fechar() throws IOException {
+        synchronized (travaEscrita) {
+            bufferEscrita.force();
+            canalEscrita.close();
+        }
+    }
+
+    // --- INTERNOS ---
+
+    private MensagemSpool espiarProxima() {
+        Fronteira f = fronteira;
+        int limite = seqConfirmada == f.seq() ? f.posicao() : bufferConfirmado.capacity();
+        if (posConfirmada + CABECALHO > limite)
+            return null;
+        int tamanho = bufferConfirmado.getInt(posConfirmada);
+        return tamanho > 0 && posConfirmada + CABECALHO + tamanho <= limite
+                ? ler(bufferConfirmado, posConfirmada, tamanho)
+                : null;
+    }
+
+    private void abrirSegmentoEscrita(long seq) {
+        try {
+            FileChannel novo = FileChannel.open(arquivo(seq), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = novo.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento);
+            if (canalEscrita != null) {
+                bufferEscrita.force();
+                canalEscrita.close();
+            }
+            canalEscrita = novo;
+            bufferEscrita = buffer;
+            fronteira = new Fronteira(seq, 0, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao criar segmento do spool " + seq, e);
+        }
+    }
+
+    private ByteBuffer mapearLeitura(long seq) {
+        try (FileChannel canal = FileChannel.open(arquivo(seq), StandardOpenOption.READ)) {
+            return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir segmento do spool " + seq, e);
+        }
+    }
+
+    private void contarPendentes() {
+        long seq = seqConfirmada;
+        int pos = posConfirmada;
+        ByteBuffer buffer = bufferConfirmado;
+        long total = 0;
+        long maisAntigo = 0;
+        while (seq < fronteira.seq()) {
+            int tamanho = pos + CABECALHO <= buffer.capacity() ? buffer.getInt(pos) : 0;
+            MensagemSpool registro = tamanho > 0 && pos + CABECALHO + tamanho <= buffer.capacity()
+                    ? ler(buffer, pos, tamanho)
+                    : null;
+            if (registro == null) {
+                seq++;
+                pos = 0;
+                buffer = seq == fronteira.seq() ? fronteira.buffer() : mapearLeitura(seq);
+                continue;
+            }
+            if (total++ == 0)
+                maisAntigo = registro.criadoEm();
+            pos += CABECALHO + tamanho;
+        }
+        pendentes.set(total);
+        criadoEmMaisAntigo = maisAntigo;
+    }
+
+    private List<Long> segmentosExistentes() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIXO) && n.endsWith(EXTENSAO))
+                    .map(n -> Long.parseLong(n.substring(PREFIXO.length(), n.length() - EXTENSAO.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path arquivo(long seq) {
+        return diretorio.resolve(PREFIXO + String.format("%019d", seq) + EXTENSAO);
+    }
+
+    private double idadeMaisAntigaSegundos() {
+        long criadoEm = criadoEmMaisAntigo;
+        if (criadoEm == 0 || pendentes.get() == 0)
+            return 0;
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - criadoEm);
+    }
+
+    private static byte[] serializar(MensagemSpool m) {
+        byte[] fila = bytes(m.fila());
+        byte[] tipo = bytes(m.tipo());
+        byte[] contentType = bytes(m.contentType());
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 6 + fila.length + tipo.length + contentType.length
+                + m.corpo().length);
+        buffer.putLong(m.criadoEm());
+        buffer.putShort((short) fila.length).put(fila);
+        buffer.putShort((short) tipo.length).put(tipo);
+        buffer.putShort((short) contentType.length).put(contentType);
+        buffer.put(m.corpo());
+        return buffer.array();
+    }
+
+    /** Lê o registro em pos; null se o CRC não bater (escrita interrompida). */
+    private static MensagemSpool ler(ByteBuffer origem, int pos, int tamanho) {
+        byte[] registro = new byte[tamanho];
+        origem.get(pos + CABECALHO, registro);
+
+        CRC32 crc = new CRC32();
+        crc.update(registro);
+        if ((int) crc.getValue() != origem.getInt(pos + 4))
+            return null;
+
+        ByteBuffer buffer = ByteBuffer.wrap(registro);
+        long criadoEm = buffer.getLong();
+        String fila = texto(buffer);
+        String tipo = texto(buffer);
+        String contentType = texto(buffer);
+        byte[] corpo = new byte[buffer.remaining()];
+        buffer.get(corpo);
+        return new MensagemSpool(criadoEm, fila, tipo, contentType, corpo);
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto != null ? texto.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    private static String texto(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record Fronteira(long seq, int posicao, ByteBuffer buffer) {
+    }
+
+    private record Leitura(long seq, int pos, ByteBuffer buffer, List<Long> concluidos, int quantidade) {
+    }
+}
@@ -18,7 +18,7 @@ public class DiffUtils {
     private final ObjectMapper objectMapper;
 
     // Campos técnicos que não interessam para a auditoria de negócio
-    private final List<String> IGNORAR_CAMPOS = List.of(
+    public static final List<String> CAMPOS_IGNORADOS = List.of(
             "dataAtualizacao", "dataCriacao", "atualizadoPor", "criadoPor",
             "hibernateLazyInitializer", "handler", "versao", "version",
             "dataFinalizacao", "senha", "authorities", "accountNonExpired",
@@ -90,7 +90,7 @@ public class DiffUtils {
             ObjectNode objectNode = (ObjectNode) node;
 
             // 1. Remove campos ignorados desta camada
-            objectNode.remove(IGNORAR_CAMPOS);
+            objectNode.remove(CAMPOS_IGNORADOS);
 
             // 2. Itera sobre os campos restantes
             Iterator<Map.Entry<String, JsonNode>> fields = objectNode.fields();
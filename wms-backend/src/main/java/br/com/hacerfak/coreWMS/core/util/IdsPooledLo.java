@@ -0,0 +1,59 @@
+package br.com.hacerfak.coreWMS.core.util;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ids para os INSERTs feitos por JDBC nas tabelas do BaseEntity.
+ *
+ * As sequences "<tabela>_id_seq" incrementam de 50 em 50 (V16) e cada nextval
+ * vale a faixa [valor, valor + 49], que o Hibernate consome pelo pooled-lo.
+ * Deixar o id para o DEFAULT nextval da coluna queimaria uma faixa inteira por
+ * linha; aqui N linhas custam ceil(N / 50) nextval numa única consulta e usam
+ * a faixa toda, sem colidir com os blocos que o Hibernate já reservou.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdsPooledLo {
+
+    // allocationSize do BaseEntity (padrão do @GeneratedValue SEQUENCE) e INCREMENT BY da V16
+    public static final int INCREMENTO = 50;
+
+    // O incremento vem junto: se a sequence não passou pela V16, a faixa
+    // [valor, valor + 49] cobriria os próximos nextval
+    private static final String SQL_RESERVAR = """
+            SELECT nextval(format('%I.%I', s.schemaname, s.sequencename)::regclass) AS inicio, s.increment_by
+            FROM generate_series(1, ?), pg_sequences s
+            WHERE s.schemaname = current_schema() AND s.sequencename = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reserva ids para N linhas de uma tabela, na ordem em que devem ser usados.
+     */
+    public Long[] reservar(String tabela, int quantidade) {
+        if (quantidade <= 0)
+            return new Long[0];
+
+        String sequencia = tabela + "_id_seq";
+        int faixas = (quantidade + INCREMENTO - 1) / INCREMENTO;
+        Long[] ids = new Long[quantidade];
+        int[] preenchidos = { 0 };
+        jdbcTemplate.query(SQL_RESERVAR, rs -> {
+            if (rs.getLong("increment_by") != INCREMENTO) {
+                throw new IllegalStateException("Sequence " + sequencia + " incrementa de "
+                        + rs.getLong("increment_by") + ", esperado " + INCREMENTO + " (V16).");
+            }
+            long inicio = rs.getLong("inicio");
+            for (long id = inicio; id < inicio + INCREMENTO && preenchidos[0] < quantidade; id++) {
+                ids[preenchidos[0]++] = id;
+            }
+        }, faixas, sequencia);
+
+        if (preenchidos[0] < quantidade)
+            throw new IllegalStateException("Sequence " + sequencia + " não encontrada no schema do tenant.");
+        return ids;
+    }
+}
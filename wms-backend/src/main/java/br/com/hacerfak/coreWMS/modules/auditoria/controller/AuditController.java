@@ -2,6 +2,10 @@ package br.com.hacerfak.coreWMS.modules.auditoria.controller;
 
 import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
 import br.com.hacerfak.coreWMS.modules.auditoria.domain.AuditLog;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.FiltroAuditoria;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.PaginaAuditoria;
+import br.com.hacerfak.coreWMS.modules.auditoria.repository.AuditLogColecoes;
+import br.com.hacerfak.coreWMS.modules.auditoria.service.AuditConsultaService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -19,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.LongStream;
 
 @RestController
 @RequestMapping("/api/auditoria")
@@ -26,9 +31,31 @@ import java.util.List;
 public class AuditController {
 
     private final MongoTemplate mongoTemplate;
+    private final AuditLogColecoes colecoes;
+    private final AuditConsultaService auditConsultaService;
+
+    /**
+     * Busca paginada por cursor: passe o proximoCursor da página anterior.
+     * Total é opcional (total=true) e limitado.
+     */
+    @GetMapping("/busca")
+    @PreAuthorize("hasPermission('AUDITORIA_VISUALIZAR')")
+    public ResponseEntity<PaginaAuditoria> buscar(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim,
+            @RequestParam(required = false) String usuario,
+            @RequestParam(required = false) String entidade,
+            @RequestParam(required = false) String entidadeId,
+            @RequestParam(required = false) String acao,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamanho,
+            @RequestParam(defaultValue = "false") boolean total) {
+        FiltroAuditoria filtro = new FiltroAuditoria(inicio, fim, usuario, entidade, entidadeId, acao);
+        return ResponseEntity.ok(auditConsultaService.buscar(filtro, cursor, tamanho, total));
+    }
 
     @GetMapping
-    @PreAuthorize("hasAuthority('AUDITORIA_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('AUDITORIA_VISUALIZAR')")
     public ResponseEntity<Page<AuditLog>> listarLogs(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim,
@@ -53,6 +80,8 @@ public class AuditController {
             criteriaList.add(Criteria.where("dataHora").gte(inicio).lte(fim));
         } else if (inicio != null) {
             criteriaList.add(Criteria.where("dataHora").gte(inicio));
+        } else if (fim != null) {
+            criteriaList.add(Criteria.where("dataHora").lte(fim));
         }
 
         // Filtros Opcionais
@@ -72,15 +101,42 @@ public class AuditController {
             finalCriteria.andOperator(criteriaList.toArray(new Criteria[0]));
         }
 
-        // 2. QUERY DE CONTAGEM (Total Real)
-        // CRÍTICO: Criamos uma query nova SEM paginação (.with(pageable))
+        // 2. SÓ AS COLEÇÕES MENSAIS DO PERÍODO (mais recente primeiro). Pular
+        // coleções inteiras só vale se a ordem principal seguir os meses
+        Sort.Order ordemData = pageable.getSort().stream().findFirst().orElse(null);
+        if (ordemData == null || !"dataHora".equals(ordemData.getProperty())) {
+            throw new IllegalArgumentException(
+                    "A listagem de auditoria só pode ser ordenada por dataHora (critérios adicionais vêm depois).");
+        }
+        List<String> colecoesPeriodo = colecoes.colecoesDoPeriodo(inicio, fim);
+        if (ordemData.isAscending()) {
+            colecoesPeriodo = colecoesPeriodo.reversed();
+        }
+
+        // 3. CONTAGEM (Total Real) por coleção, sem paginação
         Query countQuery = new Query(finalCriteria);
-        long count = mongoTemplate.count(countQuery, AuditLog.class);
+        long[] totais = new long[colecoesPeriodo.size()];
+        for (int i = 0; i < totais.length; i++) {
+            totais[i] = mongoTemplate.count(countQuery, AuditLog.class, colecoesPeriodo.get(i));
+        }
+        long count = LongStream.of(totais).sum();
 
-        // 3. QUERY DE LISTAGEM (Paginada)
-        // Agora aplicamos a paginação apenas para buscar os dados
-        Query listQuery = new Query(finalCriteria).with(pageable);
-        List<AuditLog> list = mongoTemplate.find(listQuery, AuditLog.class);
+        // 4. LISTAGEM: a página pode atravessar coleções; os meses não se
+        // sobrepõem, então basta pular as coleções inteiras antes do offset
+        List<AuditLog> list = new ArrayList<>();
+        long pular = pageable.isPaged() ? pageable.getOffset() : 0;
+        int faltam = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        for (int i = 0; i < totais.length && faltam > 0; i++) {
+            if (pular >= totais[i]) {
+                pular -= totais[i];
+                continue;
+            }
+            Query listQuery = new Query(finalCriteria).with(pageable.getSort()).skip(pular).limit(faltam);
+            List<AuditLog> parte = mongoTemplate.find(listQuery, AuditLog.class, colecoesPeriodo.get(i));
+            list.addAll(parte);
+            faltam -= parte.size();
+            pular = 0;
+        }
 
         // O PageableExecutionUtils usa o 'count' real para calcular o totalPages
         return ResponseEntity.ok(PageableExecutionUtils.getPage(list, pageable, () -> count));
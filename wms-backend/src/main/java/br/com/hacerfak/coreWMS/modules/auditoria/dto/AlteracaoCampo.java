@@ -0,0 +1,21 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.dto;
+
+import java.util.Objects;
+
+/**
+ * Valor de um campo antes e depois do UPDATE. Serializado no mesmo formato do
+ * DiffUtils: {"campo": {"de": ..., "para": ...}}.
+ */
+public record AlteracaoCampo(Object de, Object para) {
+
+    /**
+     * Duas alterações do mesmo campo na mesma transação. Se o campo voltou ao
+     * valor original (A -> B -> A) retorna null: no Map.merge isso remove o
+     * campo, e um UPDATE sem campos restantes não é gravado (AuditLotePublisher).
+     */
+    public AlteracaoCampo seguidaDe(AlteracaoCampo depois) {
+        if (Objects.equals(de, depois.para()))
+            return null;
+        return new AlteracaoCampo(de, depois.para());
+    }
+}
@@ -0,0 +1,12 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.dto;
+
+import br.com.hacerfak.coreWMS.modules.auditoria.domain.AuditLog;
+
+import java.util.List;
+
+/**
+ * Mensagem do RabbitMQ com vários registros de auditoria (uma transação, ou
+ * parte dela se passar de wms.auditoria.lote.max-eventos).
+ */
+public record AuditLogLote(List<AuditLog> logs) {
+}
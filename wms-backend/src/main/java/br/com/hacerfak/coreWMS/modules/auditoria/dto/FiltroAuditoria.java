@@ -0,0 +1,16 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filtros da busca de auditoria. "usuario" é prefixo (ancorado, sensível a
+ * maiúsculas) para usar o índice (usuario, dataHora).
+ */
+public record FiltroAuditoria(
+        LocalDateTime inicio,
+        LocalDateTime fim,
+        String usuario,
+        String entidade,
+        String entidadeId,
+        String acao) {
+}
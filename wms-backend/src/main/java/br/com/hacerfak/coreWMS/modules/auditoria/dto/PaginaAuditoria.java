@@ -0,0 +1,17 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.dto;
+
+import br.com.hacerfak.coreWMS.modules.auditoria.domain.AuditLog;
+
+import java.util.List;
+
+/**
+ * Página da busca de auditoria por cursor. proximoCursor nulo = última
+ * página. total só vem quando pedido; com totalLimitado = true, há pelo
+ * menos esse número de registros (a contagem parou no limite).
+ */
+public record PaginaAuditoria(
+        List<AuditLog> itens,
+        String proximoCursor,
+        Long total,
+        boolean totalLimitado) {
+}
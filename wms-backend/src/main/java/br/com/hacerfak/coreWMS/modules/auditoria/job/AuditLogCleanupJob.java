@@ -1,54 +1,101 @@
 package br.com.hacerfak.coreWMS.modules.auditoria.job;
 
+import br.com.hacerfak.coreWMS.modules.auditoria.repository.AuditLogColecoes;
 import br.com.hacerfak.coreWMS.modules.auditoria.repository.AuditLogRepository;
-import br.com.hacerfak.coreWMS.modules.sistema.domain.SistemaConfig;
-import br.com.hacerfak.coreWMS.modules.sistema.repository.SistemaConfigRepository;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.support.CronExpression;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Retenção da auditoria: derruba as coleções mensais que já saíram do prazo.
+ *
+ * As coleções são globais (todos os tenants), então o prazo também é global
+ * (wms.auditoria.retencao-dias). A coleção antiga tb_audit_log ainda é limpa
+ * com deleteMany e removida quando esvaziar.
+ *
+ * Sem @EnableScheduling na aplicação: roda em thread própria, reagendada
+ * pela expressão cron (wms.auditoria.limpeza-cron) ao fim de cada execução.
+ */
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class AuditLogCleanupJob {
 
+    private final AuditLogColecoes colecoes;
     private final AuditLogRepository auditLogRepository;
-    private final SistemaConfigRepository sistemaConfigRepository;
+    private final MongoTemplate mongoTemplate;
+    private final int diasRetencao;
+    private final CronExpression cron;
+    private final ScheduledExecutorService agendador;
 
-    private static final String CONFIG_KEY = "AUDIT_RETENTION_DAYS";
-    private static final int DEFAULT_RETENTION_DAYS = 90;
+    public AuditLogCleanupJob(AuditLogColecoes colecoes, AuditLogRepository auditLogRepository,
+            MongoTemplate mongoTemplate, @Value("${wms.auditoria.retencao-dias:90}") int diasRetencao,
+            @Value("${wms.auditoria.limpeza-cron:0 0 3 * * *}") String cron) {
+        this.colecoes = colecoes;
+        this.auditLogRepository = auditLogRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.diasRetencao = diasRetencao;
+        this.cron = CronExpression.parse(cron);
+        this.agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "audit-limpeza");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        agendarProxima();
+    }
+
+    @PreDestroy
+    public void parar() {
+        agendador.shutdownNow();
+    }
+
+    private void agendarProxima() {
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime proxima = cron.next(agora);
+        if (proxima == null)
+            return;
+        agendador.schedule(() -> {
+            try {
+                executarLimpeza();
+            } finally {
+                agendarProxima();
+            }
+        }, Duration.between(agora, proxima).toMillis(), TimeUnit.MILLISECONDS);
+    }
 
-    // Roda todos os dias às 03:00 da manhã
-    @Scheduled(cron = "0 0 3 * * ?")
+    // Por padrão roda todos os dias às 03:00 da manhã
     public void executarLimpeza() {
         log.info(">>> Iniciando Job de Limpeza de Auditoria...");
 
-        int diasRetencao = getDiasRetencaoConfigurados();
-
         LocalDateTime dataCorte = LocalDateTime.now().minusDays(diasRetencao);
 
         try {
-            log.info("Apagando logs anteriores a: {}", dataCorte);
-            auditLogRepository.deleteByDataHoraBefore(dataCorte);
-            log.info(">>> Limpeza de Auditoria concluída com sucesso.");
-        } catch (Exception e) {
-            log.error("Erro ao executar limpeza de auditoria", e);
-        }
-    }
+            int removidas = colecoes.removerAnteriores(dataCorte);
 
-    private int getDiasRetencaoConfigurados() {
-        try {
-            Optional<SistemaConfig> config = sistemaConfigRepository.findById(CONFIG_KEY);
-            if (config.isPresent()) {
-                return Integer.parseInt(config.get().getValor());
+            if (mongoTemplate.collectionExists(AuditLogColecoes.COLECAO_LEGADA)) {
+                auditLogRepository.deleteByDataHoraBefore(dataCorte);
+                if (auditLogRepository.count() == 0) {
+                    mongoTemplate.dropCollection(AuditLogColecoes.COLECAO_LEGADA);
+                }
             }
-        } catch (NumberFormatException e) {
-            log.warn("Valor inválido para {}. Usando padrão.", CONFIG_KEY);
+            log.info(">>> Limpeza de Auditoria concluída: {} coleção(ões) mensal(is) removida(s), corte {}",
+                    removidas, dataCorte);
+        } catch (Exception e) {
+            log.error("Erro ao executar limpeza de auditoria", e);
         }
-        return DEFAULT_RETENTION_DAYS;
     }
-}
\ No newline at end of file
+}
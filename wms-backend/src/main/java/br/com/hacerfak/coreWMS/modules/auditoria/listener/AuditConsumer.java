@@ -1,37 +1,39 @@
 package br.com.hacerfak.coreWMS.modules.auditoria.listener;
 
 import br.com.hacerfak.coreWMS.core.config.MessagingConfig;
-import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
 import br.com.hacerfak.coreWMS.modules.auditoria.domain.AuditLog;
-import br.com.hacerfak.coreWMS.modules.auditoria.repository.AuditLogRepository;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.AuditLogLote;
+import br.com.hacerfak.coreWMS.modules.auditoria.service.AuditLogBulkWriter;
+import com.rabbitmq.client.Channel;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
+/**
+ * Consome a auditoria e repassa ao AuditLogBulkWriter, que faz o ack depois
+ * de gravar. O Mongo é um banco único (tenantId no documento), então não é
+ * preciso trocar o TenantContext aqui.
+ */
 @Component
-@Slf4j
 @RequiredArgsConstructor
 public class AuditConsumer {
 
-    private final AuditLogRepository repository;
-
-    @RabbitListener(queues = MessagingConfig.QUEUE_AUDITORIA)
-    public void consumirLog(AuditLog logEntry) {
-        try {
-            // 1. RE-HIDRATAR O CONTEXTO DO TENANT
-            if (logEntry.getTenantId() != null) {
-                TenantContext.setTenant(logEntry.getTenantId());
-            }
+    private final AuditLogBulkWriter writer;
 
-            // 2. Salvar (Agora o Hibernate sabe qual schema usar!)
-            repository.save(logEntry);
+    @RabbitListener(queues = MessagingConfig.QUEUE_AUDITORIA_LOTE, containerFactory = "auditoriaListenerFactory")
+    public void consumirLote(AuditLogLote lote, Channel channel,
+            @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        writer.adicionar(lote.logs() != null ? lote.logs() : List.of(), channel, deliveryTag);
+    }
 
-        } catch (Exception e) {
-            log.error("Erro ao salvar auditoria", e);
-        } finally {
-            // 3. Limpar sempre para não sujar a thread do pool
-            TenantContext.clear();
-        }
+    // Mensagens unitárias publicadas antes da auditoria em lote
+    @RabbitListener(queues = MessagingConfig.QUEUE_AUDITORIA, containerFactory = "auditoriaListenerFactory")
+    public void consumirLog(AuditLog logEntry, Channel channel,
+            @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        writer.adicionar(List.of(logEntry), channel, deliveryTag);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.repository;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coleções mensais da auditoria: tb_audit_log_AAAAMM.
+ *
+ * Cada registro vai para a coleção do mês do seu dataHora. Retenção é feita
+ * derrubando coleções inteiras (sem deleteMany varrendo a coleção enquanto
+ * chegam gravações) e as consultas por período só abrem os meses do
+ * intervalo.
+ *
+ * A coleção antiga (tb_audit_log, sem mês) continua sendo lida como o
+ * "mês mais antigo" até a retenção esvaziá-la.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AuditLogColecoes {
+
+    public static final String COLECAO_LEGADA = "tb_audit_log";
+
+    private static final String PREFIXO = COLECAO_LEGADA + "_";
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final MongoTemplate mongoTemplate;
+
+    // Coleções que já tiveram os índices garantidos por este nó
+    private final Set<String> preparadas = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Garante os índices das coleções mensais já existentes na subida: meses
+     * criados antes de um índice novo não esperam a próxima gravação.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepararExistentes() {
+        try {
+            for (String nome : mongoTemplate.getCollectionNames()) {
+                if (mesDaColecao(nome) != null)
+                    garantirIndices(nome);
+            }
+        } catch (Exception e) {
+            // Mongo fora na subida: cada coleção é preparada no primeiro acesso
+            log.warn("Índices de auditoria não verificados na subida: {}", e.getMessage());
+        }
+    }
+
+    /** Coleção onde gravar um registro com este dataHora (cria índices na primeira vez). */
+    public String colecaoParaGravar(LocalDateTime dataHora) {
+        String nome = PREFIXO + YearMonth.from(dataHora != null ? dataHora : LocalDateTime.now()).format(FORMATO_MES);
+        garantirIndices(nome);
+        return nome;
+    }
+
+    /**
+     * Coleções existentes que podem ter registros no intervalo (limites
+     * opcionais), da mais recente para a mais antiga. A legada vem por último.
+     */
+    public List<String> colecoesDoPeriodo(LocalDateTime inicio, LocalDateTime fim) {
+        YearMonth de = inicio != null ? YearMonth.from(inicio) : null;
+        YearMonth ate = fim != null ? YearMonth.from(fim) : null;
+
+        List<YearMonth> meses = new ArrayList<>();
+        boolean legada = false;
+        for (String nome : mongoTemplate.getCollectionNames()) {
+            if (COLECAO_LEGADA.equals(nome)) {
+                legada = true;
+                continue;
+            }
+            YearMonth mes = mesDaColecao(nome);
+            if (mes != null && (de == null || !mes.isBefore(de)) && (ate == null || !mes.isAfter(ate)))
+                meses.add(mes);
+        }
+        meses.sort(Comparator.reverseOrder());
+
+        List<String> colecoes = new ArrayList<>(meses.size() + 1);
+        for (YearMonth mes : meses) {
+            String nome = PREFIXO + mes.format(FORMATO_MES);
+            // Criada por outro nó depois da subida deste
+            garantirIndices(nome);
+            colecoes.add(nome);
+        }
+        if (legada)
+            colecoes.add(COLECAO_LEGADA);
+        return colecoes;
+    }
+
+    /**
+     * Derruba as coleções mensais inteiramente anteriores ao corte. Devolve
+     * quantas foram removidas.
+     */
+    public int removerAnteriores(LocalDateTime corte) {
+        YearMonth mesCorte = YearMonth.from(corte);
+        int removidas = 0;
+        for (String nome : mongoTemplate.getCollectionNames()) {
+            YearMonth mes = mesDaColecao(nome);
+            // O mês do corte ainda tem registros dentro da retenção
+            if (mes != null && mes.isBefore(mesCorte)) {
+                mongoTemplate.dropCollection(nome);
+                preparadas.remove(nome);
+                removidas++;
+                log.info("Coleção de auditoria {} removida (retenção até {})", nome, corte);
+            }
+        }
+        return removidas;
+    }
+
+    private void garantirIndices(String nome) {
+        if (preparadas.contains(nome))
+            return;
+        try {
+            criarIndices(nome);
+            preparadas.add(nome);
+        } catch (Exception e) {
+            // Sem índice a consulta/gravação ainda funciona; tenta de novo no próximo acesso
+            log.warn("Falha ao criar índices da coleção de auditoria {}: {}", nome, e.getMessage());
+        }
+    }
+
+    private void criarIndices(String nome) {
+        MongoCollection<Document> colecao = mongoTemplate.getCollection(nome);
+        // Busca por cursor sem filtro de entidade/usuário: tenantId IN (...) ordenado por dataHora, _id.
+        // Cobre também o antigo idx_audit_tenant_data (tenantId, dataHora), que é seu prefixo
+        colecao.createIndex(Indexes.compoundIndex(Indexes.ascending("tenantId"), Indexes.descending("dataHora", "_id")),
+                new IndexOptions().name("idx_audit_tenant_data_id"));
+        colecao.createIndex(Indexes.ascending("entidade", "entidadeId"),
+                new IndexOptions().name("idx_audit_entidade"));
+        colecao.createIndex(Indexes.descending("dataHora"), new IndexOptions().name("idx_audit_data"));
+
+        // Busca por cursor (AuditConsultaService): ordem dataHora, _id decrescente
+        colecao.createIndex(Indexes.compoundIndex(Indexes.ascending("tenantId", "entidade", "entidadeId"),
+                Indexes.descending("dataHora", "_id")), new IndexOptions().name("idx_audit_tenant_entidade_data"));
+        colecao.createIndex(Indexes.compoundIndex(Indexes.ascending("usuario"), Indexes.descending("dataHora", "_id")),
+                new IndexOptions().name("idx_audit_usuario_data"));
+    }
+
+    private static YearMonth mesDaColecao(String nome) {
+        if (!nome.startsWith(PREFIXO) || nome.length() != PREFIXO.length() + 6)
+            return null;
+        try {
+            return YearMonth.parse(nome.substring(PREFIXO.length()), FORMATO_MES);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.service;
+
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.modules.auditoria.domain.AuditLog;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.FiltroAuditoria;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.PaginaAuditoria;
+import br.com.hacerfak.coreWMS.modules.auditoria.repository.AuditLogColecoes;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Busca de auditoria paginada por cursor (dataHora, _id), do mais recente
+ * para o mais antigo.
+ *
+ * Cada página é um range scan no índice a partir do último registro da
+ * anterior: o custo não cresce com a profundidade (skip não é usado) e não
+ * há count por padrão. Índices (AuditLogColecoes): (tenantId, dataHora,
+ * _id), (tenantId, entidade, entidadeId, dataHora, _id) e (usuario,
+ * dataHora, _id).
+ */
+@Service
+@RequiredArgsConstructor
+public class AuditConsultaService {
+
+    public static final int TAMANHO_MAXIMO = 200;
+
+    // Contagem opcional para no máximo este número de registros
+    private static final int LIMITE_TOTAL = 10_000;
+
+    private static final Sort ORDEM = Sort.by(Sort.Direction.DESC, "dataHora").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    private final MongoTemplate mongoTemplate;
+    private final AuditLogColecoes colecoes;
+
+    public PaginaAuditoria buscar(FiltroAuditoria filtro, String cursor, int tamanho, boolean comTotal) {
+        int limite = Math.max(1, Math.min(tamanho, TAMANHO_MAXIMO));
+        Posicao posicao = cursor != null && !cursor.isBlank() ? Posicao.decodificar(cursor) : null;
+
+        Criteria filtros = filtros(filtro);
+
+        // Com cursor, nenhum mês depois da posição precisa ser aberto
+        LocalDateTime fim = filtro.fim();
+        if (posicao != null && (fim == null || posicao.dataHora().isBefore(fim)))
+            fim = posicao.dataHora();
+        List<String> colecoesPeriodo = colecoes.colecoesDoPeriodo(filtro.inicio(), fim);
+
+        // Um a mais para saber se existe próxima página
+        List<AuditLog> itens = new ArrayList<>(limite + 1);
+        Criteria pagina = posicao != null ? new Criteria().andOperator(filtros, posicao.depois()) : filtros;
+        for (String colecao : colecoesPeriodo) {
+            int faltam = limite + 1 - itens.size();
+            if (faltam <= 0)
+                break;
+            Query query = new Query(pagina).with(ORDEM).limit(faltam);
+            itens.addAll(mongoTemplate.find(query, AuditLog.class, colecao));
+        }
+
+        String proximoCursor = null;
+        if (itens.size() > limite) {
+            itens = new ArrayList<>(itens.subList(0, limite));
+            AuditLog ultimo = itens.get(limite - 1);
+            proximoCursor = new Posicao(ultimo.getDataHora(), ultimo.getId()).codificar();
+        }
+
+        Long total = null;
+        boolean totalLimitado = false;
+        if (comTotal) {
+            long contados = 0;
+            for (String colecao : colecoes.colecoesDoPeriodo(filtro.inicio(), filtro.fim())) {
+                int restante = LIMITE_TOTAL - (int) contados;
+                if (restante <= 0)
+                    break;
+                contados += mongoTemplate.count(new Query(filtros).limit(restante), AuditLog.class, colecao);
+            }
+            total = contados;
+            totalLimitado = contados >= LIMITE_TOTAL;
+        }
+
+        return new PaginaAuditoria(itens, proximoCursor, total, totalLimitado);
+    }
+
+    private Criteria filtros(FiltroAuditoria filtro) {
+        List<Criteria> criteriaList = new ArrayList<>();
+
+        // Tenant corrente + eventos globais (login etc.)
+        criteriaList.add(Criteria.where("tenantId").in(TenantContext.getTenant(), TenantContext.DEFAULT_TENANT_ID));
+
+        if (filtro.entidade() != null && !filtro.entidade().isBlank()) {
+            criteriaList.add(Criteria.where("entidade").is(filtro.entidade()));
+            if (filtro.entidadeId() != null && !filtro.entidadeId().isBlank())
+                criteriaList.add(Criteria.where("entidadeId").is(filtro.entidadeId()));
+        }
+        if (filtro.usuario() != null && !filtro.usuario().isBlank()) {
+            // Prefixo ancorado: vira range no índice (usuario, dataHora)
+            criteriaList.add(Criteria.where("usuario").regex("^" + escaparRegex(filtro.usuario().trim())));
+        }
+        if (filtro.acao() != null && !filtro.acao().isBlank()) {
+            criteriaList.add(Criteria.where("evento").is(filtro.acao()));
+        }
+        if (filtro.inicio() != null && filtro.fim() != null) {
+            criteriaList.add(Criteria.where("dataHora").gte(filtro.inicio()).lte(filtro.fim()));
+        } else if (filtro.inicio() != null) {
+            criteriaList.add(Criteria.where("dataHora").gte(filtro.inicio()));
+        } else if (filtro.fim() != null) {
+            criteriaList.add(Criteria.where("dataHora").lte(filtro.fim()));
+        }
+        return new Criteria().andOperator(criteriaList.toArray(new Criteria[0]));
+    }
+
+    private static String escaparRegex(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length() + 8);
+        for (char c : texto.toCharArray()) {
+            if ("\\^$.|?*+()[]{}".indexOf(c) >= 0)
+                sb.append('\\');
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /** Último registro entregue: "dataHora|id" em Base64 URL-safe. */
+    private record Posicao(LocalDateTime dataHora, String id) {
+
+        Criteria depois() {
+            ObjectId objectId = new ObjectId(id);
+            return new Criteria().orOperator(
+                    Criteria.where("dataHora").lt(dataHora),
+                    new Criteria().andOperator(Criteria.where("dataHora").is(dataHora),
+                            Criteria.where("id").lt(objectId)));
+        }
+
+        String codificar() {
+            String texto = dataHora + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Posicao decodificar(String cursor) {
+            try {
+                String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separador = texto.indexOf('|');
+                String id = texto.substring(separador + 1);
+                if (separador <= 0 || !ObjectId.isValid(id))
+                    throw new IllegalArgumentException("Cursor de auditoria inválido.");
+                return new Posicao(LocalDateTime.parse(texto.substring(0, separador)), id);
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Cursor de auditoria inválido.");
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.service;
+
+import br.com.hacerfak.coreWMS.modules.auditoria.domain.AuditLog;
+import br.com.hacerfak.coreWMS.modules.auditoria.repository.AuditLogColecoes;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grava a auditoria no Mongo em insertMany não ordenado, na coleção mensal
+ * de cada registro (AuditLogColecoes).
+ *
+ * Os lotes recebidos do RabbitMQ se acumulam até wms.auditoria.bulk.tamanho
+ * registros ou até wms.auditoria.bulk.intervalo-ms, o que vier antes. As
+ * mensagens só recebem ack depois da gravação; se o Mongo falhar, voltam para
+ * a fila (nack com requeue). Reentrega gera chave duplicada (o id vem do
+ * produtor), que é tratada como sucesso.
+ */
+@Component
+@Slf4j
+public class AuditLogBulkWriter {
+
+    private static final int CODIGO_CHAVE_DUPLICADA = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final AuditLogColecoes colecoes;
+    private final MeterRegistry meterRegistry;
+    private final int tamanhoLote;
+
+    private final Object trava = new Object();
+    private List<AuditLog> pendentes = new ArrayList<>();
+    private List<Confirmacao> confirmacoes = new ArrayList<>();
+
+    // Sem @EnableScheduling na aplicação: o flush por tempo tem thread própria
+    private final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "audit-bulk-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AuditLogBulkWriter(MongoTemplate mongoTemplate, AuditLogColecoes colecoes, MeterRegistry meterRegistry,
+            @Value("${wms.auditoria.bulk.tamanho:500}") int tamanhoLote,
+            @Value("${wms.auditoria.bulk.intervalo-ms:1000}") long intervaloMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.colecoes = colecoes;
+        this.meterRegistry = meterRegistry;
+        this.tamanhoLote = Math.max(1, tamanhoLote);
+
+        Gauge.builder("wms.auditoria.buffer", this, AuditLogBulkWriter::tamanhoBuffer)
+                .description("Registros de auditoria aguardando gravação no Mongo")
+                .register(meterRegistry);
+
+        agendador.scheduleWithFixedDelay(this::gravarPendentes, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Enfileira os registros de uma mensagem. O ack (ou nack) é feito quando
+     * o bloco que contém esses registros for gravado.
+     */
+    public void adicionar(List<AuditLog> logs, Channel channel, long deliveryTag) {
+        List<AuditLog> lote = null;
+        List<Confirmacao> acks = null;
+        synchronized (trava) {
+            pendentes.addAll(logs);
+            confirmacoes.add(new Confirmacao(channel, deliveryTag));
+            if (pendentes.size() >= tamanhoLote) {
+                lote = pendentes;
+                acks = confirmacoes;
+                pendentes = new ArrayList<>();
+                confirmacoes = new ArrayList<>();
+            }
+        }
+        if (lote != null)
+            gravar(lote, acks);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        agendador.shutdown();
+        gravarPendentes();
+    }
+
+    private void gravarPendentes() {
+        List<AuditLog> lote;
+        List<Confirmacao> acks;
+        synchronized (trava) {
+            if (confirmacoes.isEmpty())
+                return;
+            lote = pendentes;
+            acks = confirmacoes;
+            pendentes = new ArrayList<>();
+            confirmacoes = new ArrayList<>();
+        }
+        gravar(lote, acks);
+    }
+
+    private void gravar(List<AuditLog> lote, List<Confirmacao> acks) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean sucesso = inserir(lote);
+        sample.stop(Timer.builder("wms.auditoria.bulk")
+                .description("Tempo do insertMany de auditoria no Mongo")
+                .tag("resultado", sucesso ? "sucesso" : "falha")
+                .register(meterRegistry));
+
+        if (sucesso) {
+            registrarGravacao(lote);
+            for (Confirmacao c : acks)
+                c.ack();
+        } else {
+            Counter.builder("wms.auditoria.falhas")
+                    .description("Registros de auditoria devolvidos à fila por falha no Mongo")
+                    .register(meterRegistry)
+                    .increment(lote.size());
+            for (Confirmacao c : acks)
+                c.nack();
+        }
+    }
+
+    private boolean inserir(List<AuditLog> lote) {
+        if (lote.isEmpty())
+            return true;
+
+        // Um insertMany por coleção mensal (normalmente só a do mês corrente)
+        Map<String, List<AuditLog>> porColecao = new LinkedHashMap<>();
+        try {
+            for (AuditLog logEntry : lote) {
+                porColecao.computeIfAbsent(colecoes.colecaoParaGravar(logEntry.getDataHora()),
+                        c -> new ArrayList<>()).add(logEntry);
+            }
+        } catch (Exception e) {
+            log.error("Falha ao preparar coleção de auditoria", e);
+            return false;
+        }
+
+        boolean sucesso = true;
+        for (Map.Entry<String, List<AuditLog>> entrada : porColecao.entrySet()) {
+            sucesso &= inserir(entrada.getKey(), entrada.getValue());
+        }
+        return sucesso;
+    }
+
+    private boolean inserir(String colecao, List<AuditLog> registros) {
+        try {
+            mongoTemplate.bulkOps(BulkMode.UNORDERED, AuditLog.class, colecao).insert(registros).execute();
+            return true;
+        } catch (BulkOperationException e) {
+            // Não ordenado: os demais foram gravados; duplicado = reentrega já gravada
+            boolean soDuplicados = e.getErrors().stream().allMatch(err -> err.getCode() == CODIGO_CHAVE_DUPLICADA);
+            if (!soDuplicados)
+                log.error("Falha ao gravar lote de auditoria em {} ({} registros): {}", colecao, registros.size(),
+                        e.getMessage());
+            return soDuplicados;
+        } catch (Exception e) {
+            log.error("Falha ao gravar lote de auditoria em {} ({} registros)", colecao, registros.size(), e);
+            return false;
+        }
+    }
+
+    private void registrarGravacao(List<AuditLog> lote) {
+        Counter.builder("wms.auditoria.gravados")
+                .description("Registros de auditoria gravados no Mongo")
+                .register(meterRegistry)
+                .increment(lote.size());
+        DistributionSummary.builder("wms.auditoria.lote.tamanho")
+                .description("Registros por insertMany")
+                .register(meterRegistry)
+                .record(lote.size());
+
+        // Atraso: do momento da alteração até a gravação no Mongo
+        Timer atraso = Timer.builder("wms.auditoria.atraso")
+                .description("Tempo entre a alteração auditada e a gravação no Mongo")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        LocalDateTime agora = LocalDateTime.now();
+        for (AuditLog logEntry : lote) {
+            if (logEntry.getDataHora() != null)
+                atraso.record(Duration.between(logEntry.getDataHora(), agora));
+        }
+    }
+
+    private int tamanhoBuffer() {
+        synchronized (trava) {
+            return pendentes.size();
+        }
+    }
+
+    private record Confirmacao(Channel channel, long deliveryTag) {
+
+        void ack() {
+            try {
+                channel.basicAck(deliveryTag, false);
+            } catch (Exception e) {
+                // Canal fechado: o RabbitMQ reentrega e o id evita duplicar
+                log.warn("Falha no ack da auditoria (tag {}): {}", deliveryTag, e.getMessage());
+            }
+        }
+
+        void nack() {
+            try {
+                channel.basicNack(deliveryTag, false, true);
+            } catch (Exception e) {
+                log.warn("Falha no nack da auditoria (tag {}): {}", deliveryTag, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.service;
+
+import br.com.hacerfak.coreWMS.core.async.LimiteConcorrencia;
+import br.com.hacerfak.coreWMS.core.config.MessagingConfig;
+import br.com.hacerfak.coreWMS.core.spool.SpoolMensagens;
+import br.com.hacerfak.coreWMS.core.util.DiffUtils;
+import br.com.hacerfak.coreWMS.modules.auditoria.domain.AuditLog;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.AuditLogLote;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gera os diffs e publica os eventos de uma transação como uma única
+ * mensagem (AuditLogLote), quebrada em partes de até
+ * wms.auditoria.lote.max-eventos.
+ *
+ * O envio passa pelo SpoolMensagens (não depende do broker estar no ar).
+ * O id do AuditLog é gerado aqui: se a mensagem for reentregue, o insert
+ * repetido cai em chave duplicada e é ignorado pelo AuditLogBulkWriter.
+ */
+@Component
+@Slf4j
+public class AuditLotePublisher {
+
+    private final SpoolMensagens spool;
+    private final DiffUtils diffUtils;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final int maxEventosPorMensagem;
+
+    public AuditLotePublisher(SpoolMensagens spool, DiffUtils diffUtils, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${wms.auditoria.lote.max-eventos:500}") int maxEventosPorMensagem) {
+        this.spool = spool;
+        this.diffUtils = diffUtils;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxEventosPorMensagem = Math.max(1, maxEventosPorMensagem);
+    }
+
+    @Async
+    @LimiteConcorrencia(nome = "auditoria", padrao = 8)
+    public void publicar(List<EventoAuditoria> eventos) {
+        publicarAgora(eventos);
+    }
+
+    /**
+     * Mesmo trabalho do publicar, na thread de quem chama. Usado pelo
+     * AuditService quando o executor @Async rejeita a tarefa (fila cheia).
+     */
+    public void publicarAgora(List<EventoAuditoria> eventos) {
+        List<AuditLog> logs = new ArrayList<>(eventos.size());
+        for (EventoAuditoria evento : eventos) {
+            try {
+                AuditLog logEntry = montar(evento);
+                if (logEntry != null)
+                    logs.add(logEntry);
+            } catch (Exception e) {
+                log.error("Falha ao gerar auditoria de {} {}", evento.nomeEntidade(), evento.entidadeId(), e);
+            }
+        }
+
+        for (int i = 0; i < logs.size(); i += maxEventosPorMensagem) {
+            List<AuditLog> parte = logs.subList(i, Math.min(i + maxEventosPorMensagem, logs.size()));
+            try {
+                spool.publicar(MessagingConfig.QUEUE_AUDITORIA_LOTE, new AuditLogLote(new ArrayList<>(parte)));
+                contar(parte.get(0).getTenantId(), parte.size());
+            } catch (Exception e) {
+                log.error("Falha ao publicar lote de auditoria ({} eventos)", parte.size(), e);
+            }
+        }
+    }
+
+    private AuditLog montar(EventoAuditoria evento) throws Exception {
+        String dados = evento.dados();
+        if (evento.alteracoes() != null) {
+            // Campos alterados (DirtyStateAuditListener): não passa pelo DiffUtils
+            if (evento.alteracoes().isEmpty())
+                return null;
+            dados = objectMapper.writeValueAsString(evento.alteracoes());
+        } else if (dados == null) {
+            dados = diffUtils.gerarDiff(evento.estadoAntigo(), evento.estadoNovo());
+
+            // Se for UPDATE e nada mudou, ignora
+            if ("UPDATE".equals(evento.evento()) && (dados == null || dados.equals("{}"))) {
+                return null;
+            }
+        }
+
+        // Proteção contra nulos (caso venha vazio do chamador)
+        String tenantId = evento.tenantId() != null ? evento.tenantId() : "public";
+        String usuario = evento.usuario() != null ? evento.usuario() : "SISTEMA";
+
+        return AuditLog.builder()
+                .id(new ObjectId().toHexString())
+                .tenantId(tenantId)
+                .evento(evento.evento())
+                .entidade(evento.nomeEntidade())
+                .entidadeId(evento.entidadeId())
+                .usuario(usuario)
+                .ipOrigem(evento.ip())
+                .userAgent(evento.userAgent())
+                .dataHora(evento.momento())
+                .dados(dados)
+                .build();
+    }
+
+    private void contar(String tenantId, int quantidade) {
+        Counter.builder("wms.auditoria.publicados")
+                .description("Eventos de auditoria publicados (spool do RabbitMQ)")
+                .tag("tenant", tenantId)
+                .register(meterRegistry)
+                .increment(quantidade);
+    }
+}
@@ -1,84 +1,151 @@
 package br.com.hacerfak.coreWMS.modules.auditoria.service;
 
-import br.com.hacerfak.coreWMS.core.config.MessagingConfig;
-import br.com.hacerfak.coreWMS.core.util.DiffUtils;
-import br.com.hacerfak.coreWMS.modules.auditoria.domain.AuditLog;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.AlteracaoCampo;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Porta de entrada da auditoria.
+ *
+ * Os eventos ficam acumulados na transação corrente e só saem no commit, em
+ * lote (AuditLotePublisher). Rollback descarta o lote: não se audita o que
+ * não foi gravado. Sem transação ativa, o evento sai na hora, sozinho.
+ *
+ * Vários UPDATEs da mesma instância na transação viram um único registro
+ * (primeiro "de", último "para" de cada campo). UPDATE depois de CREATE é
+ * descartado: o CREATE é serializado no envio, já com o estado final.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AuditService {
 
-    private final RabbitTemplate rabbitTemplate;
-    private final DiffUtils diffUtils;
+    private final AuditLotePublisher publisher;
 
     /**
      * AUDITORIA AUTOMÁTICA (Smart Diff)
-     * Agora recebe o contexto (tenant, user, ip) explicitamente para funcionar
-     * com @Async
+     * Recebe o contexto (tenant, user, ip) explicitamente: o diff e o envio
+     * rodam em outra thread.
      */
-    @Async
     public void registrarAuditoria(String evento, Object entidade, String entidadeId, Object estadoAntigo,
             Object estadoNovo, String tenantId, String usuario, String ip, String userAgent) {
-        try {
-            // 1. Gera o Diff
-            String diff = diffUtils.gerarDiff(estadoAntigo, estadoNovo);
-
-            // Se for UPDATE e nada mudou, ignora
-            if ("UPDATE".equals(evento) && (diff == null || diff.equals("{}"))) {
-                return;
-            }
+        String nomeEntidade = entidade != null ? entidade.getClass().getSimpleName() : "Desconhecido";
+        adicionar(new EventoAuditoria(evento, entidade, nomeEntidade, entidadeId, estadoAntigo, estadoNovo,
+                null, null, tenantId, usuario, ip, userAgent, LocalDateTime.now()));
+    }
 
-            String nomeEntidade = entidade != null ? entidade.getClass().getSimpleName() : "Desconhecido";
+    /**
+     * UPDATE com os campos alterados já extraídos do estado do Hibernate
+     * (DirtyStateAuditListener).
+     */
+    public void registrarAlteracoes(Object entidade, String entidadeId, Map<String, AlteracaoCampo> alteracoes,
+            String tenantId, String usuario, String ip, String userAgent) {
+        adicionar(new EventoAuditoria("UPDATE", entidade, entidade.getClass().getSimpleName(), entidadeId, null,
+                null, null, new LinkedHashMap<>(alteracoes), tenantId, usuario, ip, userAgent,
+                LocalDateTime.now()));
+    }
 
-            // 2. Monta e envia
-            enviarLog(evento, nomeEntidade, entidadeId, diff, tenantId, usuario, ip, userAgent);
+    /**
+     * AUDITORIA MANUAL
+     */
+    public void registrarLog(String evento, String entidade, String entidadeId, String mensagem,
+            String tenantId, String usuario, String ip, String userAgent) {
+        adicionar(new EventoAuditoria(evento, null, entidade, entidadeId, null, null,
+                mensagem, null, tenantId, usuario, ip, userAgent, LocalDateTime.now()));
+    }
 
+    private void adicionar(EventoAuditoria evento) {
+        try {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                enviar(List.of(evento));
+                return;
+            }
+            loteDaTransacao().adicionar(evento);
         } catch (Exception e) {
-            log.error("Falha ao salvar auditoria automática", e);
+            log.error("Falha ao registrar auditoria", e);
         }
     }
 
     /**
-     * AUDITORIA MANUAL
+     * Entrega o lote ao publisher assíncrono. Com o executor @Async saturado
+     * (TaskRejectedException) o lote é gerado e vai para o spool na própria
+     * thread: a auditoria não se perde e a exceção não chega a quem já
+     * comitou.
      */
-    @Async
-    public void registrarLog(String evento, String entidade, String entidadeId, String mensagem,
-            String tenantId, String usuario, String ip, String userAgent) {
+    private void enviar(List<EventoAuditoria> eventos) {
         try {
-            enviarLog(evento, entidade, entidadeId, mensagem, tenantId, usuario, ip, userAgent);
+            publisher.publicar(eventos);
+        } catch (TaskRejectedException e) {
+            log.warn("Executor assíncrono saturado; publicando {} eventos de auditoria na thread atual",
+                    eventos.size());
+            try {
+                publisher.publicarAgora(eventos);
+            } catch (Exception erro) {
+                log.error("Falha ao publicar auditoria ({} eventos)", eventos.size(), erro);
+            }
         } catch (Exception e) {
-            log.error("Falha ao salvar log manual", e);
+            log.error("Falha ao publicar auditoria ({} eventos)", eventos.size(), e);
         }
     }
 
-    // Método privado unificado para envio
-    private void enviarLog(String evento, String entidade, String entidadeId, String dados,
-            String tenantId, String usuario, String ip, String userAgent) {
+    // --- CICLO DE VIDA POR TRANSAÇÃO ---
 
-        // Proteção contra nulos (caso venha vazio do chamador)
-        if (tenantId == null)
-            tenantId = "public";
-        if (usuario == null)
-            usuario = "SISTEMA";
+    private LoteDaTransacao loteDaTransacao() {
+        LoteDaTransacao lote = (LoteDaTransacao) TransactionSynchronizationManager.getResource(this);
+        if (lote == null) {
+            lote = new LoteDaTransacao();
+            TransactionSynchronizationManager.bindResource(this, lote);
+            TransactionSynchronizationManager.registerSynchronization(lote);
+        }
+        return lote;
+    }
 
-        AuditLog logEntry = AuditLog.builder()
-                .tenantId(tenantId)
-                .evento(evento)
-                .entidade(entidade)
-                .entidadeId(entidadeId)
-                .usuario(usuario)
-                .ipOrigem(ip)
-                .userAgent(userAgent)
-                .dados(dados)
-                .build();
+    private class LoteDaTransacao implements TransactionSynchronization {
+        private final List<EventoAuditoria> eventos = new ArrayList<>();
+        // Instância da entidade -> posição do último CREATE/UPDATE dela no lote
+        private final Map<Object, Integer> posicaoPorEntidade = new IdentityHashMap<>();
 
-        // Envia para o RabbitMQ
-        rabbitTemplate.convertAndSend(MessagingConfig.QUEUE_AUDITORIA, logEntry);
+        void adicionar(EventoAuditoria evento) {
+            Object entidade = evento.entidade();
+            Integer posicao = entidade != null && "UPDATE".equals(evento.evento())
+                    ? posicaoPorEntidade.get(entidade)
+                    : null;
+            if (posicao != null) {
+                EventoAuditoria anterior = eventos.get(posicao);
+                if (anterior.alteracoes() != null && evento.alteracoes() != null) {
+                    evento.alteracoes().forEach((campo, alteracao) -> anterior.alteracoes()
+                            .merge(campo, alteracao, AlteracaoCampo::seguidaDe));
+                }
+                return;
+            }
+            if (entidade != null && !"DELETE".equals(evento.evento())) {
+                posicaoPorEntidade.put(entidade, eventos.size());
+            }
+            eventos.add(evento);
+        }
+
+        @Override
+        public void afterCommit() {
+            // Nada daqui pode lançar: a transação já foi comitada
+            if (!eventos.isEmpty()) {
+                enviar(List.copyOf(eventos));
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AuditService.this);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.service;
+
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.AlteracaoCampo;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Alteração capturada na thread da requisição, antes do diff. Para auditoria
+ * manual, entidade/estados vêm nulos e "dados" já vem pronto. UPDATE vem com
+ * os campos alterados em "alteracoes" (mutável: recebe os UPDATEs seguintes
+ * da mesma entidade na transação).
+ */
+record EventoAuditoria(
+        String evento,
+        Object entidade,
+        String nomeEntidade,
+        String entidadeId,
+        Object estadoAntigo,
+        Object estadoNovo,
+        String dados,
+        Map<String, AlteracaoCampo> alteracoes,
+        String tenantId,
+        String usuario,
+        String ip,
+        String userAgent,
+        LocalDateTime momento) {
+}
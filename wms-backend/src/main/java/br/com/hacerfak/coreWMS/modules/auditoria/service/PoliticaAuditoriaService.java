@@ -0,0 +1,245 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.service;
+
+import br.com.hacerfak.coreWMS.core.domain.ModoAuditoria;
+import br.com.hacerfak.coreWMS.core.domain.PoliticaAuditoria;
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Decide, antes de qualquer diff ou serialização, se e como uma operação
+ * vai ser auditada.
+ *
+ * A regra de cada tenant + entidade + operação é montada uma vez (anotação
+ * {@link PoliticaAuditoria} + sobrescritas do tb_sistema_config) e fica em
+ * memória. As sobrescritas são relidas a cada minuto (alterações em outro
+ * nó) ou na hora, quando alteradas pelo SistemaConfigController.
+ *
+ * decidir() roda dentro do flush do Hibernate, então nunca consulta o banco:
+ * a leitura do tb_sistema_config vai para uma thread própria (outra conexão,
+ * fora da transação de quem chamou). Até a primeira carga do tenant no nó
+ * terminar vale só a anotação; uma carga vencida segue valendo até a nova
+ * chegar.
+ *
+ * Métrica wms.auditoria.politica{entidade,evento,decisao} mostra quanto cada
+ * entidade deixou de gerar.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PoliticaAuditoriaService {
+
+    public static final String PREFIXO_CONFIG = "AUDITORIA_";
+
+    private static final long VALIDADE_SOBRESCRITAS_MS = TimeUnit.MINUTES.toMillis(1);
+
+    // AUDITORIA_<ENTIDADE>_<CREATE|UPDATE|DELETE>
+    private static final Pattern CHAVE = Pattern.compile("AUDITORIA_[A-Z0-9]+_(CREATE|UPDATE|DELETE)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, RegrasTenant> regrasPorTenant = new ConcurrentHashMap<>();
+    // Contador por entidade + evento + decisão (a tag não depende do tenant)
+    private final Map<String, Counter> contadores = new ConcurrentHashMap<>();
+    private final Set<String> carregando = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService carregador = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "auditoria-politica");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Modo efetivo da operação: COMPLETA, ALTERACOES ou DESLIGADA (a
+     * amostragem já sai resolvida em ALTERACOES ou DESLIGADA).
+     */
+    public ModoAuditoria decidir(Class<?> entidade, String evento) {
+        Regra regra = regrasDoTenant().regra(entidade, evento);
+
+        ModoAuditoria modo = regra.modo();
+        if (modo == ModoAuditoria.AMOSTRAGEM) {
+            modo = ThreadLocalRandom.current().nextInt(100) < regra.percentual()
+                    ? ModoAuditoria.ALTERACOES
+                    : ModoAuditoria.DESLIGADA;
+        }
+
+        String decisao = modo == ModoAuditoria.DESLIGADA ? "descartada" : "auditada";
+        contadores.computeIfAbsent(entidade.getSimpleName() + "|" + evento + "|" + decisao,
+                c -> Counter.builder("wms.auditoria.politica")
+                        .description("Operações auditáveis por decisão da política de auditoria")
+                        .tags("entidade", entidade.getSimpleName(), "evento", evento, "decisao", decisao)
+                        .register(meterRegistry))
+                .increment();
+        return modo;
+    }
+
+    /**
+     * Chamado quando uma chave AUDITORIA_* do tenant corrente muda. Relê na
+     * hora, na thread de quem alterou (fora de flush).
+     */
+    public void invalidar() {
+        String tenant = TenantContext.getTenant();
+        regrasPorTenant.put(tenant, new RegrasTenant(carregarSobrescritas(tenant)));
+    }
+
+    /**
+     * Valida uma sobrescrita antes de gravar: chave
+     * AUDITORIA_<ENTIDADE>_<CREATE|UPDATE|DELETE> e valor vazio (volta à
+     * anotação), um ModoAuditoria ou AMOSTRAGEM:<0-100>.
+     */
+    public void validarSobrescrita(String chave, String valor) {
+        if (chave == null || !CHAVE.matcher(chave).matches())
+            throw new IllegalArgumentException(
+                    "Chave de auditoria inválida (use AUDITORIA_<ENTIDADE>_<CREATE|UPDATE|DELETE>): " + chave);
+        if (valor == null || valor.isBlank())
+            return;
+        String[] partes = valor.trim().toUpperCase(Locale.ROOT).split(":", 2);
+        try {
+            ModoAuditoria.valueOf(partes[0]);
+            if (partes.length > 1) {
+                int percentual = Integer.parseInt(partes[1].trim());
+                if (percentual < 0 || percentual > 100)
+                    throw new IllegalArgumentException();
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Valor de auditoria inválido (use COMPLETA, ALTERACOES, DESLIGADA ou AMOSTRAGEM:<0-100>): "
+                            + valor);
+        }
+    }
+
+    @PreDestroy
+    public void parar() {
+        carregador.shutdownNow();
+    }
+
+    private RegrasTenant regrasDoTenant() {
+        String tenant = TenantContext.getTenant();
+        RegrasTenant regras = regrasPorTenant.get(tenant);
+        if (regras == null) {
+            // Só a anotação até a carga chegar (não guarda: a carga substitui)
+            agendarCarga(tenant);
+            return regrasPorTenant.computeIfAbsent(tenant, t -> new RegrasTenant(Map.of(), 0L));
+        }
+        if (regras.expirada())
+            agendarCarga(tenant);
+        return regras;
+    }
+
+    private void agendarCarga(String tenant) {
+        if (TenantContext.DEFAULT_TENANT_ID.equals(tenant)) {
+            // Sem tb_sistema_config no master: nada a carregar, não expira
+            regrasPorTenant.putIfAbsent(tenant, new RegrasTenant(Map.of(), Long.MAX_VALUE));
+            return;
+        }
+        if (!carregando.add(tenant))
+            return;
+        try {
+            carregador.execute(() -> {
+                TenantContext.setTenant(tenant);
+                try {
+                    regrasPorTenant.put(tenant, new RegrasTenant(carregarSobrescritas(tenant)));
+                } catch (Exception e) {
+                    // Mantém o que tinha e só tenta de novo depois da validade
+                    log.warn("Falha ao carregar a política de auditoria do tenant {}: {}", tenant, e.getMessage());
+                    regrasPorTenant.compute(tenant,
+                            (t, atual) -> new RegrasTenant(atual != null ? atual.sobrescritas : Map.of()));
+                } finally {
+                    TenantContext.clear();
+                    carregando.remove(tenant);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor encerrado (shutdown)
+            carregando.remove(tenant);
+        }
+    }
+
+    private Map<String, String> carregarSobrescritas(String tenant) {
+        // O banco master não tem tb_sistema_config (e um erro aqui abortaria a transação)
+        if (TenantContext.DEFAULT_TENANT_ID.equals(tenant))
+            return Map.of();
+
+        Map<String, String> sobrescritas = new HashMap<>();
+        jdbcTemplate.query("SELECT chave, valor FROM tb_sistema_config WHERE chave LIKE 'AUDITORIA\\_%'", rs -> {
+            sobrescritas.put(rs.getString("chave").toUpperCase(Locale.ROOT), rs.getString("valor"));
+        });
+        return sobrescritas;
+    }
+
+    private record Regra(ModoAuditoria modo, int percentual) {
+    }
+
+    private static final class RegrasTenant {
+        private final Map<String, String> sobrescritas;
+        private final long validaAte;
+        private final Map<String, Regra> regras = new ConcurrentHashMap<>();
+
+        // Sobrescritas lidas agora: valem por VALIDADE_SOBRESCRITAS_MS
+        RegrasTenant(Map<String, String> sobrescritas) {
+            this(sobrescritas, System.currentTimeMillis() + VALIDADE_SOBRESCRITAS_MS);
+        }
+
+        RegrasTenant(Map<String, String> sobrescritas, long validaAte) {
+            this.sobrescritas = sobrescritas;
+            this.validaAte = validaAte;
+        }
+
+        boolean expirada() {
+            return System.currentTimeMillis() > validaAte;
+        }
+
+        Regra regra(Class<?> entidade, String evento) {
+            String chave = PREFIXO_CONFIG + entidade.getSimpleName().toUpperCase(Locale.ROOT) + "_" + evento;
+            return regras.computeIfAbsent(chave, c -> montar(entidade, evento, sobrescritas.get(c)));
+        }
+
+        private static Regra montar(Class<?> entidade, String evento, String sobrescrita) {
+            PoliticaAuditoria politica = entidade.getAnnotation(PoliticaAuditoria.class);
+            ModoAuditoria modo = ModoAuditoria.COMPLETA;
+            int percentual = 10;
+            if (politica != null) {
+                percentual = politica.amostragem();
+                modo = switch (evento) {
+                    case "CREATE" -> politica.criacao();
+                    case "UPDATE" -> politica.alteracao();
+                    case "DELETE" -> politica.exclusao();
+                    default -> ModoAuditoria.COMPLETA;
+                };
+            } else if ("UPDATE".equals(evento)) {
+                modo = ModoAuditoria.ALTERACOES;
+            }
+
+            if (sobrescrita != null && !sobrescrita.isBlank()) {
+                // Formato: MODO ou AMOSTRAGEM:<percentual>
+                String[] partes = sobrescrita.trim().toUpperCase(Locale.ROOT).split(":", 2);
+                try {
+                    modo = ModoAuditoria.valueOf(partes[0]);
+                    if (partes.length > 1)
+                        percentual = Integer.parseInt(partes[1].trim());
+                } catch (IllegalArgumentException e) {
+                    log.warn("Política de auditoria inválida para {} {}: '{}'", entidade.getSimpleName(), evento,
+                            sobrescrita);
+                }
+            }
+            return new Regra(modo, Math.max(0, Math.min(100, percentual)));
+        }
+    }
+}
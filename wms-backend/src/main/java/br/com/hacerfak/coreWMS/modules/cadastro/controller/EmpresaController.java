@@ -87,7 +87,7 @@ public class EmpresaController {
     }
 
     @GetMapping("/lista-simples")
-    @PreAuthorize("hasRole('ADMIN') or hasAuthority('USUARIO_EDITAR')")
+    @PreAuthorize("hasPermission('USUARIO_EDITAR')")
     public ResponseEntity<List<EmpresaResumoDTO>> listarTodasSimples() {
         String original = TenantContext.getTenant();
         TenantContext.setTenant(TenantContext.DEFAULT_TENANT_ID);
@@ -32,7 +32,7 @@ public class EmpresaDadosController {
     }
 
     @PutMapping
-    @PreAuthorize("hasAuthority('CONFIG_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_GERENCIAR')")
     public ResponseEntity<EmpresaDados> atualizarDados(@RequestBody EmpresaDados dto) {
         return repository.findById(1L).map(empresa -> {
             // Atualiza APENAS dados cadastrais
@@ -63,7 +63,7 @@ public class EmpresaDadosController {
     }
 
     @PostMapping(value = "/certificado", consumes = "multipart/form-data")
-    @PreAuthorize("hasAuthority('CONFIG_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_GERENCIAR')")
     public ResponseEntity<EmpresaDados> uploadCertificado(
             @RequestParam("file") MultipartFile file,
             @RequestParam("senha") String senha) {
@@ -19,13 +19,13 @@ public class ParceiroController {
     private final ParceiroRepository repository;
 
     @GetMapping
-    @PreAuthorize("hasAuthority('CADASTRO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CADASTRO_VISUALIZAR')")
     public ResponseEntity<List<Parceiro>> listar() {
         return ResponseEntity.ok(repository.findAll());
     }
 
     @GetMapping("/{id}")
-    @PreAuthorize("hasAuthority('CADASTRO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CADASTRO_VISUALIZAR')")
     public ResponseEntity<Parceiro> buscarPorId(@PathVariable Long id) {
         return repository.findById(id)
                 .map(ResponseEntity::ok)
@@ -33,7 +33,7 @@ public class ParceiroController {
     }
 
     @PostMapping
-    @PreAuthorize("hasAuthority('CADASTRO_EDITAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CADASTRO_EDITAR')")
     public ResponseEntity<Parceiro> criar(@RequestBody @Valid ParceiroRequest dto) {
         Parceiro parceiro = Parceiro.builder()
                 .nome(dto.nome())
@@ -68,7 +68,7 @@ public class ParceiroController {
     }
 
     @PutMapping("/{id}")
-    @PreAuthorize("hasAuthority('CADASTRO_EDITAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CADASTRO_EDITAR')")
     public ResponseEntity<Parceiro> atualizar(@PathVariable Long id, @RequestBody @Valid ParceiroRequest dto) {
         return repository.findById(id).map(parceiro -> {
             parceiro.setNome(dto.nome());
@@ -25,14 +25,14 @@ public class ProdutoController {
     private final ParceiroRepository parceiroRepository;
 
     @GetMapping
-    @PreAuthorize("hasAuthority('PRODUTO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PRODUTO_VISUALIZAR')")
     public ResponseEntity<Page<Produto>> listarTodos(
             @PageableDefault(page = 0, size = 20, sort = "nome") Pageable pageable) {
         return ResponseEntity.ok(repository.findAll(pageable));
     }
 
     @GetMapping("/{id}")
-    @PreAuthorize("hasAuthority('PRODUTO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PRODUTO_VISUALIZAR')")
     public ResponseEntity<Produto> buscarPorId(@PathVariable Long id) {
         return repository.findById(id)
                 .map(ResponseEntity::ok)
@@ -40,7 +40,7 @@ public class ProdutoController {
     }
 
     @PostMapping
-    @PreAuthorize("hasAuthority('PRODUTO_CRIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PRODUTO_CRIAR')")
     @CacheEvict(value = "produtos", allEntries = true)
     public ResponseEntity<Produto> criar(@RequestBody @Valid ProdutoRequest dto) {
 
@@ -83,7 +83,7 @@ public class ProdutoController {
     }
 
     @PutMapping("/{id}")
-    @PreAuthorize("hasAuthority('PRODUTO_EDITAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PRODUTO_EDITAR')")
     @CacheEvict(value = "produtos", allEntries = true)
     public ResponseEntity<Produto> atualizar(@PathVariable Long id, @RequestBody @Valid ProdutoRequest dto) {
         return repository.findById(id).map(produto -> {
@@ -118,7 +118,7 @@ public class ProdutoController {
     }
 
     @DeleteMapping("/{id}")
-    @PreAuthorize("hasAuthority('PRODUTO_EXCLUIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PRODUTO_EXCLUIR')")
     @CacheEvict(value = "produtos", allEntries = true)
     public ResponseEntity<Void> deletar(@PathVariable Long id) {
         if (!repository.existsById(id))
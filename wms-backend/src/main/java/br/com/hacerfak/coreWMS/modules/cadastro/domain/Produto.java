@@ -6,8 +6,10 @@ import lombok.experimental.SuperBuilder;
 
 import java.math.BigDecimal;
 import br.com.hacerfak.coreWMS.core.domain.BaseEntity;
+import br.com.hacerfak.coreWMS.modules.cadastro.listener.ProdutoIndiceListener;
 
 @Entity
+@EntityListeners(ProdutoIndiceListener.class)
 @Table(name = "tb_produto", uniqueConstraints = {
                 // O SKU agora é único por depositante
                 @UniqueConstraint(name = "uk_produto_sku_depositante", columnNames = { "sku", "depositante_id" })
@@ -0,0 +1,18 @@
+package br.com.hacerfak.coreWMS.modules.cadastro.dto;
+
+/**
+ * Resumo do produto mantido no índice de códigos de barras (BarcodeResolver).
+ */
+public record ProdutoCabecalho(
+        Long id,
+        String sku,
+        String nome,
+        String ean13,
+        String dun14,
+        String unidadeMedida,
+        Long depositanteId,
+        boolean ativo,
+        boolean controlaLote,
+        boolean controlaValidade,
+        boolean controlaSerie) {
+}
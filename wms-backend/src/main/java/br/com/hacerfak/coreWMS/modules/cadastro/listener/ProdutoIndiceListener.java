@@ -0,0 +1,35 @@
+package br.com.hacerfak.coreWMS.modules.cadastro.listener;
+
+import br.com.hacerfak.coreWMS.core.util.BeanUtil;
+import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
+import br.com.hacerfak.coreWMS.modules.cadastro.service.BarcodeResolver;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Invalida o índice de códigos (BarcodeResolver) em toda gravação de produto
+ * feita pelo Hibernate, venha de onde vier. A releitura só acontece depois do
+ * commit; rollback não mexe no índice.
+ */
+public class ProdutoIndiceListener {
+
+    // Resolvido uma vez: o listener roda em todo flush de produto
+    private static volatile BarcodeResolver barcodeResolver;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onGravacao(Produto produto) {
+        barcodeResolver().invalidarAposCommit(produto.getId());
+    }
+
+    private static BarcodeResolver barcodeResolver() {
+        BarcodeResolver resolver = barcodeResolver;
+        if (resolver == null) {
+            resolver = BeanUtil.getBean(BarcodeResolver.class);
+            barcodeResolver = resolver;
+        }
+        return resolver;
+    }
+}
@@ -21,8 +21,9 @@ public interface ProdutoRepository extends JpaRepository<Produto, Long> {
     @Cacheable(value = "produtos", key = "#id")
     Optional<Produto> findById(Long id);
 
-    // --- Cache para a super busca ---
-    @Cacheable(value = "produtos", key = "#codigo")
+    // --- Super busca (SKU/EAN/DUN) ---
+    // Sem @Cacheable: o BarcodeResolver indexa os códigos e só cai aqui em caso
+    // de código desconhecido/ambíguo (a chave colidia com a do findById)
     @Query("SELECT p FROM Produto p WHERE p.sku = :codigo OR p.ean13 = :codigo OR p.dun14 = :codigo")
     Optional<Produto> findByCodigoBarras(@Param("codigo") String codigo);
 }
\ No newline at end of file
@@ -0,0 +1,438 @@
+package br.com.hacerfak.coreWMS.modules.cadastro.service;
+
+import br.com.hacerfak.coreWMS.core.async.LimiteConcorrencia;
+import br.com.hacerfak.coreWMS.core.cache.TenantCacheManager;
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
+import br.com.hacerfak.coreWMS.modules.cadastro.dto.ProdutoCabecalho;
+import br.com.hacerfak.coreWMS.modules.cadastro.repository.ProdutoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Resolve o código bipado (SKU, EAN-13 ou DUN-14) para o produto.
+ *
+ * Mantém, por tenant, um índice em memória código -> produto (com um resumo
+ * do cadastro), carregado de uma vez na seleção da empresa ou no primeiro
+ * scan. Substitui o "sku = ? OR ean13 = ? OR dun14 = ?" a cada bipe.
+ *
+ * Acerto no índice não consulta nada: dentro de transação o produto volta como
+ * referência JPA (getReferenceById), suficiente para os chamadores, que só o
+ * usam como vínculo e pelo id. Código fora do índice ou que aponta para mais
+ * de um produto vai ao banco (mantém o comportamento da consulta original) e
+ * corrige o índice.
+ *
+ * Coerência: toda gravação de produto invalida os ids gravados depois do
+ * commit. As do Hibernate passam pelo ProdutoIndiceListener; as upserts em
+ * JDBC (importação de NF-e) chamam invalidar. Os ids saem do índice, são
+ * relidos do banco numa consulta só e a invalidação é publicada no canal do
+ * TenantCacheManager, para os outros nós fazerem o mesmo. Entre o commit e a
+ * chegada da mensagem, outro nó ainda responde com o índice antigo. UPDATE
+ * direto no banco não avisa ninguém: fica para a recarga completa, feita em
+ * segundo plano depois de wms.cadastro.barcode.recarga-minutos.
+ *
+ * Limite: tenant com mais de wms.cadastro.barcode.max-produtos produtos não é
+ * indexado (cada bipe vai ao banco pela consulta indexada). Índice parcial não
+ * serve: um código repetido fora dele deixaria de ser tratado como ambíguo.
+ */
+@Service
+@Slf4j
+public class BarcodeResolver implements MessageListener {
+
+    private static final Long AMBIGUO = -1L;
+
+    // Campo "cache" da mensagem no canal compartilhado; o TenantCacheManager ignora por não ter esse cache
+    private static final String ORIGEM_MENSAGEM = "indice-codigos";
+    private static final String SEPARADOR_MENSAGEM = "\u001F";
+
+    private static final String SQL_CARGA = """
+            SELECT id, sku, nome, ean13, dun14, unidade_medida, depositante_id,
+                   ativo, controla_lote, controla_validade, controla_serie
+            FROM tb_produto
+            """;
+
+    private static final String SQL_RELER = SQL_CARGA + "WHERE id = ANY(?)";
+
+    private final ProdutoRepository produtoRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxProdutos;
+    private final long recargaNanos;
+    private final ExecutorService recarregador;
+
+    private final Map<String, IndiceTenant> indices = new ConcurrentHashMap<>();
+    private final Set<String> recarregando = ConcurrentHashMap.newKeySet();
+    private final String noId = UUID.randomUUID().toString();
+
+    public BarcodeResolver(ProdutoRepository produtoRepository, JdbcTemplate jdbcTemplate,
+            StringRedisTemplate redisTemplate, RedisMessageListenerContainer cacheInvalidacaoContainer,
+            MeterRegistry meterRegistry,
+            @Value("${wms.cadastro.barcode.max-produtos:200000}") int maxProdutos,
+            @Value("${wms.cadastro.barcode.recarga-minutos:15}") long recargaMinutos) {
+        this.produtoRepository = produtoRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxProdutos = maxProdutos;
+        this.recargaNanos = TimeUnit.MINUTES.toNanos(recargaMinutos);
+        this.recarregador = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "indice-codigos-recarga");
+            t.setDaemon(true);
+            return t;
+        });
+        cacheInvalidacaoContainer.addMessageListener(this, new ChannelTopic(TenantCacheManager.CANAL_INVALIDACAO));
+    }
+
+    @PreDestroy
+    public void parar() {
+        recarregador.shutdownNow();
+    }
+
+    /**
+     * Produto do código bipado. Mesmo contrato do
+     * ProdutoRepository.findByCodigoBarras.
+     */
+    public Optional<Produto> resolverProduto(String codigo) {
+        if (codigo == null || codigo.isBlank())
+            return Optional.empty();
+
+        long inicio = System.nanoTime();
+        IndiceTenant indice = indiceAtual();
+        Long id = indice.porCodigo.get(codigo);
+
+        if (id != null && !AMBIGUO.equals(id)) {
+            Optional<Produto> produto;
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                produto = Optional.of(produtoRepository.getReferenceById(id));
+            } else {
+                // Sem transação um proxy sairia desligado da sessão; findById passa pelo cache "produtos"
+                produto = produtoRepository.findById(id);
+            }
+            if (produto.isPresent()) {
+                registrar(inicio, "indice");
+                return produto;
+            }
+            // Excluído em outro nó: tira do índice e confere no banco
+            indice.remover(id);
+        }
+
+        Optional<Produto> produto = produtoRepository.findByCodigoBarras(codigo);
+        produto.ifPresent(p -> atualizar(indice, cabecalho(p)));
+        registrar(inicio, "banco");
+        return produto;
+    }
+
+    /**
+     * Resumo do produto direto do índice, sem tocar em JPA. Pode estar
+     * desatualizado em relação a outro nó; para gravar, use resolverProduto.
+     */
+    public Optional<ProdutoCabecalho> resolver(String codigo) {
+        if (codigo == null || codigo.isBlank())
+            return Optional.empty();
+        IndiceTenant indice = indiceAtual();
+        Long id = indice.porCodigo.get(codigo);
+        if (id != null && !AMBIGUO.equals(id)) {
+            return Optional.ofNullable(indice.porId.get(id));
+        }
+        return resolverProduto(codigo).map(this::cabecalho);
+    }
+
+    /**
+     * Carrega o índice do tenant em segundo plano (chamado na seleção da
+     * empresa, antes do primeiro scan).
+     */
+    @Async
+    @LimiteConcorrencia(nome = "indice-codigos", padrao = 2)
+    public void aquecer(String tenantId) {
+        TenantContext.setTenant(tenantId);
+        try {
+            indiceAtual();
+        } catch (Exception e) {
+            log.warn("Falha ao aquecer índice de códigos do tenant {}: {}", tenantId, e.getMessage());
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    /**
+     * Invalida o produto depois do commit da transação corrente (todos os ids
+     * da transação num lote só); fora de transação, na hora.
+     */
+    public void invalidarAposCommit(Long produtoId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidar(List.of(produtoId));
+            return;
+        }
+        InvalidacaoDaTransacao pendentes = (InvalidacaoDaTransacao) TransactionSynchronizationManager
+                .getResource(this);
+        if (pendentes == null) {
+            pendentes = new InvalidacaoDaTransacao();
+            TransactionSynchronizationManager.bindResource(this, pendentes);
+            TransactionSynchronizationManager.registerSynchronization(pendentes);
+        }
+        pendentes.ids.add(produtoId);
+    }
+
+    /**
+     * Relê do banco os produtos gravados (já comitados) no índice deste nó e
+     * avisa os demais nós.
+     */
+    public void invalidar(Collection<Long> produtoIds) {
+        if (produtoIds.isEmpty())
+            return;
+        reler(TenantContext.getTenant(), produtoIds);
+        try {
+            redisTemplate.convertAndSend(TenantCacheManager.CANAL_INVALIDACAO, String.join(SEPARADOR_MENSAGEM,
+                    noId, ORIGEM_MENSAGEM, TenantContext.getTenant(),
+                    produtoIds.stream().map(String::valueOf).collect(Collectors.joining(","))));
+        } catch (Exception e) {
+            // Os outros nós ficam com a recarga completa
+            log.warn("Falha ao publicar invalidação do índice de códigos: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // Campos: origem, "indice-codigos", tenant, ids
+        String[] partes = new String(message.getBody(), StandardCharsets.UTF_8).split(SEPARADOR_MENSAGEM, 4);
+        if (partes.length < 4 || !ORIGEM_MENSAGEM.equals(partes[1]) || noId.equals(partes[0]))
+            return;
+        List<Long> ids;
+        try {
+            ids = Arrays.stream(partes[3].split(",")).map(Long::valueOf).toList();
+        } catch (NumberFormatException e) {
+            log.warn("Invalidação do índice de códigos ignorada (mensagem inválida): {}", partes[3]);
+            return;
+        }
+        TenantContext.setTenant(partes[2]);
+        try {
+            reler(partes[2], ids);
+        } catch (Exception e) {
+            // Sem releitura o produto pelo menos sai do índice: o próximo bipe vai ao banco
+            log.warn("Falha ao reler produtos do índice de códigos [{}]: {}", partes[2], e.getMessage());
+            IndiceTenant indice = indices.get(partes[2]);
+            if (indice != null)
+                ids.forEach(indice::remover);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    // Remove os ids e põe de volta o que ainda existe, com os códigos atuais
+    private void reler(String tenant, Collection<Long> produtoIds) {
+        IndiceTenant indice = indices.get(tenant);
+        // Índice ainda não carregado neste nó: a carga completa já vai trazer os produtos
+        if (indice == null)
+            return;
+        produtoIds.forEach(indice::remover);
+        Long[] ids = produtoIds.toArray(Long[]::new);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_RELER);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, (RowCallbackHandler) rs -> atualizar(indice, cabecalho(rs)));
+    }
+
+    private void atualizar(IndiceTenant indice, ProdutoCabecalho c) {
+        if (!indice.atualizar(c, maxProdutos)) {
+            // Passou do limite: o tenant deixa de ser indexado até a próxima recarga
+            log.warn("Índice de códigos [{}] passou de {} produtos; bipes vão ao banco", TenantContext.getTenant(),
+                    maxProdutos);
+            indices.replace(TenantContext.getTenant(), indice, IndiceTenant.desativado());
+        }
+    }
+
+    private IndiceTenant indiceAtual() {
+        String tenant = TenantContext.getTenant();
+        IndiceTenant indice = indices.get(tenant);
+        if (indice != null) {
+            if (System.nanoTime() - indice.carregadoEm > recargaNanos)
+                agendarRecarga(tenant);
+            return indice;
+        }
+
+        // computeIfAbsent garante uma única carga por tenant
+        return indices.computeIfAbsent(tenant, this::carregar);
+    }
+
+    // A recarga troca o índice inteiro; enquanto roda, o antigo continua respondendo
+    private void agendarRecarga(String tenant) {
+        if (!recarregando.add(tenant))
+            return;
+        try {
+            recarregador.execute(() -> {
+                TenantContext.setTenant(tenant);
+                try {
+                    indices.put(tenant, carregar(tenant));
+                } catch (Exception e) {
+                    log.warn("Falha ao recarregar índice de códigos do tenant {}: {}", tenant, e.getMessage());
+                } finally {
+                    TenantContext.clear();
+                    recarregando.remove(tenant);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            recarregando.remove(tenant);
+        }
+    }
+
+    private IndiceTenant carregar(String tenant) {
+        Integer total = jdbcTemplate.queryForObject("SELECT count(*) FROM tb_produto", Integer.class);
+        if (total != null && total > maxProdutos) {
+            log.info("Índice de códigos [{}]: {} produtos, acima do limite de {}; não indexado", tenant, total,
+                    maxProdutos);
+            return IndiceTenant.desativado();
+        }
+
+        long inicio = System.nanoTime();
+        IndiceTenant novo = new IndiceTenant();
+        jdbcTemplate.query(SQL_CARGA, rs -> {
+            novo.atualizar(cabecalho(rs));
+        });
+        log.info("Índice de códigos [{}]: {} produtos, {} códigos em {} ms", tenant, novo.porId.size(),
+                novo.porCodigo.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        return novo;
+    }
+
+    private void registrar(long inicio, String origem) {
+        Timer.builder("wms.cadastro.barcode.resolucao")
+                .description("Tempo para resolver o código bipado em produto")
+                .tags("tenant", TenantContext.getTenant(), "origem", origem)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+
+    private static ProdutoCabecalho cabecalho(ResultSet rs) throws SQLException {
+        return new ProdutoCabecalho(
+                rs.getLong("id"),
+                rs.getString("sku"),
+                rs.getString("nome"),
+                rs.getString("ean13"),
+                rs.getString("dun14"),
+                rs.getString("unidade_medida"),
+                rs.getObject("depositante_id", Long.class),
+                rs.getBoolean("ativo"),
+                rs.getBoolean("controla_lote"),
+                rs.getBoolean("controla_validade"),
+                rs.getBoolean("controla_serie"));
+    }
+
+    private ProdutoCabecalho cabecalho(Produto p) {
+        return new ProdutoCabecalho(
+                p.getId(),
+                p.getSku(),
+                p.getNome(),
+                p.getEan13(),
+                p.getDun14(),
+                p.getUnidadeMedida(),
+                p.getDepositante() != null ? p.getDepositante().getId() : null,
+                p.isAtivo(),
+                p.isControlaLote(),
+                p.isControlaValidade(),
+                p.isControlaSerie());
+    }
+
+    private class InvalidacaoDaTransacao implements TransactionSynchronization {
+        private final Set<Long> ids = new HashSet<>();
+
+        @Override
+        public void afterCommit() {
+            // Nada daqui pode lançar: a transação já foi comitada
+            try {
+                invalidar(ids);
+            } catch (Exception e) {
+                log.warn("Falha ao invalidar índice de códigos após commit: {}", e.getMessage());
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(BarcodeResolver.this);
+        }
+    }
+
+    private static final class IndiceTenant {
+        private final Map<String, Long> porCodigo = new ConcurrentHashMap<>();
+        private final Map<Long, ProdutoCabecalho> porId = new ConcurrentHashMap<>();
+        private final long carregadoEm = System.nanoTime();
+        // Tenant acima do limite: índice vazio que não aceita produtos (tudo vai ao banco)
+        private boolean desativado;
+
+        static IndiceTenant desativado() {
+            IndiceTenant indice = new IndiceTenant();
+            indice.desativado = true;
+            return indice;
+        }
+
+        /** false se o produto é novo e o índice já está no limite. */
+        synchronized boolean atualizar(ProdutoCabecalho c, int limite) {
+            if (desativado)
+                return true;
+            if (!porId.containsKey(c.id()) && porId.size() >= limite)
+                return false;
+            atualizar(c);
+            return true;
+        }
+
+        synchronized void atualizar(ProdutoCabecalho c) {
+            remover(c.id());
+            porId.put(c.id(), c);
+            indexar(c.sku(), c.id());
+            indexar(c.ean13(), c.id());
+            indexar(c.dun14(), c.id());
+        }
+
+        synchronized void remover(Long id) {
+            ProdutoCabecalho antigo = porId.remove(id);
+            if (antigo == null)
+                return;
+            // Só remove se o código ainda for deste produto (AMBIGUO permanece)
+            porCodigo.remove(antigo.sku(), id);
+            if (antigo.ean13() != null)
+                porCodigo.remove(antigo.ean13(), id);
+            if (antigo.dun14() != null)
+                porCodigo.remove(antigo.dun14(), id);
+        }
+
+        private void indexar(String codigo, Long id) {
+            if (codigo == null || codigo.isBlank())
+                return;
+            porCodigo.merge(codigo, id, (atual, novo) -> atual.equals(novo) ? atual : AMBIGUO);
+        }
+    }
+}
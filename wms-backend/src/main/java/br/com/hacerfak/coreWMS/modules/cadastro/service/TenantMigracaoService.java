@@ -0,0 +1,258 @@
+package br.com.hacerfak.coreWMS.modules.cadastro.service;
+
+import br.com.hacerfak.coreWMS.core.config.MultiTenantConfig;
+import br.com.hacerfak.coreWMS.core.multitenant.MultiTenantDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Migrações Flyway dos bancos dos tenants.
+ *
+ * A versão de cada tenant fica no master (tb_tenant_migracao). Tenant que
+ * já está na última versão de db/migration/tenant é pulado sem abrir o
+ * Flyway. Os demais são migrados em segundo plano depois da subida, com
+ * paralelismo limitado, ou na hora, quando o tenant é usado antes disso
+ * (o MultiTenantDataSource chama garantirAtualizado antes de abrir o pool).
+ *
+ * Uma migração que falhou não roda de novo a cada abertura de pool: por
+ * ESPERA_APOS_FALHA_MS quem usar o tenant recebe a mesma falha na hora (como
+ * o cache de tenants desconhecidos do MultiTenantDataSource).
+ */
+@Service
+@Slf4j
+@DependsOn("flywayInitializer") // tb_tenant_migracao vem da migração do master
+public class TenantMigracaoService {
+
+    private static final String LOCAL_MIGRACOES = "db/migration/tenant";
+    private static final long ESPERA_APOS_FALHA_MS = 60_000;
+
+    private final JdbcTemplate masterJdbc;
+    private final MultiTenantDataSource multiTenantDataSource;
+    private final MultiTenantConfig multiTenantConfig;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private MigrationVersion ultimaVersao;
+    // Tenants confirmados na última versão (não passam mais pelo Flyway neste nó)
+    private final Set<String> atualizados = ConcurrentHashMap.newKeySet();
+    private final Map<String, CompletableFuture<Void>> emAndamento = new ConcurrentHashMap<>();
+    // Última falha por tenant (não tenta de novo antes da espera)
+    private final Map<String, FalhaMigracao> falhas = new ConcurrentHashMap<>();
+
+    public TenantMigracaoService(DataSource masterDataSource, MultiTenantDataSource multiTenantDataSource,
+            MultiTenantConfig multiTenantConfig, MeterRegistry meterRegistry,
+            @Value("${wms.tenant.migracao.paralelismo:4}") int paralelismo) {
+        this.masterJdbc = new JdbcTemplate(masterDataSource);
+        this.multiTenantDataSource = multiTenantDataSource;
+        this.multiTenantConfig = multiTenantConfig;
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger sequencia = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, paralelismo), r -> {
+            Thread t = new Thread(r, "tenant-migracao-" + sequencia.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        ultimaVersao = ultimaVersaoDisponivel();
+
+        masterJdbc.query("SELECT tenant_id, versao FROM tb_tenant_migracao WHERE status = 'ATUALIZADO'", rs -> {
+            String versao = rs.getString("versao");
+            if (versao != null && MigrationVersion.fromVersion(versao).compareTo(ultimaVersao) >= 0)
+                atualizados.add(rs.getString("tenant_id"));
+        });
+
+        multiTenantDataSource.registrarPreparacao(this::garantirAtualizado);
+        log.info(">>> MIGRAÇÃO TENANTS: versão {} disponível; {} tenants já atualizados", ultimaVersao,
+                atualizados.size());
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Depois da subida: migra em segundo plano os tenants desatualizados. A
+     * aplicação já atende enquanto isso; tenant usado antes da sua vez é
+     * migrado na hora por quem o usou.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrarPendentes() {
+        List<String> pendentes = new ArrayList<>();
+        for (String tenantId : multiTenantDataSource.getTenantIds()) {
+            if (!atualizados.contains(tenantId))
+                pendentes.add(tenantId);
+        }
+        if (pendentes.isEmpty())
+            return;
+
+        log.info(">>> MIGRAÇÃO TENANTS: {} tenants a migrar para {} em segundo plano", pendentes.size(),
+                ultimaVersao);
+        long inicio = System.nanoTime();
+        AtomicInteger falhas = new AtomicInteger();
+        List<CompletableFuture<Void>> tarefas = new ArrayList<>(pendentes.size());
+        for (String tenantId : pendentes) {
+            tarefas.add(CompletableFuture.runAsync(() -> {
+                try {
+                    garantirAtualizado(tenantId);
+                } catch (RuntimeException e) {
+                    falhas.incrementAndGet();
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(tarefas.toArray(CompletableFuture[]::new)).whenComplete((ok, erro) -> log.info(
+                ">>> MIGRAÇÃO TENANTS: {} tenants processados em {} ms ({} com falha)", pendentes.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), falhas.get()));
+    }
+
+    /**
+     * Deixa o tenant na última versão. Retorna na hora se ele já estiver;
+     * se outra thread já estiver migrando o mesmo tenant, espera por ela.
+     */
+    public void garantirAtualizado(String tenantId) {
+        if (atualizados.contains(tenantId))
+            return;
+
+        FalhaMigracao falha = falhas.get(tenantId);
+        if (falha != null && System.currentTimeMillis() - falha.em() < ESPERA_APOS_FALHA_MS) {
+            throw new IllegalStateException("Migração do tenant '" + tenantId + "' falhou há "
+                    + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - falha.em())
+                    + " s; nova tentativa em até " + TimeUnit.MILLISECONDS.toSeconds(ESPERA_APOS_FALHA_MS) + " s",
+                    falha.erro());
+        }
+
+        CompletableFuture<Void> minha = new CompletableFuture<>();
+        CompletableFuture<Void> existente = emAndamento.putIfAbsent(tenantId, minha);
+        if (existente != null) {
+            existente.join();
+            return;
+        }
+        try {
+            if (!atualizados.contains(tenantId))
+                migrar(tenantId);
+            falhas.remove(tenantId);
+            minha.complete(null);
+        } catch (RuntimeException e) {
+            falhas.put(tenantId, new FalhaMigracao(System.currentTimeMillis(), e));
+            minha.completeExceptionally(e);
+            throw e;
+        } finally {
+            emAndamento.remove(tenantId, minha);
+        }
+    }
+
+    /**
+     * Roda o Flyway no banco do tenant e registra versão e duração no master.
+     */
+    public void migrar(String tenantId) {
+        long inicio = System.nanoTime();
+        try {
+            Flyway flyway = Flyway.configure()
+                    .dataSource(multiTenantConfig.urlDoTenant(tenantId), username, password)
+                    .locations("classpath:" + LOCAL_MIGRACOES)
+                    .baselineOnMigrate(true)
+                    .load();
+            MigrateResult resultado = flyway.migrate();
+
+            long duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+            registrar(tenantId, ultimaVersao.getVersion(), "ATUALIZADO", resultado.migrationsExecuted, duracaoMs,
+                    null);
+            atualizados.add(tenantId);
+            medir(inicio, "sucesso");
+            log.info("Tenant '{}' migrado para {} ({} migrações) em {} ms", tenantId, ultimaVersao,
+                    resultado.migrationsExecuted, duracaoMs);
+        } catch (RuntimeException e) {
+            long duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+            String erro = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            try {
+                registrar(tenantId, null, "ERRO", 0, duracaoMs,
+                        erro.length() > 1000 ? erro.substring(0, 1000) : erro);
+            } catch (RuntimeException ex) {
+                log.warn("Não foi possível registrar a falha de migração do tenant '{}'", tenantId, ex);
+            }
+            medir(inicio, "falha");
+            log.error("Falha ao migrar o tenant '{}' após {} ms", tenantId, duracaoMs, e);
+            throw e;
+        }
+    }
+
+    private void registrar(String tenantId, String versao, String status, int aplicadas, long duracaoMs,
+            String erro) {
+        // Em erro, a versão anterior registrada é mantida
+        masterJdbc.update("""
+                INSERT INTO tb_tenant_migracao (tenant_id, versao, status, migracoes_aplicadas, duracao_ms, erro, migrado_em)
+                VALUES (?, ?, ?, ?, ?, ?, now())
+                ON CONFLICT (tenant_id) DO UPDATE SET
+                    versao = COALESCE(EXCLUDED.versao, tb_tenant_migracao.versao),
+                    status = EXCLUDED.status,
+                    migracoes_aplicadas = EXCLUDED.migracoes_aplicadas,
+                    duracao_ms = EXCLUDED.duracao_ms,
+                    erro = EXCLUDED.erro,
+                    migrado_em = EXCLUDED.migrado_em
+                """, tenantId, versao, status, aplicadas, duracaoMs, erro);
+    }
+
+    private void medir(long inicio, String resultado) {
+        Timer.builder("wms.tenant.migracao")
+                .description("Duração da migração Flyway de um tenant")
+                .tag("resultado", resultado)
+                .register(meterRegistry)
+                .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+    }
+
+    private record FalhaMigracao(long em, RuntimeException erro) {
+    }
+
+    // Maior versão entre os V<versão>__*.sql do classpath (mesma regra de nomes do Flyway)
+    private static MigrationVersion ultimaVersaoDisponivel() throws IOException {
+        MigrationVersion ultima = MigrationVersion.EMPTY;
+        Resource[] arquivos = new PathMatchingResourcePatternResolver()
+                .getResources("classpath*:" + LOCAL_MIGRACOES + "/V*__*.sql");
+        for (Resource arquivo : arquivos) {
+            String nome = arquivo.getFilename();
+            if (nome == null)
+                continue;
+            MigrationVersion versao = MigrationVersion
+                    .fromVersion(nome.substring(1, nome.indexOf("__")).replace('_', '.'));
+            if (versao.compareTo(ultima) > 0)
+                ultima = versao;
+        }
+        return ultima;
+    }
+}
@@ -1,10 +1,8 @@
 package br.com.hacerfak.coreWMS.modules.cadastro.service;
 
-import br.com.hacerfak.coreWMS.core.config.MultiTenantConfig;
 import br.com.hacerfak.coreWMS.core.multitenant.MultiTenantDataSource;
 import lombok.extern.slf4j.Slf4j;
 
-import org.flywaydb.core.Flyway;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -12,6 +10,7 @@ import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
+import java.util.List;
 
 @Service
 @Slf4j
@@ -19,7 +18,7 @@ public class TenantProvisioningService {
 
     private final JdbcTemplate jdbcTemplate;
     private final MultiTenantDataSource multiTenantDataSource;
-    private final MultiTenantConfig multiTenantConfig;
+    private final TenantMigracaoService migracaoService;
 
     @Value("${spring.datasource.url}")
     private String masterUrl;
@@ -30,10 +29,10 @@ public class TenantProvisioningService {
 
     public TenantProvisioningService(DataSource masterDataSource,
             @Lazy MultiTenantDataSource multiTenantDataSource,
-            MultiTenantConfig multiTenantConfig) {
+            TenantMigracaoService migracaoService) {
         this.jdbcTemplate = new JdbcTemplate(masterDataSource);
         this.multiTenantDataSource = multiTenantDataSource;
-        this.multiTenantConfig = multiTenantConfig;
+        this.migracaoService = migracaoService;
     }
 
     public void criarBancoDeDados(String tenantId) {
@@ -45,12 +44,13 @@ public class TenantProvisioningService {
             jdbcTemplate.execute(createSql);
             log.info("Banco de dados '{}' criado com sucesso!", tenantId);
         }
-        rodarMigracoes(tenantId);
+        // Síncrono: o tenant novo precisa do schema antes da configuração inicial
+        migracaoService.migrar(tenantId);
     }
 
     private void registrarTenantNoPool(String tenantId) {
-        DataSource novoDs = multiTenantConfig.createTenantDataSource(tenantId);
-        multiTenantDataSource.addTenant(tenantId, novoDs);
+        // O pool abre no primeiro uso
+        multiTenantDataSource.registrarTenants(List.of(tenantId));
     }
 
     public void inicializarConfiguracao(String tenantId, String razaoSocial, String cnpj) {
@@ -106,19 +106,6 @@ public class TenantProvisioningService {
         }
     }
 
-    private void rodarMigracoes(String tenantId) {
-        String tenantUrl = masterUrl.replace("wms_master", tenantId);
-        if (tenantUrl.equals(masterUrl)) {
-            tenantUrl = "jdbc:postgresql://wms-db-main:5432/" + tenantId;
-        }
-        Flyway flyway = Flyway.configure()
-                .dataSource(tenantUrl, username, password)
-                .locations("classpath:db/migration/tenant")
-                .baselineOnMigrate(true)
-                .load();
-        flyway.migrate();
-    }
-
     // --- MELHORIA: ROLLBACK MANUAL ---
     public void dropDatabase(String tenantId) {
         try {
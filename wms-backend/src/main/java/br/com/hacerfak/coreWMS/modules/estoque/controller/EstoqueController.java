@@ -7,6 +7,8 @@ import br.com.hacerfak.coreWMS.modules.estoque.dto.ArmazenagemRequest;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.TarefaArmazenagemRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.service.ArmazenagemWorkflowService;
+import br.com.hacerfak.coreWMS.modules.estoque.service.AtpIndexService;
+import br.com.hacerfak.coreWMS.modules.estoque.service.EstoqueLockService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -24,10 +26,12 @@ public class EstoqueController {
     private final ArmazenagemWorkflowService armazenagemService;
     private final EstoqueSaldoRepository saldoRepository;
     private final TarefaArmazenagemRepository tarefaRepository;
+    private final EstoqueLockService lockService;
+    private final AtpIndexService atpIndex;
 
     // --- COLETOR: LISTA DE TAREFAS (PUT-AWAY) ---
     @GetMapping("/tarefas/pendentes")
-    @PreAuthorize("hasAuthority('ESTOQUE_ARMAZENAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_ARMAZENAR')")
     public ResponseEntity<List<TarefaArmazenagem>> listarTarefasPendentes() {
         // Retorna tudo que precisa ser guardado
         return ResponseEntity.ok(tarefaRepository.findByStatus(StatusTarefa.PENDENTE));
@@ -35,7 +39,7 @@ public class EstoqueController {
 
     // --- COLETOR: CONFIRMAR ARMAZENAGEM ---
     @PostMapping("/tarefas/{tarefaId}/confirmar")
-    @PreAuthorize("hasAuthority('ESTOQUE_ARMAZENAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_ARMAZENAR')")
     public ResponseEntity<Void> confirmarArmazenagem(
             @PathVariable Long tarefaId,
             @RequestBody @Valid ArmazenagemRequest dto, // Reaproveitando o DTO que tem localDestinoId
@@ -51,8 +55,26 @@ public class EstoqueController {
 
     // --- CONSULTAS (DASHBOARD) ---
     @GetMapping("/detalhado")
-    @PreAuthorize("hasAuthority('ESTOQUE_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_VISUALIZAR')")
     public ResponseEntity<List<EstoqueSaldo>> saldoDetalhado() {
         return ResponseEntity.ok(saldoRepository.findAllCompleto());
     }
-}
\ No newline at end of file
+
+    // --- DIAGNÓSTICO: SALDOS MAIS DISPUTADOS ---
+    // Tempos de espera/retenção agregados ficam em /actuator/metrics/wms.estoque.lock.*
+    @GetMapping("/locks/contencao")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<EstoqueLockService.ContencaoChave>> contencaoLocks(
+            @RequestParam(defaultValue = "20") int limite) {
+        return ResponseEntity.ok(lockService.topContencao(limite));
+    }
+
+    // --- DIAGNÓSTICO: ÍNDICE ATP x BANCO ---
+    // corrigir=true invalida os produtos divergentes (recarregam na próxima leitura)
+    @GetMapping("/atp/consistencia")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AtpIndexService.ConsistenciaAtp> consistenciaAtp(
+            @RequestParam(defaultValue = "false") boolean corrigir) {
+        return ResponseEntity.ok(atpIndex.verificarConsistencia(corrigir));
+    }
+}
@@ -23,7 +23,7 @@ public class FormatoLpnController {
      * Lista todos os formatos (Ativos e Inativos) para a grid de cadastro.
      */
     @GetMapping
-    @PreAuthorize("hasAuthority('ESTOQUE_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_VISUALIZAR')")
     public ResponseEntity<List<FormatoLpn>> listarTodos() {
         return ResponseEntity.ok(service.listarTodos());
     }
@@ -32,7 +32,7 @@ public class FormatoLpnController {
      * Lista apenas os ativos para o Modal de Seleção na Operação.
      */
     @GetMapping("/ativos")
-    @PreAuthorize("hasAuthority('ESTOQUE_OPERAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_OPERAR')")
     public ResponseEntity<List<FormatoLpn>> listarAtivos() {
         return ResponseEntity.ok(service.listarAtivos());
     }
@@ -41,7 +41,7 @@ public class FormatoLpnController {
      * Busca um formato específico por ID.
      */
     @GetMapping("/{id}")
-    @PreAuthorize("hasAuthority('ESTOQUE_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_VISUALIZAR')")
     public ResponseEntity<FormatoLpn> buscarPorId(@PathVariable Long id) {
         try {
             return ResponseEntity.ok(service.buscarPorId(id));
@@ -54,7 +54,7 @@ public class FormatoLpnController {
      * Cria ou Atualiza um formato.
      */
     @PostMapping
-    @PreAuthorize("hasAuthority('CONFIG_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_GERENCIAR')")
     public ResponseEntity<FormatoLpn> salvar(@RequestBody @Valid FormatoLpnRequest dto) {
         FormatoLpn salvo = service.salvar(dto.toEntity());
         return ResponseEntity.ok(salvo);
@@ -64,7 +64,7 @@ public class FormatoLpnController {
      * Alterna o status (Ativo/Inativo).
      */
     @PatchMapping("/{id}/status")
-    @PreAuthorize("hasAuthority('CONFIG_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_GERENCIAR')")
     public ResponseEntity<Void> alternarStatus(@PathVariable Long id) {
         service.alternarStatus(id);
         return ResponseEntity.ok().build();
@@ -74,7 +74,7 @@ public class FormatoLpnController {
      * Exclui um formato (se não estiver em uso).
      */
     @DeleteMapping("/{id}")
-    @PreAuthorize("hasAuthority('CONFIG_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_GERENCIAR')")
     public ResponseEntity<Void> excluir(@PathVariable Long id) {
         service.excluir(id);
         return ResponseEntity.ok().build();
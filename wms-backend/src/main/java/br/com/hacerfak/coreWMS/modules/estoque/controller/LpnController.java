@@ -2,7 +2,7 @@ package br.com.hacerfak.coreWMS.modules.estoque.controller;
 
 import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
-import br.com.hacerfak.coreWMS.modules.cadastro.repository.ProdutoRepository;
+import br.com.hacerfak.coreWMS.modules.cadastro.service.BarcodeResolver;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.Localizacao;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.Lpn;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.LocalizacaoRepository;
@@ -35,7 +35,7 @@ public class LpnController {
     private final ImpressaoService impressaoService;
 
     // Repositórios auxiliares para lookup de entidades
-    private final ProdutoRepository produtoRepository;
+    private final BarcodeResolver barcodeResolver;
     private final LocalizacaoRepository localizacaoRepository;
 
     // --- OPERAÇÃO ---
@@ -44,7 +44,7 @@ public class LpnController {
      * Gera LPNs vazias para impressão antecipada.
      */
     @PostMapping("/gerar-vazias")
-    @PreAuthorize("hasAuthority('ESTOQUE_MOVIMENTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_MOVIMENTAR')")
     public ResponseEntity<List<String>> gerarLpnsVazias(@RequestBody @Valid GerarLpnVaziaRequest dto) {
         String usuario = getUsuarioLogado();
         List<String> codigos = lpnService.gerarLpnsVazias(dto.quantidade(), dto.formatoId(), dto.solicitacaoId(),
@@ -56,12 +56,12 @@ public class LpnController {
      * Gera LPNs em massa (Carga Fechada) já com conteúdo e estoque.
      */
     @PostMapping("/gerar-massa")
-    @PreAuthorize("hasAuthority('ESTOQUE_MOVIMENTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_MOVIMENTAR')")
     public ResponseEntity<List<String>> gerarLpnsMassa(@RequestBody @Valid GerarLpnMassaRequest dto) {
         String usuario = getUsuarioLogado();
 
         // Busca entidades necessárias para passar ao Service
-        Produto produto = produtoRepository.findByCodigoBarras(dto.sku())
+        Produto produto = barcodeResolver.resolverProduto(dto.sku())
                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado"));
 
         Localizacao local = localizacaoRepository.findById(dto.localizacaoId())
@@ -86,7 +86,7 @@ public class LpnController {
      * Adiciona Item na LPN (Bipagem / Conferência).
      */
     @PostMapping("/{codigo}/itens")
-    @PreAuthorize("hasAuthority('ESTOQUE_MOVIMENTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_MOVIMENTAR')")
     public ResponseEntity<Void> adicionarItem(
             @PathVariable String codigo,
             @RequestBody @Valid AddItemLpnRequest dto) {
@@ -100,7 +100,7 @@ public class LpnController {
      * Finaliza a LPN (Fecha o volume para armazenagem).
      */
     @PostMapping("/{codigo}/fechar")
-    @PreAuthorize("hasAuthority('ESTOQUE_MOVIMENTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_MOVIMENTAR')")
     public ResponseEntity<Void> fecharLpn(@PathVariable String codigo) {
         String usuario = getUsuarioLogado();
         lpnService.fecharLpn(codigo, usuario);
@@ -110,13 +110,13 @@ public class LpnController {
     // --- CONSULTAS E IMPRESSÃO (Mantidos do seu código original) ---
 
     @GetMapping
-    @PreAuthorize("hasAuthority('ESTOQUE_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_VISUALIZAR')")
     public ResponseEntity<List<Lpn>> listarLpns() {
         return ResponseEntity.ok(lpnRepository.findAll());
     }
 
     @GetMapping("/{id}")
-    @PreAuthorize("hasAuthority('ESTOQUE_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_VISUALIZAR')")
     public ResponseEntity<Lpn> buscarPorId(@PathVariable Long id) {
         return lpnRepository.findById(id)
                 .map(ResponseEntity::ok)
@@ -124,7 +124,7 @@ public class LpnController {
     }
 
     @GetMapping("/codigo/{codigo}")
-    @PreAuthorize("hasAuthority('ESTOQUE_VISUALIZAR') or hasAuthority('RECEBIMENTO_CONFERIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_VISUALIZAR') or hasPermission('RECEBIMENTO_CONFERIR')")
     public ResponseEntity<Lpn> buscarPorCodigo(@PathVariable String codigo) {
         return lpnRepository.findByCodigo(codigo)
                 .map(ResponseEntity::ok)
@@ -140,7 +140,7 @@ public class LpnController {
     }
 
     @PostMapping("/{id}/imprimir")
-    @PreAuthorize("hasAuthority('ESTOQUE_MOVIMENTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('ESTOQUE_MOVIMENTAR')")
     public ResponseEntity<Void> enviarParaImpressora(
             @PathVariable Long id,
             @RequestParam(required = false) Long templateId,
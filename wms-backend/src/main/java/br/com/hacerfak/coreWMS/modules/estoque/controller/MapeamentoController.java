@@ -23,19 +23,19 @@ public class MapeamentoController {
     // --- ARMAZÉNS ---
 
     @GetMapping("/armazens")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_VISUALIZAR')")
     public ResponseEntity<List<Armazem>> listarArmazens() {
         return ResponseEntity.ok(service.listarArmazens());
     }
 
     @PostMapping("/armazens")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_GERENCIAR')")
     public ResponseEntity<Armazem> salvarArmazem(@RequestBody ArmazemRequest dto) {
         return ResponseEntity.ok(service.salvarArmazem(dto));
     }
 
     @DeleteMapping("/armazens/{id}")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_EXCLUIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_EXCLUIR')")
     public ResponseEntity<Void> excluirArmazem(@PathVariable Long id) {
         service.excluirArmazem(id);
         return ResponseEntity.noContent().build();
@@ -44,19 +44,19 @@ public class MapeamentoController {
     // --- ÁREAS ---
 
     @GetMapping("/areas/{armazemId}")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_VISUALIZAR')")
     public ResponseEntity<List<Area>> listarAreas(@PathVariable Long armazemId) {
         return ResponseEntity.ok(service.listarAreas(armazemId));
     }
 
     @PostMapping("/areas")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_GERENCIAR')")
     public ResponseEntity<Area> salvarArea(@RequestBody AreaRequest dto) {
         return ResponseEntity.ok(service.salvarArea(dto));
     }
 
     @DeleteMapping("/areas/{id}")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_EXCLUIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_EXCLUIR')")
     public ResponseEntity<Void> excluirArea(@PathVariable Long id) {
         service.excluirArea(id);
         return ResponseEntity.noContent().build();
@@ -65,28 +65,28 @@ public class MapeamentoController {
     // --- LOCALIZAÇÕES ---
 
     @GetMapping("/locais/{areaId}")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_VISUALIZAR')")
     public ResponseEntity<List<Localizacao>> listarLocais(@PathVariable Long areaId) {
         return ResponseEntity.ok(service.listarLocais(areaId));
     }
 
     // NOVO ENDPOINT: Listagem Global com Filtro
     @GetMapping("/locais")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_VISUALIZAR')")
     public ResponseEntity<List<Localizacao>> listarLocaisGlobal(
             @RequestParam(required = false) TipoLocalizacao tipo) {
         return ResponseEntity.ok(service.listarTodosLocais(tipo));
     }
 
     @PostMapping("/locais")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_GERENCIAR')")
     @CacheEvict(value = "locais", allEntries = true)
     public ResponseEntity<Localizacao> salvarLocal(@RequestBody LocalizacaoRequest dto) {
         return ResponseEntity.ok(service.salvarLocal(dto));
     }
 
     @DeleteMapping("/locais/{id}")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_EXCLUIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_EXCLUIR')")
     @CacheEvict(value = "locais", allEntries = true)
     public ResponseEntity<Void> excluirLocal(@PathVariable Long id) {
         service.excluirLocal(id);
@@ -96,14 +96,14 @@ public class MapeamentoController {
     // --- UTILITÁRIOS (Scan) ---
 
     @GetMapping("/scan/{enderecoCompleto}")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_VISUALIZAR')")
     public ResponseEntity<Localizacao> buscarPorBarcode(@PathVariable String enderecoCompleto) {
         return ResponseEntity.ok(service.buscarPorEnderecoCompleto(enderecoCompleto));
     }
 
     // --- NOVO: IMPORTAÇÃO ---
     @PostMapping(value = "/locais/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @PreAuthorize("hasAuthority('LOCALIZACAO_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_GERENCIAR')")
     @CacheEvict(value = "locais", allEntries = true)
     public ResponseEntity<Void> importarLocais(@RequestParam("file") MultipartFile file) {
         service.importarLocalizacoes(file);
@@ -112,7 +112,7 @@ public class MapeamentoController {
 
     // --- NOVO: BULK UPDATE ---
     @PostMapping("/locais/bulk-update")
-    @PreAuthorize("hasAuthority('LOCALIZACAO_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('LOCALIZACAO_GERENCIAR')")
     @CacheEvict(value = "locais", allEntries = true)
     public ResponseEntity<Void> atualizarMassa(@RequestBody LocalizacaoBulkUpdateDTO dto) {
         service.atualizarEmMassa(dto);
@@ -17,31 +17,31 @@ public class RelatorioController {
     private final RelatorioService relatorioService;
 
     @GetMapping("/posicao-estoque")
-    @PreAuthorize("hasAuthority('RELATORIO_ESTOQUE') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RELATORIO_ESTOQUE')")
     public ResponseEntity<List<PosicaoEstoqueDTO>> posicaoEstoque() {
         return ResponseEntity.ok(relatorioService.gerarRelatorioPosicaoEstoque());
     }
 
     @GetMapping("/kardex/{produtoId}")
-    @PreAuthorize("hasAuthority('RELATORIO_ESTOQUE') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RELATORIO_ESTOQUE')")
     public ResponseEntity<List<KardexDTO>> kardexProduto(@PathVariable Long produtoId) {
         return ResponseEntity.ok(relatorioService.gerarKardexProduto(produtoId));
     }
 
     @GetMapping("/aging")
-    @PreAuthorize("hasAuthority('RELATORIO_ESTOQUE') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RELATORIO_ESTOQUE')")
     public ResponseEntity<List<AgingDTO>> aging(@RequestParam(required = false) Integer diasVencimento) {
         return ResponseEntity.ok(relatorioService.gerarRelatorioAging(diasVencimento));
     }
 
     @GetMapping("/acuracidade")
-    @PreAuthorize("hasAuthority('RELATORIO_ESTOQUE') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RELATORIO_ESTOQUE')")
     public ResponseEntity<List<AcuracidadeDTO>> acuracidade() {
         return ResponseEntity.ok(relatorioService.gerarRelatorioAcuracidade());
     }
 
     @GetMapping("/ocupacao")
-    @PreAuthorize("hasAuthority('RELATORIO_ESTOQUE') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RELATORIO_ESTOQUE')")
     public ResponseEntity<List<OcupacaoDTO>> ocupacao() {
         return ResponseEntity.ok(relatorioService.gerarRelatorioOcupacao());
     }
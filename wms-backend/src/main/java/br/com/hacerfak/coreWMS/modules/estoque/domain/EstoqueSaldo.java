@@ -1,6 +1,8 @@
 package br.com.hacerfak.coreWMS.modules.estoque.domain;
 
 import br.com.hacerfak.coreWMS.core.domain.BaseEntity;
+import br.com.hacerfak.coreWMS.core.domain.ModoAuditoria;
+import br.com.hacerfak.coreWMS.core.domain.PoliticaAuditoria;
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
 import jakarta.persistence.*;
 import lombok.*;
@@ -9,6 +11,9 @@ import lombok.experimental.SuperBuilder;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+// Saldo deriva dos movimentos: auditoria mínima e amostrada nos UPDATEs
+@PoliticaAuditoria(criacao = ModoAuditoria.ALTERACOES, alteracao = ModoAuditoria.AMOSTRAGEM,
+                exclusao = ModoAuditoria.ALTERACOES, amostragem = 5)
 @Entity
 @Table(name = "tb_estoque_saldo", uniqueConstraints = {
                 @UniqueConstraint(name = "uk_estoque_saldo", columnNames = { "produto_id", "localizacao_id", "lote",
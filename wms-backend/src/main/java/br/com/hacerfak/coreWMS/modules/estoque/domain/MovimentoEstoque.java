@@ -1,6 +1,8 @@
 package br.com.hacerfak.coreWMS.modules.estoque.domain;
 
 import br.com.hacerfak.coreWMS.core.domain.BaseEntity;
+import br.com.hacerfak.coreWMS.core.domain.ModoAuditoria;
+import br.com.hacerfak.coreWMS.core.domain.PoliticaAuditoria;
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
 import jakarta.persistence.*;
 import lombok.*;
@@ -8,6 +10,9 @@ import lombok.experimental.SuperBuilder;
 
 import java.math.BigDecimal;
 
+// Razão imutável: o próprio movimento já é o registro da operação
+@PoliticaAuditoria(criacao = ModoAuditoria.DESLIGADA, alteracao = ModoAuditoria.DESLIGADA,
+        exclusao = ModoAuditoria.DESLIGADA)
 @Entity
 @Table(name = "tb_movimento_estoque", indexes = {
         @Index(name = "idx_mov_produto", columnList = "produto_id"),
@@ -0,0 +1,39 @@
+package br.com.hacerfak.coreWMS.modules.estoque.dto;
+
+import br.com.hacerfak.coreWMS.modules.estoque.domain.StatusQualidade;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.TipoMovimento;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Uma linha de movimentação para o EstoqueService.movimentarLote.
+ * Campos de rastreio nulos (lpn, lote, serial, qualidade, validade) funcionam
+ * como curinga na busca do saldo, igual ao buscarSaldoExato. A validade faz
+ * parte da chave do saldo: uma entrada com validade não soma no saldo de
+ * outra validade.
+ */
+public record MovimentoCommand(
+        Long produtoId,
+        Long localId,
+        BigDecimal quantidade,
+        String lpn,
+        String lote,
+        String serial,
+        StatusQualidade qualidade,
+        TipoMovimento tipo,
+        String usuario,
+        String obs,
+        LocalDate dataValidade) {
+
+    public MovimentoCommand(Long produtoId, Long localId, BigDecimal quantidade, String lpn, String lote,
+            String serial, StatusQualidade qualidade, TipoMovimento tipo, String usuario, String obs) {
+        this(produtoId, localId, quantidade, lpn, lote, serial, qualidade, tipo, usuario, obs, null);
+    }
+
+    public boolean isEntrada() {
+        return tipo == TipoMovimento.ENTRADA ||
+                tipo == TipoMovimento.AJUSTE_POSITIVO ||
+                tipo == TipoMovimento.DESBLOQUEIO;
+    }
+}
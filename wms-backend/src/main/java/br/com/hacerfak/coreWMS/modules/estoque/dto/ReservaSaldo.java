@@ -0,0 +1,12 @@
+package br.com.hacerfak.coreWMS.modules.estoque.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Reserva a gravar em um saldo, protegida pela versão lida na alocação.
+ */
+public record ReservaSaldo(
+        Long saldoId,
+        Long version,
+        BigDecimal quantidade) {
+}
@@ -0,0 +1,22 @@
+package br.com.hacerfak.coreWMS.modules.estoque.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Fatia de saldo disponível para alocação (quantidade - reservada > 0, local
+ * ativo e desbloqueado, qualidade DISPONIVEL). É o item guardado no índice ATP.
+ */
+public record SaldoDisponivel(
+        Long saldoId,
+        Long produtoId,
+        Long localizacaoId,
+        String lote,
+        String lpn,
+        String numeroSerie,
+        LocalDate dataValidade,
+        LocalDateTime dataCriacao,
+        BigDecimal disponivel,
+        Long version) {
+}
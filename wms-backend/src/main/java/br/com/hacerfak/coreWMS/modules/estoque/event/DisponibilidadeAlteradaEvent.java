@@ -0,0 +1,15 @@
+package br.com.hacerfak.coreWMS.modules.estoque.event;
+
+import java.util.Set;
+
+/**
+ * Publicado quando a disponibilidade muda sem passar pelo movimentarLote
+ * (reservas, bloqueio/ativação de endereços).
+ * produtoIds vazio significa "todos os produtos do tenant".
+ */
+public record DisponibilidadeAlteradaEvent(Set<Long> produtoIds) {
+
+    public static DisponibilidadeAlteradaEvent todos() {
+        return new DisponibilidadeAlteradaEvent(Set.of());
+    }
+}
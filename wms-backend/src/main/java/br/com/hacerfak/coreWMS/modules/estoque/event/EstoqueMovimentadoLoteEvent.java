@@ -0,0 +1,11 @@
+package br.com.hacerfak.coreWMS.modules.estoque.event;
+
+import java.util.List;
+
+/**
+ * Evento agregado publicado uma única vez por chamada de movimentarLote.
+ * Cada item mantém o mesmo formato do evento unitário.
+ */
+public record EstoqueMovimentadoLoteEvent(
+        List<EstoqueMovimentadoEvent> movimentos) {
+}
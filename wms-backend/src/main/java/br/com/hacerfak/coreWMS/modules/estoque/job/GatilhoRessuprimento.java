@@ -0,0 +1,180 @@
+package br.com.hacerfak.coreWMS.modules.estoque.job;
+
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.ChaveFace;
+import br.com.hacerfak.coreWMS.modules.estoque.service.RessuprimentoService;
+import br.com.hacerfak.coreWMS.modules.estoque.service.RessuprimentoService.ResultadoVarredura;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Junta as saídas de estoque por face (produto + endereço) e avalia o
+ * ressuprimento em lote depois de uma janela curta.
+ *
+ * Numa onda de separação a mesma face recebe centenas de saídas em poucos
+ * segundos; aqui elas viram uma marcação só, e cada disparo avalia todas as
+ * faces marcadas do tenant numa transação (RessuprimentoService.ressuprirFaces).
+ * Marcações pendentes ficam só em memória: se o nó cair antes do disparo, a
+ * próxima varredura do RessuprimentoJob cobre.
+ *
+ * O evento de saída já foi confirmado no outbox quando a face é marcada, então
+ * um disparo que falha devolve as faces do tenant às pendentes e só as tenta
+ * de novo depois de uma espera que dobra a cada falha (até MAX_FALHAS; depois
+ * disso fica para a varredura).
+ */
+@Component
+@Slf4j
+public class GatilhoRessuprimento {
+
+    private static final int MAX_FALHAS = 6;
+    private static final long ESPERA_MAXIMA_MS = 300_000;
+
+    // Faces marcadas e eventos recebidos de um tenant; só alterado dentro de pendentes.compute/merge
+    private static final class Pendentes {
+        private final Set<ChaveFace> faces = new HashSet<>();
+        private int eventos;
+        // Disparos seguidos que falharam e o instante (nanoTime) antes do qual não tenta de novo
+        private int falhas;
+        private long naoAntesDe;
+    }
+
+    private final RessuprimentoService ressuprimentoService;
+    private final MeterRegistry meterRegistry;
+    private final long janelaMs;
+    private final ScheduledExecutorService agendador;
+
+    private final Map<String, Pendentes> pendentes = new ConcurrentHashMap<>();
+    private final AtomicBoolean disparoAgendado = new AtomicBoolean();
+    private final Counter falhas;
+
+    public GatilhoRessuprimento(RessuprimentoService ressuprimentoService, MeterRegistry meterRegistry,
+            @Value("${wms.ressuprimento.gatilho.janela-ms:2000}") long janelaMs) {
+        this.ressuprimentoService = ressuprimentoService;
+        this.meterRegistry = meterRegistry;
+        this.janelaMs = janelaMs;
+        this.agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ressuprimento-gatilho");
+            t.setDaemon(true);
+            return t;
+        });
+        this.falhas = Counter.builder("wms.ressuprimento.gatilho.falhas")
+                .description("Disparos do gatilho que falharam e voltaram para as pendentes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Marca a face do tenant corrente para avaliação no próximo disparo. A
+     * janela conta da primeira marcação, então o atraso máximo é janelaMs
+     * mesmo com saídas contínuas.
+     */
+    public void marcar(Long produtoId, Long localizacaoId) {
+        ChaveFace face = new ChaveFace(produtoId, localizacaoId);
+        // compute é atômico por chave: não perde marcação para um disparo que esteja removendo o tenant
+        pendentes.compute(TenantContext.getTenant(), (tenant, atual) -> {
+            Pendentes p = atual != null ? atual : new Pendentes();
+            p.faces.add(face);
+            p.eventos++;
+            return p;
+        });
+        if (disparoAgendado.compareAndSet(false, true))
+            agendador.schedule(this::disparar, janelaMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void parar() {
+        agendador.shutdownNow();
+    }
+
+    void disparar() {
+        // Libera antes de esvaziar: marcações a partir daqui agendam o próximo disparo
+        disparoAgendado.set(false);
+        long agora = System.nanoTime();
+        long proximaEsperaNs = Long.MAX_VALUE;
+        for (String tenant : Set.copyOf(pendentes.keySet())) {
+            Pendentes lote = pendentes.remove(tenant);
+            if (lote == null)
+                continue;
+            if (lote.falhas > 0 && lote.naoAntesDe - agora > 0) {
+                // Ainda esperando depois de uma falha
+                devolver(tenant, lote);
+                proximaEsperaNs = Math.min(proximaEsperaNs, lote.naoAntesDe - agora);
+                continue;
+            }
+            try {
+                TenantContext.setTenant(tenant);
+                ResultadoVarredura resultado = ressuprimentoService.ressuprirFaces(lote.faces);
+                registrar(lote, resultado);
+                log.debug("Gatilho de ressuprimento ({}): {} saídas, {} faces, {} tarefas", tenant, lote.eventos,
+                        lote.faces.size(), resultado.tarefasGeradas());
+            } catch (Exception e) {
+                falhas.increment();
+                lote.falhas++;
+                if (lote.falhas >= MAX_FALHAS) {
+                    log.error("Gatilho de ressuprimento do tenant '{}' desistiu após {} falhas ({} faces); "
+                            + "fica para a varredura", tenant, lote.falhas, lote.faces.size(), e);
+                    continue;
+                }
+                long esperaMs = Math.min(ESPERA_MAXIMA_MS, janelaMs << lote.falhas);
+                lote.naoAntesDe = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMs);
+                devolver(tenant, lote);
+                proximaEsperaNs = Math.min(proximaEsperaNs, TimeUnit.MILLISECONDS.toNanos(esperaMs));
+                log.error("Falha no gatilho de ressuprimento do tenant '{}' ({} faces); nova tentativa em {} ms",
+                        tenant, lote.faces.size(), esperaMs, e);
+            } finally {
+                TenantContext.clear();
+            }
+        }
+        // Sem nova marcação do tenant, nada mais agendaria a tentativa
+        if (proximaEsperaNs != Long.MAX_VALUE)
+            agendador.schedule(this::disparar, proximaEsperaNs, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Devolve um lote às pendentes, juntando com o que foi marcado enquanto
+     * ele estava fora. A espera e a contagem de falhas seguem as do lote.
+     */
+    private void devolver(String tenant, Pendentes lote) {
+        pendentes.merge(tenant, lote, (novas, devolvido) -> {
+            novas.faces.addAll(devolvido.faces);
+            novas.eventos += devolvido.eventos;
+            novas.falhas = devolvido.falhas;
+            novas.naoAntesDe = devolvido.naoAntesDe;
+            return novas;
+        });
+    }
+
+    private void registrar(Pendentes lote, ResultadoVarredura resultado) {
+        DistributionSummary.builder("wms.ressuprimento.gatilho.eventos")
+                .description("Saídas de estoque recebidas por disparo do gatilho")
+                .register(meterRegistry)
+                .record(lote.eventos);
+        DistributionSummary.builder("wms.ressuprimento.gatilho.faces")
+                .description("Faces distintas avaliadas por disparo do gatilho")
+                .register(meterRegistry)
+                .record(lote.faces.size());
+        // Saídas absorvidas por uma marcação já existente da mesma face
+        Counter.builder("wms.ressuprimento.gatilho.coalescidos")
+                .description("Saídas de estoque que não geraram avaliação própria")
+                .register(meterRegistry)
+                .increment(lote.eventos - lote.faces.size());
+        Counter.builder("wms.ressuprimento.tarefas")
+                .description("Tarefas de ressuprimento geradas")
+                .tag("origem", "gatilho")
+                .register(meterRegistry)
+                .increment(resultado.tarefasGeradas());
+    }
+}
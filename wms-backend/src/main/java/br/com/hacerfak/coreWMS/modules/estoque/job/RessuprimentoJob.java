@@ -0,0 +1,126 @@
+package br.com.hacerfak.coreWMS.modules.estoque.job;
+
+import br.com.hacerfak.coreWMS.core.multitenant.MultiTenantDataSource;
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.modules.estoque.service.RessuprimentoService;
+import br.com.hacerfak.coreWMS.modules.estoque.service.RessuprimentoService.ResultadoVarredura;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Varredura periódica de ressuprimento, tenant a tenant.
+ *
+ * Cada tenant custa quatro comandos (contagem, faces abaixo do mínimo,
+ * origens, INSERT das tarefas), independente do número de faces. A primeira
+ * varredura passa por todos os tenants; as seguintes só pelos que têm pool
+ * aberto: um tenant sem pool não teve movimentação desde a varredura
+ * anterior, desde que o intervalo não passe do tempo ocioso do pool
+ * (wms.tenant.pool.ocioso-ms).
+ */
+@Component
+@Slf4j
+public class RessuprimentoJob {
+
+    private final RessuprimentoService ressuprimentoService;
+    private final MultiTenantDataSource dataSource;
+    private final MeterRegistry meterRegistry;
+    private final long intervaloMs;
+    private final ScheduledExecutorService agendador;
+
+    // Faces por segundo da última varredura completa do nó (gauge)
+    private final AtomicLong facesPorSegundo = new AtomicLong();
+    private volatile boolean primeira = true;
+
+    public RessuprimentoJob(RessuprimentoService ressuprimentoService, MultiTenantDataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${wms.ressuprimento.intervalo-ms:600000}") long intervaloMs) {
+        this.ressuprimentoService = ressuprimentoService;
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+        this.intervaloMs = intervaloMs;
+        this.agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ressuprimento-varredura");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Gauge.builder("wms.ressuprimento.faces.por-segundo", facesPorSegundo, AtomicLong::get)
+                .description("Faces de picking avaliadas por segundo na última varredura")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        agendador.scheduleWithFixedDelay(this::varrer, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void parar() {
+        agendador.shutdownNow();
+    }
+
+    void varrer() {
+        Set<String> tenants = primeira ? dataSource.getTenantIds() : dataSource.getTenantsComPool();
+        primeira = false;
+
+        long inicio = System.nanoTime();
+        long faces = 0;
+        int tarefas = 0;
+        for (String tenant : tenants) {
+            try {
+                TenantContext.setTenant(tenant);
+                // Não conta como uso: a varredura não deve manter aberto o pool de um tenant parado
+                ResultadoVarredura resultado = dataSource.semRenovarUso(ressuprimentoService::ressuprirTenant);
+                faces += resultado.facesAvaliadas();
+                tarefas += resultado.tarefasGeradas();
+                registrar(resultado);
+            } catch (Exception e) {
+                log.error("Falha na varredura de ressuprimento do tenant '{}'", tenant, e);
+            } finally {
+                TenantContext.clear();
+            }
+        }
+
+        long duracaoNs = System.nanoTime() - inicio;
+        Timer.builder("wms.ressuprimento.varredura")
+                .description("Duração de uma varredura de ressuprimento (todos os tenants do nó)")
+                .register(meterRegistry)
+                .record(duracaoNs, TimeUnit.NANOSECONDS);
+        long duracaoMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(duracaoNs));
+        facesPorSegundo.set(faces * 1000 / duracaoMs);
+
+        log.info("Ressuprimento: {} tenants, {} faces em {} ms ({} faces/s), {} tarefas geradas", tenants.size(),
+                faces, duracaoMs, facesPorSegundo.get(), tarefas);
+    }
+
+    private void registrar(ResultadoVarredura resultado) {
+        Counter.builder("wms.ressuprimento.faces")
+                .description("Faces de picking avaliadas pela varredura")
+                .register(meterRegistry)
+                .increment(resultado.facesAvaliadas());
+        Counter.builder("wms.ressuprimento.tarefas")
+                .description("Tarefas de ressuprimento geradas")
+                .tag("origem", "varredura")
+                .register(meterRegistry)
+                .increment(resultado.tarefasGeradas());
+        // Abaixo do mínimo sem origem disponível: a face segue esperando estoque no pulmão
+        Counter.builder("wms.ressuprimento.sem-origem")
+                .description("Faces abaixo do mínimo sem saldo de origem para repor")
+                .register(meterRegistry)
+                .increment(resultado.facesAbaixoMinimo() - resultado.tarefasGeradas());
+    }
+}
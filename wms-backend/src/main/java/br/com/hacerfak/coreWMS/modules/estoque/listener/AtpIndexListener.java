@@ -0,0 +1,43 @@
+package br.com.hacerfak.coreWMS.modules.estoque.listener;
+
+import br.com.hacerfak.coreWMS.modules.estoque.event.DisponibilidadeAlteradaEvent;
+import br.com.hacerfak.coreWMS.modules.estoque.event.EstoqueMovimentadoEvent;
+import br.com.hacerfak.coreWMS.modules.estoque.event.EstoqueMovimentadoLoteEvent;
+import br.com.hacerfak.coreWMS.modules.estoque.service.AtpIndexService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Mantém o índice ATP em dia. Roda só após o commit (na mesma thread, com o
+ * TenantContext ainda definido): invalidar antes faria a próxima leitura
+ * recarregar um estado que ainda pode sofrer rollback.
+ */
+@Component
+@RequiredArgsConstructor
+public class AtpIndexListener {
+
+    private final AtpIndexService atpIndex;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleEstoqueMovimentadoLote(EstoqueMovimentadoLoteEvent lote) {
+        Set<Long> produtoIds = new HashSet<>();
+        for (EstoqueMovimentadoEvent event : lote.movimentos()) {
+            produtoIds.add(event.produtoId());
+        }
+        atpIndex.invalidar(produtoIds);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void handleDisponibilidadeAlterada(DisponibilidadeAlteradaEvent event) {
+        if (event.produtoIds().isEmpty()) {
+            atpIndex.invalidarTudo();
+        } else {
+            atpIndex.invalidar(event.produtoIds());
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package br.com.hacerfak.coreWMS.modules.estoque.listener;
 
-import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.core.async.LimiteConcorrencia;
 import br.com.hacerfak.coreWMS.modules.estoque.service.ArmazenagemWorkflowService;
 import br.com.hacerfak.coreWMS.modules.operacao.event.EntradaFinalizadaEvent;
 import lombok.RequiredArgsConstructor;
@@ -18,10 +18,9 @@ public class EstoqueInboundListener {
     // Escuta o evento APÓS o commit da transação de entrada ter sucesso
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
     @Async // Executa em thread separada para não travar a resposta do Controller
+    @LimiteConcorrencia(nome = "armazenagem", padrao = 4)
     public void onEntradaFinalizada(EntradaFinalizadaEvent event) {
-        // Como é async, precisamos configurar o Tenant manualmente na nova thread
-        TenantContext.setTenant(event.tenantId());
-
+        // Tenant da transação de origem já vem propagado (ContextoTaskDecorator)
         try {
             System.out.println(">>> ESTOQUE: Recebido evento de entrada finalizada ID: " + event.solicitacaoId());
 
@@ -31,8 +30,6 @@ public class EstoqueInboundListener {
         } catch (Exception e) {
             System.err.println("ERRO AO GERAR ARMAZENAGEM: " + e.getMessage());
             e.printStackTrace();
-        } finally {
-            TenantContext.clear();
         }
     }
 }
\ No newline at end of file
@@ -1,51 +1,42 @@
 package br.com.hacerfak.coreWMS.modules.estoque.listener;
 
-import br.com.hacerfak.coreWMS.modules.estoque.domain.ConfiguracaoPicking;
+import br.com.hacerfak.coreWMS.core.outbox.OutboxEventos;
+import br.com.hacerfak.coreWMS.core.outbox.OutboxHandler;
 import br.com.hacerfak.coreWMS.modules.estoque.event.EstoqueMovimentadoEvent;
-import br.com.hacerfak.coreWMS.modules.estoque.repository.ConfiguracaoPickingRepository;
-import br.com.hacerfak.coreWMS.modules.estoque.service.RessuprimentoService;
+import br.com.hacerfak.coreWMS.modules.estoque.event.EstoqueMovimentadoLoteEvent;
+import br.com.hacerfak.coreWMS.modules.estoque.job.GatilhoRessuprimento;
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
-import java.util.Optional;
-
 @Component
 @RequiredArgsConstructor
-public class RessuprimentoListener {
-
-    private final ConfiguracaoPickingRepository configPickingRepository;
-    private final RessuprimentoService ressuprimentoService;
+public class RessuprimentoListener implements OutboxHandler<EstoqueMovimentadoLoteEvent> {
 
-    @Async // Executa em thread separada para não travar a movimentação (API fica rápida)
-    @EventListener
-    public void handleEstoqueMovimentado(EstoqueMovimentadoEvent event) {
-        // Só nos interessa SAÍDAS (diminuição de estoque) para acionar ressuprimento
-        if (!"SAIDA".equals(event.tipoMovimento())) {
-            return;
-        }
+    private final GatilhoRessuprimento gatilho;
 
-        // Verifica se o local movimentado é um endereço de picking configurado
-        Optional<ConfiguracaoPicking> configOpt = configPickingRepository
-                .findByProdutoIdAndLocalizacaoId(event.produtoId(), event.localizacaoId());
+    @Override
+    public String evento() {
+        return OutboxEventos.SAIDA_ESTOQUE;
+    }
 
-        if (configOpt.isPresent()) {
-            ConfiguracaoPicking config = configOpt.get();
+    @Override
+    public String nome() {
+        return "ressuprimento";
+    }
 
-            // Verifica se o saldo caiu abaixo do ponto de reposição
-            if (event.saldoResultante().compareTo(config.getPontoRessuprimento()) <= 0) {
-                System.out.println("Gatilho de Evento: Acionando ressuprimento para " + event.localizacaoId());
-                // Chama o serviço existente (que já tem as validações de não duplicar tarefa)
-                // Precisamos expor ou adaptar o método 'verificarNecessidade' no Service
-                // Como ele é privado lá, o ideal é chamar o processamento geral ou refatorar o
-                // Service
-                // para aceitar um config específico público.
+    @Override
+    public Class<EstoqueMovimentadoLoteEvent> tipoPayload() {
+        return EstoqueMovimentadoLoteEvent.class;
+    }
 
-                // Vamos assumir que refatoramos o RessuprimentoService para ter este método
-                // público:
-                ressuprimentoService.analisarConfiguracaoEspecifica(config);
-            }
+    // Entregue pelo OutboxRelay depois do commit, fora da thread da movimentação (API fica rápida).
+    // Só marca as faces: a avaliação (configuração, saldo, tarefa aberta) sai em lote no GatilhoRessuprimento
+    @Override
+    public void processar(String chaveIdempotencia, EstoqueMovimentadoLoteEvent lote) {
+        for (EstoqueMovimentadoEvent event : lote.movimentos()) {
+            // Só nos interessa SAÍDAS (diminuição de estoque) para acionar ressuprimento
+            if ("SAIDA".equals(event.tipoMovimento()))
+                gatilho.marcar(event.produtoId(), event.localizacaoId());
         }
     }
-}
\ No newline at end of file
+}
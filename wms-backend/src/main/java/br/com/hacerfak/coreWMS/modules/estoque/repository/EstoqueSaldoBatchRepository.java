@@ -0,0 +1,355 @@
+package br.com.hacerfak.coreWMS.modules.estoque.repository;
+
+import br.com.hacerfak.coreWMS.core.util.IdsPooledLo;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.MovimentoEstoque;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.StatusQualidade;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.ReservaSaldo;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escritas set-based de saldo e kardex via JDBC batch.
+ * Usado pelo EstoqueService.movimentarLote para evitar um round trip por linha.
+ * Participa da transação JPA corrente (mesmo DataSource roteado por tenant).
+ */
+@Repository
+@RequiredArgsConstructor
+public class EstoqueSaldoBatchRepository {
+
+    /**
+     * Cópia de trabalho de uma linha de tb_estoque_saldo. O movimentarLote
+     * calcula sobre ela, e não sobre a entidade, para não mexer em saldos que
+     * o chamador tenha carregados na sessão JPA.
+     */
+    @Getter
+    @Setter
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LinhaSaldo {
+        private Long id;
+        private Long version;
+        private Long produtoId;
+        private Long localizacaoId;
+        private String lpn;
+        private String lote;
+        private String numeroSerie;
+        private LocalDate dataValidade;
+        private StatusQualidade statusQualidade;
+        private BigDecimal quantidade;
+        private BigDecimal quantidadeReservada;
+        // Usuário do último comando que mexeu na linha (atualizado_por)
+        private String usuario;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdsPooledLo idsPooledLo;
+
+    private static final String SQL_BUSCAR_SALDOS = """
+            SELECT id, version, produto_id, localizacao_id, lpn, lote, numero_serie, data_validade,
+                   status_qualidade, quantidade, quantidade_reservada
+              FROM tb_estoque_saldo
+             WHERE produto_id = ANY(?::bigint[])
+               AND localizacao_id = ANY(?::bigint[])
+             ORDER BY id
+            """;
+
+    // Multi-linha com RETURNING: devolve a quantidade final de cada chave, que
+    // difere da inserida quando outra transação criou a chave antes (ON CONFLICT).
+    // As expressões do ON CONFLICT são as do índice uk_estoque_saldo_chave (V15)
+    static final String SQL_INSERT_SALDO = """
+            INSERT INTO tb_estoque_saldo (
+                id, produto_id, localizacao_id, lpn, lote, numero_serie, data_validade,
+                status_qualidade, quantidade, quantidade_reservada, version,
+                criado_por, atualizado_por, data_criacao, data_atualizacao)
+            SELECT u.id, u.produto_id, u.localizacao_id, u.lpn, u.lote, u.numero_serie, u.data_validade,
+                   u.status_qualidade, u.quantidade, 0, 0, u.usuario, u.usuario, ?, ?
+              FROM unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::varchar[], ?::varchar[], ?::varchar[],
+                          ?::date[], ?::varchar[], ?::numeric[], ?::varchar[])
+                   AS u(id, produto_id, localizacao_id, lpn, lote, numero_serie, data_validade,
+                        status_qualidade, quantidade, usuario)
+            ON CONFLICT (produto_id, localizacao_id, (COALESCE(lpn, '')), (COALESCE(lote, '')),
+                         (COALESCE(numero_serie, '')), (COALESCE(data_validade, '-infinity'::date)),
+                         (COALESCE(status_qualidade, '')))
+            DO UPDATE SET
+                quantidade = tb_estoque_saldo.quantidade + EXCLUDED.quantidade,
+                version = COALESCE(tb_estoque_saldo.version, 0) + 1,
+                atualizado_por = EXCLUDED.atualizado_por,
+                data_atualizacao = EXCLUDED.data_atualizacao
+            RETURNING id, version, produto_id, localizacao_id, lpn, lote, numero_serie, data_validade,
+                      status_qualidade, quantidade
+            """;
+
+    private static final String SQL_UPDATE_SALDO = """
+            UPDATE tb_estoque_saldo
+            SET quantidade = ?, version = COALESCE(version, 0) + 1,
+                atualizado_por = ?, data_atualizacao = ?
+            WHERE id = ? AND version IS NOT DISTINCT FROM ?
+            """;
+
+    private static final String SQL_DELETE_SALDO = """
+            DELETE FROM tb_estoque_saldo
+            WHERE id = ? AND version IS NOT DISTINCT FROM ?
+            """;
+
+    // A condição de disponível é redundante com a versão, mas impede reservar
+    // além do físico mesmo se alguém gravar sem incrementar a versão
+    private static final String SQL_RESERVAR_SALDO = """
+            UPDATE tb_estoque_saldo
+            SET quantidade_reservada = COALESCE(quantidade_reservada, 0) + ?,
+                version = COALESCE(version, 0) + 1,
+                atualizado_por = ?, data_atualizacao = ?
+            WHERE id = ? AND version IS NOT DISTINCT FROM ?
+              AND quantidade - COALESCE(quantidade_reservada, 0) >= ?
+            """;
+
+    private static final String SQL_INSERT_MOVIMENTO = """
+            INSERT INTO tb_movimento_estoque (
+                id, tipo, produto_id, localizacao_id, quantidade, saldo_anterior, saldo_atual,
+                lpn, lote, numero_serie, usuario_responsavel, observacao,
+                criado_por, atualizado_por, data_criacao, data_atualizacao)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    /**
+     * Saldos de todas as combinações produto x local, lidos por JDBC (não
+     * entram na sessão JPA).
+     */
+    public List<LinhaSaldo> buscarSaldos(Collection<Long> produtoIds, Collection<Long> localIds) {
+        Long[] produtos = produtoIds.toArray(Long[]::new);
+        Long[] locais = localIds.toArray(Long[]::new);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_BUSCAR_SALDOS);
+            ps.setArray(1, con.createArrayOf("bigint", produtos));
+            ps.setArray(2, con.createArrayOf("bigint", locais));
+            return ps;
+        }, (rs, i) -> {
+            Date validade = rs.getDate("data_validade");
+            String qualidade = rs.getString("status_qualidade");
+            return LinhaSaldo.builder()
+                    .id(rs.getLong("id"))
+                    .version(rs.getObject("version", Long.class))
+                    .produtoId(rs.getLong("produto_id"))
+                    .localizacaoId(rs.getLong("localizacao_id"))
+                    .lpn(rs.getString("lpn"))
+                    .lote(rs.getString("lote"))
+                    .numeroSerie(rs.getString("numero_serie"))
+                    .dataValidade(validade != null ? validade.toLocalDate() : null)
+                    .statusQualidade(qualidade != null ? StatusQualidade.valueOf(qualidade) : null)
+                    .quantidade(rs.getBigDecimal("quantidade"))
+                    .quantidadeReservada(rs.getBigDecimal("quantidade_reservada"))
+                    .build();
+        });
+    }
+
+    /**
+     * Insere saldos novos num único comando. Se outra transação criou a mesma
+     * chave nesse meio tempo, o ON CONFLICT soma a quantidade em vez de
+     * duplicar a linha; o retorno traz, por linha, a quantidade que já existia
+     * (só as que caíram no conflito) para o kardex corrigir o saldo anterior.
+     */
+    public Map<LinhaSaldo, BigDecimal> inserirSaldos(List<LinhaSaldo> saldos) {
+        if (saldos.isEmpty())
+            return Map.of();
+
+        int n = saldos.size();
+        Long[] produtos = new Long[n];
+        Long[] locais = new Long[n];
+        String[] lpns = new String[n];
+        String[] lotes = new String[n];
+        String[] seriais = new String[n];
+        Date[] validades = new Date[n];
+        String[] qualidades = new String[n];
+        BigDecimal[] quantidades = new BigDecimal[n];
+        String[] usuarios = new String[n];
+        Map<String, LinhaSaldo> porChave = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            LinhaSaldo s = saldos.get(i);
+            produtos[i] = s.getProdutoId();
+            locais[i] = s.getLocalizacaoId();
+            lpns[i] = s.getLpn();
+            lotes[i] = s.getLote();
+            seriais[i] = s.getNumeroSerie();
+            validades[i] = s.getDataValidade() != null ? Date.valueOf(s.getDataValidade()) : null;
+            qualidades[i] = s.getStatusQualidade() != null ? s.getStatusQualidade().name() : null;
+            quantidades[i] = s.getQuantidade();
+            usuarios[i] = s.getUsuario();
+            porChave.put(chave(produtos[i], locais[i], lpns[i], lotes[i], seriais[i], validades[i], qualidades[i]),
+                    s);
+        }
+
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        // Chaves que caem no ON CONFLICT mantêm o id atual; o reservado vira lacuna
+        Long[] ids = idsPooledLo.reservar("tb_estoque_saldo", n);
+        Map<LinhaSaldo, BigDecimal> preexistentes = new IdentityHashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_INSERT_SALDO);
+            ps.setTimestamp(1, agora);
+            ps.setTimestamp(2, agora);
+            ps.setArray(3, con.createArrayOf("bigint", ids));
+            ps.setArray(4, con.createArrayOf("bigint", produtos));
+            ps.setArray(5, con.createArrayOf("bigint", locais));
+            ps.setArray(6, con.createArrayOf("varchar", lpns));
+            ps.setArray(7, con.createArrayOf("varchar", lotes));
+            ps.setArray(8, con.createArrayOf("varchar", seriais));
+            ps.setArray(9, con.createArrayOf("date", validades));
+            ps.setArray(10, con.createArrayOf("varchar", qualidades));
+            ps.setArray(11, con.createArrayOf("numeric", quantidades));
+            ps.setArray(12, con.createArrayOf("varchar", usuarios));
+            return ps;
+        }, rs -> {
+            LinhaSaldo s = porChave.get(chave(rs.getLong("produto_id"), rs.getLong("localizacao_id"),
+                    rs.getString("lpn"), rs.getString("lote"), rs.getString("numero_serie"),
+                    rs.getDate("data_validade"), rs.getString("status_qualidade")));
+            if (s == null)
+                return;
+            s.setId(rs.getLong("id"));
+            s.setVersion(rs.getObject("version", Long.class));
+            BigDecimal existente = rs.getBigDecimal("quantidade").subtract(s.getQuantidade());
+            if (existente.signum() != 0) {
+                preexistentes.put(s, existente);
+                s.setQuantidade(rs.getBigDecimal("quantidade"));
+            }
+        });
+        return preexistentes;
+    }
+
+    /**
+     * Atualiza a quantidade dos saldos existentes, protegido pela versão lida.
+     * Lança OptimisticLockingFailureException se alguma linha mudou no meio do
+     * caminho (o @Retryable do serviço refaz o lote inteiro).
+     */
+    public void atualizarSaldos(List<LinhaSaldo> saldos) {
+        if (saldos.isEmpty())
+            return;
+
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> params = new ArrayList<>(saldos.size());
+        for (LinhaSaldo s : saldos) {
+            params.add(new Object[] { s.getQuantidade(), s.getUsuario(), agora, s.getId(), s.getVersion() });
+        }
+        validarContagem(jdbcTemplate.batchUpdate(SQL_UPDATE_SALDO, params), ids(saldos));
+
+        for (LinhaSaldo s : saldos) {
+            s.setVersion(s.getVersion() == null ? 1L : s.getVersion() + 1);
+        }
+    }
+
+    public void removerSaldos(List<LinhaSaldo> saldos) {
+        if (saldos.isEmpty())
+            return;
+
+        List<Object[]> params = new ArrayList<>(saldos.size());
+        for (LinhaSaldo s : saldos) {
+            params.add(new Object[] { s.getId(), s.getVersion() });
+        }
+        validarContagem(jdbcTemplate.batchUpdate(SQL_DELETE_SALDO, params), ids(saldos));
+    }
+
+    /**
+     * Soma as reservas da alocação de onda em um único batch. Lança
+     * OptimisticLockingFailureException se algum saldo mudou desde a leitura.
+     */
+    public void reservarSaldos(List<ReservaSaldo> reservas, String usuario) {
+        if (reservas.isEmpty())
+            return;
+
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> params = new ArrayList<>(reservas.size());
+        List<Long> ids = new ArrayList<>(reservas.size());
+        for (ReservaSaldo r : reservas) {
+            params.add(new Object[] { r.quantidade(), usuario, agora, r.saldoId(), r.version(), r.quantidade() });
+            ids.add(r.saldoId());
+        }
+        validarContagem(jdbcTemplate.batchUpdate(SQL_RESERVAR_SALDO, params), ids);
+    }
+
+    /**
+     * Kardex: grava todas as linhas de histórico em um único batch.
+     */
+    public void inserirMovimentos(List<MovimentoEstoque> movimentos) {
+        if (movimentos.isEmpty())
+            return;
+
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        Long[] ids = idsPooledLo.reservar("tb_movimento_estoque", movimentos.size());
+        List<Object[]> params = new ArrayList<>(movimentos.size());
+        for (int i = 0; i < movimentos.size(); i++) {
+            MovimentoEstoque m = movimentos.get(i);
+            params.add(new Object[] {
+                    ids[i],
+                    m.getTipo().name(),
+                    m.getProduto().getId(),
+                    m.getLocalizacao().getId(),
+                    m.getQuantidade(),
+                    m.getSaldoAnterior(),
+                    m.getSaldoAtual(),
+                    m.getLpn(),
+                    m.getLote(),
+                    m.getNumeroSerie(),
+                    m.getUsuarioResponsavel(),
+                    m.getObservacao(),
+                    m.getUsuarioResponsavel(),
+                    m.getUsuarioResponsavel(),
+                    agora, agora });
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERT_MOVIMENTO, params);
+        for (int i = 0; i < movimentos.size(); i++) {
+            movimentos.get(i).setId(ids[i]);
+        }
+    }
+
+    private void validarContagem(int[] contagens, List<Long> ids) {
+        for (int i = 0; i < contagens.length; i++) {
+            if (contagens[i] == 0) {
+                throw new OptimisticLockingFailureException(
+                        "Saldo " + ids.get(i) + " foi alterado por outra transação.");
+            }
+            // Statement.SUCCESS_NO_INFO: driver não informou a contagem, assume sucesso
+            if (contagens[i] != Statement.SUCCESS_NO_INFO && contagens[i] < 0) {
+                throw new OptimisticLockingFailureException(
+                        "Falha ao gravar saldo " + ids.get(i) + ".");
+            }
+        }
+    }
+
+    // Mesma normalização do índice único (uk_estoque_saldo_chave)
+    private static String chave(Long produtoId, Long localId, String lpn, String lote, String serial,
+            Date validade, String qualidade) {
+        return produtoId + "|" + localId + "|" + nvl(lpn) + "|" + nvl(lote) + "|" + nvl(serial) + "|"
+                + (validade != null ? validade.toString() : "") + "|" + nvl(qualidade);
+    }
+
+    private static String nvl(String valor) {
+        return valor != null ? valor : "";
+    }
+
+    private List<Long> ids(List<LinhaSaldo> saldos) {
+        List<Long> ids = new ArrayList<>(saldos.size());
+        for (LinhaSaldo s : saldos) {
+            ids.add(s.getId());
+        }
+        return ids;
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,6 +49,30 @@ public interface EstoqueSaldoRepository extends JpaRepository<EstoqueSaldo, Long
                   @Param("serial") String serial,
                   @Param("statusQualidade") StatusQualidade statusQualidade);
 
+      // LOTE: Carrega de uma vez todos os saldos dos pares produto/local envolvidos
+      // (superconjunto; o casamento exato é feito em memória no EstoqueService)
+      @Query("""
+                     SELECT e FROM EstoqueSaldo e
+                     WHERE e.produto.id IN :produtoIds
+                     AND e.localizacao.id IN :localIds
+                     ORDER BY e.id ASC
+                  """)
+      List<EstoqueSaldo> buscarPorProdutosELocais(
+                  @Param("produtoIds") Collection<Long> produtoIds,
+                  @Param("localIds") Collection<Long> localIds);
+
+      // LOTE: Saldos com serial em estoque (id, produtoId, serial) para validar
+      // duplicidade de serial em entradas
+      @Query("""
+                     SELECT e.id, e.produto.id, e.numeroSerie FROM EstoqueSaldo e
+                     WHERE e.produto.id IN :produtoIds
+                     AND e.numeroSerie IN :seriais
+                     AND e.quantidade > 0
+                  """)
+      List<Object[]> buscarSeriaisEmEstoque(
+                  @Param("produtoIds") Collection<Long> produtoIds,
+                  @Param("seriais") Collection<String> seriais);
+
       // Sobrecarga para manter compatibilidade onde não se passa qualidade (assume
       // nulo na query acima)
       default Optional<EstoqueSaldo> buscarSaldoExato(Long pId, Long lId, String lpn, String lote, String serial) {
@@ -0,0 +1,220 @@
+package br.com.hacerfak.coreWMS.modules.estoque.repository;
+
+import br.com.hacerfak.coreWMS.core.util.IdsPooledLo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas set-based da varredura de ressuprimento: as faces de picking
+ * abaixo do mínimo saem de um único SELECT (configuração + saldo agregado +
+ * tarefas abertas), as origens FIFO de todas elas de outro, e as tarefas são
+ * gravadas num INSERT ... SELECT FROM unnest(...).
+ *
+ * Participa da transação corrente (mesmo DataSource roteado por tenant).
+ */
+@Repository
+@RequiredArgsConstructor
+public class RessuprimentoBatchRepository {
+
+    /** Face de picking abaixo do ponto de ressuprimento e sem tarefa aberta. */
+    public record FaceRessuprimento(Long configId, Long produtoId, Long localizacaoId, BigDecimal saldo,
+            BigDecimal capacidadeMaxima) {
+    }
+
+    /** Saldo disponível fora das faces de picking, candidato a origem. */
+    public record OrigemRessuprimento(Long saldoId, Long produtoId, Long localizacaoId, BigDecimal disponivel,
+            Long lpnId) {
+    }
+
+    /** Par produto/endereço movimentado, candidato a face de picking. */
+    public record ChaveFace(Long produtoId, Long localizacaoId) {
+    }
+
+    public record NovaTarefa(Long produtoId, Long origemId, Long destinoId, BigDecimal quantidade, Long lpnId) {
+    }
+
+    // Serializa varreduras e análises pontuais do mesmo tenant (vários nós): quem
+    // chega depois já enxerga as tarefas gravadas por quem estava na frente
+    private static final String SQL_TRAVAR = "SELECT pg_advisory_xact_lock(hashtext('wms:ressuprimento'))";
+
+    private static final String SQL_CONTAR_FACES = "SELECT count(*) FROM tb_configuracao_picking WHERE ativo = true";
+
+    private static final String SQL_CONFIGURACOES_DAS_FACES = """
+            SELECT c.id
+              FROM unnest(?::bigint[], ?::bigint[]) AS f(produto_id, localizacao_id)
+              JOIN tb_configuracao_picking c
+                ON c.produto_id = f.produto_id AND c.localizacao_id = f.localizacao_id AND c.ativo = true
+            """;
+
+    private static final String SQL_FACES_ABAIXO_MINIMO = """
+            WITH saldo_face AS (
+                SELECT e.produto_id, e.localizacao_id, SUM(e.quantidade) AS saldo
+                  FROM tb_estoque_saldo e
+                  JOIN tb_configuracao_picking c
+                    ON c.produto_id = e.produto_id AND c.localizacao_id = e.localizacao_id AND c.ativo = true
+                 GROUP BY e.produto_id, e.localizacao_id
+            )
+            SELECT c.id, c.produto_id, c.localizacao_id, COALESCE(s.saldo, 0) AS saldo, c.capacidade_maxima
+              FROM tb_configuracao_picking c
+              LEFT JOIN saldo_face s ON s.produto_id = c.produto_id AND s.localizacao_id = c.localizacao_id
+             WHERE c.ativo = true
+               AND (?::bigint[] IS NULL OR c.id = ANY(?::bigint[]))
+               AND COALESCE(s.saldo, 0) <= c.ponto_ressuprimento
+               AND COALESCE(s.saldo, 0) < c.capacidade_maxima
+               AND NOT EXISTS (SELECT 1 FROM tb_tarefa_movimentacao t
+                                WHERE t.destino_id = c.localizacao_id
+                                  AND t.status IN ('PENDENTE', 'EM_EXECUCAO'))
+             ORDER BY c.produto_id, c.id
+            """;
+
+    // Até N saldos por produto (N = faces do produto a repor), mais antigos primeiro;
+    // outras faces de picking do mesmo produto não servem de origem
+    private static final String SQL_ORIGENS = """
+            SELECT r.id, r.produto_id, r.localizacao_id, r.disponivel, r.lpn_id
+              FROM (SELECT e.id, e.produto_id, e.localizacao_id,
+                           e.quantidade - COALESCE(e.quantidade_reservada, 0) AS disponivel,
+                           l.id AS lpn_id, a.faces,
+                           ROW_NUMBER() OVER (PARTITION BY e.produto_id ORDER BY e.data_criacao, e.id) AS ordem
+                      FROM unnest(?::bigint[], ?::int[]) AS a(produto_id, faces)
+                      JOIN tb_estoque_saldo e ON e.produto_id = a.produto_id
+                      JOIN tb_localizacao loc ON loc.id = e.localizacao_id
+                      LEFT JOIN tb_lpn l ON l.codigo = e.lpn
+                     WHERE e.quantidade - COALESCE(e.quantidade_reservada, 0) > 0
+                       AND e.status_qualidade = 'DISPONIVEL'
+                       AND loc.bloqueado = false
+                       AND loc.ativo = true
+                       AND NOT EXISTS (SELECT 1 FROM tb_configuracao_picking c
+                                        WHERE c.produto_id = e.produto_id
+                                          AND c.localizacao_id = e.localizacao_id
+                                          AND c.ativo = true)) r
+             WHERE r.ordem <= r.faces
+             ORDER BY r.produto_id, r.ordem
+            """;
+
+    private static final String SQL_INSERIR_TAREFAS = """
+            INSERT INTO tb_tarefa_movimentacao (
+                id, status, tipo_movimento, produto_id, origem_id, destino_id, quantidade, lpn_id,
+                criado_por, atualizado_por, data_criacao, data_atualizacao)
+            SELECT u.id, 'PENDENTE', 'RESSUPRIMENTO', u.produto_id, u.origem_id, u.destino_id, u.quantidade, u.lpn_id,
+                   ?, ?, ?, ?
+              FROM unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[], ?::numeric[], ?::bigint[])
+                   AS u(id, produto_id, origem_id, destino_id, quantidade, lpn_id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdsPooledLo idsPooledLo;
+
+    public void travar() {
+        jdbcTemplate.query(SQL_TRAVAR, rs -> {
+        });
+    }
+
+    public long contarFacesAtivas() {
+        Long total = jdbcTemplate.queryForObject(SQL_CONTAR_FACES, Long.class);
+        return total != null ? total : 0;
+    }
+
+    /**
+     * Configurações ativas dos pares produto/endereço (pares que não são face
+     * de picking ficam de fora).
+     */
+    public List<Long> buscarConfiguracoes(Collection<ChaveFace> faces) {
+        if (faces.isEmpty())
+            return List.of();
+        Long[] produtos = new Long[faces.size()];
+        Long[] locais = new Long[faces.size()];
+        int i = 0;
+        for (ChaveFace face : faces) {
+            produtos[i] = face.produtoId();
+            locais[i++] = face.localizacaoId();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_CONFIGURACOES_DAS_FACES);
+            ps.setArray(1, con.createArrayOf("bigint", produtos));
+            ps.setArray(2, con.createArrayOf("bigint", locais));
+            return ps;
+        }, (rs, n) -> rs.getLong(1));
+    }
+
+    /**
+     * Faces a repor; configIds null = todas as faces ativas do tenant.
+     */
+    public List<FaceRessuprimento> buscarFacesAbaixoDoMinimo(Collection<Long> configIds) {
+        Long[] ids = configIds != null ? configIds.toArray(Long[]::new) : null;
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_FACES_ABAIXO_MINIMO);
+            ps.setArray(1, ids != null ? con.createArrayOf("bigint", ids) : null);
+            ps.setArray(2, ids != null ? con.createArrayOf("bigint", ids) : null);
+            return ps;
+        }, (rs, i) -> new FaceRessuprimento(rs.getLong("id"), rs.getLong("produto_id"),
+                rs.getLong("localizacao_id"), rs.getBigDecimal("saldo"), rs.getBigDecimal("capacidade_maxima")));
+    }
+
+    /**
+     * Origens FIFO de todos os produtos de uma vez (produto -> quantas faces
+     * dele serão repostas).
+     */
+    public List<OrigemRessuprimento> buscarOrigens(Map<Long, Integer> facesPorProduto) {
+        if (facesPorProduto.isEmpty())
+            return List.of();
+        Long[] produtos = new Long[facesPorProduto.size()];
+        Integer[] faces = new Integer[facesPorProduto.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> entrada : facesPorProduto.entrySet()) {
+            produtos[i] = entrada.getKey();
+            faces[i++] = entrada.getValue();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_ORIGENS);
+            ps.setArray(1, con.createArrayOf("bigint", produtos));
+            ps.setArray(2, con.createArrayOf("integer", faces));
+            return ps;
+        }, (rs, n) -> new OrigemRessuprimento(rs.getLong("id"), rs.getLong("produto_id"),
+                rs.getLong("localizacao_id"), rs.getBigDecimal("disponivel"), rs.getObject("lpn_id", Long.class)));
+    }
+
+    public int inserirTarefas(List<NovaTarefa> tarefas, String usuario) {
+        if (tarefas.isEmpty())
+            return 0;
+        int n = tarefas.size();
+        Long[] produtos = new Long[n];
+        Long[] origens = new Long[n];
+        Long[] destinos = new Long[n];
+        BigDecimal[] quantidades = new BigDecimal[n];
+        Long[] lpns = new Long[n];
+        for (int i = 0; i < n; i++) {
+            NovaTarefa t = tarefas.get(i);
+            produtos[i] = t.produtoId();
+            origens[i] = t.origemId();
+            destinos[i] = t.destinoId();
+            quantidades[i] = t.quantidade();
+            lpns[i] = t.lpnId();
+        }
+
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        Long[] ids = idsPooledLo.reservar("tb_tarefa_movimentacao", n);
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_INSERIR_TAREFAS);
+            ps.setString(1, usuario);
+            ps.setString(2, usuario);
+            ps.setTimestamp(3, agora);
+            ps.setTimestamp(4, agora);
+            ps.setArray(5, con.createArrayOf("bigint", ids));
+            ps.setArray(6, con.createArrayOf("bigint", produtos));
+            ps.setArray(7, con.createArrayOf("bigint", origens));
+            ps.setArray(8, con.createArrayOf("bigint", destinos));
+            ps.setArray(9, con.createArrayOf("numeric", quantidades));
+            ps.setArray(10, con.createArrayOf("bigint", lpns));
+            return ps;
+        });
+    }
+}
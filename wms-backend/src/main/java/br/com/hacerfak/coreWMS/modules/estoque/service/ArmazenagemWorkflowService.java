@@ -4,12 +4,14 @@ import br.com.hacerfak.coreWMS.core.domain.workflow.StatusTarefa;
 import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.*;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.MovimentoCommand;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.*;
 import br.com.hacerfak.coreWMS.modules.expedicao.repository.SolicitacaoSaidaRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -121,11 +123,13 @@ public class ArmazenagemWorkflowService {
         lpn.setStatus(StatusLpn.ARMAZENADO); // Agora está disponível!
         lpnRepository.save(lpn);
 
-        // 2. Atualiza/Cria os Saldos de Estoque (Item a Item)
+        // 2. Atualiza/Cria os Saldos de Estoque (todos os itens em um único lote)
         // Isso torna o estoque visível para a Expedição
+        List<MovimentoCommand> entradas = new ArrayList<>();
         for (LpnItem item : lpn.getItens()) {
-            atualizarSaldoFisico(item, destino, usuario);
+            entradas.add(comandoSaldoFisico(item, destino, usuario));
         }
+        estoqueService.movimentarLote(entradas);
 
         // 3. Conclui a Tarefa
         tarefa.concluir(); // Seta status CONCLUIDA e data fim
@@ -133,8 +137,8 @@ public class ArmazenagemWorkflowService {
         tarefaRepository.save(tarefa);
     }
 
-    private void atualizarSaldoFisico(LpnItem item, Localizacao local, String usuario) {
-        estoqueService.movimentar(
+    private MovimentoCommand comandoSaldoFisico(LpnItem item, Localizacao local, String usuario) {
+        return new MovimentoCommand(
                 item.getProduto().getId(),
                 local.getId(),
                 item.getQuantidade(),
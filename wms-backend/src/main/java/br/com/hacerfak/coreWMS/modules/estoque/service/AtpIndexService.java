@@ -0,0 +1,329 @@
+package br.com.hacerfak.coreWMS.modules.estoque.service;
+
+import br.com.hacerfak.coreWMS.core.cache.TenantCacheManager;
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.SaldoDisponivel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Índice ATP (available-to-promise) em memória, um por tenant.
+ *
+ * Guarda, por produto, a lista imutável de saldos disponíveis já ordenada em
+ * FEFO (validade, data de criação, id). As estratégias de alocação leem daqui
+ * em vez de consultar o banco a cada linha de pedido.
+ *
+ * Atualização: o produto é carregado sob demanda (uma consulta ANY(?) para
+ * vários produtos) e invalidado pelos eventos de estoque após o commit. Cada
+ * invalidação incrementa a geração do produto, então uma carga que correu em
+ * paralelo com um commit nunca fica marcada como atual. O TTL cobre mudanças
+ * que não geram evento.
+ *
+ * Com vários nós (wms.estoque.lock.modo=ADVISORY) cada invalidação também é
+ * publicada no canal de invalidação do cache (TenantCacheManager.CANAL_INVALIDACAO)
+ * e os outros nós derrubam os mesmos produtos do próprio índice. Se a mensagem
+ * se perder, o TTL volta a ser o limite; a alocação ainda confere a versão do
+ * saldo ao gravar.
+ */
+@Service
+@Slf4j
+public class AtpIndexService implements MessageListener {
+
+    public record DivergenciaAtp(Long produtoId, Long saldoId, BigDecimal disponivelIndice,
+            BigDecimal disponivelBanco) {
+    }
+
+    public record ConsistenciaAtp(String tenant, int produtosVerificados, List<DivergenciaAtp> divergencias) {
+    }
+
+    /** Vence primeiro sai primeiro; sem validade vai para o fim. */
+    public static final Comparator<SaldoDisponivel> ORDEM_FEFO = Comparator
+            .comparing(SaldoDisponivel::dataValidade, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(SaldoDisponivel::dataCriacao, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(SaldoDisponivel::saldoId);
+
+    private static final String SQL_DISPONIVEIS = """
+            SELECT s.id, s.produto_id, s.localizacao_id, s.lote, s.lpn, s.numero_serie,
+                   s.data_validade, s.data_criacao,
+                   s.quantidade - COALESCE(s.quantidade_reservada, 0) AS disponivel, s.version
+            FROM tb_estoque_saldo s
+            JOIN tb_localizacao l ON l.id = s.localizacao_id
+            WHERE s.produto_id = ANY(?)
+              AND s.quantidade - COALESCE(s.quantidade_reservada, 0) > 0
+              AND l.bloqueado = false
+              AND l.ativo = true
+              AND s.status_qualidade = 'DISPONIVEL'
+            """;
+
+    // Campo "cache" da mensagem no canal compartilhado; o TenantCacheManager ignora por não ter esse cache
+    private static final String ORIGEM_MENSAGEM = "atp-indice";
+    private static final String SEPARADOR_MENSAGEM = "\u001F";
+    private static final String TODOS = "*";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final long ttlNanos;
+    private final boolean distribuido;
+    private final String noId = UUID.randomUUID().toString();
+    private final Map<String, IndiceTenant> indices = new ConcurrentHashMap<>();
+
+    public AtpIndexService(JdbcTemplate jdbcTemplate, StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer cacheInvalidacaoContainer,
+            @Value("${wms.estoque.atp.ttl-segundos:300}") long ttlSegundos,
+            @Value("${wms.estoque.lock.modo:LOCAL}") EstoqueLockService.Modo modoLock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSegundos);
+        // LOCAL pressupõe um único nó: não há a quem avisar
+        this.distribuido = modoLock == EstoqueLockService.Modo.ADVISORY;
+        if (distribuido) {
+            cacheInvalidacaoContainer.addMessageListener(this,
+                    new ChannelTopic(TenantCacheManager.CANAL_INVALIDACAO));
+        }
+    }
+
+    /**
+     * Saldos disponíveis do produto em ordem FEFO. Lista imutável.
+     */
+    public List<SaldoDisponivel> candidatos(Long produtoId) {
+        return candidatos(List.of(produtoId)).get(produtoId);
+    }
+
+    /**
+     * Saldos disponíveis de vários produtos. Os que não estão no índice (ou estão
+     * vencidos) são carregados juntos em uma única consulta.
+     */
+    public Map<Long, List<SaldoDisponivel>> candidatos(Collection<Long> produtoIds) {
+        IndiceTenant indice = indiceAtual();
+        Map<Long, List<SaldoDisponivel>> resultado = new HashMap<>();
+        Set<Long> faltantes = new HashSet<>();
+        long agora = System.nanoTime();
+
+        for (Long produtoId : produtoIds) {
+            Entrada entrada = indice.produtos.get(produtoId);
+            if (entrada != null && indice.valida(produtoId, entrada, agora, ttlNanos)) {
+                resultado.put(produtoId, entrada.saldos());
+            } else {
+                faltantes.add(produtoId);
+            }
+        }
+
+        if (!faltantes.isEmpty()) {
+            resultado.putAll(recarregar(faltantes));
+            log.debug("ATP [{}]: {} produto(s) carregado(s) do banco", TenantContext.getTenant(), faltantes.size());
+        }
+        return resultado;
+    }
+
+    /**
+     * Lê direto do banco (ignorando o que está em cache) e já atualiza o índice.
+     * Usado por quem vai escrever com guarda de versão e precisa do valor atual.
+     */
+    public Map<Long, List<SaldoDisponivel>> recarregar(Collection<Long> produtoIds) {
+        IndiceTenant indice = indiceAtual();
+        // Gerações lidas ANTES da consulta: se um commit invalidar no meio, a
+        // entrada gravada já nasce vencida e será recarregada na próxima leitura
+        Map<Long, Long> geracoes = new HashMap<>();
+        for (Long produtoId : produtoIds) {
+            geracoes.put(produtoId, indice.geracao(produtoId));
+        }
+        long geracaoGlobal = indice.geracaoGlobal.get();
+        long carregadoEm = System.nanoTime();
+
+        Map<Long, List<SaldoDisponivel>> carregados = carregar(produtoIds);
+        Map<Long, List<SaldoDisponivel>> resultado = new HashMap<>();
+        for (Long produtoId : produtoIds) {
+            List<SaldoDisponivel> saldos = carregados.getOrDefault(produtoId, List.of());
+            indice.produtos.put(produtoId, new Entrada(saldos, geracoes.get(produtoId), geracaoGlobal, carregadoEm));
+            resultado.put(produtoId, saldos);
+        }
+        return resultado;
+    }
+
+    public void invalidar(Collection<Long> produtoIds) {
+        if (produtoIds.isEmpty())
+            return;
+        invalidar(indiceAtual(), produtoIds);
+        publicarInvalidacao(produtoIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+    }
+
+    public void invalidarTudo() {
+        invalidarTudo(indiceAtual());
+        publicarInvalidacao(TODOS);
+    }
+
+    private static void invalidar(IndiceTenant indice, Collection<Long> produtoIds) {
+        for (Long produtoId : produtoIds) {
+            indice.geracoes.merge(produtoId, 1L, Long::sum);
+            indice.produtos.remove(produtoId);
+        }
+    }
+
+    private static void invalidarTudo(IndiceTenant indice) {
+        indice.geracaoGlobal.incrementAndGet();
+        indice.produtos.clear();
+    }
+
+    // --- INVALIDAÇÃO ENTRE NÓS ---
+
+    private void publicarInvalidacao(String produtos) {
+        if (!distribuido)
+            return;
+        try {
+            redisTemplate.convertAndSend(TenantCacheManager.CANAL_INVALIDACAO, String.join(SEPARADOR_MENSAGEM,
+                    noId, ORIGEM_MENSAGEM, TenantContext.getTenant(), produtos));
+        } catch (Exception e) {
+            // Os outros nós ficam limitados pelo TTL
+            log.warn("Falha ao publicar invalidação do índice ATP: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // Campos: origem, "atp-indice", tenant, produtos ("*" = todos)
+        String[] partes = new String(message.getBody(), StandardCharsets.UTF_8).split(SEPARADOR_MENSAGEM, 4);
+        if (partes.length < 4 || !ORIGEM_MENSAGEM.equals(partes[1]) || noId.equals(partes[0]))
+            return;
+
+        // Tenant sem índice neste nó: nada em cache para derrubar
+        IndiceTenant indice = indices.get(partes[2]);
+        if (indice == null)
+            return;
+        if (TODOS.equals(partes[3])) {
+            invalidarTudo(indice);
+            return;
+        }
+        try {
+            invalidar(indice, Arrays.stream(partes[3].split(",")).map(Long::valueOf).toList());
+        } catch (NumberFormatException e) {
+            log.warn("Invalidação do índice ATP ignorada (mensagem inválida): {}", partes[3]);
+        }
+    }
+
+    /**
+     * Compara o que está no índice do tenant atual com tb_estoque_saldo.
+     * Não recarrega nada; com corrigir=true, invalida os produtos divergentes.
+     */
+    public ConsistenciaAtp verificarConsistencia(boolean corrigir) {
+        IndiceTenant indice = indiceAtual();
+        Map<Long, List<SaldoDisponivel>> snapshot = new HashMap<>();
+        indice.produtos.forEach((produtoId, entrada) -> snapshot.put(produtoId, entrada.saldos()));
+
+        List<DivergenciaAtp> divergencias = new ArrayList<>();
+        if (!snapshot.isEmpty()) {
+            Map<Long, List<SaldoDisponivel>> banco = carregar(snapshot.keySet());
+            Set<Long> divergentes = new HashSet<>();
+
+            snapshot.forEach((produtoId, noIndice) -> {
+                Map<Long, BigDecimal> noBanco = new HashMap<>();
+                for (SaldoDisponivel s : banco.getOrDefault(produtoId, List.of())) {
+                    noBanco.put(s.saldoId(), s.disponivel());
+                }
+                for (SaldoDisponivel s : noIndice) {
+                    BigDecimal qtdBanco = noBanco.remove(s.saldoId());
+                    if (qtdBanco == null || qtdBanco.compareTo(s.disponivel()) != 0) {
+                        divergencias.add(new DivergenciaAtp(produtoId, s.saldoId(), s.disponivel(), qtdBanco));
+                        divergentes.add(produtoId);
+                    }
+                }
+                // Sobrou no banco: saldo disponível que o índice não conhece
+                noBanco.forEach((saldoId, qtd) -> {
+                    divergencias.add(new DivergenciaAtp(produtoId, saldoId, null, qtd));
+                    divergentes.add(produtoId);
+                });
+            });
+
+            if (corrigir && !divergentes.isEmpty()) {
+                invalidar(divergentes);
+            }
+        }
+        return new ConsistenciaAtp(TenantContext.getTenant(), snapshot.size(), divergencias);
+    }
+
+    private Map<Long, List<SaldoDisponivel>> carregar(Collection<Long> produtoIds) {
+        Long[] ids = produtoIds.toArray(new Long[0]);
+        List<SaldoDisponivel> linhas = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_DISPONIVEIS);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, (rs, i) -> mapear(rs));
+
+        Map<Long, List<SaldoDisponivel>> porProduto = new HashMap<>();
+        for (SaldoDisponivel s : linhas) {
+            porProduto.computeIfAbsent(s.produtoId(), k -> new ArrayList<>()).add(s);
+        }
+        porProduto.replaceAll((produtoId, lista) -> {
+            lista.sort(ORDEM_FEFO);
+            return List.copyOf(lista);
+        });
+        return porProduto;
+    }
+
+    private SaldoDisponivel mapear(ResultSet rs) throws SQLException {
+        Date validade = rs.getDate("data_validade");
+        Timestamp criacao = rs.getTimestamp("data_criacao");
+        return new SaldoDisponivel(
+                rs.getLong("id"),
+                rs.getLong("produto_id"),
+                rs.getLong("localizacao_id"),
+                rs.getString("lote"),
+                rs.getString("lpn"),
+                rs.getString("numero_serie"),
+                validade != null ? validade.toLocalDate() : null,
+                criacao != null ? criacao.toLocalDateTime() : null,
+                rs.getBigDecimal("disponivel"),
+                rs.getObject("version", Long.class));
+    }
+
+    private IndiceTenant indiceAtual() {
+        return indices.computeIfAbsent(TenantContext.getTenant(), t -> new IndiceTenant());
+    }
+
+    private record Entrada(List<SaldoDisponivel> saldos, long geracao, long geracaoGlobal, long carregadoEm) {
+    }
+
+    private static final class IndiceTenant {
+        private final Map<Long, Entrada> produtos = new ConcurrentHashMap<>();
+        private final Map<Long, Long> geracoes = new ConcurrentHashMap<>();
+        private final AtomicLong geracaoGlobal = new AtomicLong();
+
+        long geracao(Long produtoId) {
+            return geracoes.getOrDefault(produtoId, 0L);
+        }
+
+        boolean valida(Long produtoId, Entrada entrada, long agora, long ttlNanos) {
+            return entrada.geracao() == geracao(produtoId)
+                    && entrada.geracaoGlobal() == geracaoGlobal.get()
+                    && agora - entrada.carregadoEm() < ttlNanos;
+        }
+    }
+}
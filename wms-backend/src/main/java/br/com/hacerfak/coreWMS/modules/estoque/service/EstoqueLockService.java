@@ -0,0 +1,349 @@
+package br.com.hacerfak.coreWMS.modules.estoque.service;
+
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializa escritores do mesmo saldo (tenant + produto + localização) em vez de
+ * deixá-los colidir no @Version e cair em retry.
+ *
+ * Modos (wms.estoque.lock.modo):
+ * - LOCAL: array de ReentrantLock listrado por hash da chave. Só vale para um nó.
+ * - ADVISORY: pg_advisory_xact_lock no banco do tenant. Vale para vários nós.
+ *
+ * Em ambos os modos o lock dura até o fim da transação corrente e as chaves são
+ * adquiridas em ordem crescente para evitar deadlock entre lotes.
+ *
+ * A ordem vale para a transação inteira, não só para uma chamada: chaves de
+ * uma segunda chamada acima da maior já bloqueada esperam normalmente; as que
+ * ficariam abaixo dela (fora de ordem) só são tentadas, sem espera, e se
+ * estiverem ocupadas a chamada falha com CannotAcquireLockException em vez de
+ * arriscar um deadlock. Quem precisa de várias chaves deve pedir todas de uma
+ * vez; repetir chaves já bloqueadas é sempre permitido.
+ */
+@Service
+@Slf4j
+public class EstoqueLockService {
+
+    public enum Modo {
+        LOCAL, ADVISORY
+    }
+
+    public record ChaveSaldo(Long produtoId, Long localizacaoId) {
+    }
+
+    public record ContencaoChave(String tenant, Long produtoId, Long localizacaoId, long ocorrencias) {
+    }
+
+    // Chaves que esperaram mais que isso contam como contenção
+    private static final long LIMIAR_CONTENCAO_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    // Limite do mapa de contenção por chave (evita crescer sem controle)
+    private static final int MAX_CHAVES_MONITORADAS = 5000;
+
+    // Forma (int, int): produto e localização sem empacotar num bigint. A ordem
+    // vem do Java (ordinality), a mesma usada na checagem de ordem entre chamadas
+    private static final String SQL_ADVISORY = """
+            SELECT pg_advisory_xact_lock(p, l)
+            FROM (SELECT p, l FROM unnest(?::int[], ?::int[]) WITH ORDINALITY AS u(p, l, ordem)
+                  ORDER BY ordem) chaves
+            """;
+
+    private static final String SQL_ADVISORY_TENTAR = """
+            SELECT bool_and(pg_try_advisory_xact_lock(p, l)) FROM unnest(?::int[], ?::int[]) AS u(p, l)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Modo modo;
+    private final long timeoutMs;
+    private final ReentrantLock[] stripes;
+
+    private final Map<String, LongAdder> contencaoPorChave = new ConcurrentHashMap<>();
+
+    public EstoqueLockService(JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${wms.estoque.lock.modo:LOCAL}") Modo modo,
+            @Value("${wms.estoque.lock.stripes:1024}") int qtdStripes,
+            @Value("${wms.estoque.lock.timeout-ms:10000}") long timeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.modo = modo;
+        this.timeoutMs = timeoutMs;
+        this.stripes = new ReentrantLock[Math.max(1, qtdStripes)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        log.info("EstoqueLockService iniciado em modo {} ({} stripes)", modo, stripes.length);
+    }
+
+    /**
+     * Bloqueia as chaves informadas até o commit/rollback da transação corrente.
+     * Chaves já bloqueadas pela mesma transação são ignoradas (reentrante).
+     */
+    public void bloquear(Collection<ChaveSaldo> chaves) {
+        if (chaves == null || chaves.isEmpty())
+            return;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Lock de saldo exige uma transação ativa.");
+        }
+
+        String tenant = TenantContext.getTenant();
+        LocksDaTransacao locks = locksDaTransacao(tenant);
+
+        long inicio = System.nanoTime();
+        if (modo == Modo.ADVISORY) {
+            bloquearAdvisory(chaves, locks);
+        } else {
+            bloquearLocal(tenant, chaves, locks);
+        }
+        long espera = System.nanoTime() - inicio;
+
+        Timer.builder("wms.estoque.lock.espera")
+                .description("Tempo aguardando lock de saldo")
+                .tags("modo", modo.name(), "tenant", tenant)
+                .register(meterRegistry)
+                .record(espera, TimeUnit.NANOSECONDS);
+
+        if (espera > LIMIAR_CONTENCAO_NANOS) {
+            Counter.builder("wms.estoque.lock.contencao")
+                    .description("Aquisições de lock de saldo que precisaram esperar")
+                    .tags("modo", modo.name(), "tenant", tenant)
+                    .register(meterRegistry)
+                    .increment();
+            for (ChaveSaldo c : chaves) {
+                registrarContencao(tenant, c);
+            }
+        }
+    }
+
+    /**
+     * Chaves com mais esperas desde a subida do nó, da mais disputada para a menos.
+     */
+    public List<ContencaoChave> topContencao(int limite) {
+        List<ContencaoChave> lista = new ArrayList<>(contencaoPorChave.size());
+        for (Map.Entry<String, LongAdder> e : contencaoPorChave.entrySet()) {
+            String[] partes = e.getKey().split(":");
+            lista.add(new ContencaoChave(partes[0], Long.valueOf(partes[1]), Long.valueOf(partes[2]),
+                    e.getValue().sum()));
+        }
+        lista.sort(Comparator.comparingLong(ContencaoChave::ocorrencias).reversed());
+        return lista.size() > limite ? lista.subList(0, limite) : lista;
+    }
+
+    public Modo getModo() {
+        return modo;
+    }
+
+    // --- LOCAL (listrado em memória) ---
+
+    private void bloquearLocal(String tenant, Collection<ChaveSaldo> chaves, LocksDaTransacao locks) {
+        // TreeSet: ordem global fixa evita deadlock entre transações com chaves cruzadas
+        Set<Integer> indices = new TreeSet<>();
+        for (ChaveSaldo c : chaves) {
+            indices.add(indiceStripe(tenant, c));
+        }
+
+        // Fora de ordem (abaixo do maior já bloqueado): só sem espera
+        int maiorAnterior = locks.maiorIndice;
+        for (Integer idx : indices) {
+            if (locks.indices.contains(idx) || idx > maiorAnterior)
+                continue;
+            if (!stripes[idx].tryLock())
+                throw foraDeOrdem();
+            locks.adicionar(idx);
+        }
+
+        for (Integer idx : indices) {
+            if (locks.indices.contains(idx))
+                continue;
+            ReentrantLock lock = stripes[idx];
+            boolean adquirido;
+            try {
+                adquirido = lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CannotAcquireLockException("Interrompido aguardando lock de saldo.", e);
+            }
+            if (!adquirido) {
+                // Os stripes já adquiridos são liberados no afterCompletion (rollback)
+                throw new CannotAcquireLockException(
+                        "Tempo esgotado aguardando lock de saldo (" + timeoutMs + "ms).");
+            }
+            locks.adicionar(idx);
+        }
+    }
+
+    int indiceStripe(String tenant, ChaveSaldo c) {
+        int h = tenant.hashCode();
+        h = 31 * h + Long.hashCode(c.produtoId());
+        h = 31 * h + Long.hashCode(c.localizacaoId());
+        h ^= (h >>> 16);
+        return Math.floorMod(h, stripes.length);
+    }
+
+    // --- ADVISORY (Postgres) ---
+
+    private void bloquearAdvisory(Collection<ChaveSaldo> chaves, LocksDaTransacao locks) {
+        // O tenant já isola: cada tenant tem o próprio banco
+        TreeSet<ChaveAdvisory> novas = new TreeSet<>();
+        for (ChaveSaldo c : chaves) {
+            ChaveAdvisory k = new ChaveAdvisory(parteAdvisory(c.produtoId()), parteAdvisory(c.localizacaoId()));
+            if (!locks.advisory.contains(k))
+                novas.add(k);
+        }
+        if (novas.isEmpty())
+            return;
+
+        // Fora de ordem (abaixo da maior já bloqueada): só sem espera
+        if (locks.maiorAdvisory != null) {
+            List<ChaveAdvisory> abaixo = new ArrayList<>(novas.headSet(locks.maiorAdvisory, false));
+            if (!abaixo.isEmpty()) {
+                Boolean todas = jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(SQL_ADVISORY_TENTAR);
+                    definirChaves(con, ps, abaixo);
+                    return ps;
+                }, rs -> rs.next() && rs.getBoolean(1));
+                if (!Boolean.TRUE.equals(todas))
+                    throw foraDeOrdem();
+                locks.advisory.addAll(abaixo);
+                abaixo.forEach(novas::remove);
+            }
+        }
+        if (novas.isEmpty())
+            return;
+
+        List<ChaveAdvisory> ordenadas = new ArrayList<>(novas);
+        // Uma única ida ao banco para todas as chaves, em ordem crescente
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_ADVISORY);
+            definirChaves(con, ps, ordenadas);
+            return ps;
+        }, rs -> {
+        });
+        locks.advisory.addAll(ordenadas);
+        locks.maiorAdvisory = novas.last();
+    }
+
+    private static void definirChaves(Connection con, PreparedStatement ps, List<ChaveAdvisory> chaves)
+            throws SQLException {
+        Integer[] produtos = new Integer[chaves.size()];
+        Integer[] locais = new Integer[chaves.size()];
+        for (int i = 0; i < chaves.size(); i++) {
+            produtos[i] = chaves.get(i).produto();
+            locais[i] = chaves.get(i).local();
+        }
+        ps.setArray(1, con.createArrayOf("integer", produtos));
+        ps.setArray(2, con.createArrayOf("integer", locais));
+    }
+
+    /**
+     * Id como int do pg_advisory_xact_lock(int, int). Ids até Integer.MAX_VALUE
+     * (BIGSERIAL não chega perto disso aqui) vão direto, sem colisão. Acima
+     * disso o id é dobrado em 32 bits e pode coincidir com outro: o efeito é
+     * só serializar dois saldos que não precisavam, nunca deixar de bloquear.
+     */
+    static int parteAdvisory(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE ? (int) id : Long.hashCode(id);
+    }
+
+    private static CannotAcquireLockException foraDeOrdem() {
+        return new CannotAcquireLockException("Lock de saldo fora de ordem ocupado: a transação já segura chaves "
+                + "maiores. Peça todas as chaves numa única chamada de bloquear.");
+    }
+
+    // Ordem (produto, local) com sinal, igual à do ORDER BY ordem do SQL_ADVISORY
+    private record ChaveAdvisory(int produto, int local) implements Comparable<ChaveAdvisory> {
+        @Override
+        public int compareTo(ChaveAdvisory o) {
+            int c = Integer.compare(produto, o.produto);
+            return c != 0 ? c : Integer.compare(local, o.local);
+        }
+    }
+
+    // --- CICLO DE VIDA POR TRANSAÇÃO ---
+
+    private LocksDaTransacao locksDaTransacao(String tenant) {
+        LocksDaTransacao locks = (LocksDaTransacao) TransactionSynchronizationManager.getResource(this);
+        if (locks == null) {
+            locks = new LocksDaTransacao(tenant);
+            TransactionSynchronizationManager.bindResource(this, locks);
+            TransactionSynchronizationManager.registerSynchronization(locks);
+        }
+        return locks;
+    }
+
+    private void registrarContencao(String tenant, ChaveSaldo c) {
+        String chave = tenant + ":" + c.produtoId() + ":" + c.localizacaoId();
+        LongAdder contador = contencaoPorChave.get(chave);
+        if (contador == null) {
+            if (contencaoPorChave.size() >= MAX_CHAVES_MONITORADAS)
+                return;
+            contador = contencaoPorChave.computeIfAbsent(chave, k -> new LongAdder());
+        }
+        contador.increment();
+    }
+
+    private class LocksDaTransacao implements TransactionSynchronization {
+        private final String tenant;
+        private final long inicio = System.nanoTime();
+        private final Set<Integer> indices = new HashSet<>();
+        private final Set<ChaveAdvisory> advisory = new HashSet<>();
+        // Maiores chaves já bloqueadas: referência da ordem para as próximas chamadas
+        private int maiorIndice = -1;
+        private ChaveAdvisory maiorAdvisory;
+
+        LocksDaTransacao(String tenant) {
+            this.tenant = tenant;
+        }
+
+        void adicionar(int indice) {
+            indices.add(indice);
+            maiorIndice = Math.max(maiorIndice, indice);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(EstoqueLockService.this);
+
+            // afterCompletion roda na mesma thread que adquiriu os locks
+            for (Integer idx : indices) {
+                stripes[idx].unlock();
+            }
+            // Advisory xact locks são liberados pelo próprio Postgres no fim da transação
+
+            if (!indices.isEmpty() || !advisory.isEmpty()) {
+                Timer.builder("wms.estoque.lock.retencao")
+                        .description("Tempo que a transação segurou locks de saldo")
+                        .tags("modo", modo.name(), "tenant", tenant)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package br.com.hacerfak.coreWMS.modules.estoque.service;
 
 import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
+import br.com.hacerfak.coreWMS.core.outbox.OutboxEventos;
+import br.com.hacerfak.coreWMS.core.outbox.OutboxService;
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
 import br.com.hacerfak.coreWMS.modules.cadastro.repository.ProdutoRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.*;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.MovimentoCommand;
 import br.com.hacerfak.coreWMS.modules.estoque.event.EstoqueMovimentadoEvent; // <--- Importante
+import br.com.hacerfak.coreWMS.modules.estoque.event.EstoqueMovimentadoLoteEvent;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoBatchRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoBatchRepository.LinhaSaldo;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.LocalizacaoRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.LpnRepository;
-import br.com.hacerfak.coreWMS.modules.estoque.repository.MovimentoEstoqueRepository;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import org.springframework.context.ApplicationEventPublisher; // <--- Importante
 import org.springframework.stereotype.Service;
 import org.springframework.retry.annotation.Backoff;
@@ -18,100 +28,292 @@ import org.springframework.retry.annotation.Retryable;
 import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class EstoqueService {
 
     private final EstoqueSaldoRepository saldoRepository;
-    private final MovimentoEstoqueRepository movimentoRepository;
     private final ProdutoRepository produtoRepository;
     private final LocalizacaoRepository localizacaoRepository;
     private final LpnRepository lpnRepository;
     private final ApplicationEventPublisher eventPublisher;
+    private final EstoqueSaldoBatchRepository saldoBatchRepository;
+    private final EntityManager entityManager;
+    private final EstoqueLockService lockService;
+    private final OutboxService outboxService;
 
     @Transactional
-    @Retryable(retryFor = { OptimisticLockingFailureException.class }, maxAttempts = 3, backoff = @Backoff(delay = 100))
+    @Retryable(retryFor = { OptimisticLockingFailureException.class }, maxAttempts = 3, backoff = @Backoff(delay = 20, multiplier = 2, random = true))
     public void movimentar(Long produtoId, Long localId, BigDecimal quantidade,
             String lpn, String lote, String serial,
             StatusQualidade qualidade,
             TipoMovimento tipo, String usuario, String obs) {
 
-        if (quantidade.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Quantidade deve ser maior que zero.");
+        movimentarLote(List.of(new MovimentoCommand(produtoId, localId, quantidade,
+                lpn, lote, serial, qualidade, tipo, usuario, obs)));
+    }
+
+    /**
+     * Aplica várias movimentações com custo fixo de round trips, independente do
+     * número de linhas:
+     * 1 SELECT de produtos, 1 de locais, 1 de saldos (+1 de seriais se houver),
+     * e depois batches de INSERT/UPDATE/DELETE de saldo e 1 batch de kardex.
+     * As linhas são aplicadas em memória NA ORDEM da lista, então uma SAÍDA
+     * seguida de ENTRADA (transferência) se comporta como chamadas sequenciais.
+     */
+    @Transactional
+    @Retryable(retryFor = { OptimisticLockingFailureException.class }, maxAttempts = 3, backoff = @Backoff(delay = 20, multiplier = 2, random = true))
+    public void movimentarLote(List<MovimentoCommand> comandos) {
+        if (comandos == null || comandos.isEmpty())
+            return;
+
+        long inicio = System.nanoTime();
+
+        Set<Long> produtoIds = new HashSet<>();
+        Set<Long> localIds = new HashSet<>();
+        Set<String> seriaisEntrada = new HashSet<>();
+        Set<EstoqueLockService.ChaveSaldo> chavesLock = new HashSet<>();
+        for (MovimentoCommand cmd : comandos) {
+            if (cmd.quantidade() == null || cmd.quantidade().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new IllegalArgumentException("Quantidade deve ser maior que zero.");
+            }
+            produtoIds.add(cmd.produtoId());
+            localIds.add(cmd.localId());
+            chavesLock.add(new EstoqueLockService.ChaveSaldo(cmd.produtoId(), cmd.localId()));
+            if (cmd.isEntrada() && cmd.serial() != null && !cmd.serial().isBlank()) {
+                seriaisEntrada.add(cmd.serial());
+            }
         }
 
-        Produto produto = produtoRepository.findById(produtoId)
-                .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado"));
+        // Escritores do mesmo (produto, local) entram em fila aqui em vez de colidir
+        // no @Version. O retry fica só como rede de segurança.
+        lockService.bloquear(chavesLock);
 
-        Localizacao local = localizacaoRepository.findById(localId)
-                .orElseThrow(() -> new EntityNotFoundException("Local não encontrado"));
+        // Garante que alterações pendentes na sessão (ex: reserva baixada pelo
+        // chamador) estejam no banco antes de lermos os saldos
+        entityManager.flush();
 
-        validarLocal(local);
+        Map<Long, Produto> produtos = new HashMap<>();
+        for (Produto p : produtoRepository.findAllById(produtoIds)) {
+            produtos.put(p.getId(), p);
+        }
+        Map<Long, Localizacao> locais = new HashMap<>();
+        for (Localizacao l : localizacaoRepository.findAllById(localIds)) {
+            locais.put(l.getId(), l);
+        }
+        for (MovimentoCommand cmd : comandos) {
+            if (!produtos.containsKey(cmd.produtoId()))
+                throw new EntityNotFoundException("Produto não encontrado");
+            Localizacao local = locais.get(cmd.localId());
+            if (local == null)
+                throw new EntityNotFoundException("Local não encontrado");
+            validarLocal(local);
+        }
 
-        boolean isEntrada = tipo == TipoMovimento.ENTRADA ||
-                tipo == TipoMovimento.AJUSTE_POSITIVO ||
-                tipo == TipoMovimento.DESBLOQUEIO;
+        // Saldos lidos por JDBC em cópias de trabalho: as entidades que o chamador
+        // tenha na sessão continuam gerenciadas e são sincronizadas no fim
+        Map<String, List<LinhaSaldo>> saldosPorChave = new HashMap<>();
+        for (LinhaSaldo s : saldoBatchRepository.buscarSaldos(produtoIds, localIds)) {
+            saldosPorChave.computeIfAbsent(chave(s.getProdutoId(), s.getLocalizacaoId()),
+                    k -> new ArrayList<>()).add(s);
+        }
 
-        if (isEntrada && serial != null && !serial.isBlank()) {
-            boolean serialJaExiste = saldoRepository.existsByProdutoIdAndNumeroSerie(produtoId, serial);
-            if (serialJaExiste) {
-                throw new IllegalArgumentException(
-                        String.format("O Serial '%s' já consta no estoque para o produto %d.", serial, produtoId));
+        Map<String, Set<Long>> seriaisNoBanco = new HashMap<>();
+        if (!seriaisEntrada.isEmpty()) {
+            for (Object[] row : saldoRepository.buscarSeriaisEmEstoque(produtoIds, seriaisEntrada)) {
+                seriaisNoBanco.computeIfAbsent(row[1] + "|" + row[2], k -> new HashSet<>()).add((Long) row[0]);
             }
         }
 
-        EstoqueSaldo saldo = saldoRepository.buscarSaldoExato(
-                produtoId, localId, lpn, lote, serial, qualidade).orElse(null);
-
-        BigDecimal saldoAnterior = (saldo != null) ? saldo.getQuantidade() : BigDecimal.ZERO;
-        BigDecimal saldoFinal;
-
-        if (isEntrada) {
-            if (saldo == null) {
-                saldo = EstoqueSaldo.builder()
-                        .produto(produto)
-                        .localizacao(local)
-                        .lpn(lpn)
-                        .lote(lote)
-                        .numeroSerie(serial)
-                        .statusQualidade(qualidade != null ? qualidade : StatusQualidade.DISPONIVEL)
-                        .quantidade(BigDecimal.ZERO)
-                        .quantidadeReservada(BigDecimal.ZERO)
-                        .build();
+        Set<LinhaSaldo> tocados = new LinkedHashSet<>();
+        List<MovimentoEstoque> historico = new ArrayList<>(comandos.size());
+        // Saldo de cada linha do histórico (mesma posição), para corrigir o kardex
+        // das chaves que caírem no ON CONFLICT
+        List<LinhaSaldo> saldoDoHistorico = new ArrayList<>(comandos.size());
+
+        for (MovimentoCommand cmd : comandos) {
+            List<LinhaSaldo> candidatos = saldosPorChave.computeIfAbsent(
+                    chave(cmd.produtoId(), cmd.localId()), k -> new ArrayList<>());
+
+            if (cmd.isEntrada() && cmd.serial() != null && !cmd.serial().isBlank()
+                    && serialEmEstoque(cmd.produtoId(), cmd.serial(), saldosPorChave, seriaisNoBanco)) {
+                throw new IllegalArgumentException(
+                        String.format("O Serial '%s' já consta no estoque para o produto %d.", cmd.serial(),
+                                cmd.produtoId()));
             }
-            saldo.setQuantidade(saldo.getQuantidade().add(quantidade));
-        } else {
-            if (saldo == null) {
-                throw new IllegalArgumentException("Saldo não encontrado para saída.");
+
+            LinhaSaldo saldo = null;
+            for (LinhaSaldo s : candidatos) {
+                if (corresponde(s, cmd)) {
+                    saldo = s;
+                    break;
+                }
             }
-            if (saldo.getQuantidade().compareTo(quantidade) < 0) {
-                throw new IllegalArgumentException("Saldo físico insuficiente.");
+
+            BigDecimal saldoAnterior = (saldo != null) ? saldo.getQuantidade() : BigDecimal.ZERO;
+
+            if (cmd.isEntrada()) {
+                if (saldo == null) {
+                    saldo = LinhaSaldo.builder()
+                            .produtoId(cmd.produtoId())
+                            .localizacaoId(cmd.localId())
+                            .lpn(cmd.lpn())
+                            .lote(cmd.lote())
+                            .numeroSerie(cmd.serial())
+                            .dataValidade(cmd.dataValidade())
+                            .statusQualidade(cmd.qualidade() != null ? cmd.qualidade() : StatusQualidade.DISPONIVEL)
+                            .quantidade(BigDecimal.ZERO)
+                            .quantidadeReservada(BigDecimal.ZERO)
+                            .build();
+                    candidatos.add(saldo);
+                }
+                saldo.setQuantidade(saldo.getQuantidade().add(cmd.quantidade()));
+            } else {
+                if (saldo == null) {
+                    throw new IllegalArgumentException("Saldo não encontrado para saída.");
+                }
+                if (saldo.getQuantidade().compareTo(cmd.quantidade()) < 0) {
+                    throw new IllegalArgumentException("Saldo físico insuficiente.");
+                }
+                saldo.setQuantidade(saldo.getQuantidade().subtract(cmd.quantidade()));
+            }
+            saldo.setUsuario(cmd.usuario());
+            tocados.add(saldo);
+
+            historico.add(gerarMovimento(cmd, produtos.get(cmd.produtoId()), locais.get(cmd.localId()),
+                    saldoAnterior, saldo.getQuantidade()));
+            saldoDoHistorico.add(saldo);
+        }
+
+        // --- ESCRITA SET-BASED ---
+        List<LinhaSaldo> inserir = new ArrayList<>();
+        List<LinhaSaldo> atualizar = new ArrayList<>();
+        List<LinhaSaldo> remover = new ArrayList<>();
+        for (LinhaSaldo s : tocados) {
+            boolean zerado = s.getQuantidade().compareTo(BigDecimal.ZERO) == 0
+                    && s.getQuantidadeReservada().compareTo(BigDecimal.ZERO) == 0;
+            if (s.getId() == null) {
+                if (!zerado)
+                    inserir.add(s);
+            } else if (zerado) {
+                remover.add(s);
+            } else {
+                atualizar.add(s);
+            }
+        }
+
+        saldoBatchRepository.atualizarSaldos(atualizar);
+        saldoBatchRepository.removerSaldos(remover);
+        Map<LinhaSaldo, BigDecimal> preexistentes = saldoBatchRepository.inserirSaldos(inserir);
+
+        // Chave criada por outra transação entre a leitura e o INSERT (ON CONFLICT
+        // somou): o kardex dessa chave parte da quantidade que já existia
+        for (int i = 0; i < historico.size(); i++) {
+            BigDecimal existente = preexistentes.get(saldoDoHistorico.get(i));
+            if (existente != null) {
+                MovimentoEstoque m = historico.get(i);
+                m.setSaldoAnterior(m.getSaldoAnterior().add(existente));
+                m.setSaldoAtual(m.getSaldoAtual().add(existente));
             }
-            saldo.setQuantidade(saldo.getQuantidade().subtract(quantidade));
         }
+        saldoBatchRepository.inserirMovimentos(historico);
 
-        saldoFinal = saldo.getQuantidade();
+        sincronizarSessao(atualizar, remover);
 
-        if (saldoFinal.compareTo(BigDecimal.ZERO) == 0
-                && saldo.getQuantidadeReservada().compareTo(BigDecimal.ZERO) == 0) {
-            saldoRepository.delete(saldo);
-        } else {
-            saldoRepository.save(saldo);
+        log.debug("movimentarLote: {} linhas, {} saldos (+{} ~{} -{}) em {} ms",
+                comandos.size(), tocados.size(), inserir.size(), atualizar.size(), remover.size(),
+                (System.nanoTime() - inicio) / 1_000_000);
+
+        List<EstoqueMovimentadoEvent> eventos = new ArrayList<>(historico.size());
+        for (int i = 0; i < historico.size(); i++) {
+            MovimentoCommand cmd = comandos.get(i);
+            eventos.add(new EstoqueMovimentadoEvent(
+                    cmd.produtoId(),
+                    cmd.localId(),
+                    cmd.quantidade(),
+                    historico.get(i).getSaldoAtual(),
+                    cmd.tipo().name()));
+        }
+
+        // --- PUBLICAR EVENTO (agregado) ---
+        // Desacopla a lógica: avisa que o estoque mudou (índices em memória).
+        eventPublisher.publishEvent(new EstoqueMovimentadoLoteEvent(eventos));
+
+        // Saídas vão pelo outbox, na mesma transação: ressuprimento e cobrança
+        // de picking recebem o evento mesmo se o nó cair logo após o commit.
+        List<EstoqueMovimentadoEvent> saidas = eventos.stream()
+                .filter(e -> "SAIDA".equals(e.tipoMovimento()))
+                .toList();
+        if (!saidas.isEmpty()) {
+            outboxService.publicar(OutboxEventos.SAIDA_ESTOQUE, UUID.randomUUID().toString(),
+                    new EstoqueMovimentadoLoteEvent(saidas));
+        }
+    }
+
+    /**
+     * Saldos gravados por JDBC que o chamador tenha gerenciados na sessão
+     * (ex: saldo cuja reserva acabou de baixar) ficariam com quantidade e
+     * versão antigas: são relidos (atualizados) ou desanexados (removidos).
+     * Só consulta o contexto de persistência; saldos fora dele não custam nada.
+     */
+    private void sincronizarSessao(List<LinhaSaldo> atualizados, List<LinhaSaldo> removidos) {
+        if (atualizados.isEmpty() && removidos.isEmpty())
+            return;
+        SharedSessionContractImplementor sessao = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = sessao.getFactory().getMappingMetamodel().getEntityDescriptor(EstoqueSaldo.class);
+        PersistenceContext contexto = sessao.getPersistenceContextInternal();
+
+        for (LinhaSaldo s : atualizados) {
+            Object gerenciado = contexto.getEntity(sessao.generateEntityKey(s.getId(), persister));
+            if (gerenciado != null)
+                entityManager.refresh(gerenciado);
         }
+        for (LinhaSaldo s : removidos) {
+            Object gerenciado = contexto.getEntity(sessao.generateEntityKey(s.getId(), persister));
+            if (gerenciado != null)
+                entityManager.detach(gerenciado);
+        }
+    }
 
-        gerarMovimento(tipo, produto, local, quantidade, lpn, lote, serial,
-                saldoAnterior, saldoFinal, usuario, obs);
-
-        // --- PUBLICAR EVENTO ---
-        // Desacopla a lógica: avisa que o estoque mudou.
-        // O Listener de Ressuprimento vai pegar isso e decidir se gera tarefa.
-        eventPublisher.publishEvent(new EstoqueMovimentadoEvent(
-                produtoId,
-                localId,
-                quantidade,
-                saldoFinal,
-                tipo.name()));
+    private static String chave(Long produtoId, Long localId) {
+        return produtoId + ":" + localId;
+    }
+
+    // Mesma semântica do buscarSaldoExato: parâmetro nulo = qualquer valor
+    private boolean corresponde(LinhaSaldo s, MovimentoCommand cmd) {
+        return (cmd.lpn() == null || cmd.lpn().equals(s.getLpn()))
+                && (cmd.lote() == null || cmd.lote().equals(s.getLote()))
+                && (cmd.serial() == null || cmd.serial().equals(s.getNumeroSerie()))
+                && (cmd.qualidade() == null || cmd.qualidade() == s.getStatusQualidade())
+                && (cmd.dataValidade() == null || cmd.dataValidade().equals(s.getDataValidade()));
+    }
+
+    // O serial está em estoque se algum saldo (em memória ou só no banco) com ele
+    // ainda tem quantidade
+    private boolean serialEmEstoque(Long produtoId, String serial,
+            Map<String, List<LinhaSaldo>> saldosPorChave, Map<String, Set<Long>> seriaisNoBanco) {
+        Set<Long> idsNoBanco = new HashSet<>(seriaisNoBanco.getOrDefault(produtoId + "|" + serial, Set.of()));
+        for (List<LinhaSaldo> lista : saldosPorChave.values()) {
+            for (LinhaSaldo s : lista) {
+                if (!produtoId.equals(s.getProdutoId()) || !serial.equals(s.getNumeroSerie()))
+                    continue;
+                if (s.getQuantidade().compareTo(BigDecimal.ZERO) > 0)
+                    return true;
+                if (s.getId() != null)
+                    idsNoBanco.remove(s.getId());
+            }
+        }
+        return !idsNoBanco.isEmpty();
     }
 
     private void validarLocal(Localizacao local) {
@@ -121,56 +323,60 @@ public class EstoqueService {
             throw new IllegalArgumentException("Local bloqueado.");
     }
 
-    private void gerarMovimento(TipoMovimento tipo, Produto produto, Localizacao local,
-            BigDecimal qtd, String lpn, String lote, String serial,
-            BigDecimal saldoAnt, BigDecimal saldoAtu,
-            String usuario, String obs) {
-        MovimentoEstoque historico = MovimentoEstoque.builder()
-                .tipo(tipo)
+    private MovimentoEstoque gerarMovimento(MovimentoCommand cmd, Produto produto, Localizacao local,
+            BigDecimal saldoAnt, BigDecimal saldoAtu) {
+        return MovimentoEstoque.builder()
+                .tipo(cmd.tipo())
                 .produto(produto)
                 .localizacao(local)
-                .quantidade(qtd)
+                .quantidade(cmd.quantidade())
                 .saldoAnterior(saldoAnt)
                 .saldoAtual(saldoAtu)
-                .lpn(lpn)
-                .lote(lote)
-                .numeroSerie(serial)
-                .usuarioResponsavel(usuario)
-                .observacao(obs)
+                .lpn(cmd.lpn())
+                .lote(cmd.lote())
+                .numeroSerie(cmd.serial())
+                .usuarioResponsavel(cmd.usuario())
+                .observacao(cmd.obs())
                 .build();
-        movimentoRepository.save(historico);
     }
 
     @Transactional
     public void transferirLpnInteira(Lpn lpn, Localizacao destino, String usuario, String motivo) {
-        if (lpn == null || destino == null)
+        if (lpn == null)
+            return;
+        transferirLpns(List.of(lpn), destino, usuario, motivo);
+    }
+
+    /**
+     * Move várias LPNs (mix ou não) para o destino em uma única movimentação em
+     * lote: SAÍDA da origem + ENTRADA no destino para cada item.
+     */
+    @Transactional
+    public void transferirLpns(List<Lpn> lpns, Localizacao destino, String usuario, String motivo) {
+        if (lpns == null || lpns.isEmpty() || destino == null)
             return;
 
-        Localizacao origem = lpn.getLocalizacaoAtual();
-
-        // 1. Atualiza a localização física da LPN
-        lpn.setLocalizacaoAtual(destino);
-        lpnRepository.save(lpn); // Opcional se estiver gerenciado, mas seguro
-        // descomentar se der erro
-
-        // 2. Busca os saldos dessa LPN na origem para mover
-        // Precisamos encontrar exatamente o que tem nessa LPN na Doca
-        // Como o método buscarSaldoExato retorna Optional, precisamos de uma lista se
-        // houver múltiplos itens (mix)
-        // Se o seu sistema garante 1 produto por LPN, ok. Se for mix, precisaria buscar
-        // uma lista.
-        // Assumindo estrutura padrão loopando nos itens da LPN é mais seguro:
-
-        for (LpnItem item : lpn.getItens()) {
-            // SAÍDA da Origem (Doca)
-            movimentar(item.getProduto().getId(), origem.getId(), item.getQuantidade(),
-                    lpn.getCodigo(), item.getLote(), item.getNumeroSerie(), item.getStatusQualidade(),
-                    TipoMovimento.SAIDA, usuario, motivo + " (Saída)");
-
-            // ENTRADA no Destino (Stage)
-            movimentar(item.getProduto().getId(), destino.getId(), item.getQuantidade(),
-                    lpn.getCodigo(), item.getLote(), item.getNumeroSerie(), item.getStatusQualidade(),
-                    TipoMovimento.ENTRADA, usuario, motivo + " (Entrada)");
+        List<MovimentoCommand> comandos = new ArrayList<>();
+
+        for (Lpn lpn : lpns) {
+            Localizacao origem = lpn.getLocalizacaoAtual();
+
+            // 1. Atualiza a localização física da LPN
+            lpn.setLocalizacaoAtual(destino);
+            lpnRepository.save(lpn);
+
+            // 2. Para cada item da LPN: SAÍDA da Origem (Doca) e ENTRADA no Destino (Stage)
+            for (LpnItem item : lpn.getItens()) {
+                comandos.add(new MovimentoCommand(item.getProduto().getId(), origem.getId(), item.getQuantidade(),
+                        lpn.getCodigo(), item.getLote(), item.getNumeroSerie(), item.getStatusQualidade(),
+                        TipoMovimento.SAIDA, usuario, motivo + " (Saída)", item.getDataValidade()));
+
+                comandos.add(new MovimentoCommand(item.getProduto().getId(), destino.getId(), item.getQuantidade(),
+                        lpn.getCodigo(), item.getLote(), item.getNumeroSerie(), item.getStatusQualidade(),
+                        TipoMovimento.ENTRADA, usuario, motivo + " (Entrada)", item.getDataValidade()));
+            }
         }
+
+        movimentarLote(comandos);
     }
-}
\ No newline at end of file
+}
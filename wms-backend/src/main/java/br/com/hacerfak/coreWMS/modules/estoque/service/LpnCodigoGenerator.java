@@ -0,0 +1,151 @@
+package br.com.hacerfak.coreWMS.modules.estoque.service;
+
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gera códigos de LPN únicos a partir da sequence seq_lpn_codigo do tenant.
+ *
+ * A sequence incrementa de bloco em bloco (INCREMENT BY, V17): cada nextval
+ * reserva a faixa [valor, valor + incremento - 1]. Cada nó guarda os números
+ * já reservados (por tenant) e só volta ao banco quando acabam; um pedido de N
+ * códigos custa uma consulta com ceil(N / incremento) nextval, sem checagem de
+ * existência: a sequence garante unicidade entre nós. Números de um bloco
+ * perdido (restart do nó) viram apenas lacunas.
+ *
+ * Formato: PREFIXO + "-" + número com zeros à esquerda + dígito verificador.
+ * Ex: LPN-0000012348 (número 000001234, DV 8 em MOD10).
+ */
+@Component
+@Slf4j
+public class LpnCodigoGenerator {
+
+    public enum DigitoVerificador {
+        NENHUM, MOD10, MOD11
+    }
+
+    // O incremento vem junto para a faixa nunca divergir do que a sequence reservou
+    private static final String SQL_RESERVAR = """
+            SELECT nextval('seq_lpn_codigo') AS inicio, s.increment_by
+            FROM generate_series(1, ?), pg_sequences s
+            WHERE s.schemaname = current_schema() AND s.sequencename = 'seq_lpn_codigo'
+            """;
+
+    // Números reservados de um tenant e o incremento visto na última ida à sequence.
+    // ReentrantLock e não synchronized: a ida ao banco acontece com o lock na mão
+    // e, numa virtual thread, synchronized prenderia a carrier durante o JDBC.
+    private static final class Reservados {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Long> numeros = new ArrayDeque<>();
+        private long incremento;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String prefixo;
+    private final int digitos;
+    private final DigitoVerificador digitoVerificador;
+
+    private final Map<String, Reservados> reservadosPorTenant = new ConcurrentHashMap<>();
+
+    public LpnCodigoGenerator(JdbcTemplate jdbcTemplate,
+            @Value("${wms.lpn.codigo.prefixo:LPN}") String prefixo,
+            @Value("${wms.lpn.codigo.digitos:9}") int digitos,
+            @Value("${wms.lpn.codigo.digito-verificador:MOD10}") DigitoVerificador digitoVerificador) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.prefixo = prefixo;
+        this.digitos = digitos;
+        this.digitoVerificador = digitoVerificador;
+    }
+
+    public String proximo() {
+        return reservar(1).get(0);
+    }
+
+    /**
+     * Reserva N códigos de uma vez. Uma ida ao banco, qualquer que seja N (duas
+     * na primeira vez do tenant no nó, quando o incremento ainda não é conhecido
+     * e o primeiro bloco não basta).
+     */
+    public List<String> reservar(int quantidade) {
+        if (quantidade <= 0) {
+            throw new IllegalArgumentException("Quantidade de LPNs deve ser maior que zero.");
+        }
+
+        Reservados reservados = reservadosPorTenant.computeIfAbsent(TenantContext.getTenant(),
+                t -> new Reservados());
+        List<String> codigos = new ArrayList<>(quantidade);
+
+        reservados.lock.lock();
+        try {
+            while (reservados.numeros.size() < quantidade) {
+                long faltam = quantidade - reservados.numeros.size();
+                // Incremento ainda desconhecido: um bloco só, que já informa o tamanho
+                int faixas = reservados.incremento > 0
+                        ? (int) ((faltam + reservados.incremento - 1) / reservados.incremento)
+                        : 1;
+                int antes = reservados.numeros.size();
+                jdbcTemplate.query(SQL_RESERVAR, rs -> {
+                    long inicio = rs.getLong("inicio");
+                    reservados.incremento = Math.max(1, rs.getLong("increment_by"));
+                    for (long n = inicio; n < inicio + reservados.incremento; n++) {
+                        reservados.numeros.add(n);
+                    }
+                }, faixas);
+                if (reservados.numeros.size() == antes)
+                    throw new IllegalStateException("Sequence seq_lpn_codigo não encontrada no schema do tenant.");
+                log.debug("LPN [{}]: {} bloco(s) de {} reservados na sequence", TenantContext.getTenant(), faixas,
+                        reservados.incremento);
+            }
+            for (int i = 0; i < quantidade; i++) {
+                codigos.add(formatar(reservados.numeros.poll()));
+            }
+        } finally {
+            reservados.lock.unlock();
+        }
+        return codigos;
+    }
+
+    private String formatar(long numero) {
+        String corpo = String.format("%0" + digitos + "d", numero);
+        if (digitoVerificador == DigitoVerificador.NENHUM)
+            return prefixo + "-" + corpo;
+        return prefixo + "-" + corpo + calcularDigito(corpo);
+    }
+
+    private char calcularDigito(String numero) {
+        return switch (digitoVerificador) {
+            case MOD10 -> mod10(numero);
+            case MOD11 -> mod11(numero);
+            case NENHUM -> throw new IllegalStateException("Dígito verificador desativado.");
+        };
+    }
+
+    // Padrão GS1 (mesmo do SSCC/EAN): pesos 3 e 1 a partir da direita
+    private char mod10(String numero) {
+        int soma = 0;
+        for (int i = numero.length() - 1, peso = 3; i >= 0; i--, peso = (peso == 3) ? 1 : 3) {
+            soma += (numero.charAt(i) - '0') * peso;
+        }
+        return (char) ('0' + (10 - soma % 10) % 10);
+    }
+
+    // Pesos 2..9 a partir da direita; restos 0 e 1 viram 0
+    private char mod11(String numero) {
+        int soma = 0;
+        for (int i = numero.length() - 1, peso = 2; i >= 0; i--, peso = (peso == 9) ? 2 : peso + 1) {
+            soma += (numero.charAt(i) - '0') * peso;
+        }
+        int resto = soma % 11;
+        return (char) ('0' + ((resto < 2) ? 0 : 11 - resto));
+    }
+}
@@ -2,33 +2,33 @@ package br.com.hacerfak.coreWMS.modules.estoque.service;
 
 import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
 import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.core.outbox.OutboxEventos;
+import br.com.hacerfak.coreWMS.core.outbox.OutboxService;
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
-import br.com.hacerfak.coreWMS.modules.cadastro.repository.ProdutoRepository;
+import br.com.hacerfak.coreWMS.modules.cadastro.service.BarcodeResolver;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.*;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.MovimentoCommand;
 import br.com.hacerfak.coreWMS.modules.estoque.event.LpnCriadaEvent;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.FormatoLpnRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.LpnItemRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.LpnRepository;
-import br.com.hacerfak.coreWMS.modules.estoque.repository.MovimentoEstoqueRepository;
 import br.com.hacerfak.coreWMS.modules.operacao.domain.SolicitacaoEntrada;
 import br.com.hacerfak.coreWMS.modules.operacao.dto.AddItemLpnRequest;
 import br.com.hacerfak.coreWMS.modules.operacao.repository.ItemSolicitacaoEntradaRepository;
 import br.com.hacerfak.coreWMS.modules.operacao.repository.SolicitacaoEntradaRepository;
 import lombok.RequiredArgsConstructor;
 
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @RequiredArgsConstructor
@@ -36,13 +36,14 @@ public class LpnService {
 
     private final LpnRepository lpnRepository;
     private final LpnItemRepository lpnItemRepository;
-    private final ProdutoRepository produtoRepository;
+    private final BarcodeResolver barcodeResolver;
     private final EstoqueSaldoRepository estoqueSaldoRepository;
     private final FormatoLpnRepository formatoLpnRepository;
-    private final MovimentoEstoqueRepository movimentoEstoqueRepository;
-    private final ApplicationEventPublisher eventPublisher;
+    private final EstoqueService estoqueService;
+    private final OutboxService outboxService;
     private final ItemSolicitacaoEntradaRepository itemSolicitacaoRepository;
     private final SolicitacaoEntradaRepository solicitacaoEntradaRepository;
+    private final LpnCodigoGenerator codigoGenerator;
 
     /**
      * 1. PRÉ-GERAÇÃO DE ETIQUETAS
@@ -76,8 +77,10 @@ public class LpnService {
         List<String> codigosGerados = new ArrayList<>();
         List<Lpn> lpnsParaSalvar = new ArrayList<>();
 
-        for (int i = 0; i < quantidade; i++) {
-            String codigo = gerarCodigoLpnUnico();
+        // Todos os códigos em uma única reserva (sem checagem de existência)
+        List<String> codigos = codigoGenerator.reservar(quantidade);
+
+        for (String codigo : codigos) {
 
             Lpn lpn = Lpn.builder()
                     .codigo(codigo)
@@ -129,7 +132,7 @@ public class LpnService {
 
         // --- LÓGICA ORIGINAL DE VALIDAÇÃO DE ITEM/SERIAL MANTIDA ABAIXO ---
 
-        Produto produto = produtoRepository.findByCodigoBarras(dto.sku())
+        Produto produto = barcodeResolver.resolverProduto(dto.sku())
                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado"));
 
         // Validação de Serial
@@ -207,39 +210,19 @@ public class LpnService {
             throw new IllegalStateException("LPN sem localização definida (Doca).");
 
         // PROCESSA CADA ITEM DO VOLUME
+        // Estoque físico e kardex (Entrada) num lote só, sob o lock de saldo
+        String obs = "Fechamento Volume Misto (Sol. " + lpn.getSolicitacaoEntradaId() + ")";
+        List<MovimentoCommand> entradas = new ArrayList<>(lpn.getItens().size());
         for (LpnItem item : lpn.getItens()) {
-            // 1. Cria Estoque Físico
-            EstoqueSaldo saldo = EstoqueSaldo.builder()
-                    .produto(item.getProduto())
-                    .localizacao(local)
-                    .lpn(lpn.getCodigo())
-                    .lote(item.getLote())
-                    .dataValidade(item.getDataValidade())
-                    .numeroSerie(item.getNumeroSerie())
-                    .statusQualidade(item.getStatusQualidade())
-                    .quantidade(item.getQuantidade())
-                    .quantidadeReservada(BigDecimal.ZERO)
-                    .build();
-            estoqueSaldoRepository.save(saldo);
-
-            // 2. Gera Kardex (Entrada)
-            MovimentoEstoque mov = MovimentoEstoque.builder()
-                    .tipo(TipoMovimento.ENTRADA)
-                    .produto(item.getProduto())
-                    .localizacao(local)
-                    .quantidade(item.getQuantidade())
-                    .saldoAnterior(BigDecimal.ZERO)
-                    .saldoAtual(item.getQuantidade())
-                    .lpn(lpn.getCodigo())
-                    .lote(item.getLote())
-                    .numeroSerie(item.getNumeroSerie())
-                    .usuarioResponsavel(usuario)
-                    .observacao("Fechamento Volume Misto (Sol. " + lpn.getSolicitacaoEntradaId() + ")")
-                    .build();
-            movimentoEstoqueRepository.save(mov);
+            entradas.add(new MovimentoCommand(item.getProduto().getId(), local.getId(), item.getQuantidade(),
+                    lpn.getCodigo(), item.getLote(), item.getNumeroSerie(), item.getStatusQualidade(),
+                    TipoMovimento.ENTRADA, usuario, obs, item.getDataValidade()));
+        }
+        estoqueService.movimentarLote(entradas);
 
-            // 3. Atualiza Progresso da Solicitação
-            if (lpn.getSolicitacaoEntradaId() != null) {
+        // Atualiza Progresso da Solicitação
+        if (lpn.getSolicitacaoEntradaId() != null) {
+            for (LpnItem item : lpn.getItens()) {
                 itemSolicitacaoRepository.somarQuantidadeConferida(
                         lpn.getSolicitacaoEntradaId(),
                         item.getProduto().getId(),
@@ -250,9 +233,10 @@ public class LpnService {
         lpn.setStatus(StatusLpn.FECHADO);
         lpnRepository.save(lpn);
 
-        // Opcional:
+        // Impressão automática da etiqueta (via outbox, depois do commit)
         String currentTenant = TenantContext.getTenant();
-        eventPublisher.publishEvent(new LpnCriadaEvent(lpn.getId(), lpn.getCodigo(), currentTenant));
+        outboxService.publicar(OutboxEventos.LPN_CRIADA, "lpn:" + lpn.getId(),
+                new LpnCriadaEvent(lpn.getId(), lpn.getCodigo(), currentTenant));
 
     }
 
@@ -265,18 +249,6 @@ public class LpnService {
         }
     }
 
-    private String gerarCodigoLpnUnico() {
-        String prefix = "LPN-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyDDD"));
-        for (int i = 0; i < 5; i++) {
-            int random = ThreadLocalRandom.current().nextInt(1000, 9999);
-            String codigo = prefix + "-" + random;
-            if (!lpnRepository.existsByCodigo(codigo)) {
-                return codigo;
-            }
-        }
-        throw new RuntimeException("Falha ao gerar código LPN único. Tente novamente.");
-    }
-
     /**
      * GERAÇÃO EM MASSA (Carga Fechada / Monoproduto)
      * ALTERAÇÃO: Adicionado parâmetro Long formatoId.
@@ -299,8 +271,7 @@ public class LpnService {
                 .orElseThrow(() -> new EntityNotFoundException("Formato de LPN não encontrado."));
 
         List<Lpn> lpnsParaSalvar = new ArrayList<>();
-        List<EstoqueSaldo> saldosParaSalvar = new ArrayList<>();
-        List<MovimentoEstoque> movimentosParaSalvar = new ArrayList<>();
+        List<MovimentoCommand> entradas = new ArrayList<>();
         List<String> codigosGerados = new ArrayList<>();
 
         if (numeroSerie != null && !numeroSerie.isBlank() && qtdVolumes > 1) {
@@ -309,8 +280,9 @@ public class LpnService {
 
         String currentTenant = TenantContext.getTenant();
 
-        for (int i = 1; i <= qtdVolumes; i++) {
-            String codigo = gerarCodigoLpnUnico();
+        List<String> codigos = codigoGenerator.reservar(qtdVolumes);
+
+        for (String codigo : codigos) {
             codigosGerados.add(codigo);
 
             Lpn lpn = Lpn.builder()
@@ -337,46 +309,24 @@ public class LpnService {
 
             lpnsParaSalvar.add(lpn);
 
-            saldosParaSalvar.add(EstoqueSaldo.builder()
-                    .produto(produto)
-                    .localizacao(localizacaoInicial)
-                    .lpn(codigo)
-                    .lote(lote)
-                    .numeroSerie(numeroSerie)
-                    .statusQualidade(StatusQualidade.DISPONIVEL)
-                    .quantidade(qtdPorVolume)
-                    .quantidadeReservada(BigDecimal.ZERO)
-                    .build());
-
-            // 4. --- CORREÇÃO: Cria o Registro de Movimentação (Kardex) ---
-            // Como é um registro novo (saldo novo), o anterior é zero.
-            MovimentoEstoque movimento = MovimentoEstoque.builder()
-                    .tipo(TipoMovimento.ENTRADA) // Marca como Entrada
-                    .produto(produto)
-                    .localizacao(localizacaoInicial)
-                    .quantidade(qtdPorVolume)
-                    .saldoAnterior(BigDecimal.ZERO)
-                    .saldoAtual(qtdPorVolume)
-                    .lpn(codigo)
-                    .lote(lote)
-                    .numeroSerie(numeroSerie)
-                    .usuarioResponsavel(usuario)
-                    .observacao("Recebimento - Geração de LPN (Solicitação " + solicitacaoId + ")")
-                    .build();
-
-            movimentosParaSalvar.add(movimento);
+            // Saldo novo e kardex (Entrada) saem do movimentarLote, sob o lock de saldo
+            entradas.add(new MovimentoCommand(produto.getId(), localizacaoInicial.getId(), qtdPorVolume, codigo,
+                    lote, numeroSerie, StatusQualidade.DISPONIVEL, TipoMovimento.ENTRADA, usuario,
+                    "Recebimento - Geração de LPN (Solicitação " + solicitacaoId + ")", validade));
         }
 
         List<Lpn> lpnsSalvas = lpnRepository.saveAll(lpnsParaSalvar);
-        estoqueSaldoRepository.saveAll(saldosParaSalvar);
-        movimentoEstoqueRepository.saveAll(movimentosParaSalvar);
+        estoqueService.movimentarLote(entradas);
 
+        // Um batch no outbox para todas as LPNs geradas
+        Map<String, LpnCriadaEvent> eventos = new LinkedHashMap<>();
         for (Lpn lpn : lpnsSalvas) {
-            eventPublisher.publishEvent(new LpnCriadaEvent(
+            eventos.put("lpn:" + lpn.getId(), new LpnCriadaEvent(
                     lpn.getId(),
                     lpn.getCodigo(),
                     currentTenant));
         }
+        outboxService.publicar(OutboxEventos.LPN_CRIADA, eventos);
 
         return codigosGerados;
     }
@@ -3,10 +3,12 @@ package br.com.hacerfak.coreWMS.modules.estoque.service;
 import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.*;
 import br.com.hacerfak.coreWMS.modules.estoque.dto.*;
+import br.com.hacerfak.coreWMS.modules.estoque.event.DisponibilidadeAlteradaEvent;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -25,6 +27,7 @@ public class MapeamentoService {
     private final AreaRepository areaRepository;
     private final LocalizacaoRepository localizacaoRepository;
     private final LpnRepository lpnRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     // =================================================================================
     // 1. ARMAZÉNS
@@ -227,6 +230,9 @@ public class MapeamentoService {
         local.setBloqueado(dto.bloqueado() != null ? dto.bloqueado() : false);
         local.setAtivo(dto.ativo() != null ? dto.ativo() : true);
 
+        // Bloqueio/ativação muda o que está disponível para alocação
+        eventPublisher.publishEvent(DisponibilidadeAlteradaEvent.todos());
+
         return localizacaoRepository.save(local);
     }
 
@@ -358,6 +364,7 @@ public class MapeamentoService {
                 count++;
             }
             log.info("Importação concluída. {} registros processados.", count);
+            eventPublisher.publishEvent(DisponibilidadeAlteradaEvent.todos());
         } catch (Exception e) {
             log.error("Erro importação", e);
             throw new RuntimeException("Erro ao processar arquivo: " + e.getMessage());
@@ -399,6 +406,7 @@ public class MapeamentoService {
 
             localizacaoRepository.save(loc);
         }
+        eventPublisher.publishEvent(DisponibilidadeAlteradaEvent.todos());
     }
 
     // --- Parsers Seguros ---
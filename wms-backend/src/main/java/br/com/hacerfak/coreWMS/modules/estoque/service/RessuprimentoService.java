@@ -3,90 +3,83 @@ package br.com.hacerfak.coreWMS.modules.estoque.service;
 import br.com.hacerfak.coreWMS.core.domain.workflow.StatusTarefa;
 import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.*;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.MovimentoCommand;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.*;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.ChaveFace;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.FaceRessuprimento;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.NovaTarefa;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.OrigemRessuprimento;
 import lombok.RequiredArgsConstructor;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class RessuprimentoService {
 
-    private final ConfiguracaoPickingRepository configRepository;
+    private final RessuprimentoBatchRepository ressuprimentoBatchRepository;
     private final EstoqueSaldoRepository saldoRepository;
     private final TarefaMovimentacaoRepository tarefaRepository;
     private final EstoqueService estoqueService;
     private final LpnRepository lpnRepository;
 
-    @Scheduled(fixedDelay = 600000) // 10 min
+    /**
+     * Varre todas as faces de picking do tenant corrente e gera as tarefas
+     * de ressuprimento que faltam. Chamado pelo RessuprimentoJob.
+     */
     @Transactional
-    public void processarRessuprimento() {
-        List<ConfiguracaoPicking> configs = configRepository.findByAtivoTrue();
-        for (ConfiguracaoPicking config : configs) {
-            try {
-                verificarNecessidade(config);
-            } catch (Exception e) {
-                System.err.println("Erro ao processar ressuprimento: " + e.getMessage());
-            }
-        }
+    public ResultadoVarredura ressuprirTenant() {
+        ressuprimentoBatchRepository.travar();
+        long faces = ressuprimentoBatchRepository.contarFacesAtivas();
+        return ressuprir(faces, null);
     }
 
-    private void verificarNecessidade(ConfiguracaoPicking config) {
-        if (tarefaRepository.existsByDestinoIdAndStatus(config.getLocalizacao().getId(), StatusTarefa.PENDENTE)) {
-            return;
+    private ResultadoVarredura ressuprir(long facesAvaliadas, Collection<Long> configIds) {
+        // 1. Faces abaixo do mínimo e sem tarefa aberta (uma consulta)
+        List<FaceRessuprimento> abaixo = ressuprimentoBatchRepository.buscarFacesAbaixoDoMinimo(configIds);
+        if (abaixo.isEmpty())
+            return new ResultadoVarredura(facesAvaliadas, 0, 0);
+
+        // 2. Origens FIFO de todos os produtos envolvidos (uma consulta)
+        Map<Long, Integer> facesPorProduto = new HashMap<>();
+        for (FaceRessuprimento face : abaixo)
+            facesPorProduto.merge(face.produtoId(), 1, Integer::sum);
+        Map<Long, List<OrigemRessuprimento>> origensPorProduto = new HashMap<>();
+        for (OrigemRessuprimento origem : ressuprimentoBatchRepository.buscarOrigens(facesPorProduto))
+            origensPorProduto.computeIfAbsent(origem.produtoId(), k -> new ArrayList<>()).add(origem);
+
+        // 3. Uma tarefa por face, na mais antiga origem com saldo ainda não destinado
+        // a outra face nesta varredura
+        Map<Long, BigDecimal> restante = new HashMap<>();
+        List<NovaTarefa> tarefas = new ArrayList<>();
+        for (FaceRessuprimento face : abaixo) {
+            BigDecimal necessaria = face.capacidadeMaxima().subtract(face.saldo());
+            for (OrigemRessuprimento origem : origensPorProduto.getOrDefault(face.produtoId(), List.of())) {
+                BigDecimal disponivel = restante.getOrDefault(origem.saldoId(), origem.disponivel());
+                if (disponivel.signum() <= 0 || origem.localizacaoId().equals(face.localizacaoId()))
+                    continue;
+                BigDecimal quantidadeMover = disponivel.min(necessaria);
+                restante.put(origem.saldoId(), disponivel.subtract(quantidadeMover));
+                tarefas.add(new NovaTarefa(face.produtoId(), origem.localizacaoId(), face.localizacaoId(),
+                        quantidadeMover, origem.lpnId()));
+                break;
+            }
         }
 
-        BigDecimal saldoAtual = saldoRepository.somarQuantidadePorLocalEProduto(
-                config.getLocalizacao().getId(),
-                config.getProduto().getId());
-        if (saldoAtual == null)
-            saldoAtual = BigDecimal.ZERO;
-
-        if (saldoAtual.compareTo(config.getPontoRessuprimento()) <= 0) {
-            gerarTarefaRessuprimento(config, saldoAtual);
-        }
+        // 4. Todas as tarefas num único INSERT
+        int geradas = ressuprimentoBatchRepository.inserirTarefas(tarefas, "SISTEMA");
+        return new ResultadoVarredura(facesAvaliadas, abaixo.size(), geradas);
     }
 
-    private void gerarTarefaRessuprimento(ConfiguracaoPicking config, BigDecimal saldoAtual) {
-        BigDecimal quantidadeNecessaria = config.getCapacidadeMaxima().subtract(saldoAtual);
-        if (quantidadeNecessaria.compareTo(BigDecimal.ZERO) <= 0)
-            return;
-
-        // Busca estoque no Pulmão (FIFO)
-        List<EstoqueSaldo> candidatos = saldoRepository.buscarDisponiveisPorAntiguidade(config.getProduto().getId());
-
-        EstoqueSaldo origem = candidatos.stream()
-                .filter(s -> !s.getLocalizacao().getId().equals(config.getLocalizacao().getId()))
-                .findFirst()
-                .orElse(null);
-
-        if (origem != null) {
-            BigDecimal quantidadeMover = origem.getQuantidade().min(quantidadeNecessaria);
-
-            // CORREÇÃO: Usamos apenas o código para referência, sem tentar setar ID nulo no
-            // builder
-            Lpn lpnRef = null;
-            if (origem.getLpn() != null) {
-                lpnRef = Lpn.builder().codigo(origem.getLpn()).build();
-            }
-
-            TarefaMovimentacao tarefa = TarefaMovimentacao.builder()
-                    .tipoMovimento(TipoMovimentoInterno.RESSUPRIMENTO)
-                    .produto(config.getProduto())
-                    .origem(origem.getLocalizacao())
-                    .destino(config.getLocalizacao())
-                    .quantidade(quantidadeMover)
-                    .lpn(lpnRef)
-                    .build();
-
-            tarefa.setStatus(StatusTarefa.PENDENTE);
-            tarefaRepository.save(tarefa);
-        }
+    public record ResultadoVarredura(long facesAvaliadas, int facesAbaixoMinimo, int tarefasGeradas) {
     }
 
     // --- LÓGICA DE EXECUÇÃO CORRIGIDA ---
@@ -122,7 +115,7 @@ public class RessuprimentoService {
 
         // 2. Movimentação de SAÍDA da Origem
         // Sempre sai da LPN (se houver)
-        estoqueService.movimentar(
+        MovimentoCommand saida = new MovimentoCommand(
                 tarefa.getProduto().getId(),
                 tarefa.getOrigem().getId(),
                 tarefa.getQuantidade(),
@@ -134,10 +127,11 @@ public class RessuprimentoService {
                 "Ressuprimento Saída - Tarefa " + tarefaId);
 
         // 3. Movimentação de ENTRADA no Destino
+        MovimentoCommand entrada;
         if (movendoLpnInteira) {
             // CENÁRIO A: Baixou o Pallet Inteiro
             // O saldo entra no destino COM A LPN
-            estoqueService.movimentar(
+            entrada = new MovimentoCommand(
                     tarefa.getProduto().getId(),
                     tarefa.getDestino().getId(),
                     tarefa.getQuantidade(),
@@ -160,7 +154,7 @@ public class RessuprimentoService {
             // O saldo entra no destino SOLTO (Sem LPN)
             // A LPN original continua no pulmão (com saldo reduzido pela operação de Saída
             // acima)
-            estoqueService.movimentar(
+            entrada = new MovimentoCommand(
                     tarefa.getProduto().getId(),
                     tarefa.getDestino().getId(),
                     tarefa.getQuantidade(),
@@ -172,14 +166,24 @@ public class RessuprimentoService {
                     "Ressuprimento (Parcial) - Tarefa " + tarefaId);
         }
 
+        // Saída + Entrada em um único lote
+        estoqueService.movimentarLote(List.of(saida, entrada));
+
         tarefa.concluir();
         tarefa.setUsuarioAtribuido(usuario);
         tarefaRepository.save(tarefa);
     }
 
-    // Método exposto para o Listener chamar sem esperar o agendamento
+    /**
+     * Avalia de uma vez as faces movimentadas desde o último disparo do
+     * GatilhoRessuprimento; pares que não são face de picking são ignorados.
+     */
     @Transactional
-    public void analisarConfiguracaoEspecifica(ConfiguracaoPicking config) {
-        verificarNecessidade(config);
+    public ResultadoVarredura ressuprirFaces(Collection<ChaveFace> faces) {
+        ressuprimentoBatchRepository.travar();
+        List<Long> configIds = ressuprimentoBatchRepository.buscarConfiguracoes(faces);
+        if (configIds.isEmpty())
+            return new ResultadoVarredura(0, 0, 0);
+        return ressuprir(configIds.size(), configIds);
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package br.com.hacerfak.coreWMS.modules.expedicao.controller;
 import br.com.hacerfak.coreWMS.modules.expedicao.domain.OndaSeparacao;
 import br.com.hacerfak.coreWMS.modules.expedicao.domain.SolicitacaoSaida;
 import br.com.hacerfak.coreWMS.modules.expedicao.dto.SolicitacaoSaidaRequest;
+import br.com.hacerfak.coreWMS.modules.expedicao.service.AlocacaoOndaService;
 import br.com.hacerfak.coreWMS.modules.expedicao.service.OutboundWorkflowService;
 import br.com.hacerfak.coreWMS.modules.expedicao.service.PickingService;
 import jakarta.validation.Valid;
@@ -24,7 +25,7 @@ public class ExpedicaoController {
 
     // 1. Criação de Pedidos (Integração ou Manual)
     @PostMapping("/pedidos")
-    @PreAuthorize("hasAuthority('EXPEDICAO_CRIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_CRIAR')")
     public ResponseEntity<SolicitacaoSaida> criarSolicitacao(@RequestBody @Valid SolicitacaoSaidaRequest request) {
         // CORREÇÃO: Método correto é 'criarSolicitacao'
         return ResponseEntity.ok(outboundService.criarSolicitacao(request));
@@ -32,7 +33,7 @@ public class ExpedicaoController {
 
     // 2. Geração de Ondas (Planejamento)
     @PostMapping("/ondas/gerar")
-    @PreAuthorize("hasAuthority('EXPEDICAO_PLANEJAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_PLANEJAR')")
     public ResponseEntity<OndaSeparacao> gerarOndas(
             @RequestParam(required = false) String rota) { // <--- Parâmetro adicionado
 
@@ -43,10 +44,11 @@ public class ExpedicaoController {
     // 3. Processamento de Onda (Alocação - Passo manual opcional se não for
     // automático)
     @PostMapping("/ondas/{id}/processar")
-    @PreAuthorize("hasAuthority('PEDIDO_ALOCAR') or hasRole('ADMIN')")
-    public ResponseEntity<Void> processarOnda(@PathVariable Long id) {
-        outboundService.processarOnda(id);
-        return ResponseEntity.ok().build();
+    @PreAuthorize("hasPermission('PEDIDO_ALOCAR')")
+    public ResponseEntity<AlocacaoOndaService.ResultadoAlocacao> processarOnda(@PathVariable Long id,
+            Authentication authentication) {
+        // Retorna o resumo da alocação (linhas, tarefas, tempo, linhas/s)
+        return ResponseEntity.ok(outboundService.processarOnda(id, authentication.getName()));
     }
 
     /**
@@ -54,7 +56,7 @@ public class ExpedicaoController {
      * Método atualizado para suportar Short Pick (Corte)
      */
     @PostMapping("/tarefas/{tarefaId}/confirmar")
-    @PreAuthorize("hasAuthority('EXPEDICAO_SEPARAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_SEPARAR')")
     public ResponseEntity<Void> confirmarSeparacao(
             @PathVariable Long tarefaId,
             @RequestParam Long docaId,
@@ -72,7 +74,7 @@ public class ExpedicaoController {
      * Ex: POST /api/expedicao/despachar/VOL-123456
      */
     @PostMapping("/despachar/{codigoRastreio}")
-    @PreAuthorize("hasAuthority('EXPEDICAO_DESPACHAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_DESPACHAR')")
     public ResponseEntity<Void> confirmarDespachoVolume(
             @PathVariable String codigoRastreio,
             Authentication auth) {
@@ -23,7 +23,7 @@ public class PackingController {
     private final ZplGeneratorService zplService;
 
     @PostMapping("/abrir-volume")
-    @PreAuthorize("hasAuthority('EXPEDICAO_CONFERIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_CONFERIR')")
     public ResponseEntity<VolumeExpedicao> abrirVolume(
             @RequestParam Long solicitacaoId,
             @RequestParam String tipoEmbalagem) { // CAIXA, PALLET
@@ -31,7 +31,7 @@ public class PackingController {
     }
 
     @PostMapping("/{volumeId}/bipar")
-    @PreAuthorize("hasAuthority('EXPEDICAO_CONFERIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_CONFERIR')")
     public ResponseEntity<Void> biparItemOuLpn(
             @PathVariable Long volumeId,
             @RequestParam String codigo) { // Pode ser EAN13 ou LPN
@@ -41,7 +41,7 @@ public class PackingController {
     }
 
     @PostMapping("/{volumeId}/fechar")
-    @PreAuthorize("hasAuthority('EXPEDICAO_CONFERIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_CONFERIR')")
     public ResponseEntity<VolumeExpedicao> fecharVolume(
             @PathVariable Long volumeId,
             @RequestParam(required = false) BigDecimal peso) {
@@ -50,7 +50,7 @@ public class PackingController {
 
     // --- NOVO: Endpoint de Impressão de Etiqueta de Volume ---
     @GetMapping(value = "/{volumeId}/etiqueta", produces = MediaType.TEXT_PLAIN_VALUE)
-    @PreAuthorize("hasAuthority('EXPEDICAO_CONFERIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_CONFERIR')")
     public ResponseEntity<String> gerarEtiquetaVolume(
             @PathVariable Long volumeId,
             @RequestParam(required = false) Long templateId) {
@@ -26,7 +26,7 @@ public class PickingController {
      * Alterado de 'pedidoId' para 'ondaId' e ajustado para o novo StatusTarefa.
      */
     @GetMapping("/tarefas/onda/{ondaId}")
-    @PreAuthorize("hasAuthority('EXPEDICAO_SEPARAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_SEPARAR')")
     public ResponseEntity<List<TarefaSeparacao>> buscarTarefasDaOnda(@PathVariable Long ondaId) {
         // Busca tarefas da onda que estão PENDENTES ou EM_EXECUCAO
         // Para simplificar, vamos trazer as PENDENTES
@@ -38,7 +38,7 @@ public class PickingController {
      * (Modo global, sem filtrar por onda específica)
      */
     @GetMapping("/tarefas/pendentes")
-    @PreAuthorize("hasAuthority('EXPEDICAO_SEPARAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_SEPARAR')")
     public ResponseEntity<List<TarefaSeparacao>> buscarTodasPendentes() {
         return ResponseEntity.ok(tarefaRepository.findByStatus(StatusTarefa.PENDENTE));
     }
@@ -48,7 +48,7 @@ public class PickingController {
      * Se quantidadeConfirmada < QuantidadePlanejada, gera corte e auditoria.
      */
     @PostMapping("/tarefas/{tarefaId}/confirmar")
-    @PreAuthorize("hasAuthority('EXPEDICAO_SEPARAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('EXPEDICAO_SEPARAR')")
     public ResponseEntity<Void> confirmarSeparacao(
             @PathVariable Long tarefaId,
             @RequestParam Long docaId,
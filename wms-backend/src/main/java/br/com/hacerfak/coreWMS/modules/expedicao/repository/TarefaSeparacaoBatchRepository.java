@@ -0,0 +1,72 @@
+package br.com.hacerfak.coreWMS.modules.expedicao.repository;
+
+import br.com.hacerfak.coreWMS.modules.expedicao.domain.TarefaSeparacao;
+import br.com.hacerfak.coreWMS.core.util.IdsPooledLo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserção em massa das tarefas de picking geradas pela alocação de onda.
+ * Vai direto por JDBC batch, na mesma transação, sem passar pelo contexto de
+ * persistência: uma onda gera milhares de tarefas que ninguém mais altera
+ * nessa transação, e o saveAll pagaria persist, flush e dirty checking por
+ * tarefa.
+ *
+ * Os ids saem da sequence em faixas pooled-lo (IdsPooledLo) e são gravados
+ * nas instâncias antes do batch. Por fora do Hibernate não há @PostPersist:
+ * quem chama registra a auditoria.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TarefaSeparacaoBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdsPooledLo idsPooledLo;
+
+    private static final String SQL_INSERT_TAREFA = """
+            INSERT INTO tb_tarefa_separacao (
+                id, status, onda_id, produto_id, origem_id, lote_solicitado,
+                quantidade_planejada, quantidade_executada,
+                criado_por, atualizado_por, data_criacao, data_atualizacao)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    public void inserir(List<TarefaSeparacao> tarefas, String usuario) {
+        if (tarefas.isEmpty())
+            return;
+
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        Long[] ids = idsPooledLo.reservar("tb_tarefa_separacao", tarefas.size());
+        List<Object[]> params = new ArrayList<>(tarefas.size());
+        for (int i = 0; i < tarefas.size(); i++) {
+            TarefaSeparacao t = tarefas.get(i);
+            params.add(new Object[] {
+                    ids[i],
+                    t.getStatus().name(),
+                    t.getOnda().getId(),
+                    t.getProduto().getId(),
+                    t.getOrigem().getId(),
+                    t.getLoteSolicitado(),
+                    t.getQuantidadePlanejada(),
+                    t.getQuantidadeExecutada() != null ? t.getQuantidadeExecutada() : BigDecimal.ZERO,
+                    usuario, usuario, agora, agora });
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERT_TAREFA, params);
+
+        for (int i = 0; i < tarefas.size(); i++) {
+            TarefaSeparacao t = tarefas.get(i);
+            t.setId(ids[i]);
+            t.setCriadoPor(usuario);
+            t.setAtualizadoPor(usuario);
+            t.setDataCriacao(agora.toLocalDateTime());
+            t.setDataAtualizacao(agora.toLocalDateTime());
+        }
+    }
+}
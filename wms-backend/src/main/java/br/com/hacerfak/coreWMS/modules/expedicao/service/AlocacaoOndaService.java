@@ -0,0 +1,221 @@
+package br.com.hacerfak.coreWMS.modules.expedicao.service;
+
+import br.com.hacerfak.coreWMS.core.listener.GlobalAuditListener;
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.Localizacao;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.ReservaSaldo;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.SaldoDisponivel;
+import br.com.hacerfak.coreWMS.modules.estoque.event.DisponibilidadeAlteradaEvent;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoBatchRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.service.AtpIndexService;
+import br.com.hacerfak.coreWMS.modules.estoque.service.EstoqueLockService;
+import br.com.hacerfak.coreWMS.modules.expedicao.domain.ItemSolicitacaoSaida;
+import br.com.hacerfak.coreWMS.modules.expedicao.domain.OndaSeparacao;
+import br.com.hacerfak.coreWMS.modules.expedicao.domain.SolicitacaoSaida;
+import br.com.hacerfak.coreWMS.modules.expedicao.domain.TarefaSeparacao;
+import br.com.hacerfak.coreWMS.modules.expedicao.repository.TarefaSeparacaoBatchRepository;
+import br.com.hacerfak.coreWMS.modules.expedicao.service.strategy.AlocacaoStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motor de alocação de onda set-based.
+ *
+ * Custo fixo de round trips por onda, independente do número de linhas:
+ * 1. candidatos de todos os produtos pelo índice ATP (0 ou 1 consulta);
+ * 2. lock dos endereços candidatos (EstoqueLockService);
+ * 3. releitura autoritativa de todos os produtos (produto_id = ANY(?));
+ * 4. alocação em memória, em ordem determinística;
+ * 5. 1 batch de UPDATE de reserva (guardado por versão) e 1 batch de INSERT
+ * de tarefas. O INSERT por JDBC não dispara o @PostPersist, então a auditoria
+ * de CREATE das tarefas é registrada aqui (GlobalAuditListener.registrarCriacao).
+ *
+ * Deve rodar dentro da transação do chamador (OutboundWorkflowService).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlocacaoOndaService {
+
+    public record ResultadoAlocacao(
+            Long ondaId,
+            int linhas,
+            int linhasAtendidas,
+            int tarefas,
+            long tempoMs,
+            double linhasPorSegundo) {
+    }
+
+    // Pedido mais prioritário primeiro, depois o prazo mais curto, depois o id
+    private static final Comparator<SolicitacaoSaida> ORDEM_PEDIDOS = Comparator
+            .comparing(SolicitacaoSaida::getPrioridade, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(SolicitacaoSaida::getDataLimite, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(SolicitacaoSaida::getId);
+
+    private final AtpIndexService atpIndex;
+    private final EstoqueLockService lockService;
+    private final EstoqueSaldoBatchRepository saldoBatchRepository;
+    private final TarefaSeparacaoBatchRepository tarefaBatchRepository;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    public ResultadoAlocacao alocar(OndaSeparacao onda, AlocacaoStrategy strategy, String usuario) {
+        long inicio = System.nanoTime();
+
+        // --- LINHAS PENDENTES EM ORDEM DETERMINÍSTICA ---
+        List<SolicitacaoSaida> pedidos = new ArrayList<>(onda.getSolicitacoes());
+        pedidos.sort(ORDEM_PEDIDOS);
+
+        List<ItemSolicitacaoSaida> pendentes = new ArrayList<>();
+        Set<Long> produtoIds = new LinkedHashSet<>();
+        for (SolicitacaoSaida pedido : pedidos) {
+            List<ItemSolicitacaoSaida> itens = new ArrayList<>(pedido.getItens());
+            itens.sort(Comparator.comparing(ItemSolicitacaoSaida::getId));
+            for (ItemSolicitacaoSaida item : itens) {
+                if (faltante(item).compareTo(BigDecimal.ZERO) > 0) {
+                    pendentes.add(item);
+                    produtoIds.add(item.getProduto().getId());
+                }
+            }
+        }
+
+        if (pendentes.isEmpty()) {
+            return registrar(onda, 0, 0, 0, inicio);
+        }
+
+        // --- 1/2. ONDE HÁ ESTOQUE + LOCK DOS ENDEREÇOS ---
+        Set<EstoqueLockService.ChaveSaldo> chaves = new HashSet<>();
+        for (List<SaldoDisponivel> saldos : atpIndex.candidatos(produtoIds).values()) {
+            for (SaldoDisponivel s : saldos) {
+                chaves.add(new EstoqueLockService.ChaveSaldo(s.produtoId(), s.localizacaoId()));
+            }
+        }
+        lockService.bloquear(chaves);
+
+        // --- 3. LEITURA AUTORITATIVA (uma consulta para todos os produtos) ---
+        Map<Long, List<SaldoAlocavel>> porProduto = new HashMap<>();
+        atpIndex.recarregar(produtoIds).forEach((produtoId, saldos) -> {
+            List<SaldoDisponivel> ordenados = new ArrayList<>();
+            for (SaldoDisponivel s : saldos) {
+                // Endereço que apareceu depois do lock fica para a próxima onda
+                if (chaves.contains(new EstoqueLockService.ChaveSaldo(s.produtoId(), s.localizacaoId())))
+                    ordenados.add(s);
+            }
+            ordenados.sort(strategy.ordem());
+
+            List<SaldoAlocavel> alocaveis = new ArrayList<>(ordenados.size());
+            for (SaldoDisponivel s : ordenados) {
+                alocaveis.add(new SaldoAlocavel(s));
+            }
+            porProduto.put(produtoId, alocaveis);
+        });
+
+        // --- 4. ALOCAÇÃO EM MEMÓRIA ---
+        Map<Long, SaldoAlocavel> reservados = new LinkedHashMap<>();
+        List<TarefaSeparacao> tarefas = new ArrayList<>();
+        int atendidas = 0;
+
+        for (ItemSolicitacaoSaida item : pendentes) {
+            BigDecimal qtdFaltante = faltante(item);
+
+            for (SaldoAlocavel alocavel : porProduto.getOrDefault(item.getProduto().getId(), List.of())) {
+                if (qtdFaltante.compareTo(BigDecimal.ZERO) <= 0)
+                    break;
+                if (alocavel.restante.compareTo(BigDecimal.ZERO) <= 0)
+                    continue;
+
+                BigDecimal aReservar = alocavel.restante.min(qtdFaltante);
+                alocavel.restante = alocavel.restante.subtract(aReservar);
+                alocavel.reservado = alocavel.reservado.add(aReservar);
+                reservados.put(alocavel.saldo.saldoId(), alocavel);
+
+                tarefas.add(TarefaSeparacao.builder()
+                        .onda(onda)
+                        .produto(item.getProduto())
+                        .origem(entityManager.getReference(Localizacao.class, alocavel.saldo.localizacaoId()))
+                        .loteSolicitado(alocavel.saldo.lote())
+                        .quantidadePlanejada(aReservar)
+                        .build());
+
+                item.setQuantidadeAlocada(item.getQuantidadeAlocada().add(aReservar));
+                qtdFaltante = qtdFaltante.subtract(aReservar);
+            }
+
+            if (qtdFaltante.compareTo(BigDecimal.ZERO) <= 0)
+                atendidas++;
+        }
+
+        // --- 5. ESCRITA SET-BASED ---
+        List<ReservaSaldo> reservas = new ArrayList<>(reservados.size());
+        for (SaldoAlocavel a : reservados.values()) {
+            reservas.add(new ReservaSaldo(a.saldo.saldoId(), a.saldo.version(), a.reservado));
+        }
+        saldoBatchRepository.reservarSaldos(reservas, usuario);
+        tarefaBatchRepository.inserir(tarefas, usuario);
+        for (TarefaSeparacao tarefa : tarefas) {
+            GlobalAuditListener.registrarCriacao(tarefa);
+        }
+
+        // Reservas mudam o disponível: o índice ATP é invalidado após o commit
+        eventPublisher.publishEvent(new DisponibilidadeAlteradaEvent(produtoIds));
+
+        return registrar(onda, pendentes.size(), atendidas, tarefas.size(), inicio);
+    }
+
+    private BigDecimal faltante(ItemSolicitacaoSaida item) {
+        return item.getQuantidadeSolicitada().subtract(item.getQuantidadeAlocada());
+    }
+
+    private ResultadoAlocacao registrar(OndaSeparacao onda, int linhas, int atendidas, int tarefas, long inicio) {
+        long nanos = System.nanoTime() - inicio;
+        long tempoMs = TimeUnit.NANOSECONDS.toMillis(nanos);
+        double linhasPorSegundo = nanos > 0 ? linhas / (nanos / 1_000_000_000.0) : 0;
+        String tenant = TenantContext.getTenant();
+
+        Timer.builder("wms.expedicao.onda.alocacao")
+                .description("Tempo de alocação por onda")
+                .tag("tenant", tenant)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder("wms.expedicao.onda.linhas")
+                .description("Linhas de pedido processadas pela alocação de onda")
+                .tag("tenant", tenant)
+                .register(meterRegistry)
+                .increment(linhas);
+
+        log.info("Onda {} alocada: {} linhas ({} atendidas), {} tarefas em {} ms ({} linhas/s)",
+                onda.getCodigo(), linhas, atendidas, tarefas, tempoMs, String.format("%.1f", linhasPorSegundo));
+
+        return new ResultadoAlocacao(onda.getId(), linhas, atendidas, tarefas, tempoMs, linhasPorSegundo);
+    }
+
+    private static final class SaldoAlocavel {
+        private final SaldoDisponivel saldo;
+        private BigDecimal restante;
+        private BigDecimal reservado = BigDecimal.ZERO;
+
+        SaldoAlocavel(SaldoDisponivel saldo) {
+            this.saldo = saldo;
+            this.restante = saldo.disponivel();
+        }
+    }
+}
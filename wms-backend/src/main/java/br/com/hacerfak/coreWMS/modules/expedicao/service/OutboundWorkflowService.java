@@ -1,26 +1,22 @@
 package br.com.hacerfak.coreWMS.modules.expedicao.service;
 
 import br.com.hacerfak.coreWMS.core.domain.workflow.StatusSolicitacao;
-import br.com.hacerfak.coreWMS.core.domain.workflow.StatusTarefa;
 import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Parceiro;
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
 import br.com.hacerfak.coreWMS.modules.cadastro.repository.ParceiroRepository;
 import br.com.hacerfak.coreWMS.modules.cadastro.repository.ProdutoRepository;
-import br.com.hacerfak.coreWMS.modules.estoque.domain.EstoqueSaldo;
-import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoRepository;
 import br.com.hacerfak.coreWMS.modules.expedicao.domain.*;
 import br.com.hacerfak.coreWMS.modules.expedicao.dto.SolicitacaoSaidaRequest;
 import br.com.hacerfak.coreWMS.modules.expedicao.repository.*;
 import br.com.hacerfak.coreWMS.modules.expedicao.service.strategy.AlocacaoStrategy;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
-import jakarta.persistence.OptimisticLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -33,11 +29,10 @@ public class OutboundWorkflowService {
 
     private final SolicitacaoSaidaRepository solicitacaoRepository;
     private final OndaSeparacaoRepository ondaRepository;
-    private final TarefaSeparacaoRepository tarefaRepository;
-    private final EstoqueSaldoRepository saldoRepository;
     private final ParceiroRepository parceiroRepository;
     private final ProdutoRepository produtoRepository;
     private final VolumeExpedicaoRepository volumeRepository;
+    private final AlocacaoOndaService alocacaoService;
 
     // Injeta todas as estratégias disponíveis (Map<NomeDoBean, Instancia>)
     private final Map<String, AlocacaoStrategy> estrategias;
@@ -112,11 +107,11 @@ public class OutboundWorkflowService {
     }
 
     // 3. ALOCAÇÃO E GERAÇÃO DE TAREFAS
-    // Se der erro de concorrência (alguém mexeu no saldo milissegundos antes),
-    // o sistema espera 500ms e tenta de novo, até 3 vezes.
+    // A alocação é set-based (AlocacaoOndaService): custo fixo de round trips por
+    // onda. O retry só cobre quem alterar saldo fora do EstoqueLockService.
     @Transactional
-    @Retryable(retryFor = { OptimisticLockException.class }, maxAttempts = 3, backoff = @Backoff(delay = 500))
-    public void processarOnda(Long ondaId) {
+    @Retryable(retryFor = { OptimisticLockingFailureException.class }, maxAttempts = 3, backoff = @Backoff(delay = 20, multiplier = 2, random = true))
+    public AlocacaoOndaService.ResultadoAlocacao processarOnda(Long ondaId, String usuario) {
         OndaSeparacao onda = ondaRepository.findById(ondaId)
                 .orElseThrow(() -> new EntityNotFoundException("Onda não encontrada"));
 
@@ -127,52 +122,13 @@ public class OutboundWorkflowService {
         // Define estratégia (pode vir de config do sistema ou do cliente)
         AlocacaoStrategy strategy = estrategias.get("FEFO");
 
-        for (SolicitacaoSaida solicitacao : onda.getSolicitacoes()) {
-            for (ItemSolicitacaoSaida item : solicitacao.getItens()) {
-                BigDecimal qtdFaltante = item.getQuantidadeSolicitada().subtract(item.getQuantidadeAlocada());
-
-                if (qtdFaltante.compareTo(BigDecimal.ZERO) <= 0)
-                    continue;
-
-                // Usa a estratégia para achar estoques
-                List<EstoqueSaldo> saldos = strategy.buscarSaldosCandidatos(item.getProduto(), qtdFaltante);
-
-                for (EstoqueSaldo saldo : saldos) {
-                    if (qtdFaltante.compareTo(BigDecimal.ZERO) <= 0)
-                        break;
-
-                    BigDecimal disponivel = saldo.getQuantidade().subtract(saldo.getQuantidadeReservada());
-                    if (disponivel.compareTo(BigDecimal.ZERO) <= 0)
-                        continue;
-
-                    BigDecimal aReservar = disponivel.min(qtdFaltante);
-
-                    // A) Reserva no Saldo
-                    saldo.setQuantidadeReservada(saldo.getQuantidadeReservada().add(aReservar));
-                    saldoRepository.save(saldo);
-
-                    // B) Cria Tarefa de Picking para esta alocação específica
-                    TarefaSeparacao tarefa = TarefaSeparacao.builder()
-                            .onda(onda)
-                            .produto(item.getProduto())
-                            .origem(saldo.getLocalizacao()) // Onde o operador deve ir
-                            .loteSolicitado(saldo.getLote()) // O que ele deve pegar
-                            .quantidadePlanejada(aReservar)
-                            .build();
-
-                    tarefa.setStatus(StatusTarefa.PENDENTE);
-                    tarefaRepository.save(tarefa);
-
-                    // C) Atualiza Item
-                    item.setQuantidadeAlocada(item.getQuantidadeAlocada().add(aReservar));
-                    qtdFaltante = qtdFaltante.subtract(aReservar);
-                }
-            }
-        }
+        AlocacaoOndaService.ResultadoAlocacao resultado = alocacaoService.alocar(onda, strategy, usuario);
 
         onda.setStatus(StatusOnda.ALOCADA); // Ou EM_SEPARACAO se liberar direto
         onda.setDataLiberacao(LocalDateTime.now());
         ondaRepository.save(onda);
+
+        return resultado;
     }
 
     // --- MELHORIA 3: LÓGICA DE DESPACHO ---
@@ -2,7 +2,7 @@ package br.com.hacerfak.coreWMS.modules.expedicao.service;
 
 import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
-import br.com.hacerfak.coreWMS.modules.cadastro.repository.ProdutoRepository;
+import br.com.hacerfak.coreWMS.modules.cadastro.service.BarcodeResolver;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.Lpn;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.LpnRepository;
 import br.com.hacerfak.coreWMS.modules.expedicao.domain.*;
@@ -23,7 +23,7 @@ public class PackingService {
 
     private final SolicitacaoSaidaRepository solicitacaoRepository;
     private final VolumeExpedicaoRepository volumeRepository;
-    private final ProdutoRepository produtoRepository;
+    private final BarcodeResolver barcodeResolver;
     private final LpnRepository lpnRepository;
     private final ItemVolumeExpedicaoRepository itemVolumeRepository; // <--- Novo repositório injetado
 
@@ -61,7 +61,7 @@ public class PackingService {
             });
         } else {
             // Conferência Unitária (Item)
-            Produto produto = produtoRepository.findByCodigoBarras(codigoBipado)
+            Produto produto = barcodeResolver.resolverProduto(codigoBipado)
                     .orElseThrow(() -> new EntityNotFoundException("Código não identificado: " + codigoBipado));
 
             adicionarItemNoVolume(volume, produto, BigDecimal.ONE);
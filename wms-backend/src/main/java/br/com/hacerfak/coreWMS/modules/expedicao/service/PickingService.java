@@ -6,17 +6,23 @@ import br.com.hacerfak.coreWMS.modules.estoque.domain.EstoqueSaldo;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.Localizacao;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.StatusQualidade;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.TipoMovimento;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.MovimentoCommand;
+import br.com.hacerfak.coreWMS.modules.estoque.event.DisponibilidadeAlteradaEvent;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.LocalizacaoRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.service.EstoqueLockService;
 import br.com.hacerfak.coreWMS.modules.estoque.service.EstoqueService;
 import br.com.hacerfak.coreWMS.modules.expedicao.domain.TarefaSeparacao;
 import br.com.hacerfak.coreWMS.modules.expedicao.repository.TarefaSeparacaoRepository;
 import br.com.hacerfak.coreWMS.modules.inventario.service.InventarioService; // Integração com Bloco 2
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -27,6 +33,8 @@ public class PickingService {
         private final EstoqueSaldoRepository saldoRepository;
         private final LocalizacaoRepository localizacaoRepository;
         private final InventarioService inventarioService; // <--- Novo
+        private final EstoqueLockService lockService;
+        private final ApplicationEventPublisher eventPublisher;
 
         @Transactional
         public void confirmarSeparacao(Long tarefaId, Long localDestinoId, BigDecimal qtdConfirmada,
@@ -51,6 +59,12 @@ public class PickingService {
                 // Verifica se houve Corte (Short Pick)
                 boolean houveCorte = qtdExecutada.compareTo(tarefa.getQuantidadePlanejada()) < 0;
 
+                // Segura origem e destino antes de ler o saldo: a baixa da reserva e a
+                // movimentação física ficam atômicas em relação a outros operadores
+                lockService.bloquear(List.of(
+                                new EstoqueLockService.ChaveSaldo(tarefa.getProduto().getId(), tarefa.getOrigem().getId()),
+                                new EstoqueLockService.ChaveSaldo(tarefa.getProduto().getId(), destino.getId())));
+
                 // 1. Baixa a Reserva do Saldo na Origem
                 // (Temos que baixar a reserva TOTAL planejada, pois a tarefa vai morrer,
                 // seja ela atendida 100% ou com corte)
@@ -71,33 +85,36 @@ public class PickingService {
                 }
                 saldoOrigem.setQuantidadeReservada(saldoOrigem.getQuantidadeReservada().subtract(reservaParaRemover));
                 saldoRepository.save(saldoOrigem);
+                eventPublisher.publishEvent(
+                                new DisponibilidadeAlteradaEvent(Set.of(tarefa.getProduto().getId())));
 
                 // 2. Movimentação Física (SAÍDA da Origem) - Apenas o que foi PEGO
+                // 3. Entrada no Destino (Doca/Stage)
+                // Ambas em um único lote (mesma leitura de saldo, um batch de escrita)
                 if (qtdExecutada.compareTo(BigDecimal.ZERO) > 0) {
-                        estoqueService.movimentar(
-                                        tarefa.getProduto().getId(),
-                                        tarefa.getOrigem().getId(),
-                                        qtdExecutada,
-                                        null,
-                                        tarefa.getLoteSolicitado(),
-                                        null,
-                                        StatusQualidade.DISPONIVEL,
-                                        TipoMovimento.SAIDA,
-                                        usuarioResponsavel,
-                                        "Picking Onda " + tarefa.getOnda().getCodigo());
-
-                        // 3. Entrada no Destino (Doca/Stage)
-                        estoqueService.movimentar(
-                                        tarefa.getProduto().getId(),
-                                        destino.getId(),
-                                        qtdExecutada,
-                                        null,
-                                        tarefa.getLoteSolicitado(),
-                                        null,
-                                        StatusQualidade.DISPONIVEL,
-                                        TipoMovimento.ENTRADA,
-                                        usuarioResponsavel,
-                                        "Stage Onda " + tarefa.getOnda().getCodigo());
+                        estoqueService.movimentarLote(List.of(
+                                        new MovimentoCommand(
+                                                        tarefa.getProduto().getId(),
+                                                        tarefa.getOrigem().getId(),
+                                                        qtdExecutada,
+                                                        null,
+                                                        tarefa.getLoteSolicitado(),
+                                                        null,
+                                                        StatusQualidade.DISPONIVEL,
+                                                        TipoMovimento.SAIDA,
+                                                        usuarioResponsavel,
+                                                        "Picking Onda " + tarefa.getOnda().getCodigo()),
+                                        new MovimentoCommand(
+                                                        tarefa.getProduto().getId(),
+                                                        destino.getId(),
+                                                        qtdExecutada,
+                                                        null,
+                                                        tarefa.getLoteSolicitado(),
+                                                        null,
+                                                        StatusQualidade.DISPONIVEL,
+                                                        TipoMovimento.ENTRADA,
+                                                        usuarioResponsavel,
+                                                        "Stage Onda " + tarefa.getOnda().getCodigo())));
                 }
 
                 // 4. Tratamento de Exceção (Gatilho de Auditoria)
@@ -1,15 +1,23 @@
 package br.com.hacerfak.coreWMS.modules.expedicao.service.strategy;
 
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
-import br.com.hacerfak.coreWMS.modules.estoque.domain.EstoqueSaldo;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.SaldoDisponivel;
 
 import java.math.BigDecimal;
+import java.util.Comparator;
 import java.util.List;
 
 public interface AlocacaoStrategy {
     /**
      * Dado um produto e uma quantidade necessária, retorna a lista de saldos
      * ordenados pela regra de negócio (ex: Vence Primeiro Sai Primeiro).
+     * Os candidatos vêm do índice ATP em memória, não do banco.
      */
-    List<EstoqueSaldo> buscarSaldosCandidatos(Produto produto, BigDecimal quantidadeNecessaria);
-}
\ No newline at end of file
+    List<SaldoDisponivel> buscarSaldosCandidatos(Produto produto, BigDecimal quantidadeNecessaria);
+
+    /**
+     * Ordem de consumo da estratégia. Sempre termina no id do saldo para o
+     * desempate ser determinístico.
+     */
+    Comparator<SaldoDisponivel> ordem();
+}
@@ -1,24 +1,29 @@
 package br.com.hacerfak.coreWMS.modules.expedicao.service.strategy;
 
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
-import br.com.hacerfak.coreWMS.modules.estoque.domain.EstoqueSaldo;
-import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.SaldoDisponivel;
+import br.com.hacerfak.coreWMS.modules.estoque.service.AtpIndexService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.Comparator;
 import java.util.List;
 
 @Component("FEFO")
 @RequiredArgsConstructor
 public class FefoAllocationStrategy implements AlocacaoStrategy {
 
-    private final EstoqueSaldoRepository saldoRepository;
+    private final AtpIndexService atpIndex;
 
     @Override
-    public List<EstoqueSaldo> buscarSaldosCandidatos(Produto produto, BigDecimal quantidadeNecessaria) {
-        // Implementação do método que já criamos no repositório:
-        // Busca saldos onde (Qtd - Reservado) > 0, ordenado por data de validade ASC
-        return saldoRepository.buscarDisponiveisPorValidade(produto.getId());
+    public List<SaldoDisponivel> buscarSaldosCandidatos(Produto produto, BigDecimal quantidadeNecessaria) {
+        // O índice já guarda os saldos em ordem FEFO (validade ASC, sem validade no fim)
+        return atpIndex.candidatos(produto.getId());
     }
-}
\ No newline at end of file
+
+    @Override
+    public Comparator<SaldoDisponivel> ordem() {
+        return AtpIndexService.ORDEM_FEFO;
+    }
+}
@@ -1,22 +1,33 @@
 package br.com.hacerfak.coreWMS.modules.expedicao.service.strategy;
 
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
-import br.com.hacerfak.coreWMS.modules.estoque.domain.EstoqueSaldo;
-import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.SaldoDisponivel;
+import br.com.hacerfak.coreWMS.modules.estoque.service.AtpIndexService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.Comparator;
 import java.util.List;
 
 @Component("FIFO")
 @RequiredArgsConstructor
 public class FifoAllocationStrategy implements AlocacaoStrategy {
 
-    private final EstoqueSaldoRepository saldoRepository;
+    // O mais antigo sai primeiro
+    private static final Comparator<SaldoDisponivel> ORDEM = Comparator
+            .comparing(SaldoDisponivel::dataCriacao, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(SaldoDisponivel::saldoId);
+
+    private final AtpIndexService atpIndex;
+
+    @Override
+    public List<SaldoDisponivel> buscarSaldosCandidatos(Produto produto, BigDecimal quantidadeNecessaria) {
+        return atpIndex.candidatos(produto.getId()).stream().sorted(ORDEM).toList();
+    }
 
     @Override
-    public List<EstoqueSaldo> buscarSaldosCandidatos(Produto produto, BigDecimal quantidadeNecessaria) {
-        return saldoRepository.buscarDisponiveisPorAntiguidade(produto.getId());
+    public Comparator<SaldoDisponivel> ordem() {
+        return ORDEM;
     }
-}
\ No newline at end of file
+}
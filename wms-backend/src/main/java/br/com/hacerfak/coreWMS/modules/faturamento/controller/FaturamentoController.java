@@ -24,7 +24,7 @@ public class FaturamentoController {
      * Endpoint para lançar serviços manuais.
      */
     @PostMapping("/apontamento-manual")
-    @PreAuthorize("hasAuthority('FATURAMENTO_APONTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('FATURAMENTO_APONTAR')")
     public ResponseEntity<ApontamentoServico> apontarServico(
             @RequestParam Long clienteId,
             @RequestParam String codigoServico,
@@ -46,7 +46,7 @@ public class FaturamentoController {
      * Relatório/Extrato de Cobrança por período.
      */
     @GetMapping("/extrato")
-    @PreAuthorize("hasAuthority('FATURAMENTO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('FATURAMENTO_VISUALIZAR')")
     public ResponseEntity<ExtratoCobrancaDTO> gerarExtrato(
             @RequestParam Long clienteId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
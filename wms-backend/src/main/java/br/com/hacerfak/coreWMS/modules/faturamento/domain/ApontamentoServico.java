@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
 public class ApontamentoServico {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @Builder.Default
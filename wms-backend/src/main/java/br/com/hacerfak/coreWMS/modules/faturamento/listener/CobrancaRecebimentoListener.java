@@ -0,0 +1,57 @@
+package br.com.hacerfak.coreWMS.modules.faturamento.listener;
+
+import br.com.hacerfak.coreWMS.core.outbox.OutboxEventos;
+import br.com.hacerfak.coreWMS.core.outbox.OutboxHandler;
+import br.com.hacerfak.coreWMS.modules.faturamento.dto.FaturamentoEvent;
+import br.com.hacerfak.coreWMS.modules.faturamento.service.FaturamentoService;
+import br.com.hacerfak.coreWMS.modules.operacao.repository.SolicitacaoEntradaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Captura Recebimento (Entrada de Nota Fiscal)
+ * Cobra por DOCUMENTO (Nota Fiscal) recebido.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CobrancaRecebimentoListener implements OutboxHandler<FaturamentoEvent> {
+
+    private final FaturamentoService faturamentoService;
+    private final SolicitacaoEntradaRepository solicitacaoRepository;
+
+    @Override
+    public String evento() {
+        return OutboxEventos.ENTRADA_FINALIZADA;
+    }
+
+    @Override
+    public String nome() {
+        return "cobranca-recebimento-nf";
+    }
+
+    @Override
+    public Class<FaturamentoEvent> tipoPayload() {
+        return FaturamentoEvent.class;
+    }
+
+    @Override
+    public void processar(String chaveIdempotencia, FaturamentoEvent event) {
+        // No WMS 3PL, geralmente cobramos do cliente dono da mercadoria, não do
+        // fornecedor que entregou. Como no MVP a capa da entrada só tem
+        // "Fornecedor", cobra dele (cenário de logística reversa) ou ignora se
+        // for compra própria.
+        solicitacaoRepository.findById(event.solicitacaoId()).ifPresentOrElse(solicitacao -> {
+            if (solicitacao.getFornecedor() != null) {
+                faturamentoService.registrarCobrancaAutomaticaNaTransacao(
+                        solicitacao.getFornecedor(),
+                        "RECEBIMENTO_NF",
+                        BigDecimal.ONE, // 1 Nota Fiscal
+                        "Recebimento NF " + solicitacao.getNotaFiscal());
+            }
+        }, () -> log.warn("Solicitação {} não encontrada para cobrança do recebimento", event.solicitacaoId()));
+    }
+}
@@ -33,6 +33,16 @@ public class FaturamentoService {
         @Transactional(propagation = Propagation.REQUIRES_NEW)
         public void registrarCobrancaAutomatica(Parceiro cliente, String codigoServico, BigDecimal quantidade,
                         String referencia) {
+                registrarCobrancaAutomaticaNaTransacao(cliente, codigoServico, quantidade, referencia);
+        }
+
+        /**
+         * Mesma cobrança, na transação de quem chama. Usada pelos handlers do
+         * outbox: o apontamento commita junto com a baixa do evento.
+         */
+        @Transactional
+        public void registrarCobrancaAutomaticaNaTransacao(Parceiro cliente, String codigoServico,
+                        BigDecimal quantidade, String referencia) {
                 if (cliente == null)
                         return;
 
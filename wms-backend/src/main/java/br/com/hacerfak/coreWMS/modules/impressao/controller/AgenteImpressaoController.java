@@ -24,7 +24,7 @@ public class AgenteImpressaoController {
     private final AgenteImpressaoRepository repository;
 
     @GetMapping
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<List<AgenteResponse>> listar() {
         List<AgenteResponse> lista = repository.findAll().stream()
                 .map(this::toResponse)
@@ -33,7 +33,7 @@ public class AgenteImpressaoController {
     }
 
     @PostMapping
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<AgenteResponse> criar(@RequestBody @Valid AgenteRequest request) {
         AgenteImpressao agente = service.criarAgente(request);
         return ResponseEntity.ok(toResponse(agente));
@@ -41,7 +41,7 @@ public class AgenteImpressaoController {
 
     // --- NOVO: EDIÇÃO ---
     @PutMapping("/{id}")
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<AgenteResponse> atualizar(
             @PathVariable Long id,
             @RequestBody @Valid AgenteRequest request,
@@ -53,7 +53,7 @@ public class AgenteImpressaoController {
 
     // --- AJUSTE: EXCLUSÃO REAL ---
     @DeleteMapping("/{id}")
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<Void> excluir(@PathVariable Long id) {
         service.excluirAgente(id); // Agora chama o método que faz deleteById
         return ResponseEntity.noContent().build();
@@ -18,13 +18,13 @@ public class EtiquetaTemplateController {
     private final EtiquetaTemplateRepository templateRepository;
 
     @GetMapping
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<List<EtiquetaTemplate>> listar() {
         return ResponseEntity.ok(templateRepository.findAll());
     }
 
     @PostMapping
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<EtiquetaTemplate> criar(@RequestBody EtiquetaTemplate template) {
         if (template.isPadrao()) {
             desmarcarOutrosPadroes(template);
@@ -33,7 +33,7 @@ public class EtiquetaTemplateController {
     }
 
     @PutMapping("/{id}")
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<EtiquetaTemplate> atualizar(@PathVariable Long id, @RequestBody EtiquetaTemplate dto) {
         EtiquetaTemplate template = templateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Template não encontrado"));
@@ -56,7 +56,7 @@ public class EtiquetaTemplateController {
     }
 
     @DeleteMapping("/{id}")
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<Void> deletar(@PathVariable Long id) {
         if (!templateRepository.existsById(id)) {
             throw new EntityNotFoundException("Template não encontrado");
@@ -4,7 +4,7 @@ import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
 import br.com.hacerfak.coreWMS.modules.impressao.domain.FilaImpressao;
 import br.com.hacerfak.coreWMS.modules.impressao.domain.StatusImpressao;
 import br.com.hacerfak.coreWMS.modules.impressao.dto.PrintJobDTO;
-import br.com.hacerfak.coreWMS.modules.impressao.repository.AgenteImpressaoRepository;
+import br.com.hacerfak.coreWMS.modules.impressao.service.AgenteImpressaoService;
 import br.com.hacerfak.coreWMS.modules.impressao.repository.FilaImpressaoRepository;
 import br.com.hacerfak.coreWMS.modules.impressao.service.ImpressaoService;
 import lombok.RequiredArgsConstructor;
@@ -28,12 +28,12 @@ public class FilaImpressaoController {
     private final ImpressaoService impressaoService;
     private final FilaImpressaoRepository filaRepository;
     private final StringRedisTemplate redisTemplate;
-    private final AgenteImpressaoRepository agenteRepository;
+    private final AgenteImpressaoService agenteService;
 
     // --- MÉTODOS PARA O FRONTEND (HUMANOS) ---
 
     @GetMapping
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<Page<FilaImpressao>> listarFila(
             @PageableDefault(size = 20, sort = "id", direction = org.springframework.data.domain.Sort.Direction.DESC) Pageable pageable) {
         Page<FilaImpressao> page = filaRepository.findAll(pageable);
@@ -56,7 +56,7 @@ public class FilaImpressaoController {
             @RequestHeader(value = "X-Agent-Key", required = false) String apiKey) {
 
         // 1. Validação de Segurança
-        if (apiKey == null || !agenteRepository.findByApiKeyAndAtivoTrue(apiKey).isPresent()) {
+        if (apiKey == null || agenteService.autenticar(apiKey).isEmpty()) {
             return ResponseEntity.status(403).build();
         }
 
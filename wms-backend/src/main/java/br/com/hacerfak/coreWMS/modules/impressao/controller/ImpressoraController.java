@@ -22,19 +22,19 @@ public class ImpressoraController {
     private final ImpressaoService impressaoService;
 
     @GetMapping
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<List<Impressora>> listar() {
         return ResponseEntity.ok(impressoraRepository.findAll());
     }
 
     @PostMapping
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<Impressora> criar(@RequestBody @Valid ImpressoraRequest dto) {
         return ResponseEntity.ok(impressaoService.cadastrarImpressora(dto));
     }
 
     @PostMapping("/{id}/teste")
-    @PreAuthorize("hasAuthority('CONFIG_SISTEMA') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_SISTEMA')")
     public ResponseEntity<Void> testarImpressao(@PathVariable Long id) {
         // ZPL Simples de Teste
         String zplTeste = "^XA^FO50,50^ADN,36,20^FDTESTE DE CONEXAO^FS^FO50,100^ADN,18,10^FD" +
@@ -17,7 +17,7 @@ import java.time.LocalDateTime;
 public class FilaImpressao {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @Builder.Default
@@ -0,0 +1,7 @@
+package br.com.hacerfak.coreWMS.modules.impressao.dto;
+
+import java.io.Serializable;
+
+// O que a autenticação do agente precisa, guardado no cache "agentes-credenciais"
+public record CredencialAgente(Long id, String nome) implements Serializable {
+}
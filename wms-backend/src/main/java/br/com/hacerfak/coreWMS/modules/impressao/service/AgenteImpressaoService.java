@@ -1,22 +1,49 @@
 package br.com.hacerfak.coreWMS.modules.impressao.service;
 
 import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
 import br.com.hacerfak.coreWMS.modules.impressao.domain.AgenteImpressao;
 import br.com.hacerfak.coreWMS.modules.impressao.dto.AgenteRequest;
+import br.com.hacerfak.coreWMS.modules.impressao.dto.CredencialAgente;
 import br.com.hacerfak.coreWMS.modules.impressao.repository.AgenteImpressaoRepository;
-import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-@RequiredArgsConstructor
 public class AgenteImpressaoService {
 
+    // Chave = SHA-256 da API key (a chave em texto nunca vai para o cache/Redis)
+    static final String CACHE_CREDENCIAIS = "agentes-credenciais";
+
     private final AgenteImpressaoRepository repository;
+    private final CacheManager cacheManager;
+    private final long intervaloHeartbeatMs;
+
+    // Último heartbeat gravado por este nó ("tenant:id" -> instante e versão)
+    private final Map<String, HeartbeatGravado> heartbeats = new ConcurrentHashMap<>();
+
+    public AgenteImpressaoService(AgenteImpressaoRepository repository, CacheManager cacheManager,
+            @Value("${wms.impressao.agente.heartbeat-intervalo-segundos:300}") long intervaloHeartbeatSegundos) {
+        this.repository = repository;
+        this.cacheManager = cacheManager;
+        this.intervaloHeartbeatMs = intervaloHeartbeatSegundos * 1000;
+    }
 
     @Transactional
     public AgenteImpressao criarAgente(AgenteRequest request) {
@@ -35,12 +62,13 @@ public class AgenteImpressaoService {
                 .ativo(true)
                 .build();
 
-        return repository.save(agente);
+        AgenteImpressao salvo = repository.save(agente);
+        removerCredencialNoCommit(apiKey);
+        return salvo;
     }
 
     // --- NOVA FUNCIONALIDADE: EDIÇÃO ---
     @Transactional
-    @CacheEvict(value = "agentes-key", allEntries = true) // Limpa cache pois pode mudar status/chave
     public AgenteImpressao atualizarAgente(Long id, AgenteRequest request, Boolean ativo) {
         AgenteImpressao agente = repository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Agente não encontrado"));
@@ -58,30 +86,110 @@ public class AgenteImpressaoService {
             agente.setAtivo(ativo);
         }
 
+        // Nome e status ficam na credencial em cache
+        removerCredencialNoCommit(agente.getApiKey());
         return repository.save(agente);
     }
 
     // --- CORREÇÃO: EXCLUSÃO REAL (HARD DELETE) ---
     @Transactional
-    @CacheEvict(value = "agentes-key", allEntries = true)
     public void excluirAgente(Long id) {
-        if (!repository.existsById(id)) {
-            throw new EntityNotFoundException("Agente não encontrado");
+        AgenteImpressao agente = repository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Agente não encontrado"));
+        repository.delete(agente);
+        removerCredencialNoCommit(agente.getApiKey());
+        heartbeats.remove(TenantContext.getTenant() + ":" + id);
+    }
+
+    // --- AUTENTICAÇÃO DO AGENTE ---
+
+    /**
+     * Credencial do agente ativo dono da chave, no tenant corrente. Vem do
+     * cache (L1 em memória, L2 Redis) e só vai ao banco na primeira chamada
+     * ou depois de uma alteração do agente.
+     */
+    public Optional<CredencialAgente> autenticar(String apiKey) {
+        Cache cache = cacheManager.getCache(CACHE_CREDENCIAIS);
+        String hash = hash(apiKey);
+
+        CredencialAgente credencial = cache.get(hash, CredencialAgente.class);
+        if (credencial == null) {
+            // Chave inválida não é cacheada (o cache não guarda nulos)
+            credencial = repository.findByApiKeyAndAtivoTrue(apiKey)
+                    .map(a -> new CredencialAgente(a.getId(), a.getNome()))
+                    .orElse(null);
+            if (credencial != null)
+                cache.put(hash, credencial);
         }
-        repository.deleteById(id);
+        return Optional.ofNullable(credencial);
     }
 
-    // Método chamado pelo Filtro para registrar heartbeat (sem transaction pesada)
-    @Transactional
-    public void registrarHeartbeat(AgenteImpressao agente, String versao) {
-        LocalDateTime agora = LocalDateTime.now();
-        // Otimização: Só atualiza no banco se passou mais de 15 min para não spammar
-        // update
-        if (agente.getUltimoHeartbeat() == null ||
-                agente.getUltimoHeartbeat().isBefore(java.time.LocalDateTime.now().minusMinutes(15))) {
-
-            String versaoFinal = (versao != null && !versao.isBlank()) ? versao : "1.0.0";
-            repository.registrarHeartbeatSemAuditoria(agente.getId(), agora, versaoFinal);
+    /**
+     * Chamado a cada requisição do agente (long-poll, concluir, erro). Só
+     * grava quando o último heartbeat gravado por este nó tem mais que o
+     * intervalo configurado ou quando a versão do agente muda; as demais
+     * chamadas não tocam no banco.
+     */
+    public void registrarHeartbeat(CredencialAgente agente, String versao) {
+        String versaoFinal = (versao != null && !versao.isBlank()) ? versao : "1.0.0";
+        String chave = TenantContext.getTenant() + ":" + agente.id();
+        long agora = System.currentTimeMillis();
+
+        boolean[] gravar = new boolean[1];
+        heartbeats.compute(chave, (k, anterior) -> {
+            if (anterior != null && agora - anterior.instante() < intervaloHeartbeatMs
+                    && anterior.versao().equals(versaoFinal))
+                return anterior;
+            gravar[0] = true;
+            return new HeartbeatGravado(agora, versaoFinal);
+        });
+
+        if (gravar[0]) {
+            try {
+                repository.registrarHeartbeatSemAuditoria(agente.id(), LocalDateTime.now(), versaoFinal);
+            } catch (RuntimeException e) {
+                // Próxima chamada tenta de novo
+                heartbeats.remove(chave);
+                throw e;
+            }
         }
     }
-}
\ No newline at end of file
+
+    private void removerCredencialNoCommit(String apiKey) {
+        // Depois do commit: antes dele, outra requisição poderia recachear o estado antigo
+        String hash = hash(apiKey);
+        String tenant = TenantContext.getTenant();
+        Runnable remover = () -> {
+            String tenantAtual = TenantContext.getTenant();
+            TenantContext.setTenant(tenant);
+            try {
+                Objects.requireNonNull(cacheManager.getCache(CACHE_CREDENCIAIS)).evict(hash);
+            } finally {
+                TenantContext.setTenant(tenantAtual);
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remover.run();
+                }
+            });
+        } else {
+            remover.run();
+        }
+    }
+
+    private static String hash(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private record HeartbeatGravado(long instante, String versao) {
+    }
+}
@@ -26,13 +26,13 @@ public class InventarioController {
 
     // --- GESTÃO ---
     @PostMapping
-    @PreAuthorize("hasAuthority('INVENTARIO_CRIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('INVENTARIO_CRIAR')")
     public ResponseEntity<Inventario> criar(@RequestBody @Valid InventarioRequest dto) {
         return ResponseEntity.ok(inventarioService.criarInventario(dto));
     }
 
     @PostMapping("/{id}/finalizar")
-    @PreAuthorize("hasAuthority('INVENTARIO_APROVAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('INVENTARIO_APROVAR')")
     public ResponseEntity<Void> finalizar(@PathVariable Long id, Authentication auth) {
         inventarioService.finalizarInventario(id, auth.getName());
         return ResponseEntity.ok().build();
@@ -40,13 +40,13 @@ public class InventarioController {
 
     // --- COLETOR ---
     @GetMapping("/tarefas")
-    @PreAuthorize("hasAuthority('INVENTARIO_CONTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('INVENTARIO_CONTAR')")
     public ResponseEntity<List<TarefaContagem>> listarTarefasPendentes() {
         return ResponseEntity.ok(tarefaRepository.findByStatus(StatusTarefa.PENDENTE));
     }
 
     @PostMapping("/tarefas/{id}/contar")
-    @PreAuthorize("hasAuthority('INVENTARIO_CONTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('INVENTARIO_CONTAR')")
     public ResponseEntity<Void> registrarContagem(
             @PathVariable Long id,
             @RequestBody @Valid ContagemRequest dto,
@@ -7,6 +7,8 @@ import br.com.hacerfak.coreWMS.modules.cadastro.repository.ProdutoRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.Localizacao;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.StatusQualidade;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.TipoMovimento;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.MovimentoCommand;
+import br.com.hacerfak.coreWMS.modules.estoque.event.DisponibilidadeAlteradaEvent;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.LocalizacaoRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.service.EstoqueService;
@@ -15,12 +17,15 @@ import br.com.hacerfak.coreWMS.modules.inventario.dto.InventarioRequest;
 import br.com.hacerfak.coreWMS.modules.inventario.repository.InventarioRepository;
 import br.com.hacerfak.coreWMS.modules.inventario.repository.TarefaContagemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Service
@@ -33,6 +38,7 @@ public class InventarioService {
     private final ProdutoRepository produtoRepository;
     private final EstoqueService estoqueService;
     private final EstoqueSaldoRepository saldoRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public Inventario criarInventario(InventarioRequest dto) {
@@ -78,6 +84,7 @@ public class InventarioService {
             loc.setBloqueado(true);
             loc.setMotivoBloqueio("Inventário em Andamento (ID: " + inv.getId() + ")");
             localizacaoRepository.save(loc);
+            eventPublisher.publishEvent(DisponibilidadeAlteradaEvent.todos());
         }
         // ---------------------------------------
 
@@ -126,6 +133,7 @@ public class InventarioService {
                 .orElseThrow(() -> new EntityNotFoundException("Inventário não encontrado"));
 
         Set<Long> locaisParaDesbloquear = new HashSet<>();
+        List<MovimentoCommand> ajustes = new ArrayList<>();
 
         for (TarefaContagem tarefa : inventario.getTarefas()) {
             locaisParaDesbloquear.add(tarefa.getLocalizacao().getId());
@@ -145,7 +153,7 @@ public class InventarioService {
             if (diferenca.compareTo(BigDecimal.ZERO) != 0) {
                 tarefa.setDivergente(true);
                 if (tarefa.getProdutoFoco() != null) {
-                    estoqueService.movimentar(
+                    ajustes.add(new MovimentoCommand(
                             tarefa.getProdutoFoco().getId(),
                             tarefa.getLocalizacao().getId(),
                             diferenca.abs(),
@@ -154,11 +162,14 @@ public class InventarioService {
                             diferenca.compareTo(BigDecimal.ZERO) > 0 ? TipoMovimento.AJUSTE_POSITIVO
                                     : TipoMovimento.AJUSTE_NEGATIVO,
                             usuario,
-                            "Inventário " + inventario.getId());
+                            "Inventário " + inventario.getId()));
                 }
             }
         }
 
+        // Todos os ajustes do inventário em um único lote
+        estoqueService.movimentarLote(ajustes);
+
         // --- MELHORIA 1: DESBLOQUEIO AUTOMÁTICO ---
         for (Long locId : locaisParaDesbloquear) {
             localizacaoRepository.findById(locId).ifPresent(loc -> {
@@ -170,6 +181,9 @@ public class InventarioService {
             });
         }
         // ------------------------------------------
+        if (!locaisParaDesbloquear.isEmpty()) {
+            eventPublisher.publishEvent(DisponibilidadeAlteradaEvent.todos());
+        }
 
         inventario.setStatus(StatusInventario.FINALIZADO);
         inventarioRepository.save(inventario);
@@ -22,7 +22,7 @@ public class DivergenciaController {
 
     // Listar divergências pendentes (Status PENDENTE)
     @GetMapping
-    @PreAuthorize("hasAuthority('RECEBIMENTO_FINALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_FINALIZAR')")
     public ResponseEntity<List<TarefaDivergencia>> listarPendentes() {
         // Você pode criar um método no repository: findByStatus(StatusTarefa.PENDENTE)
         // Ou filtrar no stream se for pouco volume, mas repository é melhor.
@@ -33,7 +33,7 @@ public class DivergenciaController {
 
     // Resolver Divergência (Aprovar/Aceitar a diferença)
     @PostMapping("/{id}/resolver")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_FINALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_FINALIZAR')")
     public ResponseEntity<Void> resolver(
             @PathVariable Long id,
             @RequestParam boolean aceitar,
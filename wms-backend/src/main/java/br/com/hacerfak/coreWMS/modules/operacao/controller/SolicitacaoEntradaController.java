@@ -5,11 +5,13 @@ import br.com.hacerfak.coreWMS.modules.operacao.domain.SolicitacaoEntrada;
 import br.com.hacerfak.coreWMS.modules.operacao.domain.TarefaConferencia;
 import br.com.hacerfak.coreWMS.modules.operacao.dto.GerarLpnMassaRequest;
 import br.com.hacerfak.coreWMS.modules.operacao.dto.ProgressoRecebimentoDTO;
+import br.com.hacerfak.coreWMS.modules.operacao.dto.ResultadoImportacaoNfe;
 import br.com.hacerfak.coreWMS.modules.operacao.dto.SolicitacaoEntradaResumoDTO;
 import br.com.hacerfak.coreWMS.modules.operacao.repository.SolicitacaoEntradaRepository;
 import br.com.hacerfak.coreWMS.modules.operacao.repository.TarefaConferenciaRepository;
 import br.com.hacerfak.coreWMS.modules.operacao.service.RecebimentoWorkflowService;
 import br.com.hacerfak.coreWMS.modules.operacao.service.NfeImportService;
+import br.com.hacerfak.coreWMS.modules.operacao.service.NfeImportacaoLoteService;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.Lpn;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -31,19 +33,20 @@ public class SolicitacaoEntradaController {
     private final TarefaConferenciaRepository tarefaRepository;
     private final RecebimentoWorkflowService inboundWorkflowService;
     private final NfeImportService nfeImportService;
+    private final NfeImportacaoLoteService nfeImportacaoLoteService;
 
     // ========================================================================
     // 1. GESTÃO (Visão do Gerente/Painel)
     // ========================================================================
 
     @GetMapping
-    @PreAuthorize("hasAuthority('RECEBIMENTO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_VISUALIZAR')")
     public ResponseEntity<List<SolicitacaoEntradaResumoDTO>> listar() {
         return ResponseEntity.ok(solicitacaoRepository.findAllResumo());
     }
 
     @GetMapping("/{id}")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_VISUALIZAR')")
     public ResponseEntity<SolicitacaoEntrada> buscarPorId(@PathVariable Long id) {
         return solicitacaoRepository.findById(id)
                 .map(ResponseEntity::ok)
@@ -55,12 +58,20 @@ public class SolicitacaoEntradaController {
     // ========================================================================
 
     @PostMapping(value = "/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @PreAuthorize("hasAuthority('RECEBIMENTO_IMPORTAR_XML') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_IMPORTAR_XML')")
     public ResponseEntity<SolicitacaoEntrada> importarNfe(@RequestParam("file") MultipartFile file) {
         // O Service já devolve a solicitação criada com status e tarefas iniciais
         return ResponseEntity.ok(nfeImportService.importarXml(file, ""));
     }
 
+    // Vários XMLs e/ou ZIPs de uma vez; devolve o resultado de cada nota
+    @PostMapping(value = "/importar-lote", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasPermission('RECEBIMENTO_IMPORTAR_XML')")
+    public ResponseEntity<ResultadoImportacaoNfe> importarNfeLote(@RequestParam("files") List<MultipartFile> files,
+            Authentication authentication) {
+        return ResponseEntity.ok(nfeImportacaoLoteService.importarLote(files, authentication.getName()));
+    }
+
     // ========================================================================
     // 3. OPERAÇÃO (Visão do Operador/Coletor)
     // ========================================================================
@@ -70,7 +81,7 @@ public class SolicitacaoEntradaController {
      * Útil para o operador selecionar o que vai trabalhar.
      */
     @GetMapping("/tarefas/pendentes")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_CONFERIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_CONFERIR')")
     public ResponseEntity<List<TarefaConferencia>> listarTarefasPendentes(
             Authentication auth,
             @RequestParam(required = false) Boolean somenteMinhas,
@@ -95,7 +106,7 @@ public class SolicitacaoEntradaController {
      * Endpoint para o COLETOR: Assumir/Iniciar uma tarefa específica.
      */
     @PostMapping("/tarefas/{tarefaId}/iniciar")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_CONFERIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_CONFERIR')")
     public ResponseEntity<Void> iniciarTarefa(@PathVariable Long tarefaId, Authentication auth) {
         TarefaConferencia tarefa = tarefaRepository.findById(tarefaId)
                 .orElseThrow(() -> new RuntimeException("Tarefa não encontrada"));
@@ -107,7 +118,7 @@ public class SolicitacaoEntradaController {
     }
 
     @PostMapping("/{id}/conferencia-massa")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_CONFERIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_CONFERIR')")
     public ResponseEntity<List<String>> conferenciaEmMassa(
             @PathVariable Long id,
             @RequestBody @Valid GerarLpnMassaRequest dto,
@@ -126,13 +137,13 @@ public class SolicitacaoEntradaController {
     // --- GESTÃO DE LPNs NA CONFERÊNCIA ---
 
     @GetMapping("/{id}/lpns")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_VISUALIZAR')")
     public ResponseEntity<List<Lpn>> listarLpnsDaSolicitacao(@PathVariable Long id) {
         return ResponseEntity.ok(inboundWorkflowService.listarLpnsPorSolicitacao(id));
     }
 
     @DeleteMapping("/{id}/lpns/{lpnId}")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_CONFERIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_CONFERIR')")
     public ResponseEntity<Void> estornarLpn(
             @PathVariable Long id,
             @PathVariable Long lpnId,
@@ -148,14 +159,14 @@ public class SolicitacaoEntradaController {
     }
 
     @GetMapping("/{id}/config-conferencia")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_VISUALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_VISUALIZAR')")
     public ResponseEntity<Boolean> consultarConfigConferencia(@PathVariable Long id) {
         boolean isCega = inboundWorkflowService.isConferenciaCega(id);
         return ResponseEntity.ok(isCega);
     }
 
     @PostMapping("/{id}/finalizar")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_FINALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_FINALIZAR')")
     public ResponseEntity<Void> finalizar(@PathVariable Long id, @RequestParam Long stageId, Authentication auth) {
         // Busca a tarefa de conferência pendente/em execução desta solicitação
         // Como simplificação, pegamos a primeira ativa (já que a relação é 1:N mas o
@@ -174,7 +185,7 @@ public class SolicitacaoEntradaController {
     }
 
     @PostMapping("/{id}/cancelar")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_CANCELAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_CANCELAR')")
     public ResponseEntity<Void> cancelar(@PathVariable Long id, Authentication auth) {
         // CORREÇÃO: Chamada do serviço implementada
         inboundWorkflowService.cancelarRecebimento(id, auth.getName());
@@ -182,21 +193,21 @@ public class SolicitacaoEntradaController {
     }
 
     @PutMapping("/{id}/atribuir-doca")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_EDITAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_EDITAR')")
     public ResponseEntity<Void> atribuirDoca(@PathVariable Long id, @RequestParam Long docaId) {
         inboundWorkflowService.vincularDoca(id, docaId);
         return ResponseEntity.ok().build();
     }
 
     @PostMapping("/{id}/resetar")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_CONFERIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_CONFERIR')")
     public ResponseEntity<Void> resetarConferencia(@PathVariable Long id, Authentication auth) {
         inboundWorkflowService.resetarConferencia(id, auth.getName());
         return ResponseEntity.ok().build();
     }
 
     @DeleteMapping("/{id}")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_EXCLUIR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_EXCLUIR')")
     public ResponseEntity<Void> excluirSolicitacao(@PathVariable Long id, Authentication auth) {
         inboundWorkflowService.excluirSolicitacao(id, auth.getName());
         return ResponseEntity.noContent().build();
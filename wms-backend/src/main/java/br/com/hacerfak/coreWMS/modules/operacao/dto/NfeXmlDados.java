@@ -0,0 +1,49 @@
+package br.com.hacerfak.coreWMS.modules.operacao.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * O que o WMS usa de um XML de NF-e, lido em uma única passada pelo
+ * NfeXmlParser. Campos ausentes no XML ficam nulos.
+ */
+public record NfeXmlDados(
+        String chaveAcesso,
+        String numero,
+        LocalDateTime dataEmissao,
+        Emitente emitente,
+        Transportadora transportadora, // Nulo se a nota não tiver <transporta>
+        List<Item> itens) {
+
+    public record Emitente(
+            String cpfCnpj,
+            String nome,
+            String nomeFantasia,
+            String ie,
+            String crt,
+            String logradouro,
+            String numero,
+            String bairro,
+            String cidade,
+            String uf,
+            String cep,
+            String telefone) {
+    }
+
+    public record Transportadora(
+            String cpfCnpj,
+            String nome) {
+    }
+
+    public record Item(
+            String sku,
+            String nome,
+            String ean,
+            String ncm,
+            String cest,
+            String unidade,
+            BigDecimal quantidade,
+            BigDecimal valorUnitario) {
+    }
+}
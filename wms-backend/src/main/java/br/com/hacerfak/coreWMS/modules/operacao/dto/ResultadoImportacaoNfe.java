@@ -0,0 +1,29 @@
+package br.com.hacerfak.coreWMS.modules.operacao.dto;
+
+import java.util.List;
+
+/**
+ * Relatório da importação em lote: uma linha por XML recebido (solto ou dentro
+ * de ZIP), na ordem de envio.
+ */
+public record ResultadoImportacaoNfe(
+        int total,
+        int importadas,
+        int duplicadas,
+        int erros,
+        long tempoMs,
+        List<Arquivo> arquivos) {
+
+    public enum Status {
+        IMPORTADA, DUPLICADA, ERRO
+    }
+
+    public record Arquivo(
+            String nome, // "lote.zip!/nota1.xml" para entradas de ZIP
+            Status status,
+            String chaveAcesso,
+            String notaFiscal,
+            Long solicitacaoId,
+            String mensagem) {
+    }
+}
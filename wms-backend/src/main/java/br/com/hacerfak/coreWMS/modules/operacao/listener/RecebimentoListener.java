@@ -1,6 +1,6 @@
 package br.com.hacerfak.coreWMS.modules.operacao.listener;
 
-import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.core.async.LimiteConcorrencia;
 import br.com.hacerfak.coreWMS.modules.operacao.event.EntradaCriadaEvent;
 import br.com.hacerfak.coreWMS.modules.operacao.service.RecebimentoWorkflowService;
 import lombok.RequiredArgsConstructor;
@@ -18,19 +18,16 @@ public class RecebimentoListener {
     private final RecebimentoWorkflowService workflowService;
 
     // Escuta após o commit do banco para garantir que o ID existe
-    @Async // Executa em thread separada
+    @Async // Executa em thread separada (tenant propagado pelo ContextoTaskDecorator)
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @LimiteConcorrencia(nome = "recebimento-inicio", padrao = 4)
     public void handleSolicitacaoCriada(EntradaCriadaEvent event) {
-        // Em threads async, precisamos setar o Tenant manualmente
-        TenantContext.setTenant(event.tenantId());
         try {
             log.info("Iniciando processamento assíncrono da Entrada #{}", event.solicitacaoId());
             workflowService.processarInicioEntrada(event.solicitacaoId());
         } catch (Exception e) {
             log.error("Erro no processamento async da entrada {}", event.solicitacaoId(), e);
             // Em produção: aqui implementaria uma lógica de Retry ou Dead Letter Queue
-        } finally {
-            TenantContext.clear();
         }
     }
 }
\ No newline at end of file
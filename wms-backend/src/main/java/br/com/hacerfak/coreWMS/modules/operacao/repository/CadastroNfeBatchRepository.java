@@ -0,0 +1,212 @@
+package br.com.hacerfak.coreWMS.modules.operacao.repository;
+
+import br.com.hacerfak.coreWMS.core.util.IdsPooledLo;
+import br.com.hacerfak.coreWMS.modules.operacao.dto.NfeXmlDados;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upsert set-based dos cadastros que vêm da NF-e (emitente e produtos).
+ * Usado pela importação em lote: cada bloco de até TAMANHO_BLOCO registros é
+ * um único INSERT ... SELECT FROM unnest(...) ON CONFLICT ... RETURNING, em vez
+ * de um find + save por registro.
+ *
+ * As listas recebidas não podem repetir a chave (o Postgres recusa atualizar a
+ * mesma linha duas vezes no mesmo comando): quem chama deduplica antes.
+ * Participa da transação corrente (mesmo DataSource roteado por tenant).
+ *
+ * Fora do Hibernate: não gera auditoria nem passa pelo ProdutoIndiceListener.
+ * Depois do commit, quem chama invalida o cache "produtos" e o índice de
+ * códigos (BarcodeResolver.invalidar) com os ids devolvidos.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CadastroNfeBatchRepository {
+
+    public record ProdutoNfe(Long depositanteId, NfeXmlDados.Item item) {
+    }
+
+    public record ChaveProduto(Long depositanteId, String sku) {
+    }
+
+    private static final int TAMANHO_BLOCO = 1000;
+
+    // Novo parceiro entra como AMBOS/ativo/sem recebimento cego (mesmo default
+    // da importação unitária); existente só tem os dados fiscais atualizados
+    private static final String SQL_UPSERT_PARCEIRO = """
+            INSERT INTO tb_parceiro (
+                id, cpf_cnpj, nome, nome_fantasia, ie, crt,
+                logradouro, numero, bairro, cidade, uf, cep, telefone,
+                tipo, ativo, recebimento_cego,
+                criado_por, atualizado_por, data_criacao, data_atualizacao)
+            SELECT u.id, u.cpf_cnpj, u.nome, u.nome_fantasia, u.ie, u.crt,
+                   u.logradouro, u.numero, u.bairro, u.cidade, u.uf, u.cep, u.telefone,
+                   'AMBOS', true, false, ?, ?, ?, ?
+            FROM unnest(?::bigint[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[],
+                        ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[],
+                        ?::varchar[], ?::varchar[])
+                 AS u(id, cpf_cnpj, nome, nome_fantasia, ie, crt,
+                      logradouro, numero, bairro, cidade, uf, cep, telefone)
+            ON CONFLICT (cpf_cnpj) DO UPDATE SET
+                nome = EXCLUDED.nome,
+                nome_fantasia = EXCLUDED.nome_fantasia,
+                ie = EXCLUDED.ie,
+                crt = EXCLUDED.crt,
+                logradouro = EXCLUDED.logradouro,
+                numero = EXCLUDED.numero,
+                bairro = EXCLUDED.bairro,
+                cidade = EXCLUDED.cidade,
+                uf = EXCLUDED.uf,
+                cep = EXCLUDED.cep,
+                telefone = EXCLUDED.telefone,
+                atualizado_por = EXCLUDED.atualizado_por,
+                data_atualizacao = EXCLUDED.data_atualizacao
+            RETURNING id, cpf_cnpj
+            """;
+
+    private static final String SQL_UPSERT_PRODUTO = """
+            INSERT INTO tb_produto (
+                id, sku, depositante_id, nome, ean13, ncm, cest, unidade_medida, valor_unitario_padrao,
+                ativo, criado_por, atualizado_por, data_criacao, data_atualizacao)
+            SELECT u.id, u.sku, u.depositante_id, u.nome, u.ean13, u.ncm, u.cest, u.unidade_medida,
+                   u.valor_unitario_padrao, true, ?, ?, ?, ?
+            FROM unnest(?::bigint[], ?::varchar[], ?::bigint[], ?::varchar[], ?::varchar[], ?::varchar[],
+                        ?::varchar[], ?::varchar[], ?::numeric[])
+                 AS u(id, sku, depositante_id, nome, ean13, ncm, cest, unidade_medida, valor_unitario_padrao)
+            ON CONFLICT (sku, depositante_id) DO UPDATE SET
+                nome = EXCLUDED.nome,
+                ean13 = EXCLUDED.ean13,
+                ncm = EXCLUDED.ncm,
+                cest = EXCLUDED.cest,
+                unidade_medida = EXCLUDED.unidade_medida,
+                valor_unitario_padrao = EXCLUDED.valor_unitario_padrao,
+                atualizado_por = EXCLUDED.atualizado_por,
+                data_atualizacao = EXCLUDED.data_atualizacao
+            RETURNING id, sku, depositante_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdsPooledLo idsPooledLo;
+
+    /**
+     * Grava os emitentes e devolve o id de cada um por CPF/CNPJ.
+     */
+    public Map<String, Long> upsertParceiros(Collection<NfeXmlDados.Emitente> emitentes, String usuario) {
+        Map<String, Long> ids = new HashMap<>();
+        for (List<NfeXmlDados.Emitente> bloco : blocos(emitentes)) {
+            int n = bloco.size();
+            String[][] colunas = new String[12][n];
+            for (int i = 0; i < n; i++) {
+                NfeXmlDados.Emitente e = bloco.get(i);
+                String[] valores = { e.cpfCnpj(), e.nome(), e.nomeFantasia(), e.ie(), e.crt(),
+                        e.logradouro(), e.numero(), e.bairro(), e.cidade(), e.uf(), e.cep(), e.telefone() };
+                for (int c = 0; c < valores.length; c++) {
+                    colunas[c][i] = valores[c];
+                }
+            }
+
+            Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+            // Linhas que caem no ON CONFLICT mantêm o id atual; o reservado vira lacuna
+            Long[] novosIds = idsPooledLo.reservar("tb_parceiro", n);
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SQL_UPSERT_PARCEIRO);
+                int p = auditoria(ps, usuario, agora);
+                ps.setArray(p++, con.createArrayOf("bigint", novosIds));
+                for (String[] coluna : colunas) {
+                    ps.setArray(p++, con.createArrayOf("varchar", coluna));
+                }
+                return ps;
+            }, rs -> {
+                ids.put(rs.getString("cpf_cnpj"), rs.getLong("id"));
+            });
+        }
+        return ids;
+    }
+
+    /**
+     * Grava os produtos e devolve o id de cada um por (depositante, SKU).
+     */
+    public Map<ChaveProduto, Long> upsertProdutos(Collection<ProdutoNfe> produtos, String usuario) {
+        Map<ChaveProduto, Long> ids = new HashMap<>();
+        for (List<ProdutoNfe> bloco : blocos(produtos)) {
+            int n = bloco.size();
+            String[] skus = new String[n];
+            Long[] depositantes = new Long[n];
+            String[] nomes = new String[n];
+            String[] eans = new String[n];
+            String[] ncms = new String[n];
+            String[] cests = new String[n];
+            String[] unidades = new String[n];
+            BigDecimal[] valores = new BigDecimal[n];
+
+            for (int i = 0; i < n; i++) {
+                ProdutoNfe p = bloco.get(i);
+                NfeXmlDados.Item item = p.item();
+                skus[i] = item.sku();
+                depositantes[i] = p.depositanteId();
+                nomes[i] = item.nome();
+                eans[i] = (item.ean() != null && !item.ean().equals("SEM GTIN")) ? item.ean() : null;
+                ncms[i] = item.ncm();
+                cests[i] = item.cest();
+                unidades[i] = item.unidade();
+                valores[i] = (item.valorUnitario() != null) ? item.valorUnitario() : BigDecimal.ZERO;
+            }
+
+            Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+            Long[] novosIds = idsPooledLo.reservar("tb_produto", n);
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SQL_UPSERT_PRODUTO);
+                int p = auditoria(ps, usuario, agora);
+                ps.setArray(p++, con.createArrayOf("bigint", novosIds));
+                ps.setArray(p++, con.createArrayOf("varchar", skus));
+                ps.setArray(p++, con.createArrayOf("bigint", depositantes));
+                ps.setArray(p++, con.createArrayOf("varchar", nomes));
+                ps.setArray(p++, con.createArrayOf("varchar", eans));
+                ps.setArray(p++, con.createArrayOf("varchar", ncms));
+                ps.setArray(p++, con.createArrayOf("varchar", cests));
+                ps.setArray(p++, con.createArrayOf("varchar", unidades));
+                ps.setArray(p, con.createArrayOf("numeric", valores));
+                return ps;
+            }, rs -> {
+                ids.put(new ChaveProduto(rs.getLong("depositante_id"), rs.getString("sku")), rs.getLong("id"));
+            });
+        }
+        return ids;
+    }
+
+    // criado_por, atualizado_por, data_criacao, data_atualizacao; devolve o próximo índice
+    private int auditoria(PreparedStatement ps, String usuario, Timestamp agora) throws SQLException {
+        ps.setString(1, usuario);
+        ps.setString(2, usuario);
+        ps.setTimestamp(3, agora);
+        ps.setTimestamp(4, agora);
+        return 5;
+    }
+
+    private <T> List<List<T>> blocos(Collection<T> itens) {
+        List<List<T>> blocos = new ArrayList<>();
+        List<T> atual = new ArrayList<>(Math.min(itens.size(), TAMANHO_BLOCO));
+        for (T item : itens) {
+            atual.add(item);
+            if (atual.size() == TAMANHO_BLOCO) {
+                blocos.add(atual);
+                atual = new ArrayList<>(TAMANHO_BLOCO);
+            }
+        }
+        if (!atual.isEmpty())
+            blocos.add(atual);
+        return blocos;
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +21,10 @@ public interface SolicitacaoEntradaRepository extends JpaRepository<SolicitacaoE
 
     boolean existsByChaveAcesso(String chaveAcesso);
 
+    // Importação em lote: uma consulta para todas as chaves do lote
+    @Query("SELECT s.chaveAcesso FROM SolicitacaoEntrada s WHERE s.chaveAcesso IN :chaves")
+    List<String> findChavesAcessoExistentes(@Param("chaves") Collection<String> chaves);
+
     // Consulta Otimizada para Dashboard
     @Query("""
                SELECT new br.com.hacerfak.coreWMS.modules.operacao.dto.SolicitacaoEntradaResumoDTO(
@@ -6,6 +6,7 @@ import br.com.hacerfak.coreWMS.modules.cadastro.repository.ParceiroRepository;
 import br.com.hacerfak.coreWMS.modules.cadastro.repository.ProdutoRepository;
 import br.com.hacerfak.coreWMS.modules.operacao.domain.ItemSolicitacaoEntrada;
 import br.com.hacerfak.coreWMS.modules.operacao.domain.SolicitacaoEntrada;
+import br.com.hacerfak.coreWMS.modules.operacao.dto.NfeXmlDados;
 import br.com.hacerfak.coreWMS.modules.operacao.repository.SolicitacaoEntradaRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,17 +14,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.InputStream;
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 @Slf4j
@@ -34,115 +30,105 @@ public class NfeImportService {
     private final RecebimentoWorkflowService inboundWorkflowService; // <--- O novo orquestrador
     private final ProdutoRepository produtoRepository;
     private final ParceiroRepository parceiroRepository;
+    private final NfeXmlParser nfeXmlParser;
 
     @Transactional
     public SolicitacaoEntrada importarXml(MultipartFile file, String codigoExterno) {
-        try {
-            InputStream is = file.getInputStream();
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            dbFactory.setNamespaceAware(false); // Facilita a leitura das tags
-
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-            Document doc = dBuilder.parse(is);
-            doc.getDocumentElement().normalize();
-
-            // --- 1. PROCESSAR EMITENTE ---
-            NodeList emitList = doc.getElementsByTagName("emit");
-            if (emitList == null || emitList.getLength() == 0) {
-                throw new IllegalArgumentException("Tag <emit> não encontrada no XML.");
-            }
-            Element emit = (Element) emitList.item(0);
-            Parceiro fornecedor = processarEmitente(emit);
-
-            // --- 2. DADOS DA NOTA ---
-            String nNF = getTagValue("nNF", doc.getDocumentElement());
-            String chaveAcesso = extractChaveAcesso(doc);
-
-            // Validação de Duplicidade na nova estrutura
-            if (chaveAcesso != null && solicitacaoRepository.existsByChaveAcesso(chaveAcesso)) {
-                throw new IllegalArgumentException("Nota Fiscal já importada: " + nNF);
-            }
-
-            // Extração da Data
-            String dataEmissaoStr = getTagValue("dhEmi", doc.getDocumentElement());
-            LocalDateTime dataEmissao = null;
-            if (dataEmissaoStr != null && !dataEmissaoStr.isEmpty()) {
-                // Tenta lidar com o formato UTC (ex: 2023-10-01T10:00:00-03:00)
-                try {
-                    dataEmissao = LocalDateTime.parse(dataEmissaoStr, DateTimeFormatter.ISO_DATE_TIME);
-                } catch (Exception e) {
-                    // Fallback simples se der erro no parser
-                    try {
-                        dataEmissao = LocalDateTime.parse(dataEmissaoStr.substring(0, 19));
-                    } catch (Exception ignored) {
-                    }
-                }
-            }
+        return importar(lerXml(file), codigoExterno);
+    }
 
-            String externo;
-            if (codigoExterno.isBlank()) {
-                externo = "---";
-            } else {
-                externo = codigoExterno;
-            }
+    /**
+     * Lê o XML uma única vez. Quem precisa de mais de uma informação da mesma
+     * nota (ex: portaria: itens + transportadora) reaproveita o resultado.
+     */
+    public NfeXmlDados lerXml(MultipartFile file) {
+        try (InputStream is = file.getInputStream()) {
+            return nfeXmlParser.ler(is);
+        } catch (Exception e) {
+            log.error("Erro ao ler XML da NF-e: {}", e.getMessage());
+            throw new RuntimeException("Erro ao processar XML: " + e.getMessage());
+        }
+    }
 
-            // Cria a SOLICITAÇÃO
-            SolicitacaoEntrada solicitacao = SolicitacaoEntrada.builder()
-                    .codigoExterno(externo)
-                    .notaFiscal(nNF)
-                    .chaveAcesso(chaveAcesso)
-                    .fornecedor(fornecedor)
-                    .dataEmissao(dataEmissao)
-                    .build();
+    @Transactional
+    public SolicitacaoEntrada importar(NfeXmlDados nfe, String codigoExterno) {
+        // --- 1. PROCESSAR EMITENTE ---
+        if (nfe.emitente() == null) {
+            throw new IllegalArgumentException("Tag <emit> não encontrada no XML.");
+        }
+        Parceiro fornecedor = processarEmitente(nfe.emitente());
 
-            // --- 3. PROCESSAR ITENS ---
-            NodeList listaItens = doc.getElementsByTagName("det");
+        return criarSolicitacao(nfe, codigoExterno, fornecedor, det -> processarProduto(det, fornecedor));
+    }
 
-            for (int i = 0; i < listaItens.getLength(); i++) {
-                Element det = (Element) listaItens.item(i);
-                Element prod = (Element) det.getElementsByTagName("prod").item(0);
+    /**
+     * Variante da importação em lote: emitente e produtos já foram gravados em
+     * batch (CadastroNfeBatchRepository), aqui só entram as referências.
+     * Cada chamada roda na própria transação.
+     */
+    @Transactional
+    public SolicitacaoEntrada importarComCadastros(NfeXmlDados nfe, String codigoExterno, Long fornecedorId,
+            Map<String, Long> produtoIdPorSku) {
+        Parceiro fornecedor = parceiroRepository.getReferenceById(fornecedorId);
+        return criarSolicitacao(nfe, codigoExterno, fornecedor,
+                det -> produtoRepository.getReferenceById(produtoIdPorSku.get(det.sku())));
+    }
 
-                Produto produto = processarProduto(prod, fornecedor);
-                String qCom = getTagValue("qCom", prod);
+    private SolicitacaoEntrada criarSolicitacao(NfeXmlDados nfe, String codigoExterno, Parceiro fornecedor,
+            Function<NfeXmlDados.Item, Produto> resolverProduto) {
+        // --- 2. DADOS DA NOTA ---
+        // Validação de Duplicidade na nova estrutura
+        if (nfe.chaveAcesso() != null && solicitacaoRepository.existsByChaveAcesso(nfe.chaveAcesso())) {
+            throw new IllegalArgumentException("Nota Fiscal já importada: " + nfe.numero());
+        }
 
-                ItemSolicitacaoEntrada item = ItemSolicitacaoEntrada.builder()
-                        .solicitacao(solicitacao)
-                        .produto(produto)
-                        .quantidadePrevista(new BigDecimal(qCom))
-                        .quantidadeConferida(BigDecimal.ZERO)
-                        .build();
+        String externo;
+        if (codigoExterno == null || codigoExterno.isBlank()) {
+            externo = "---";
+        } else {
+            externo = codigoExterno;
+        }
 
-                solicitacao.getItens().add(item);
+        // Cria a SOLICITAÇÃO
+        SolicitacaoEntrada solicitacao = SolicitacaoEntrada.builder()
+                .codigoExterno(externo)
+                .notaFiscal(nfe.numero())
+                .chaveAcesso(nfe.chaveAcesso())
+                .fornecedor(fornecedor)
+                .dataEmissao(nfe.dataEmissao())
+                .build();
+
+        // --- 3. PROCESSAR ITENS ---
+        for (NfeXmlDados.Item det : nfe.itens()) {
+            if (det.quantidade() == null) {
+                throw new IllegalArgumentException("Item " + det.sku() + " sem <qCom> no XML.");
             }
+            Produto produto = resolverProduto.apply(det);
 
-            // 🔥 AQUI ESTÁ A MUDANÇA PRINCIPAL:
-            // Não salvamos direto. Passamos para o Workflow iniciar o processo.
-            // O Workflow vai definir o status inicial, criar as tarefas, etc.
-            return inboundWorkflowService.iniciarProcessoEntrada(solicitacao);
+            ItemSolicitacaoEntrada item = ItemSolicitacaoEntrada.builder()
+                    .solicitacao(solicitacao)
+                    .produto(produto)
+                    .quantidadePrevista(det.quantidade())
+                    .quantidadeConferida(BigDecimal.ZERO)
+                    .build();
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException("Erro ao processar XML: " + e.getMessage());
+            solicitacao.getItens().add(item);
         }
+
+        // 🔥 AQUI ESTÁ A MUDANÇA PRINCIPAL:
+        // Não salvamos direto. Passamos para o Workflow iniciar o processo.
+        // O Workflow vai definir o status inicial, criar as tarefas, etc.
+        return inboundWorkflowService.iniciarProcessoEntrada(solicitacao);
     }
 
     // --- MÉTODOS AUXILIARES (Mantidos praticamente iguais, apenas ajustes de
     // tipos) ---
 
-    private Parceiro processarEmitente(Element emit) {
-        String cnpj = getTagValue("CNPJ", emit);
-        if (cnpj == null || cnpj.isEmpty()) {
-            cnpj = getTagValue("CPF", emit);
-        }
-
+    private Parceiro processarEmitente(NfeXmlDados.Emitente emit) {
+        String cnpj = emit.cpfCnpj();
         if (cnpj == null)
             throw new IllegalArgumentException("Emitente sem CNPJ/CPF no XML");
 
-        String nome = getTagValue("xNome", emit);
-        String fantasia = getTagValue("xFant", emit);
-        String ie = getTagValue("IE", emit);
-        String crt = getTagValue("CRT", emit);
-
         Optional<Parceiro> existente = parceiroRepository.findByCpfCnpj(cnpj);
         Parceiro parceiro = existente.orElse(new Parceiro());
 
@@ -153,36 +139,27 @@ public class NfeImportService {
         }
 
         parceiro.setCpfCnpj(cnpj);
-        parceiro.setNome(nome);
-        parceiro.setNomeFantasia(fantasia);
-        parceiro.setIe(ie);
-        parceiro.setCrt(crt);
+        parceiro.setNome(emit.nome());
+        parceiro.setNomeFantasia(emit.nomeFantasia());
+        parceiro.setIe(emit.ie());
+        parceiro.setCrt(emit.crt());
 
         // Endereço
-        NodeList enderList = emit.getElementsByTagName("enderEmit");
-        if (enderList != null && enderList.getLength() > 0) {
-            Element ender = (Element) enderList.item(0);
-            parceiro.setLogradouro(getTagValue("xLgr", ender));
-            parceiro.setNumero(getTagValue("nro", ender));
-            parceiro.setBairro(getTagValue("xBairro", ender));
-            parceiro.setCidade(getTagValue("xMun", ender));
-            parceiro.setUf(getTagValue("UF", ender));
-            parceiro.setCep(getTagValue("CEP", ender));
-            parceiro.setTelefone(getTagValue("fone", ender));
-        }
+        parceiro.setLogradouro(emit.logradouro());
+        parceiro.setNumero(emit.numero());
+        parceiro.setBairro(emit.bairro());
+        parceiro.setCidade(emit.cidade());
+        parceiro.setUf(emit.uf());
+        parceiro.setCep(emit.cep());
+        parceiro.setTelefone(emit.telefone());
 
         return parceiroRepository.save(parceiro);
     }
 
-    private Produto processarProduto(Element prod, Parceiro depositante) {
-        String sku = getTagValue("cProd", prod);
-        String nome = getTagValue("xProd", prod);
-        String ean = getTagValue("cEAN", prod);
-        String ncm = getTagValue("NCM", prod);
-        String cest = getTagValue("CEST", prod);
-        String uCom = getTagValue("uCom", prod);
-        String vUnComStr = getTagValue("vUnCom", prod);
-        BigDecimal valorUnitario = (vUnComStr != null) ? new BigDecimal(vUnComStr) : BigDecimal.ZERO;
+    private Produto processarProduto(NfeXmlDados.Item prod, Parceiro depositante) {
+        String sku = prod.sku();
+        String ean = prod.ean();
+        BigDecimal valorUnitario = (prod.valorUnitario() != null) ? prod.valorUnitario() : BigDecimal.ZERO;
 
         Optional<Produto> existente = produtoRepository.findBySkuAndDepositante(sku, depositante);
         Produto produto = existente.orElse(new Produto());
@@ -193,37 +170,16 @@ public class NfeImportService {
             produto.setAtivo(true);
         }
 
-        produto.setNome(nome);
+        produto.setNome(prod.nome());
         produto.setEan13((ean != null && !ean.equals("SEM GTIN")) ? ean : null);
-        produto.setUnidadeMedida(uCom);
-        produto.setNcm(ncm);
-        produto.setCest(cest);
+        produto.setUnidadeMedida(prod.unidade());
+        produto.setNcm(prod.ncm());
+        produto.setCest(prod.cest());
         produto.setValorUnitarioPadrao(valorUnitario);
 
         return produtoRepository.save(produto);
     }
 
-    private String getTagValue(String tag, Element element) {
-        if (element == null)
-            return null;
-        NodeList nodeList = element.getElementsByTagName(tag);
-        if (nodeList != null && nodeList.getLength() > 0) {
-            return nodeList.item(0).getTextContent();
-        }
-        return null;
-    }
-
-    private String extractChaveAcesso(Document doc) {
-        NodeList infNFe = doc.getElementsByTagName("infNFe");
-        if (infNFe.getLength() > 0) {
-            Element el = (Element) infNFe.item(0);
-            if (el.hasAttribute("Id")) {
-                return el.getAttribute("Id").replace("NFe", "");
-            }
-        }
-        return null;
-    }
-
     private Parceiro garantirParceiro(String documento, String nome, String tipo) {
         return parceiroRepository.findByCpfCnpj(documento)
                 .orElseGet(() -> {
@@ -237,40 +193,14 @@ public class NfeImportService {
                 });
     }
 
-    // --- NOVO MÉTODO PARA EXTRAIR TRANSPORTADORA ---
+    // --- TRANSPORTADORA (tag <transp><transporta>) ---
     @Transactional
-    public Optional<Parceiro> extrairTransportadoraDoXml(MultipartFile file) {
-        try {
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-            Document doc = dBuilder.parse(file.getInputStream());
-            doc.getDocumentElement().normalize();
-
-            // Procura tag <transp> -> <transporta>
-            NodeList transpList = doc.getElementsByTagName("transp");
-            if (transpList.getLength() > 0) {
-                Element transp = (Element) transpList.item(0);
-                NodeList transportaList = transp.getElementsByTagName("transporta");
-
-                if (transportaList.getLength() > 0) {
-                    Element transporta = (Element) transportaList.item(0);
-                    // Pode ser CNPJ ou CPF
-                    String cnpj = getTagValue("CNPJ", transporta);
-                    String cpf = getTagValue("CPF", transporta);
-                    String nome = getTagValue("xNome", transporta);
-
-                    String docFederal = cnpj != null ? cnpj : cpf;
-
-                    if (docFederal != null && !docFederal.isEmpty()) {
-                        // Verifica se existe, senão cria
-                        return Optional.of(garantirParceiro(docFederal, nome, "TRANSPORTADORA"));
-                    }
-                }
-            }
-            return Optional.empty();
-        } catch (Exception e) {
-            log.warn("Não foi possível extrair transportadora do XML: {}", e.getMessage());
+    public Optional<Parceiro> extrairTransportadora(NfeXmlDados nfe) {
+        NfeXmlDados.Transportadora transporta = nfe.transportadora();
+        if (transporta == null || transporta.cpfCnpj() == null) {
             return Optional.empty();
         }
+        // Verifica se existe, senão cria
+        return Optional.of(garantirParceiro(transporta.cpfCnpj(), transporta.nome(), "TRANSPORTADORA"));
     }
-}
\ No newline at end of file
+}
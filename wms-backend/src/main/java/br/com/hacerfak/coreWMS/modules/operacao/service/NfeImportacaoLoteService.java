@@ -0,0 +1,398 @@
+package br.com.hacerfak.coreWMS.modules.operacao.service;
+
+import br.com.hacerfak.coreWMS.modules.cadastro.service.BarcodeResolver;
+import br.com.hacerfak.coreWMS.modules.operacao.domain.SolicitacaoEntrada;
+import br.com.hacerfak.coreWMS.modules.operacao.dto.NfeXmlDados;
+import br.com.hacerfak.coreWMS.modules.operacao.dto.ResultadoImportacaoNfe;
+import br.com.hacerfak.coreWMS.modules.operacao.repository.CadastroNfeBatchRepository;
+import br.com.hacerfak.coreWMS.modules.operacao.repository.CadastroNfeBatchRepository.ChaveProduto;
+import br.com.hacerfak.coreWMS.modules.operacao.repository.CadastroNfeBatchRepository.ProdutoNfe;
+import br.com.hacerfak.coreWMS.modules.operacao.repository.SolicitacaoEntradaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Importação de várias NF-e de uma vez (XMLs soltos e/ou ZIPs).
+ *
+ * 1. Parse em paralelo num pool limitado (wms.nfe.importacao.threads); a fila
+ * é curta e, cheia, a própria thread da requisição faz o parse.
+ * 2. Emitentes e produtos do lote inteiro são deduplicados e gravados em
+ * upserts set-based (CadastroNfeBatchRepository), numa transação só.
+ * 3. Cada nota vira uma SolicitacaoEntrada na própria transação: uma nota com
+ * problema não derruba as outras.
+ *
+ * O upsert JDBC não passa pelo @CacheEvict do ProdutoController nem pelos
+ * listeners JPA: depois do commit dos cadastros os produtos gravados saem do
+ * cache "produtos" (o findById cacheado devolveria o cadastro anterior à
+ * nota) e são relidos no índice de códigos (BarcodeResolver). Também não
+ * geram auditoria de CREATE/UPDATE; a nota em si (SolicitacaoEntrada) é
+ * gravada pelo Hibernate e auditada normalmente.
+ *
+ * Memória: além do teto por XML (wms.nfe.importacao.max-bytes-xml), o lote
+ * inteiro tem um teto de bytes descompactados (max-bytes-lote). Arquivo que
+ * passaria do teto é rejeitado sem ser lido até o fim.
+ *
+ * O parse não toca no banco, então as threads do pool não precisam do tenant.
+ */
+@Service
+@Slf4j
+public class NfeImportacaoLoteService {
+
+    private static final int MAX_REMOCOES_INDIVIDUAIS = 200;
+
+    private final NfeXmlParser nfeXmlParser;
+    private final NfeImportService nfeImportService;
+    private final CadastroNfeBatchRepository cadastroBatchRepository;
+    private final SolicitacaoEntradaRepository solicitacaoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final BarcodeResolver barcodeResolver;
+    private final ThreadPoolExecutor executor;
+    private final int maxArquivos;
+    private final long maxBytesXml;
+    private final long maxBytesLote;
+
+    public NfeImportacaoLoteService(NfeXmlParser nfeXmlParser,
+            NfeImportService nfeImportService,
+            CadastroNfeBatchRepository cadastroBatchRepository,
+            SolicitacaoEntradaRepository solicitacaoRepository,
+            PlatformTransactionManager transactionManager,
+            CacheManager cacheManager,
+            BarcodeResolver barcodeResolver,
+            @Value("${wms.nfe.importacao.threads:4}") int threads,
+            @Value("${wms.nfe.importacao.max-arquivos:500}") int maxArquivos,
+            @Value("${wms.nfe.importacao.max-bytes-xml:5242880}") long maxBytesXml,
+            @Value("${wms.nfe.importacao.max-bytes-lote:104857600}") long maxBytesLote) {
+        this.nfeXmlParser = nfeXmlParser;
+        this.nfeImportService = nfeImportService;
+        this.cadastroBatchRepository = cadastroBatchRepository;
+        this.solicitacaoRepository = solicitacaoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheManager = cacheManager;
+        this.barcodeResolver = barcodeResolver;
+        this.maxArquivos = maxArquivos;
+        this.maxBytesXml = maxBytesXml;
+        this.maxBytesLote = maxBytesLote;
+
+        int n = Math.max(1, threads);
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(n, n, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(n * 4),
+                r -> {
+                    Thread t = new Thread(r, "nfe-parser-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+    }
+
+    public ResultadoImportacaoNfe importarLote(List<MultipartFile> files, String usuario) {
+        long inicio = System.nanoTime();
+
+        // --- 1. EXTRAÇÃO (ZIP -> XMLs) ---
+        List<ArquivoXml> arquivos = new ArrayList<>();
+        List<ResultadoImportacaoNfe.Arquivo> rejeitados = new ArrayList<>();
+        long bytesLote = 0;
+        for (MultipartFile file : files) {
+            bytesLote = extrair(file, arquivos, rejeitados, bytesLote);
+        }
+
+        // --- 2. PARSE EM PARALELO ---
+        List<Future<NfeXmlDados>> futuros = new ArrayList<>(arquivos.size());
+        for (ArquivoXml a : arquivos) {
+            futuros.add(executor.submit(() -> nfeXmlParser.ler(new ByteArrayInputStream(a.conteudo()))));
+        }
+
+        Map<Integer, ResultadoImportacaoNfe.Arquivo> resultados = new HashMap<>();
+        List<Integer> validas = new ArrayList<>();
+        List<NfeXmlDados> notas = new ArrayList<>(arquivos.size());
+        for (int i = 0; i < arquivos.size(); i++) {
+            NfeXmlDados nfe = null;
+            try {
+                nfe = futuros.get(i).get();
+            } catch (ExecutionException e) {
+                resultados.put(i, erro(arquivos.get(i).nome(), null, "XML inválido: " + e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Importação interrompida.", e);
+            }
+            notas.add(nfe);
+            if (nfe == null)
+                continue;
+
+            String problema = validar(nfe);
+            if (problema != null) {
+                resultados.put(i, erro(arquivos.get(i).nome(), nfe, problema));
+            } else {
+                validas.add(i);
+            }
+        }
+
+        // --- 3. DUPLICIDADE (dentro do lote e no banco, uma consulta) ---
+        Set<String> chaves = new HashSet<>();
+        for (Integer i : validas) {
+            if (notas.get(i).chaveAcesso() != null)
+                chaves.add(notas.get(i).chaveAcesso());
+        }
+        Set<String> jaImportadas = chaves.isEmpty() ? Set.of()
+                : new HashSet<>(solicitacaoRepository.findChavesAcessoExistentes(chaves));
+        Set<String> vistas = new HashSet<>();
+        List<Integer> aImportar = new ArrayList<>();
+        for (Integer i : validas) {
+            NfeXmlDados nfe = notas.get(i);
+            String chave = nfe.chaveAcesso();
+            if (chave != null && (jaImportadas.contains(chave) || !vistas.add(chave))) {
+                resultados.put(i, new ResultadoImportacaoNfe.Arquivo(arquivos.get(i).nome(),
+                        ResultadoImportacaoNfe.Status.DUPLICADA, chave, nfe.numero(), null,
+                        "Nota Fiscal já importada: " + nfe.numero()));
+            } else {
+                aImportar.add(i);
+            }
+        }
+
+        // --- 4. CADASTROS EM LOTE (emitentes e produtos deduplicados) ---
+        Map<String, Long> parceiroIds = Map.of();
+        Map<ChaveProduto, Long> produtoIds = Map.of();
+        if (!aImportar.isEmpty()) {
+            try {
+                CadastrosLote cadastros = transactionTemplate
+                        .execute(status -> gravarCadastros(aImportar, notas, usuario));
+                parceiroIds = cadastros.parceiroIds();
+                produtoIds = cadastros.produtoIds();
+                // execute já comitou
+                removerDoCache(produtoIds.values());
+                invalidarIndiceCodigos(produtoIds.values());
+            } catch (RuntimeException e) {
+                log.error("Falha ao gravar cadastros do lote de NF-e: {}", e.getMessage());
+                for (Integer i : aImportar) {
+                    resultados.put(i, erro(arquivos.get(i).nome(), notas.get(i),
+                            "Falha ao gravar emitente/produtos do lote: " + e.getMessage()));
+                }
+                aImportar.clear();
+            }
+        }
+
+        // --- 5. UMA TRANSAÇÃO POR NOTA ---
+        for (Integer i : aImportar) {
+            NfeXmlDados nfe = notas.get(i);
+            Long fornecedorId = parceiroIds.get(nfe.emitente().cpfCnpj());
+            Map<String, Long> produtoIdPorSku = new HashMap<>();
+            for (NfeXmlDados.Item item : nfe.itens()) {
+                produtoIdPorSku.put(item.sku(), produtoIds.get(new ChaveProduto(fornecedorId, item.sku())));
+            }
+
+            try {
+                SolicitacaoEntrada sol = nfeImportService.importarComCadastros(nfe, "", fornecedorId,
+                        produtoIdPorSku);
+                resultados.put(i, new ResultadoImportacaoNfe.Arquivo(arquivos.get(i).nome(),
+                        ResultadoImportacaoNfe.Status.IMPORTADA, nfe.chaveAcesso(), nfe.numero(), sol.getId(),
+                        null));
+            } catch (RuntimeException e) {
+                resultados.put(i, erro(arquivos.get(i).nome(), nfe, e.getMessage()));
+            }
+        }
+
+        // --- RELATÓRIO (ordem de envio) ---
+        List<ResultadoImportacaoNfe.Arquivo> relatorio = new ArrayList<>(rejeitados);
+        for (int i = 0; i < arquivos.size(); i++) {
+            relatorio.add(resultados.get(i));
+        }
+
+        int importadas = 0, duplicadas = 0, erros = 0;
+        for (ResultadoImportacaoNfe.Arquivo a : relatorio) {
+            switch (a.status()) {
+                case IMPORTADA -> importadas++;
+                case DUPLICADA -> duplicadas++;
+                case ERRO -> erros++;
+            }
+        }
+
+        long tempoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        log.info("Importação em lote de NF-e: {} arquivo(s), {} importada(s), {} duplicada(s), {} erro(s) em {} ms",
+                relatorio.size(), importadas, duplicadas, erros, tempoMs);
+
+        return new ResultadoImportacaoNfe(relatorio.size(), importadas, duplicadas, erros, tempoMs, relatorio);
+    }
+
+    private CadastrosLote gravarCadastros(List<Integer> indices, List<NfeXmlDados> notas, String usuario) {
+        // Mesmo CNPJ em várias notas: vale o cadastro da última
+        Map<String, NfeXmlDados.Emitente> emitentes = new LinkedHashMap<>();
+        for (Integer i : indices) {
+            NfeXmlDados.Emitente e = notas.get(i).emitente();
+            emitentes.put(e.cpfCnpj(), e);
+        }
+        Map<String, Long> parceiroIds = cadastroBatchRepository.upsertParceiros(emitentes.values(), usuario);
+
+        Map<ChaveProduto, ProdutoNfe> produtos = new LinkedHashMap<>();
+        for (Integer i : indices) {
+            NfeXmlDados nfe = notas.get(i);
+            Long depositanteId = parceiroIds.get(nfe.emitente().cpfCnpj());
+            for (NfeXmlDados.Item item : nfe.itens()) {
+                produtos.put(new ChaveProduto(depositanteId, item.sku()), new ProdutoNfe(depositanteId, item));
+            }
+        }
+        Map<ChaveProduto, Long> produtoIds = cadastroBatchRepository.upsertProdutos(produtos.values(), usuario);
+
+        log.debug("Lote NF-e: {} emitente(s) e {} produto(s) gravados", parceiroIds.size(), produtoIds.size());
+        return new CadastrosLote(parceiroIds, produtoIds);
+    }
+
+    private void removerDoCache(Collection<Long> produtoIds) {
+        Cache cache = cacheManager.getCache("produtos");
+        if (cache == null)
+            return;
+        try {
+            // Acima disso sai mais barato limpar o cache do tenant (mesmo efeito do allEntries do controller)
+            if (produtoIds.size() > MAX_REMOCOES_INDIVIDUAIS) {
+                cache.clear();
+            } else {
+                for (Long id : produtoIds)
+                    cache.evict(id);
+            }
+        } catch (RuntimeException e) {
+            // Cadastros já comitados: o TTL do cache limita a leitura desatualizada
+            log.warn("Falha ao remover produtos do lote de NF-e do cache: {}", e.getMessage());
+        }
+    }
+
+    private void invalidarIndiceCodigos(Collection<Long> produtoIds) {
+        try {
+            barcodeResolver.invalidar(produtoIds);
+        } catch (RuntimeException e) {
+            // Cadastros já comitados: a recarga periódica do índice corrige
+            log.warn("Falha ao invalidar o índice de códigos do lote de NF-e: {}", e.getMessage());
+        }
+    }
+
+    // Colunas NOT NULL do cadastro: uma nota assim quebraria o upsert do lote todo
+    private String validar(NfeXmlDados nfe) {
+        if (nfe.emitente() == null)
+            return "Tag <emit> não encontrada no XML.";
+        if (nfe.emitente().cpfCnpj() == null)
+            return "Emitente sem CNPJ/CPF no XML";
+        if (nfe.emitente().nome() == null)
+            return "Emitente sem <xNome> no XML.";
+        for (NfeXmlDados.Item item : nfe.itens()) {
+            if (item.sku() == null || item.nome() == null)
+                return "Item sem <cProd>/<xProd> no XML.";
+            if (item.quantidade() == null)
+                return "Item " + item.sku() + " sem <qCom> no XML.";
+        }
+        return null;
+    }
+
+    /**
+     * Extrai os XMLs do arquivo para o lote. Recebe e devolve o total de bytes
+     * já aceitos no lote (o arquivo rejeitado não conta).
+     */
+    private long extrair(MultipartFile file, List<ArquivoXml> arquivos,
+            List<ResultadoImportacaoNfe.Arquivo> rejeitados, long bytesLote) {
+        String nome = file.getOriginalFilename() != null ? file.getOriginalFilename() : "arquivo";
+        String minusculo = nome.toLowerCase();
+        try {
+            if (minusculo.endsWith(".zip")) {
+                // O ZIP entra inteiro ou não entra: nada vai para o lote antes de ler a última entrada
+                List<ArquivoXml> doZip = new ArrayList<>();
+                long bytesZip = 0;
+                try (ZipInputStream zip = new ZipInputStream(file.getInputStream())) {
+                    ZipEntry entrada;
+                    while ((entrada = zip.getNextEntry()) != null) {
+                        if (entrada.isDirectory() || !entrada.getName().toLowerCase().endsWith(".xml"))
+                            continue;
+                        String nomeEntrada = nome + "!/" + entrada.getName();
+                        verificarLimite(arquivos.size() + doZip.size(), nomeEntrada);
+                        byte[] conteudo = ler(zip, maxBytesLote - bytesLote - bytesZip);
+                        bytesZip += conteudo.length;
+                        doZip.add(new ArquivoXml(nomeEntrada, conteudo));
+                    }
+                }
+                arquivos.addAll(doZip);
+                return bytesLote + bytesZip;
+            } else if (minusculo.endsWith(".xml")) {
+                verificarLimite(arquivos.size(), nome);
+                try (InputStream is = file.getInputStream()) {
+                    byte[] conteudo = ler(is, maxBytesLote - bytesLote);
+                    arquivos.add(new ArquivoXml(nome, conteudo));
+                    return bytesLote + conteudo.length;
+                }
+            } else {
+                rejeitados.add(erro(nome, null, "Formato não suportado (envie .xml ou .zip)."));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            rejeitados.add(erro(nome, null, e.getMessage()));
+        }
+        return bytesLote;
+    }
+
+    // Checado antes de ler o conteúdo: o XML que estouraria o limite nem é lido
+    private void verificarLimite(int aceitos, String nome) {
+        if (aceitos >= maxArquivos) {
+            throw new IllegalArgumentException("Limite de " + maxArquivos + " XMLs por lote excedido em " + nome);
+        }
+    }
+
+    // Lê com teto de tamanho: o tamanho declarado na entrada do ZIP não é confiável
+    private byte[] ler(InputStream is, long restanteLote) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int lidos;
+        while ((lidos = is.read(buffer)) != -1) {
+            total += lidos;
+            if (total > maxBytesXml) {
+                throw new IllegalArgumentException("XML maior que o limite de " + maxBytesXml + " bytes.");
+            }
+            if (total > restanteLote) {
+                throw new IllegalArgumentException(
+                        "Lote passou do limite de " + maxBytesLote + " bytes descompactados.");
+            }
+            out.write(buffer, 0, lidos);
+        }
+        return out.toByteArray();
+    }
+
+    private ResultadoImportacaoNfe.Arquivo erro(String nome, NfeXmlDados nfe, String mensagem) {
+        return new ResultadoImportacaoNfe.Arquivo(nome, ResultadoImportacaoNfe.Status.ERRO,
+                nfe != null ? nfe.chaveAcesso() : null, nfe != null ? nfe.numero() : null, null, mensagem);
+    }
+
+    private record ArquivoXml(String nome, byte[] conteudo) {
+    }
+
+    private record CadastrosLote(Map<String, Long> parceiroIds, Map<ChaveProduto, Long> produtoIds) {
+    }
+}
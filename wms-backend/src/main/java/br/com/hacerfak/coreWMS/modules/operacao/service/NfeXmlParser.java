@@ -0,0 +1,188 @@
+package br.com.hacerfak.coreWMS.modules.operacao.service;
+
+import br.com.hacerfak.coreWMS.modules.operacao.dto.NfeXmlDados;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Leitor de XML de NF-e em streaming (StAX).
+ *
+ * Percorre o arquivo uma única vez, sem montar DOM, e guarda só os campos de
+ * ide, emit, transp/transporta e det/prod. Para no fim de infNFe: assinatura e
+ * protocolo (nfeProc) nem são lidos. Funciona com ou sem namespace.
+ */
+@Component
+public class NfeXmlParser {
+
+    private static final Set<String> CAMPOS_IDE = Set.of("nNF", "dhEmi");
+    private static final Set<String> CAMPOS_EMIT = Set.of("CNPJ", "CPF", "xNome", "xFant", "IE", "CRT");
+    private static final Set<String> CAMPOS_ENDER = Set.of("xLgr", "nro", "xBairro", "xMun", "UF", "CEP", "fone");
+    private static final Set<String> CAMPOS_TRANSPORTA = Set.of("CNPJ", "CPF", "xNome");
+    private static final Set<String> CAMPOS_PROD = Set.of("cProd", "xProd", "cEAN", "NCM", "CEST", "uCom", "qCom",
+            "vUnCom");
+
+    private final XMLInputFactory factory;
+
+    public NfeXmlParser() {
+        factory = XMLInputFactory.newFactory();
+        // XML vem de fora: sem DTD e sem entidades externas (XXE)
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    public NfeXmlDados ler(InputStream is) throws XMLStreamException {
+        XMLStreamReader r = factory.createXMLStreamReader(is);
+        try {
+            String chaveAcesso = null;
+            Map<String, String> ide = new HashMap<>();
+            Map<String, String> emit = new HashMap<>();
+            Map<String, String> ender = new HashMap<>();
+            Map<String, String> transporta = null;
+            Map<String, String> prod = null;
+            List<NfeXmlDados.Item> itens = new ArrayList<>();
+
+            // Bloco em que o cursor está; só campos do bloco são lidos
+            Map<String, String> destino = null;
+            Set<String> campos = Set.of();
+
+            while (r.hasNext()) {
+                int evento = r.next();
+
+                if (evento == XMLStreamConstants.START_ELEMENT) {
+                    String tag = r.getLocalName();
+                    switch (tag) {
+                        case "infNFe" -> {
+                            String id = r.getAttributeValue(null, "Id");
+                            if (chaveAcesso == null && id != null)
+                                chaveAcesso = id.replace("NFe", "");
+                        }
+                        case "ide" -> {
+                            destino = ide;
+                            campos = CAMPOS_IDE;
+                        }
+                        case "emit" -> {
+                            destino = emit;
+                            campos = CAMPOS_EMIT;
+                        }
+                        case "enderEmit" -> {
+                            destino = ender;
+                            campos = CAMPOS_ENDER;
+                        }
+                        case "transporta" -> {
+                            transporta = new HashMap<>();
+                            destino = transporta;
+                            campos = CAMPOS_TRANSPORTA;
+                        }
+                        case "prod" -> {
+                            prod = new HashMap<>();
+                            destino = prod;
+                            campos = CAMPOS_PROD;
+                        }
+                        default -> {
+                            // putIfAbsent: vale a primeira ocorrência (ex: nNF de NFref vem depois)
+                            if (destino != null && campos.contains(tag) && !destino.containsKey(tag))
+                                destino.put(tag, r.getElementText().trim());
+                        }
+                    }
+                } else if (evento == XMLStreamConstants.END_ELEMENT) {
+                    switch (r.getLocalName()) {
+                        case "ide", "emit", "transporta" -> {
+                            destino = null;
+                            campos = Set.of();
+                        }
+                        case "enderEmit" -> {
+                            destino = emit;
+                            campos = CAMPOS_EMIT;
+                        }
+                        case "prod" -> {
+                            itens.add(item(prod));
+                            destino = null;
+                            campos = Set.of();
+                        }
+                        case "infNFe" -> {
+                            return montar(chaveAcesso, ide, emit, ender, transporta, itens);
+                        }
+                        default -> {
+                        }
+                    }
+                }
+            }
+            return montar(chaveAcesso, ide, emit, ender, transporta, itens);
+        } finally {
+            r.close();
+        }
+    }
+
+    private NfeXmlDados montar(String chaveAcesso, Map<String, String> ide, Map<String, String> emit,
+            Map<String, String> ender, Map<String, String> transporta, List<NfeXmlDados.Item> itens) {
+        NfeXmlDados.Emitente emitente = null;
+        if (!emit.isEmpty()) {
+            String doc = vazioParaNulo(emit.get("CNPJ"));
+            emitente = new NfeXmlDados.Emitente(
+                    doc != null ? doc : vazioParaNulo(emit.get("CPF")),
+                    emit.get("xNome"), emit.get("xFant"), emit.get("IE"), emit.get("CRT"),
+                    ender.get("xLgr"), ender.get("nro"), ender.get("xBairro"), ender.get("xMun"),
+                    ender.get("UF"), ender.get("CEP"), ender.get("fone"));
+        }
+
+        NfeXmlDados.Transportadora transportadora = null;
+        if (transporta != null) {
+            String doc = vazioParaNulo(transporta.get("CNPJ"));
+            transportadora = new NfeXmlDados.Transportadora(
+                    doc != null ? doc : vazioParaNulo(transporta.get("CPF")),
+                    transporta.get("xNome"));
+        }
+
+        return new NfeXmlDados(chaveAcesso, ide.get("nNF"), dataEmissao(ide.get("dhEmi")), emitente,
+                transportadora, List.copyOf(itens));
+    }
+
+    private NfeXmlDados.Item item(Map<String, String> prod) {
+        return new NfeXmlDados.Item(
+                prod.get("cProd"),
+                prod.get("xProd"),
+                prod.get("cEAN"),
+                prod.get("NCM"),
+                prod.get("CEST"),
+                prod.get("uCom"),
+                decimal(prod.get("qCom")),
+                decimal(prod.get("vUnCom")));
+    }
+
+    private LocalDateTime dataEmissao(String valor) {
+        if (valor == null || valor.isEmpty())
+            return null;
+        // Formato UTC com offset (ex: 2023-10-01T10:00:00-03:00)
+        try {
+            return LocalDateTime.parse(valor, DateTimeFormatter.ISO_DATE_TIME);
+        } catch (Exception e) {
+            try {
+                return LocalDateTime.parse(valor.substring(0, 19));
+            } catch (Exception ignored) {
+                return null;
+            }
+        }
+    }
+
+    private BigDecimal decimal(String valor) {
+        return (valor == null || valor.isEmpty()) ? null : new BigDecimal(valor);
+    }
+
+    private String vazioParaNulo(String valor) {
+        return (valor == null || valor.isEmpty()) ? null : valor;
+    }
+}
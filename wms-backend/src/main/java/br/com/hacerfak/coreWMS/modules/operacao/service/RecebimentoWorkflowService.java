@@ -5,8 +5,10 @@ import br.com.hacerfak.coreWMS.core.domain.workflow.StatusSolicitacao;
 import br.com.hacerfak.coreWMS.core.domain.workflow.StatusTarefa;
 import br.com.hacerfak.coreWMS.core.exception.EntityNotFoundException;
 import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.core.outbox.OutboxEventos;
+import br.com.hacerfak.coreWMS.core.outbox.OutboxService;
 import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
-import br.com.hacerfak.coreWMS.modules.cadastro.repository.ProdutoRepository;
+import br.com.hacerfak.coreWMS.modules.cadastro.service.BarcodeResolver;
 import br.com.hacerfak.coreWMS.modules.estoque.service.EstoqueService;
 import br.com.hacerfak.coreWMS.modules.estoque.service.LpnService;
 import br.com.hacerfak.coreWMS.modules.operacao.domain.*;
@@ -25,17 +27,18 @@ import br.com.hacerfak.coreWMS.modules.estoque.domain.LpnItem;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.StatusLpn;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.StatusQualidade;
 import br.com.hacerfak.coreWMS.modules.estoque.domain.TipoMovimento;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.MovimentoCommand;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.LocalizacaoRepository;
 import br.com.hacerfak.coreWMS.modules.estoque.repository.LpnRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j; // Adicionado para logs
 
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -45,11 +48,11 @@ public class RecebimentoWorkflowService {
 
         private final SolicitacaoEntradaRepository solicitacaoRepo;
         private final TarefaConferenciaRepository tarefaRepo;
-        private final ProdutoRepository produtoRepository;
+        private final BarcodeResolver barcodeResolver;
         private final LpnService lpnService;
         private final LpnRepository lpnRepository;
         private final ApplicationEventPublisher eventPublisher;
-        private final RabbitTemplate rabbitTemplate;
+        private final OutboxService outboxService;
         private final TarefaDivergenciaRepository divergenciaRepository;
         private final ItemSolicitacaoEntradaRepository itemSolicitacaoRepo;
         private final SistemaConfigRepository sistemaConfigRepository;
@@ -151,7 +154,7 @@ public class RecebimentoWorkflowService {
                 SolicitacaoEntrada solicitacao = solicitacaoRepo.findById(dto.solicitacaoId())
                                 .orElseThrow(() -> new EntityNotFoundException("Solicitação não encontrada"));
 
-                Produto produto = produtoRepository.findByCodigoBarras(dto.sku())
+                Produto produto = barcodeResolver.resolverProduto(dto.sku())
                                 .orElseThrow(() -> new EntityNotFoundException("Produto não encontrado"));
 
                 // OTIMIZAÇÃO: Substituição de Stream por Loop for tradicional (Menor overhead
@@ -236,16 +239,12 @@ public class RecebimentoWorkflowService {
                 log.info("Movendo {} LPNs da Doca {} para Stage {}", lpnsNaDoca.size(),
                                 solicitacao.getDoca().getCodigo(), stage.getCodigo());
 
-                for (Lpn lpn : lpnsNaDoca) {
-                        // Mover fisicamente (Atualiza saldo e Localização da LPN)
-                        // Aqui podemos usar um método de movimentação interna do EstoqueService
-                        // Simulação da chamada:
-                        estoqueService.transferirLpnInteira(
-                                        lpn,
-                                        stage,
-                                        usuario,
-                                        "Finalização Recebimento");
-                }
+                // Mover fisicamente (Atualiza saldo e Localização das LPNs) em um único lote
+                estoqueService.transferirLpns(
+                                lpnsNaDoca,
+                                stage,
+                                usuario,
+                                "Finalização Recebimento");
 
                 tarefa.concluir();
                 tarefaRepo.save(tarefa);
@@ -290,19 +289,16 @@ public class RecebimentoWorkflowService {
                                 solicitacao.getNotaFiscal(),
                                 usuario));
 
-                // --- MUDANÇA AQUI: Envia FaturamentoEvent para o RabbitMQ ---
-                // Isso garante que o consumidor saiba qual Tenant usar.
+                // Faturamento pelo outbox, na mesma transação: cobrança da NF e
+                // mensagem para a fila só existem se o recebimento commitar, e não
+                // se perdem se o nó cair logo depois. A chave evita cobrar de novo
+                // se a solicitação for finalizada outra vez.
                 FaturamentoEvent eventoFaturamento = new FaturamentoEvent(solicitacao.getId(), tenantAtual);
-
-                try {
-                        rabbitTemplate.convertAndSend(MessagingConfig.QUEUE_FATURAMENTO, eventoFaturamento);
-                        log.info("Faturamento solicitado via fila para Solicitação {} no Tenant {}",
-                                        solicitacao.getId(), tenantAtual);
-                } catch (Exception e) {
-                        log.error("Falha ao enviar evento de faturamento para fila", e);
-                        // Não damos throw para não rollbackar a transação do recebimento,
-                        // pois o recebimento físico já aconteceu.
-                }
+                String chave = "entrada:" + solicitacao.getId();
+                outboxService.publicar(OutboxEventos.ENTRADA_FINALIZADA, chave, eventoFaturamento);
+                outboxService.publicarNaFila(MessagingConfig.QUEUE_FATURAMENTO, chave, eventoFaturamento);
+                log.info("Faturamento registrado no outbox para Solicitação {} no Tenant {}",
+                                solicitacao.getId(), tenantAtual);
         }
 
         private void gerarTarefaDivergencia(SolicitacaoEntrada sol, ItemSolicitacaoEntrada item,
@@ -349,19 +345,21 @@ public class RecebimentoWorkflowService {
                 List<Lpn> lpns = lpnRepository.findBySolicitacaoEntradaIdAndStatus(id, StatusLpn.FECHADO);
                 lpns.addAll(lpnRepository.findBySolicitacaoEntradaIdAndStatus(id, StatusLpn.EM_MONTAGEM));
 
+                List<MovimentoCommand> baixas = new ArrayList<>();
                 for (Lpn lpn : lpns) {
                         if (lpn.getLocalizacaoAtual() != null) {
-                                estoqueService.movimentar(
+                                baixas.add(new MovimentoCommand(
                                                 lpn.getItens().get(0).getProduto().getId(),
                                                 lpn.getLocalizacaoAtual().getId(),
                                                 lpn.getItens().get(0).getQuantidade(),
                                                 lpn.getCodigo(), lpn.getItens().get(0).getLote(),
                                                 lpn.getItens().get(0).getNumeroSerie(),
                                                 StatusQualidade.DISPONIVEL, TipoMovimento.AJUSTE_NEGATIVO, usuario,
-                                                "Reset Conferência");
+                                                "Reset Conferência"));
                         }
-                        lpnRepository.delete(lpn);
                 }
+                estoqueService.movimentarLote(baixas);
+                lpnRepository.deleteAll(lpns);
 
                 // 3. Zera Contagem dos Itens
                 for (ItemSolicitacaoEntrada item : solicitacao.getItens()) {
@@ -552,17 +550,19 @@ public class RecebimentoWorkflowService {
                 List<Lpn> lpnsNaDoca = lpnRepository.findBySolicitacaoEntradaIdAndStatus(id, StatusLpn.FECHADO);
                 lpnsNaDoca.addAll(lpnRepository.findBySolicitacaoEntradaIdAndStatus(id, StatusLpn.EM_MONTAGEM));
 
+                List<MovimentoCommand> baixas = new ArrayList<>();
                 for (Lpn lpn : lpnsNaDoca) {
                         if (lpn.getLocalizacaoAtual() != null) {
-                                estoqueService.movimentar(
+                                baixas.add(new MovimentoCommand(
                                                 lpn.getItens().get(0).getProduto().getId(),
                                                 lpn.getLocalizacaoAtual().getId(),
                                                 lpn.getItens().get(0).getQuantidade(), lpn.getCodigo(),
                                                 lpn.getItens().get(0).getLote(), null, StatusQualidade.DISPONIVEL,
-                                                TipoMovimento.AJUSTE_NEGATIVO, usuario, "Cancelamento");
+                                                TipoMovimento.AJUSTE_NEGATIVO, usuario, "Cancelamento"));
                         }
-                        lpnRepository.delete(lpn);
                 }
+                estoqueService.movimentarLote(baixas);
+                lpnRepository.deleteAll(lpnsNaDoca);
 
                 // Cancelar Tarefas
                 tarefaRepo.findBySolicitacaoPaiId(id).forEach(t -> {
@@ -600,16 +600,18 @@ public class RecebimentoWorkflowService {
                         List<Lpn> lpnsSujas = lpnRepository.findBySolicitacaoEntradaIdAndStatus(id, StatusLpn.FECHADO);
                         lpnsSujas.addAll(lpnRepository.findBySolicitacaoEntradaIdAndStatus(id, StatusLpn.EM_MONTAGEM));
 
+                        List<MovimentoCommand> baixas = new ArrayList<>();
                         for (Lpn l : lpnsSujas) {
                                 if (l.getLocalizacaoAtual() != null) {
-                                        estoqueService.movimentar(l.getItens().get(0).getProduto().getId(),
+                                        baixas.add(new MovimentoCommand(l.getItens().get(0).getProduto().getId(),
                                                         l.getLocalizacaoAtual().getId(),
                                                         l.getItens().get(0).getQuantidade(),
                                                         l.getCodigo(), null, null, StatusQualidade.DISPONIVEL,
-                                                        TipoMovimento.AJUSTE_NEGATIVO, usuario, "Exclusão");
+                                                        TipoMovimento.AJUSTE_NEGATIVO, usuario, "Exclusão"));
                                 }
-                                lpnRepository.delete(l);
                         }
+                        estoqueService.movimentarLote(baixas);
+                        lpnRepository.deleteAll(lpnsSujas);
 
                         // --- REGRA DE NEGÓCIO: DESVINCULAR DO AGENDAMENTO ---
                         // O filho "morre" (é excluído), mas o pai (agendamento) continua vivo.
@@ -45,13 +45,13 @@ public class PortariaController {
     // =================================================================================
 
     @GetMapping("/turnos")
-    @PreAuthorize("hasAuthority('CONFIG_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_GERENCIAR')")
     public ResponseEntity<List<Turno>> listarTurnos() {
         return ResponseEntity.ok(turnoRepository.findAll());
     }
 
     @PostMapping("/turnos")
-    @PreAuthorize("hasAuthority('CONFIG_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_GERENCIAR')")
     public ResponseEntity<Turno> criarTurno(@RequestBody @Valid TurnoRequest dto) {
         Turno turno = Turno.builder()
                 .nome(dto.nome())
@@ -64,7 +64,7 @@ public class PortariaController {
     }
 
     @DeleteMapping("/turnos/{id}")
-    @PreAuthorize("hasAuthority('CONFIG_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_GERENCIAR')")
     public ResponseEntity<Void> excluirTurno(@PathVariable Long id) {
         turnoRepository.deleteById(id);
         return ResponseEntity.noContent().build();
@@ -75,7 +75,7 @@ public class PortariaController {
     // =================================================================================
 
     @GetMapping("/agenda")
-    @PreAuthorize("hasAuthority('PORTARIA_AGENDAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PORTARIA_AGENDAR')")
     public ResponseEntity<List<Agendamento>> listarAgenda(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate data) {
 
@@ -88,13 +88,13 @@ public class PortariaController {
     }
 
     @PostMapping("/agenda")
-    @PreAuthorize("hasAuthority('PORTARIA_AGENDAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PORTARIA_AGENDAR')")
     public ResponseEntity<Agendamento> criarAgendamento(@RequestBody @Valid AgendamentoRequest dto) {
         return ResponseEntity.ok(portariaService.criarAgendamentoManual(dto));
     }
 
     @PostMapping(value = "/agenda/{id}/vincular-xml", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @PreAuthorize("hasAuthority('RECEBIMENTO_IMPORTAR_XML') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_IMPORTAR_XML')")
     public ResponseEntity<Void> vincularXml(
             @PathVariable Long id,
             @RequestParam("file") MultipartFile file) {
@@ -104,7 +104,7 @@ public class PortariaController {
     }
 
     @GetMapping("/solicitacoes-saida-pendentes")
-    @PreAuthorize("hasAuthority('PORTARIA_AGENDAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PORTARIA_AGENDAR')")
     public ResponseEntity<List<SolicitacaoSaida>> listarSaidasPendentes() {
         return ResponseEntity.ok(solicitacaoSaidaRepository.findPendentesDeAgendamento());
     }
@@ -132,13 +132,13 @@ public class PortariaController {
     // =================================================================================
 
     @GetMapping("/patio")
-    @PreAuthorize("hasAuthority('PORTARIA_OPERAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PORTARIA_OPERAR')")
     public ResponseEntity<List<Agendamento>> listarPatio() {
         return ResponseEntity.ok(agendamentoRepository.findVeiculosNoPatio());
     }
 
     @PostMapping("/checkin/{codigoReserva}")
-    @PreAuthorize("hasAuthority('PORTARIA_OPERAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PORTARIA_OPERAR')")
     public ResponseEntity<Agendamento> realizarCheckin(
             @PathVariable String codigoReserva,
             @RequestParam String placa,
@@ -187,7 +187,7 @@ public class PortariaController {
     }
 
     @PostMapping(value = "/checkout/{codigoReserva}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @PreAuthorize("hasAuthority('PORTARIA_OPERAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PORTARIA_OPERAR')")
     public ResponseEntity<Agendamento> realizarCheckout(
             @PathVariable String codigoReserva,
             @RequestParam(value = "assinatura", required = false) MultipartFile assinatura) {
@@ -217,7 +217,7 @@ public class PortariaController {
     }
 
     @PostMapping("/operacao/{id}/encostar")
-    @PreAuthorize("hasAuthority('PORTARIA_OPERAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PORTARIA_OPERAR')")
     public ResponseEntity<Void> encostarVeiculo(
             @PathVariable Long id,
             @RequestParam(required = false) Long docaId) {
@@ -16,7 +16,7 @@ public class PortariaOperacaoController {
     private final PortariaService portariaService;
 
     @PostMapping("/entrada/{solicitacaoId}/encostar")
-    @PreAuthorize("hasAuthority('RECEBIMENTO_OPERAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_OPERAR')")
     public ResponseEntity<Void> encostarEntrada(
             @PathVariable Long solicitacaoId,
             @RequestParam Long docaId) {
@@ -26,7 +26,7 @@ public class PortariaOperacaoController {
     }
 
     @PostMapping(value = "/entrada/{solicitacaoId}/liberar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @PreAuthorize("hasAuthority('RECEBIMENTO_FINALIZAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('RECEBIMENTO_FINALIZAR')")
     public ResponseEntity<Void> liberarEntrada(
             @PathVariable Long solicitacaoId,
             @RequestParam("assinatura") MultipartFile assinatura) {
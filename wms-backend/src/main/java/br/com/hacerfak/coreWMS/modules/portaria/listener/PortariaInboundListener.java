@@ -1,6 +1,6 @@
 package br.com.hacerfak.coreWMS.modules.portaria.listener;
 
-import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.core.async.LimiteConcorrencia;
 import br.com.hacerfak.coreWMS.modules.operacao.event.EntradaFinalizadaEvent;
 import br.com.hacerfak.coreWMS.modules.portaria.service.PortariaService;
 import lombok.RequiredArgsConstructor;
@@ -21,19 +21,15 @@ public class PortariaInboundListener {
      * Reage quando uma entrada é finalizada no WMS.
      * Objetivo: Liberar a doca e mover o caminhão para status 'AGUARDANDO_SAIDA'.
      */
-    @Async
+    @Async // Tenant e usuário chegam pelo ContextoTaskDecorator
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @LimiteConcorrencia(nome = "portaria-liberacao-doca", padrao = 2)
     public void onEntradaFinalizada(EntradaFinalizadaEvent event) {
-        // Configura o Tenant na thread assíncrona
-        TenantContext.setTenant(event.tenantId());
-
         try {
             log.info("Portaria: Processando liberação de doca para Solicitação #{}", event.solicitacaoId());
             portariaService.liberarDocaPorSolicitacao(event.solicitacaoId());
         } catch (Exception e) {
             log.error("Erro ao liberar doca automaticamente para solicitação {}", event.solicitacaoId(), e);
-        } finally {
-            TenantContext.clear();
         }
     }
 }
\ No newline at end of file
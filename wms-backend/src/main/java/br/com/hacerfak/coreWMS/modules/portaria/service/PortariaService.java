@@ -7,6 +7,7 @@ import br.com.hacerfak.coreWMS.modules.estoque.repository.LocalizacaoRepository;
 import br.com.hacerfak.coreWMS.modules.expedicao.domain.SolicitacaoSaida;
 import br.com.hacerfak.coreWMS.modules.expedicao.repository.SolicitacaoSaidaRepository;
 import br.com.hacerfak.coreWMS.modules.operacao.domain.SolicitacaoEntrada;
+import br.com.hacerfak.coreWMS.modules.operacao.dto.NfeXmlDados;
 import br.com.hacerfak.coreWMS.modules.operacao.repository.SolicitacaoEntradaRepository;
 import br.com.hacerfak.coreWMS.modules.operacao.service.NfeImportService;
 import br.com.hacerfak.coreWMS.modules.operacao.service.RecebimentoWorkflowService;
@@ -78,12 +79,14 @@ public class PortariaService {
         }
 
         // 1. Importa os Itens (Cria Solicitação e Itens)
-        SolicitacaoEntrada novaSolicitacaoComItens = nfeImportService.importarXml(file, agendamento.getCodigoReserva());
+        // O XML é lido uma única vez e reaproveitado nos dois passos
+        NfeXmlDados nfe = nfeImportService.lerXml(file);
+        SolicitacaoEntrada novaSolicitacaoComItens = nfeImportService.importar(nfe, agendamento.getCodigoReserva());
 
         // 2. Recupera Transportadora do XML e atualiza Agendamento (se não tiver uma
         // fixa)
         // Isso automatiza o cadastro da transportadora
-        nfeImportService.extrairTransportadoraDoXml(file).ifPresent(transportadora -> {
+        nfeImportService.extrairTransportadora(nfe).ifPresent(transportadora -> {
             if (agendamento.getTransportadora() == null) {
                 agendamento.setTransportadora(transportadora);
                 // Não salvamos ainda, será salvo abaixo
@@ -1,8 +1,7 @@
 package br.com.hacerfak.coreWMS.modules.seguranca.config;
 
 import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
-import br.com.hacerfak.coreWMS.modules.impressao.domain.AgenteImpressao;
-import br.com.hacerfak.coreWMS.modules.impressao.repository.AgenteImpressaoRepository;
+import br.com.hacerfak.coreWMS.modules.impressao.dto.CredencialAgente;
 import br.com.hacerfak.coreWMS.modules.impressao.service.AgenteImpressaoService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -26,7 +25,6 @@ import java.util.Optional;
 @Slf4j
 public class ApiKeyAuthFilter extends OncePerRequestFilter {
 
-    private final AgenteImpressaoRepository agenteRepository;
     private final AgenteImpressaoService agenteService;
 
     @Value("${api.security.routes.print-agent:/api/impressao/fila}")
@@ -50,20 +48,20 @@ public class ApiKeyAuthFilter extends OncePerRequestFilter {
             }
 
             try {
-                // 2. Validação da Chave (Agora no banco correto!)
-                Optional<AgenteImpressao> agenteOpt = agenteRepository.findByApiKeyAndAtivoTrue(requestKey);
+                // 2. Validação da Chave (cache por tenant; banco só na primeira vez)
+                Optional<CredencialAgente> agenteOpt = agenteService.autenticar(requestKey);
 
                 if (agenteOpt.isPresent()) {
-                    AgenteImpressao agente = agenteOpt.get();
+                    CredencialAgente agente = agenteOpt.get();
 
                     // Autentica no Spring Security
                     var auth = new UsernamePasswordAuthenticationToken(
-                            agente.getNome(),
+                            agente.nome(),
                             null,
                             Collections.singletonList(new SimpleGrantedAuthority("ROLE_AGENT")));
                     SecurityContextHolder.getContext().setAuthentication(auth);
 
-                    // Heartbeat
+                    // Heartbeat (gravado no máximo uma vez por intervalo)
                     agenteService.registrarHeartbeat(agente, agenteVersao);
                 } else {
                     log.warn("Tentativa de acesso com chave inválida no tenant: {}", tenantId);
@@ -0,0 +1,54 @@
+package br.com.hacerfak.coreWMS.modules.seguranca.config;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+import java.util.function.Supplier;
+
+/**
+ * Avalia as expressões de segurança de método com o PermissaoExpressionRoot.
+ *
+ * Cada expressão é interpretada só na primeira avaliação de cada método (o
+ * Spring Security guarda a expressão já lida por método); com o compilador
+ * SpEL em modo MIXED, depois de algumas avaliações ela vira bytecode e
+ * hasPermission('X') passa a ser uma chamada direta.
+ */
+public class PermissaoExpressionHandler extends DefaultMethodSecurityExpressionHandler {
+
+    public PermissaoExpressionHandler() {
+        setExpressionParser(new SpelExpressionParser(
+                new SpelParserConfiguration(SpelCompilerMode.MIXED, getClass().getClassLoader())));
+    }
+
+    @Override
+    public EvaluationContext createEvaluationContext(Supplier<? extends Authentication> authentication,
+            MethodInvocation mi) {
+        // Mantém variáveis de parâmetro e bean resolver do contexto padrão, trocando só a raiz
+        StandardEvaluationContext ctx = (StandardEvaluationContext) super.createEvaluationContext(authentication, mi);
+        ctx.setRootObject(criarRaiz(authentication, mi));
+        return ctx;
+    }
+
+    @Override
+    protected MethodSecurityExpressionOperations createSecurityExpressionRoot(Authentication authentication,
+            MethodInvocation invocation) {
+        return criarRaiz(() -> authentication, invocation);
+    }
+
+    private PermissaoExpressionRoot criarRaiz(Supplier<? extends Authentication> authentication,
+            MethodInvocation mi) {
+        PermissaoExpressionRoot root = new PermissaoExpressionRoot(authentication, mi);
+        root.setThis(mi.getThis());
+        root.setPermissionEvaluator(getPermissionEvaluator());
+        // Trust resolver, hierarquia e prefixo de papéis vêm juntos na fábrica
+        root.setAuthorizationManagerFactory(getAuthorizationManagerFactory());
+        return root;
+    }
+}
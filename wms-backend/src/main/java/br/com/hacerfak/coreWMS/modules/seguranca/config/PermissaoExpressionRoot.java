@@ -0,0 +1,80 @@
+package br.com.hacerfak.coreWMS.modules.seguranca.config;
+
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.PermissaoEnum;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.Usuario;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.security.access.expression.SecurityExpressionRoot;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Raiz das expressões de @PreAuthorize/@PostAuthorize.
+ *
+ * hasPermission('NOME') testa um bit do bitset de permissões do principal
+ * (Usuario montado do token), sem percorrer a lista de autoridades. Admin
+ * global passa em qualquer permissão, como no antigo
+ * "hasAuthority('X') or hasRole('ADMIN')".
+ */
+public class PermissaoExpressionRoot extends SecurityExpressionRoot<MethodInvocation>
+        implements MethodSecurityExpressionOperations {
+
+    private static final Map<String, PermissaoEnum> PERMISSOES = new HashMap<>();
+
+    static {
+        for (PermissaoEnum p : PermissaoEnum.values())
+            PERMISSOES.put(p.name(), p);
+    }
+
+    private Object filterObject;
+    private Object returnObject;
+    private Object target;
+
+    public PermissaoExpressionRoot(Supplier<? extends Authentication> authentication, MethodInvocation invocation) {
+        super(authentication, invocation);
+    }
+
+    /**
+     * Permissão de PermissaoEnum pelo bitset do principal. Principais sem
+     * bitset (agente de impressão, testes) e nomes fora do enum caem no
+     * hasAuthority comum.
+     */
+    public boolean hasPermission(String permissao) {
+        PermissaoEnum p = PERMISSOES.get(permissao);
+        if (p != null && getPrincipal() instanceof Usuario usuario && usuario.getPermissoes() != null)
+            return usuario.possuiPermissao(p);
+        return hasAuthority(permissao) || hasRole("ADMIN");
+    }
+
+    @Override
+    public void setFilterObject(Object filterObject) {
+        this.filterObject = filterObject;
+    }
+
+    @Override
+    public Object getFilterObject() {
+        return filterObject;
+    }
+
+    @Override
+    public void setReturnObject(Object returnObject) {
+        this.returnObject = returnObject;
+    }
+
+    @Override
+    public Object getReturnObject() {
+        return returnObject;
+    }
+
+    void setThis(Object target) {
+        this.target = target;
+    }
+
+    @Override
+    public Object getThis() {
+        return target;
+    }
+}
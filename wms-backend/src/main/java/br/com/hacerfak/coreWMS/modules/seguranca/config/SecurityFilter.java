@@ -1,14 +1,17 @@
 package br.com.hacerfak.coreWMS.modules.seguranca.config;
 
 import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.UserRole;
 import br.com.hacerfak.coreWMS.modules.seguranca.domain.Usuario;
-import br.com.hacerfak.coreWMS.modules.seguranca.repository.UsuarioRepository;
+import br.com.hacerfak.coreWMS.modules.seguranca.service.RevogacaoTokenService;
 import br.com.hacerfak.coreWMS.modules.seguranca.service.TokenService;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value; // <--- Import Adicionado
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,10 +22,14 @@ import java.io.IOException;
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class SecurityFilter extends OncePerRequestFilter {
 
+    // Token já verificado, disponível para o resto da requisição
+    public static final String ATRIBUTO_TOKEN = SecurityFilter.class.getName() + ".TOKEN";
+
     private final TokenService tokenService;
-    private final UsuarioRepository usuarioRepository;
+    private final RevogacaoTokenService revogacaoTokenService;
 
     @Value("${api.security.routes.print-agent:/api/impressao/fila}") // <--- Injeção Adicionada
     private String rotaAgente;
@@ -59,27 +66,44 @@ public class SecurityFilter extends OncePerRequestFilter {
         var token = this.recoverToken(request);
 
         if (token != null) {
-            var login = tokenService.validateToken(token);
+            // Única verificação de assinatura da requisição; o resto sai das claims
+            DecodedJWT jwt = tokenService.verificar(token);
 
-            if (!login.isEmpty()) {
+            if (jwt != null) {
                 try {
-                    Usuario usuario = usuarioRepository.findByLoginWithAcessos(login)
-                            .orElseThrow(() -> new RuntimeException("Usuário não encontrado: " + login));
-
-                    String tenantId = tokenService.getTenantFromToken(token);
-
-                    if (tenantId != null) {
-                        TenantContext.setTenant(tenantId);
-                    } else {
-                        TenantContext.setTenant(TenantContext.DEFAULT_TENANT_ID);
+                    Long usuarioId = tokenService.getUsuarioId(jwt);
+                    int versao = tokenService.getVersao(jwt);
+
+                    if (usuarioId != null && revogacaoTokenService.valido(usuarioId, versao)) {
+                        String tenantId = tokenService.getTenant(jwt);
+
+                        if (tenantId != null) {
+                            TenantContext.setTenant(tenantId);
+                        } else {
+                            TenantContext.setTenant(TenantContext.DEFAULT_TENANT_ID);
+                        }
+
+                        // Principal montado do token (não é carregado do banco): id, login, papel
+                        // e o bitset usado pelo hasPermission das anotações de segurança
+                        boolean admin = tokenService.isAdmin(jwt);
+                        long[] permissoes = tokenService.getPermissoes(jwt);
+                        Usuario usuario = Usuario.builder()
+                                .id(usuarioId)
+                                .login(jwt.getSubject())
+                                .role(admin ? UserRole.ADMIN : UserRole.USER)
+                                .versaoToken(versao)
+                                .permissoes(permissoes)
+                                .ativo(true)
+                                .build();
+
+                        var authentication = new UsernamePasswordAuthenticationToken(usuario, null,
+                                tokenService.getAuthorities(admin, permissoes));
+                        SecurityContextHolder.getContext().setAuthentication(authentication);
+                        request.setAttribute(ATRIBUTO_TOKEN, jwt);
                     }
 
-                    var authentication = new UsernamePasswordAuthenticationToken(usuario, null,
-                            usuario.getAuthorities());
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-
                 } catch (Exception e) {
-                    System.out.println(">>> ERRO DE AUTENTICAÇÃO: " + e.getMessage());
+                    log.warn(">>> ERRO DE AUTENTICAÇÃO: {}", e.getMessage());
                     SecurityContextHolder.clearContext();
                 }
             }
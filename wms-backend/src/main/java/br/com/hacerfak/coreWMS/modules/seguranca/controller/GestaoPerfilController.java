@@ -37,7 +37,7 @@ public class GestaoPerfilController {
 
     // 3. CRIAR / EDITAR PERFIL
     @PostMapping
-    @PreAuthorize("hasAuthority('PERFIL_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PERFIL_GERENCIAR')")
     public ResponseEntity<Perfil> salvarPerfil(@RequestBody Perfil perfil) {
         // Se for edição, mantém o ID. Se novo, ID vem null.
         return ResponseEntity.ok(perfilRepository.save(perfil));
@@ -53,7 +53,7 @@ public class GestaoPerfilController {
 
     // 5. EXCLUIR
     @DeleteMapping("/{id}")
-    @PreAuthorize("hasAuthority('PERFIL_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('PERFIL_GERENCIAR')")
     public ResponseEntity<Void> excluir(@PathVariable Long id) {
         perfilRepository.deleteById(id);
         return ResponseEntity.noContent().build();
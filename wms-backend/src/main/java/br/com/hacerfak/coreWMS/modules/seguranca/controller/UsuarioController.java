@@ -22,26 +22,26 @@ public class UsuarioController {
     private final UsuarioService usuarioService;
 
     @GetMapping
-    @PreAuthorize("hasAuthority('USUARIO_LISTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('USUARIO_LISTAR')")
     public ResponseEntity<List<UsuarioDTO>> listarTodos() {
         return ResponseEntity.ok(usuarioService.listarTodosGlobal());
     }
 
     @GetMapping("/{id}")
-    @PreAuthorize("hasAuthority('USUARIO_LISTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('USUARIO_LISTAR')")
     public ResponseEntity<UsuarioDTO> buscarPorId(@PathVariable Long id) {
         return ResponseEntity.ok(usuarioService.buscarPorId(id));
     }
 
     @PostMapping
-    @PreAuthorize("hasAuthority('USUARIO_CRIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('USUARIO_CRIAR')")
     public ResponseEntity<UsuarioDTO> criarUsuario(@RequestBody CriarUsuarioRequest request) {
         UsuarioDTO criado = usuarioService.salvarUsuarioGlobal(null, request);
         return ResponseEntity.status(HttpStatus.CREATED).body(criado);
     }
 
     @PutMapping("/{id}")
-    @PreAuthorize("hasAuthority('USUARIO_EDITAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('USUARIO_EDITAR')")
     public ResponseEntity<UsuarioDTO> atualizarUsuario(@PathVariable Long id,
             @RequestBody CriarUsuarioRequest request) {
         return ResponseEntity.ok(usuarioService.salvarUsuarioGlobal(id, request));
@@ -57,21 +57,21 @@ public class UsuarioController {
     // --- VÍNCULOS ---
 
     @GetMapping("/{id}/empresas")
-    @PreAuthorize("hasAuthority('USUARIO_LISTAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('USUARIO_LISTAR')")
     public ResponseEntity<List<EmpresaResumoDTO>> listarEmpresasVinculadas(@PathVariable Long id) {
         return ResponseEntity.ok(usuarioService.listarEmpresasDoUsuario(id));
     }
 
     // NOVO: Endpoint para listar perfis disponíveis na empresa selecionada
     @GetMapping("/perfis-disponiveis/{empresaId}")
-    @PreAuthorize("hasAuthority('USUARIO_EDITAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('USUARIO_EDITAR')")
     public ResponseEntity<List<Perfil>> listarPerfisDaEmpresa(@PathVariable Long empresaId) {
         return ResponseEntity.ok(usuarioService.listarPerfisPorEmpresa(empresaId));
     }
 
     // CORREÇÃO: Recebe perfilId como Long (não mais role string)
     @PostMapping("/{id}/empresas")
-    @PreAuthorize("hasAuthority('USUARIO_EDITAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('USUARIO_EDITAR')")
     public ResponseEntity<Void> vincularEmpresa(
             @PathVariable Long id,
             @RequestBody Map<String, Object> body) {
@@ -84,7 +84,7 @@ public class UsuarioController {
     }
 
     @DeleteMapping("/{id}/empresas/{empresaId}")
-    @PreAuthorize("hasAuthority('USUARIO_EDITAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('USUARIO_EDITAR')")
     public ResponseEntity<Void> desvincularEmpresa(@PathVariable Long id, @PathVariable Long empresaId) {
         usuarioService.desvincularEmpresa(id, empresaId);
         return ResponseEntity.noContent().build();
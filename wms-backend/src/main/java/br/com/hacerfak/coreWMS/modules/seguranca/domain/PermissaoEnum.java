@@ -1,5 +1,7 @@
 package br.com.hacerfak.coreWMS.modules.seguranca.domain;
 
+// O ordinal vai no bitset "perm" do token: novas permissões entram sempre
+// no final e nenhuma é removida ou reordenada
 public enum PermissaoEnum {
     // --- CADASTROS BÁSICOS ---
     PRODUTO_VISUALIZAR,
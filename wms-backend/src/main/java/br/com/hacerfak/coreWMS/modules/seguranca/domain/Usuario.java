@@ -38,9 +38,27 @@ public class Usuario extends BaseEntity implements UserDetails {
     @Enumerated(EnumType.STRING)
     private UserRole role;
 
+    // Vai no token; incrementada para revogar os tokens já emitidos. Só muda
+    // pelo UPDATE ... + 1 do RevogacaoTokenService: o save() de uma entidade
+    // carregada antes não sobrescreve um incremento concorrente
+    @Column(name = "versao_token", nullable = false, updatable = false)
+    private int versaoToken;
+
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<UsuarioEmpresa> acessos;
 
+    // Bitset dos ordinais de PermissaoEnum no tenant do token; só existe no
+    // principal montado pelo SecurityFilter
+    @Transient
+    private long[] permissoes;
+
+    public boolean possuiPermissao(PermissaoEnum permissao) {
+        if (this.role == UserRole.ADMIN)
+            return true;
+        int bit = permissao.ordinal();
+        return permissoes != null && (bit >>> 6) < permissoes.length && (permissoes[bit >>> 6] & (1L << bit)) != 0;
+    }
+
     // ... (Mantenha os métodos da interface UserDetails inalterados) ...
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
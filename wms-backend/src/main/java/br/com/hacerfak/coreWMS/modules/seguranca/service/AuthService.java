@@ -1,10 +1,13 @@
 package br.com.hacerfak.coreWMS.modules.seguranca.service;
 
 import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.modules.cadastro.service.BarcodeResolver;
 import br.com.hacerfak.coreWMS.modules.seguranca.domain.*;
 import br.com.hacerfak.coreWMS.modules.seguranca.dto.*;
 import br.com.hacerfak.coreWMS.modules.seguranca.repository.*;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,6 +18,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class AuthService {
 
@@ -22,6 +26,7 @@ public class AuthService {
     private final UsuarioPerfilRepository usuarioPerfilRepository;
     private final TokenService tokenService;
     private final AuthenticationManager authenticationManager;
+    private final BarcodeResolver barcodeResolver;
 
     public LoginResponseDTO login(AuthenticationDTO data) {
         // A autenticação chama o AuthorizationService que já corrigimos acima.
@@ -94,6 +99,14 @@ public class AuthService {
             TenantContext.clear();
         }
 
+        // Aquece o índice de códigos de barras antes do primeiro scan. Com o
+        // executor @Async saturado só pula: o primeiro scan carrega o índice
+        try {
+            barcodeResolver.aquecer(tenantId);
+        } catch (TaskRejectedException e) {
+            log.debug("Aquecimento do índice de códigos do tenant {} ignorado: {}", tenantId, e.getMessage());
+        }
+
         var tokenComTenant = tokenService.generateToken(usuario, tenantId, authorities);
 
         // CORREÇÃO: Passando usuario.getId()
@@ -0,0 +1,102 @@
+package br.com.hacerfak.coreWMS.modules.seguranca.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Revogação dos JWT pela versão do token do usuário (tb_usuario.versao_token).
+ *
+ * A autenticação confere a versão do token com o estado do usuário guardado
+ * aqui por alguns segundos, em vez de carregar o usuário do master a cada
+ * requisição. Revogar incrementa a versão: neste nó vale na hora, nos
+ * outros quando a entrada expira.
+ */
+@Service
+@Slf4j
+public class RevogacaoTokenService {
+
+    private final JdbcTemplate masterJdbc;
+    private final MeterRegistry meterRegistry;
+    private final LoadingCache<Long, Optional<EstadoUsuario>> estados;
+
+    public RevogacaoTokenService(DataSource masterDataSource, MeterRegistry meterRegistry,
+            @Value("${wms.seguranca.token.cache-ttl-segundos:30}") long ttlSegundos,
+            @Value("${wms.seguranca.token.cache-max-entradas:10000}") long maxEntradas) {
+        this.masterJdbc = new JdbcTemplate(masterDataSource);
+        this.meterRegistry = meterRegistry;
+        this.estados = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .build(this::carregar);
+
+        Gauge.builder("wms.seguranca.token.cache.tamanho", estados, LoadingCache::estimatedSize)
+                .description("Usuários com estado de token em cache neste nó")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Token ainda vale: usuário existe, está ativo e a versão não mudou.
+     */
+    public boolean valido(Long usuarioId, int versao) {
+        Optional<EstadoUsuario> estado = estados.get(usuarioId);
+        boolean valido = estado.isPresent() && estado.get().ativo() && estado.get().versao() == versao;
+        if (!valido) {
+            Counter.builder("wms.seguranca.token.rejeitados")
+                    .description("Tokens com assinatura válida recusados por revogação")
+                    .register(meterRegistry)
+                    .increment();
+        }
+        return valido;
+    }
+
+    /**
+     * Invalida todos os tokens emitidos para o usuário. Dentro de uma
+     * transação, o cache local só é limpo depois do commit.
+     */
+    public void revogar(Long usuarioId) {
+        masterJdbc.update("UPDATE tb_usuario SET versao_token = versao_token + 1 WHERE id = ?", usuarioId);
+        esquecer(usuarioId);
+        log.info("Tokens do usuário {} revogados", usuarioId);
+    }
+
+    /**
+     * Descarta o estado em cache (após alterar versao_token ou ativo pelo
+     * JPA).
+     */
+    public void esquecer(Long usuarioId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    estados.invalidate(usuarioId);
+                }
+            });
+        } else {
+            estados.invalidate(usuarioId);
+        }
+    }
+
+    private Optional<EstadoUsuario> carregar(Long usuarioId) {
+        List<EstadoUsuario> linhas = masterJdbc.query(
+                "SELECT ativo, versao_token FROM tb_usuario WHERE id = ?",
+                (rs, i) -> new EstadoUsuario(rs.getBoolean("ativo"), rs.getInt("versao_token")), usuarioId);
+        return linhas.stream().findFirst();
+    }
+
+    private record EstadoUsuario(boolean ativo, int versao) {
+    }
+}
@@ -1,38 +1,90 @@
 package br.com.hacerfak.coreWMS.modules.seguranca.service;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.PermissaoEnum;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.UserRole;
 import br.com.hacerfak.coreWMS.modules.seguranca.domain.Usuario;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * Emissão e verificação dos JWT.
+ *
+ * O token carrega tudo que a requisição precisa para autenticar sem ir ao
+ * banco: id do usuário, tenant, versão do token (revogação) e as
+ * permissões como bitset dos ordinais de PermissaoEnum em Base64. A lista
+ * "roles" continua no token só para o frontend.
+ */
 @Service
+@Slf4j
 public class TokenService {
 
+    static final String CLAIM_USUARIO = "uid";
+    static final String CLAIM_TENANT = "tenant";
+    static final String CLAIM_VERSAO = "ver";
+    static final String CLAIM_ADMIN = "adm";
+    static final String CLAIM_PERMISSOES = "perm";
+    static final String CLAIM_ROLES = "roles";
+
+    private static final PermissaoEnum[] PERMISSOES = PermissaoEnum.values();
+    // Uma instância por permissão, reaproveitada em todas as requisições
+    private static final GrantedAuthority[] AUTORIDADES = new GrantedAuthority[PERMISSOES.length];
+    private static final GrantedAuthority ROLE_ADMIN = new SimpleGrantedAuthority("ROLE_ADMIN");
+    private static final GrantedAuthority ROLE_USER = new SimpleGrantedAuthority("ROLE_USER");
+
+    static {
+        for (PermissaoEnum p : PERMISSOES)
+            AUTORIDADES[p.ordinal()] = new SimpleGrantedAuthority(p.name());
+    }
+
     @Value("${api.security.token.secret:segredo}")
     private String secret;
 
+    private Algorithm algorithm;
+    private JWTVerifier verifier;
+
+    @PostConstruct
+    public void iniciar() {
+        // Algorithm e JWTVerifier são imutáveis e thread-safe: montados uma vez só
+        algorithm = Algorithm.HMAC256(secret);
+        verifier = JWT.require(algorithm).withIssuer("wms-api").build();
+    }
+
     public String generateToken(Usuario usuario, String tenantId, List<String> authorities) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
             var builder = JWT.create()
                     .withIssuer("wms-api")
                     .withSubject(usuario.getLogin())
+                    .withClaim(CLAIM_USUARIO, usuario.getId())
+                    .withClaim(CLAIM_VERSAO, usuario.getVersaoToken())
+                    .withClaim(CLAIM_ADMIN, usuario.getRole() == UserRole.ADMIN)
                     .withExpiresAt(genExpirationDate()); // Usa a nova data segura
 
             if (tenantId != null) {
-                builder.withClaim("tenant", tenantId);
+                builder.withClaim(CLAIM_TENANT, tenantId);
             }
 
             if (authorities != null && !authorities.isEmpty()) {
-                builder.withClaim("roles", authorities);
+                builder.withClaim(CLAIM_ROLES, authorities);
+                builder.withClaim(CLAIM_PERMISSOES, codificarPermissoes(authorities));
             }
 
             return builder.sign(algorithm);
@@ -46,36 +98,94 @@ public class TokenService {
         return generateToken(usuario, tenantId, List.of());
     }
 
-    public String validateToken(String token) {
+    /**
+     * Verifica assinatura, emissor e validade uma única vez. Retorna null se
+     * o token for inválido.
+     */
+    public DecodedJWT verificar(String token) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
-            return JWT.require(algorithm)
-                    .withIssuer("wms-api")
-                    .build()
-                    .verify(token)
-                    .getSubject();
+            return verifier.verify(token);
         } catch (JWTVerificationException exception) {
-            // --- LOG DE DIAGNÓSTICO ---
-            System.out.println(">>> FALHA NA VALIDAÇÃO DO TOKEN: " + exception.getMessage());
-            return "";
+            log.debug("Token JWT rejeitado: {}", exception.getMessage());
+            return null;
         }
     }
 
+    public String validateToken(String token) {
+        DecodedJWT jwt = verificar(token);
+        return jwt != null ? jwt.getSubject() : "";
+    }
+
     public String getTenantFromToken(String token) {
-        try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
-            DecodedJWT jwt = JWT.require(algorithm)
-                    .withIssuer("wms-api")
-                    .build()
-                    .verify(token);
+        DecodedJWT jwt = verificar(token);
+        return jwt != null ? getTenant(jwt) : null;
+    }
+
+    // --- LEITURA DAS CLAIMS (token já verificado) ---
 
-            if (jwt.getClaim("tenant").isNull()) {
-                return null;
+    public String getTenant(DecodedJWT jwt) {
+        Claim tenant = jwt.getClaim(CLAIM_TENANT);
+        return tenant.isMissing() || tenant.isNull() ? null : tenant.asString();
+    }
+
+    /** Id do usuário; null em tokens emitidos antes da claim existir. */
+    public Long getUsuarioId(DecodedJWT jwt) {
+        Claim uid = jwt.getClaim(CLAIM_USUARIO);
+        return uid.isMissing() || uid.isNull() ? null : uid.asLong();
+    }
+
+    public int getVersao(DecodedJWT jwt) {
+        Claim versao = jwt.getClaim(CLAIM_VERSAO);
+        return versao.isMissing() || versao.isNull() ? 0 : versao.asInt();
+    }
+
+    public boolean isAdmin(DecodedJWT jwt) {
+        return Boolean.TRUE.equals(jwt.getClaim(CLAIM_ADMIN).asBoolean());
+    }
+
+    /**
+     * ROLE_* pelo papel global e uma autoridade por bit do bitset de
+     * permissões (sem consultar usuário ou perfis).
+     */
+    public Collection<GrantedAuthority> getAuthorities(DecodedJWT jwt) {
+        return getAuthorities(isAdmin(jwt), getPermissoes(jwt));
+    }
+
+    public Collection<GrantedAuthority> getAuthorities(boolean admin, long[] permissoes) {
+        List<GrantedAuthority> authorities = new ArrayList<>(admin ? PERMISSOES.length + 2 : 16);
+        if (admin)
+            authorities.add(ROLE_ADMIN);
+        authorities.add(ROLE_USER);
+
+        BitSet bits = BitSet.valueOf(permissoes);
+        for (int i = bits.nextSetBit(0); i >= 0 && i < AUTORIDADES.length; i = bits.nextSetBit(i + 1))
+            authorities.add(AUTORIDADES[i]);
+        return authorities;
+    }
+
+    /**
+     * Bitset de permissões do token em palavras de 64 bits (bit i = ordinal i
+     * de PermissaoEnum); vazio se o token não tiver tenant selecionado.
+     */
+    public long[] getPermissoes(DecodedJWT jwt) {
+        String bits = jwt.getClaim(CLAIM_PERMISSOES).asString();
+        if (bits == null)
+            return new long[0];
+        return BitSet.valueOf(Base64.getUrlDecoder().decode(bits)).toLongArray();
+    }
+
+    // Ordinais de PermissaoEnum; ROLE_* e nomes desconhecidos ficam fora do bitset
+    static String codificarPermissoes(Collection<String> authorities) {
+        BitSet bits = new BitSet(PERMISSOES.length);
+        for (String authority : authorities) {
+            for (PermissaoEnum p : PERMISSOES) {
+                if (p.name().equals(authority)) {
+                    bits.set(p.ordinal());
+                    break;
+                }
             }
-            return jwt.getClaim("tenant").asString();
-        } catch (JWTVerificationException exception) {
-            return null;
         }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray());
     }
 
     // --- CORREÇÃO DE TIMEZONE ---
@@ -84,4 +194,4 @@ public class TokenService {
         // Funciona independente se o servidor está no Brasil, EUA ou China.
         return Instant.now().plus(8, ChronoUnit.HOURS);
     }
-}
\ No newline at end of file
+}
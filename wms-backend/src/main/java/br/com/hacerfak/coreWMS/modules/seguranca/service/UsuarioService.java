@@ -33,6 +33,7 @@ public class UsuarioService {
     private final PasswordEncoder passwordEncoder;
     private final PlatformTransactionManager transactionManager;
     private final AuditService auditService;
+    private final RevogacaoTokenService revogacaoTokenService;
 
     // --- HELPERS ---
     @Transactional(propagation = Propagation.REQUIRES_NEW)
@@ -83,7 +84,8 @@ public class UsuarioService {
     }
 
     public UsuarioDTO salvarUsuarioGlobal(Long id, CriarUsuarioRequest req) {
-        return callAsMaster(() -> {
+        boolean[] revogarTokens = new boolean[1];
+        UsuarioDTO dto = callAsMaster(() -> {
             return new TransactionTemplate(transactionManager).execute(status -> {
                 Usuario usuario;
                 boolean isSelf = false;
@@ -112,18 +114,27 @@ public class UsuarioService {
                 usuario.setLogin(req.login());
                 usuario.setEmail(req.email());
 
+                boolean estavaAtivo = usuario.isAtivo();
                 if (isSelf && !isManager) {
                     // Ignora status se for auto-edição de usuário comum
                 } else {
                     usuario.setAtivo(req.ativo() != null ? req.ativo() : true);
                 }
 
+                boolean senhaAlterada = false;
                 if (req.senha() != null && !req.senha().isBlank()) {
                     usuario.setSenha(passwordEncoder.encode(req.senha()));
+                    senhaAlterada = true;
                 } else if (id == null) {
                     throw new IllegalArgumentException("Senha é obrigatória para novos usuários.");
                 }
 
+                // Desativação ou troca de senha por terceiros derruba as sessões abertas
+                // (a própria troca de senha mantém o token de quem está editando)
+                if (id != null && ((estavaAtivo && !usuario.isAtivo()) || (senhaAlterada && !isSelf))) {
+                    revogarTokens[0] = true;
+                }
+
                 Usuario salvo = usuarioRepository.save(usuario);
                 // Note: auditService.registrarLogManual não é estritamente necessário aqui pois
                 // o save() dispara o Listener,
@@ -133,6 +144,12 @@ public class UsuarioService {
                         salvo.isAtivo(), false);
             });
         });
+
+        // Depois do commit, como no vincular/desvincular: o incremento é só SQL
+        // (versao_token não é atualizável pelo JPA)
+        if (revogarTokens[0])
+            revogacaoTokenService.revogar(id);
+        return dto;
     }
 
     public void excluirUsuarioGlobal(Long id) {
@@ -184,6 +201,7 @@ public class UsuarioService {
 
                 usuarioEmpresaRepository.deleteByUsuarioId(id);
                 usuarioRepository.deleteById(id);
+                revogacaoTokenService.esquecer(id);
                 return null;
             });
         });
@@ -280,6 +298,9 @@ public class UsuarioService {
             else
                 TenantContext.clear();
         }
+
+        // Permissões vão no token: o usuário seleciona a empresa de novo com o perfil novo
+        revogacaoTokenService.revogar(usuarioId);
     }
 
     public void desvincularEmpresa(Long usuarioId, Long empresaId) {
@@ -316,5 +337,7 @@ public class UsuarioService {
                 return null;
             });
         });
+
+        revogacaoTokenService.revogar(usuarioId);
     }
 }
\ No newline at end of file
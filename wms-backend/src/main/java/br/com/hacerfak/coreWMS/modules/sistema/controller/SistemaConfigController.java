@@ -1,5 +1,6 @@
 package br.com.hacerfak.coreWMS.modules.sistema.controller;
 
+import br.com.hacerfak.coreWMS.modules.auditoria.service.PoliticaAuditoriaService;
 import br.com.hacerfak.coreWMS.modules.sistema.domain.SistemaConfig;
 import br.com.hacerfak.coreWMS.modules.sistema.repository.SistemaConfigRepository;
 import lombok.RequiredArgsConstructor;
@@ -15,9 +16,10 @@ import java.util.Map;
 public class SistemaConfigController {
 
     private final SistemaConfigRepository repository;
+    private final PoliticaAuditoriaService politicaAuditoriaService;
 
     @GetMapping
-    @PreAuthorize("hasAuthority('CONFIG_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_GERENCIAR')")
     public List<SistemaConfig> listar() {
         return repository.findAll();
     }
@@ -29,10 +31,25 @@ public class SistemaConfigController {
     }
 
     @PutMapping("/{chave}")
-    @PreAuthorize("hasAuthority('CONFIG_GERENCIAR') or hasRole('ADMIN')")
+    @PreAuthorize("hasPermission('CONFIG_GERENCIAR')")
     public ResponseEntity<Void> update(@PathVariable String chave, @RequestBody Map<String, String> body) {
+        String valor = body.get("valor");
+        // Sobrescritas de auditoria não têm seed (uma por entidade + operação): são criadas no primeiro PUT
+        if (chave.startsWith(PoliticaAuditoriaService.PREFIXO_CONFIG)) {
+            politicaAuditoriaService.validarSobrescrita(chave, valor);
+            SistemaConfig config = repository.findById(chave).orElseGet(() -> SistemaConfig.builder()
+                    .chave(chave)
+                    .descricao("Política de auditoria (MODO ou AMOSTRAGEM:<percentual>)")
+                    .tipo("STRING")
+                    .build());
+            config.setValor(valor);
+            repository.save(config);
+            politicaAuditoriaService.invalidar();
+            return ResponseEntity.noContent().build();
+        }
+
         return repository.findById(chave).map(c -> {
-            c.setValor(body.get("valor"));
+            c.setValor(valor);
             repository.save(c);
             return ResponseEntity.noContent().<Void>build();
         }).orElse(ResponseEntity.notFound().build());
@@ -0,0 +1,25 @@
+-- IDs POR SEQUENCE COM OTIMIZADOR POOLED-LO
+-- O BaseEntity deixou de usar IDENTITY: o Hibernate agora chama nextval e usa
+-- o bloco [valor, valor + 49] sem voltar ao banco. Para isso cada sequence
+-- "<tabela>_id_seq" (criada pelo BIGSERIAL) passa a incrementar de 50 em 50.
+-- O DEFAULT nextval das colunas continua valendo para INSERTs manuais.
+DO $$
+DECLARE r RECORD;
+BEGIN
+    FOR r IN
+        SELECT seq.relname AS sequencia, tab.relname AS tabela
+        FROM pg_class seq
+        JOIN pg_depend dep ON dep.objid = seq.oid AND dep.deptype = 'a'
+        JOIN pg_class tab ON tab.oid = dep.refobjid
+        JOIN pg_attribute col ON col.attrelid = tab.oid AND col.attnum = dep.refobjsubid
+        WHERE seq.relkind = 'S'
+            AND col.attname = 'id'
+            AND seq.relnamespace = current_schema()::regnamespace
+    LOOP
+        EXECUTE format('ALTER SEQUENCE %I INCREMENT BY 50', r.sequencia);
+        -- Garante que o próximo bloco comece acima do maior id já gravado
+        EXECUTE format(
+            'SELECT setval(%L, GREATEST((SELECT COALESCE(MAX(id), 0) FROM %I), 1))',
+            r.sequencia, r.tabela);
+    END LOOP;
+END $$;
@@ -0,0 +1,13 @@
+-- VERSÃO DO SCHEMA DE CADA TENANT
+-- Mantida pelo TenantMigracaoService: tenants já na última versão de
+-- db/migration/tenant são pulados sem abrir o Flyway no banco deles.
+CREATE TABLE tb_tenant_migracao (
+    tenant_id VARCHAR(50) PRIMARY KEY,
+    versao VARCHAR(50),
+    -- ATUALIZADO ou ERRO
+    status VARCHAR(20) NOT NULL,
+    migracoes_aplicadas INT NOT NULL DEFAULT 0,
+    duracao_ms BIGINT,
+    erro VARCHAR(1000),
+    migrado_em TIMESTAMP NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,2 @@
+-- Incrementada para revogar os tokens já emitidos (senha, desativação, vínculos)
+ALTER TABLE tb_usuario ADD COLUMN versao_token INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,46 @@
+-- Chave física do saldo: Produto + Local + LPN + Lote + Serial + Validade + Qualidade.
+-- As colunas opcionais entram normalizadas (COALESCE): com NULL direto, duas
+-- linhas sem lote (ou sem qualidade) nunca conflitariam e o ON CONFLICT do
+-- movimentarLote voltaria a duplicar o saldo. A validade fica na chave porque
+-- produto que controla validade sem controlar lote pode ter, no mesmo local,
+-- saldos que só diferem nela (e o FEFO depende de não misturá-los).
+-- 1. CONSOLIDA SALDOS DUPLICADOS (mesma chave física)
+-- Necessário antes de criar o índice único usado pelo INSERT ... ON CONFLICT
+WITH grupos AS (
+    SELECT MIN(id) AS manter_id,
+        SUM(quantidade) AS quantidade,
+        SUM(quantidade_reservada) AS quantidade_reservada
+    FROM tb_estoque_saldo
+    GROUP BY produto_id,
+        localizacao_id,
+        COALESCE(lpn, ''),
+        COALESCE(lote, ''),
+        COALESCE(numero_serie, ''),
+        COALESCE(data_validade, '-infinity'::date),
+        COALESCE(status_qualidade, '')
+    HAVING COUNT(*) > 1
+)
+UPDATE tb_estoque_saldo s
+SET quantidade = g.quantidade,
+    quantidade_reservada = g.quantidade_reservada
+FROM grupos g
+WHERE s.id = g.manter_id;
+DELETE FROM tb_estoque_saldo s USING tb_estoque_saldo k
+WHERE s.produto_id = k.produto_id
+    AND s.localizacao_id = k.localizacao_id
+    AND COALESCE(s.lpn, '') = COALESCE(k.lpn, '')
+    AND COALESCE(s.lote, '') = COALESCE(k.lote, '')
+    AND COALESCE(s.numero_serie, '') = COALESCE(k.numero_serie, '')
+    AND COALESCE(s.data_validade, '-infinity'::date) = COALESCE(k.data_validade, '-infinity'::date)
+    AND COALESCE(s.status_qualidade, '') = COALESCE(k.status_qualidade, '')
+    AND s.id > k.id;
+-- 2. CHAVE ÚNICA DO SALDO
+CREATE UNIQUE INDEX uk_estoque_saldo_chave ON tb_estoque_saldo (
+    produto_id,
+    localizacao_id,
+    (COALESCE(lpn, '')),
+    (COALESCE(lote, '')),
+    (COALESCE(numero_serie, '')),
+    (COALESCE(data_validade, '-infinity'::date)),
+    (COALESCE(status_qualidade, ''))
+);
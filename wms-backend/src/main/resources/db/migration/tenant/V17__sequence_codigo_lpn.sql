@@ -0,0 +1,10 @@
+-- SEQUENCE DOS CÓDIGOS DE LPN
+-- Substitui o sorteio LPN-yyDDD-#### + existsByCodigo. Os nós reservam blocos
+-- de números daqui (LpnCodigoGenerator); códigos antigos não colidem porque o
+-- formato novo não tem o separador da data.
+-- Cada nextval reserva a faixa [valor, valor + 99] (mesma ideia do pooled-lo
+-- da V16): o LpnCodigoGenerator lê o INCREMENT BY da própria sequence e pede
+-- uma faixa por chamada em vez de um nextval por número.
+-- Para mudar o tamanho do bloco, avance a sequence junto (setval), senão a
+-- faixa nova pode cobrir números da última faixa entregue.
+CREATE SEQUENCE IF NOT EXISTS seq_lpn_codigo START WITH 1 INCREMENT BY 100;
@@ -0,0 +1,26 @@
+-- OUTBOX TRANSACIONAL
+-- Eventos gravados na mesma transação da alteração de negócio e entregues
+-- depois pelo OutboxRelay (handlers locais ou filas do RabbitMQ).
+-- Uma linha por destino: cada handler tem seu próprio status e tentativas.
+CREATE TABLE tb_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    evento VARCHAR(100) NOT NULL,
+    -- Nome do handler local ou 'fila:<nome da fila>'
+    destino VARCHAR(150) NOT NULL,
+    chave_idempotencia VARCHAR(200) NOT NULL,
+    tipo_payload VARCHAR(255) NOT NULL,
+    payload JSONB NOT NULL,
+    -- PENDENTE, PROCESSADO ou ERRO (tentativas esgotadas)
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDENTE',
+    tentativas INT NOT NULL DEFAULT 0,
+    -- Próxima tentativa (backoff) ou fim da reserva de quem reivindicou
+    disponivel_em TIMESTAMP NOT NULL DEFAULT NOW(),
+    ultimo_erro VARCHAR(1000),
+    criado_em TIMESTAMP NOT NULL DEFAULT NOW(),
+    processado_em TIMESTAMP,
+    CONSTRAINT uk_outbox_destino_chave UNIQUE (destino, chave_idempotencia)
+);
+
+-- Só as pendentes entram no índice da reivindicação
+CREATE INDEX idx_outbox_pendente ON tb_outbox (disponivel_em, id) WHERE status = 'PENDENTE';
+CREATE INDEX idx_outbox_processado ON tb_outbox (processado_em) WHERE status = 'PROCESSADO';
@@ -0,0 +1,73 @@
+package br.com.hacerfak.coreWMS.core.async;
+
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextoTaskDecoratorTest {
+
+    private final ContextoTaskDecorator decorator = new ContextoTaskDecorator();
+
+    @AfterEach
+    void limpar() {
+        TenantContext.clear();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void levaTenantEUsuarioParaAThreadDaTarefa() throws Exception {
+        Authentication usuario = new UsernamePasswordAuthenticationToken("operador", null, List.of());
+        TenantContext.setTenant("tenant_a");
+        SecurityContextHolder.getContext().setAuthentication(usuario);
+
+        AtomicReference<String> tenantNaTarefa = new AtomicReference<>();
+        AtomicReference<Authentication> usuarioNaTarefa = new AtomicReference<>();
+        Runnable decorada = decorator.decorate(() -> {
+            tenantNaTarefa.set(TenantContext.getTenant());
+            usuarioNaTarefa.set(SecurityContextHolder.getContext().getAuthentication());
+        });
+        // Contexto capturado na decoração: o que a requisição fizer depois não muda a tarefa
+        TenantContext.setTenant("tenant_b");
+
+        AtomicReference<String> tenantDepois = new AtomicReference<>();
+        AtomicReference<Authentication> usuarioDepois = new AtomicReference<>();
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+        try {
+            thread.submit(decorada).get();
+            thread.submit(() -> {
+                tenantDepois.set(TenantContext.getTenant());
+                usuarioDepois.set(SecurityContextHolder.getContext().getAuthentication());
+            }).get();
+        } finally {
+            thread.shutdownNow();
+        }
+
+        assertThat(tenantNaTarefa.get()).isEqualTo("tenant_a");
+        assertThat(usuarioNaTarefa.get()).isSameAs(usuario);
+        // Nada vaza para a próxima tarefa da mesma thread
+        assertThat(tenantDepois.get()).isEqualTo(TenantContext.DEFAULT_TENANT_ID);
+        assertThat(usuarioDepois.get()).isNull();
+    }
+
+    @Test
+    void tarefaNaoAlteraOContextoDeSegurancaCapturado() {
+        Authentication usuario = new UsernamePasswordAuthenticationToken("operador", null, List.of());
+        SecurityContextHolder.getContext().setAuthentication(usuario);
+        var contextoDaRequisicao = SecurityContextHolder.getContext();
+
+        // A tarefa recebe um SecurityContext novo; mexer nele não altera o da requisição
+        decorator.decorate(() -> SecurityContextHolder.getContext().setAuthentication(null)).run();
+
+        assertThat(contextoDaRequisicao.getAuthentication()).isSameAs(usuario);
+    }
+}
@@ -0,0 +1,97 @@
+package br.com.hacerfak.coreWMS.core.async;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExecutorVirtualTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ExecutorVirtual executor;
+
+    @AfterEach
+    void encerrar() {
+        executor.close();
+    }
+
+    @Test
+    void tarefasParadasNumLimiteNaoOcupamAsVagasGlobais() throws Exception {
+        executor = new ExecutorVirtual(t -> t, 2, 100, registry);
+        // Limite estreito, sem vaga: as tarefas dele ficam paradas
+        Semaphore limiteEstreito = new Semaphore(0, true);
+        CountDownLatch paradas = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> {
+                paradas.countDown();
+                try {
+                    ExecutorVirtual.aguardarForaDaVaga(limiteEstreito);
+                    limiteEstreito.release();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertThat(paradas.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Com as duas vagas presas, esta nunca rodaria
+        CountDownLatch outra = new CountDownLatch(1);
+        executor.execute(outra::countDown);
+        assertThat(outra.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // As paradas continuam contando como fila
+        assertThat(registry.get("wms.async.fila").gauge().value()).isEqualTo(5.0);
+
+        limiteEstreito.release();
+        aguardar(() -> registry.get("wms.async.fila").gauge().value() == 0
+                && registry.get("wms.async.executando").gauge().value() == 0);
+    }
+
+    @Test
+    void tarefasParadasNoLimiteContamParaRejeitarNovas() throws Exception {
+        executor = new ExecutorVirtual(t -> t, 1, 2, registry);
+        Semaphore limiteEstreito = new Semaphore(0);
+        CountDownLatch paradas = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                paradas.countDown();
+                try {
+                    ExecutorVirtual.aguardarForaDaVaga(limiteEstreito);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertThat(paradas.await(5, TimeUnit.SECONDS)).isTrue();
+        aguardar(() -> registry.get("wms.async.fila").gauge().value() == 2);
+
+        assertThatThrownBy(() -> executor.execute(() -> {
+        })).isInstanceOf(TaskRejectedException.class);
+        limiteEstreito.release(2);
+    }
+
+    @Test
+    void foraDoExecutorSoEspera() throws Exception {
+        executor = new ExecutorVirtual(t -> t, 1, 1, registry);
+        Semaphore semaforo = new Semaphore(1);
+
+        ExecutorVirtual.aguardarForaDaVaga(semaforo);
+
+        assertThat(semaforo.availablePermits()).isZero();
+    }
+
+    private static void aguardar(java.util.function.BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicao.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(limite);
+            Thread.sleep(10);
+        }
+    }
+}
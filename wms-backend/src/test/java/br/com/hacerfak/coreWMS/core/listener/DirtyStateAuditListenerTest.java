@@ -0,0 +1,91 @@
+package br.com.hacerfak.coreWMS.core.listener;
+
+import br.com.hacerfak.coreWMS.core.listener.DirtyStateAuditListener.PerfilEntidade;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.AlteracaoCampo;
+import br.com.hacerfak.coreWMS.modules.cadastro.domain.Parceiro;
+import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.MovimentoEstoque;
+import jakarta.persistence.EntityListeners;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Diff do UPDATE a partir dos arrays de estado, sem Hibernate: o perfil é
+ * montado pela fábrica com nomes e tipos já resolvidos.
+ */
+class DirtyStateAuditListenerTest {
+
+    // Recorte do Produto na ordem do persister (alfabética)
+    private static final String[] NOMES = { "atualizadoPor", "dataAtualizacao", "depositante", "itens", "nome",
+            "valorUnitarioPadrao" };
+    private static final boolean[] COLECAO = { false, false, false, true, false, false };
+    private static final boolean[] ENTIDADE = { false, false, true, false, false, false };
+
+    private final PerfilEntidade perfil = PerfilEntidade.de(Produto.class, NOMES, COLECAO, ENTIDADE);
+    private final LocalDateTime agora = LocalDateTime.of(2024, 1, 15, 10, 30);
+
+    @Test
+    void soCamposSujosDeNegocioEntramNoDiff() {
+        Object[] antigo = { "admin", agora, parceiro(7L), null, "Original", new BigDecimal("19.90") };
+        Object[] atual = { "operador", agora.plusDays(1), parceiro(7L), null, "Alterado", new BigDecimal("21.90") };
+
+        Map<String, AlteracaoCampo> diff = perfil.alteracoes(antigo, atual, new int[] { 0, 1, 4, 5 });
+
+        assertThat(diff).containsExactly(
+                entry("nome", new AlteracaoCampo("Original", "Alterado")),
+                entry("valorUnitarioPadrao", new AlteracaoCampo(new BigDecimal("19.90"), new BigDecimal("21.90"))));
+    }
+
+    @Test
+    void associacaoViraIdEMesmoIdNaoEhAlteracao() {
+        Object[] antigo = { null, null, parceiro(7L), null, "X", null };
+        Object[] atual = { null, null, parceiro(9L), null, "X", null };
+
+        assertThat(perfil.alteracoes(antigo, atual, new int[] { 2 }))
+                .containsExactly(entry("depositante", new AlteracaoCampo("ID: 7", "ID: 9")));
+        // Instância nova do mesmo parceiro: o dirty checking marca, o diff descarta
+        Object[] mesmoId = { null, null, parceiro(7L), null, "X", null };
+        assertThat(perfil.alteracoes(antigo, mesmoId, new int[] { 2 })).isEmpty();
+    }
+
+    @Test
+    void semDirtyCheckingComparaTodasAsPosicoes() {
+        Object[] antigo = { "admin", agora, parceiro(7L), "colecao", "A", BigDecimal.ONE };
+        Object[] atual = { "outro", agora, parceiro(7L), "outra colecao", "B", BigDecimal.ONE };
+
+        assertThat(perfil.alteracoes(antigo, atual, null))
+                .containsExactly(entry("nome", new AlteracaoCampo("A", "B")));
+        // Sem estado anterior (entidade destacada): tudo que não é técnico, de null
+        assertThat(perfil.alteracoes(null, atual, null)).containsOnlyKeys("depositante", "nome",
+                "valorUnitarioPadrao");
+    }
+
+    @Test
+    void perfilSabeQuemUsaOGlobalAuditListener() {
+        assertThat(perfil.auditavel()).isTrue();
+        assertThat(PerfilEntidade.de(Object.class, new String[0], new boolean[0], new boolean[0]).auditavel())
+                .isFalse();
+        assertThat(PerfilEntidade.de(MovimentoEstoque.class, new String[0], new boolean[0], new boolean[0])
+                .auditavel()).isEqualTo(usaGlobal(MovimentoEstoque.class));
+    }
+
+    private static boolean usaGlobal(Class<?> classe) {
+        for (Class<?> c = classe; c != null; c = c.getSuperclass()) {
+            EntityListeners l = c.getAnnotation(EntityListeners.class);
+            if (l != null && List.of(l.value()).contains(GlobalAuditListener.class))
+                return true;
+        }
+        return false;
+    }
+
+    private static Parceiro parceiro(Long id) {
+        return Parceiro.builder().id(id).nome("P" + id).build();
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.hacerfak.coreWMS.core.multitenant;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MultiTenantDataSourceTest {
+
+    private final DataSource master = mock(DataSource.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, HikariDataSource> criados = new LinkedHashMap<>();
+    private MultiTenantDataSource dataSource;
+
+    @AfterEach
+    void fechar() {
+        TenantContext.clear();
+        if (dataSource != null)
+            dataSource.close();
+    }
+
+    @Test
+    void tetoAtingidoFechaOPoolOciosoUsadoHaMaisTempo() throws InterruptedException {
+        // Cabem dois pools de 5
+        dataSource = novo(10);
+        dataSource.registrarTenants(List.of("a", "b", "c"));
+
+        usar("a");
+        usar("b");
+        usar("a"); // "b" passa a ser o menos recente
+        usar("c");
+
+        assertThat(dataSource.getTenantsComPool()).containsExactlyInAnyOrder("a", "c");
+        verify(criados.get("b")).close();
+        verify(criados.get("a"), never()).close();
+        assertThat(registry.get("wms.tenant.pool.removidos").tag("motivo", "lru").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("wms.tenant.pool.abertos").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void poolComConexaoEmUsoNaoEhFechado() throws InterruptedException {
+        dataSource = novo(10);
+        dataSource.registrarTenants(List.of("a", "b", "c"));
+
+        usar("a");
+        usar("b");
+        // "a" é o menos recente, mas tem conexão emprestada
+        ocupar(criados.get("a"));
+        usar("c");
+
+        assertThat(dataSource.getTenantsComPool()).containsExactlyInAnyOrder("a", "c");
+        verify(criados.get("b")).close();
+        verify(criados.get("a"), never()).close();
+    }
+
+    @Test
+    void semPoolOciosoAbreAcimaDoTeto() throws InterruptedException {
+        dataSource = novo(10);
+        dataSource.registrarTenants(List.of("a", "b", "c"));
+
+        usar("a");
+        usar("b");
+        ocupar(criados.get("a"));
+        ocupar(criados.get("b"));
+        usar("c");
+
+        assertThat(dataSource.getTenantsComPool()).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(registry.find("wms.tenant.pool.removidos").counter()).isNull();
+    }
+
+    @Test
+    void tenantDesconhecidoVaiAoMasterUmaVezEUsaOMaster() throws SQLException {
+        PreparedStatement statement = consultaMaster(0);
+        dataSource = novo(10);
+
+        TenantContext.setTenant("inexistente");
+        assertThat(dataSource.determineTargetDataSource()).isSameAs(master);
+        assertThat(dataSource.determineTargetDataSource()).isSameAs(master);
+
+        // A recusa fica em cache: o header repetido não volta ao banco
+        verify(statement, times(1)).executeQuery();
+        assertThat(criados).isEmpty();
+    }
+
+    @Test
+    void tenantRegistradoDepoisDaRecusaSaiDoCache() throws SQLException {
+        PreparedStatement statement = consultaMaster(0);
+        dataSource = novo(10);
+
+        TenantContext.setTenant("novo");
+        assertThat(dataSource.determineTargetDataSource()).isSameAs(master);
+
+        dataSource.registrarTenants(List.of("novo"));
+        assertThat(dataSource.determineTargetDataSource()).isSameAs(criados.get("novo"));
+        verify(statement, times(1)).executeQuery();
+    }
+
+    private MultiTenantDataSource novo(int maxConexoes) {
+        return new MultiTenantDataSource(master, (tenant, tamanho) -> {
+            HikariDataSource pool = mock(HikariDataSource.class);
+            criados.put(tenant, pool);
+            return pool;
+        }, registry, maxConexoes, 5, 5, 600_000);
+    }
+
+    private void usar(String tenant) throws InterruptedException {
+        TenantContext.setTenant(tenant);
+        try {
+            assertThat(dataSource.determineTargetDataSource()).isSameAs(criados.get(tenant));
+        } finally {
+            TenantContext.clear();
+        }
+        // ultimoUso tem resolução de milissegundo
+        Thread.sleep(5);
+    }
+
+    private static void ocupar(HikariDataSource pool) {
+        HikariPoolMXBean mx = mock(HikariPoolMXBean.class);
+        when(mx.getActiveConnections()).thenReturn(1);
+        when(pool.getHikariPoolMXBean()).thenReturn(mx);
+    }
+
+    /** count(*) da tb_empresa no master devolvendo o valor dado. */
+    private PreparedStatement consultaMaster(int ativos) throws SQLException {
+        Connection conexao = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(master.getConnection()).thenReturn(conexao);
+        when(conexao.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(rs.getInt(anyInt())).thenReturn(ativos);
+        return statement;
+    }
+}
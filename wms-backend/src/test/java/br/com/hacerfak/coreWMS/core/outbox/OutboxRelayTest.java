@@ -0,0 +1,215 @@
+package br.com.hacerfak.coreWMS.core.outbox;
+
+import br.com.hacerfak.coreWMS.core.multitenant.MultiTenantDataSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reivindicação, conclusão e retentativa do relay, com o banco simulado:
+ * o SKIP LOCKED e o vencimento da reserva são do PostgreSQL; aqui se confere
+ * o que o relay pede e como reage ao resultado.
+ */
+class OutboxRelayTest {
+
+    private static final String TENANT = "tenant_a";
+    private static final long RESERVA_MS = 60_000;
+    private static final int MAX_TENTATIVAS = 10;
+
+    private final OutboxService outboxService = mock(OutboxService.class);
+    private final MultiTenantDataSource dataSource = mock(MultiTenantDataSource.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final HandlerTeste handler = new HandlerTeste();
+
+    @BeforeEach
+    void preparar() {
+        when(dataSource.semRenovarUso(any())).thenAnswer(inv -> ((Supplier<?>) inv.getArgument(0)).get());
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+    }
+
+    @Test
+    void reivindicaComSkipLockedEConcluiNaTransacaoDoHandler() {
+        OutboxRelay relay = relay(100);
+        reivindicar(List.of(linha(1L, "a", 1), linha(2L, "b", 1)));
+        when(jdbcTemplate.update(contains("'PROCESSADO', processado_em"), anyLong(), anyInt())).thenReturn(1);
+
+        relay.processarTenant(TENANT);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), eq(RESERVA_MS), eq(100));
+        assertThat(sql.getValue()).contains("FOR UPDATE SKIP LOCKED", "tentativas = o.tentativas + 1",
+                "disponivel_em = now() + (? * INTERVAL '1 millisecond')", "status = 'PENDENTE'");
+
+        assertThat(handler.chaves).containsExactlyInAnyOrder("a", "b");
+        // A conclusão confere a tentativa: só vale se a reserva ainda é deste nó
+        verify(jdbcTemplate).update(contains("'PROCESSADO', processado_em"), eq(1L), eq(1));
+        verify(jdbcTemplate).update(contains("'PROCESSADO', processado_em"), eq(2L), eq(1));
+        verify(transactionManager, times(2)).commit(any());
+        assertThat(processados("sucesso")).isEqualTo(2);
+        // Lote incompleto: nada mais a buscar agora
+        verify(outboxService, never()).sinalizar(TENANT);
+    }
+
+    @Test
+    void reservaVencidaDesfazOHandlerEVoltaParaAFila() {
+        OutboxRelay relay = relay(100);
+        reivindicar(List.<Object[]>of(linha(5L, "a", 2)));
+        // Outro nó reivindicou depois que a reserva venceu
+        when(jdbcTemplate.update(contains("'PROCESSADO', processado_em"), anyLong(), anyInt())).thenReturn(0);
+
+        relay.processarTenant(TENANT);
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(jdbcTemplate).update(contains("CASE WHEN tentativas >= ?"), eq(MAX_TENTATIVAS), eq(2000L),
+                contains("expirou"), eq(5L), eq(2));
+        assertThat(processados("falha")).isEqualTo(1);
+    }
+
+    @Test
+    void falhaDoHandlerVoltaComEsperaExponencial() {
+        OutboxRelay relay = relay(100);
+        handler.falhar = true;
+        reivindicar(List.of(linha(7L, "a", 1), linha(8L, "b", 3), linha(9L, "c", 20)));
+
+        relay.processarTenant(TENANT);
+
+        // 1s, 2s, 4s... até 10 min
+        verify(jdbcTemplate).update(contains("CASE WHEN tentativas >= ?"), eq(MAX_TENTATIVAS), eq(1000L),
+                eq("boom"), eq(7L), eq(1));
+        verify(jdbcTemplate).update(contains("CASE WHEN tentativas >= ?"), eq(MAX_TENTATIVAS), eq(4000L),
+                eq("boom"), eq(8L), eq(3));
+        verify(jdbcTemplate).update(contains("CASE WHEN tentativas >= ?"), eq(MAX_TENTATIVAS), eq(600_000L),
+                eq("boom"), eq(9L), eq(20));
+        verify(jdbcTemplate, never()).update(contains("'PROCESSADO', processado_em"), anyLong(), anyInt());
+        assertThat(processados("falha")).isEqualTo(2);
+        // Tentativas esgotadas: o UPDATE grava ERRO
+        assertThat(processados("erro")).isEqualTo(1);
+    }
+
+    @Test
+    void loteCheioContinuaAteOLimiteESinaliza() {
+        OutboxRelay relay = relay(2);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(RESERVA_MS), eq(2)))
+                .thenAnswer(inv -> mapear(inv.getArgument(1), List.of(linha(1L, "a", 1), linha(2L, "b", 1))));
+        when(jdbcTemplate.update(contains("'PROCESSADO', processado_em"), anyLong(), anyInt())).thenReturn(1);
+
+        relay.processarTenant(TENANT);
+
+        // 10 lotes seguidos e o tenant volta para a próxima volta
+        verify(jdbcTemplate, times(10)).query(anyString(), any(RowMapper.class), eq(RESERVA_MS), eq(2));
+        verify(outboxService).sinalizar(TENANT);
+    }
+
+    @Test
+    void bancoIndisponivelNaoProcessaNada() {
+        OutboxRelay relay = relay(100);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(RESERVA_MS), eq(100)))
+                .thenThrow(new IllegalStateException("sem conexão"));
+
+        relay.processarTenant(TENANT);
+
+        assertThat(handler.chaves).isEmpty();
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    private OutboxRelay relay(int tamanhoLote) {
+        return new OutboxRelay(outboxService, dataSource, jdbcTemplate, transactionManager,
+                mock(RabbitTemplate.class), new ObjectMapper(), registry, List.of(handler),
+                tamanhoLote, 2, RESERVA_MS, MAX_TENTATIVAS, 1000, 300_000, 7, 5000);
+    }
+
+    private void reivindicar(List<Object[]> linhas) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(RESERVA_MS), anyInt()))
+                .thenAnswer(inv -> mapear(inv.getArgument(1), linhas));
+    }
+
+    private static Object[] linha(long id, String chave, int tentativas) {
+        return new Object[] { id, chave, tentativas };
+    }
+
+    private static List<Object> mapear(RowMapper<?> mapper, List<Object[]> linhas) throws SQLException {
+        List<Object> registros = new ArrayList<>();
+        int numero = 0;
+        for (Object[] linha : linhas) {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("id")).thenReturn((Long) linha[0]);
+            when(rs.getString("evento")).thenReturn("TESTE");
+            when(rs.getString("destino")).thenReturn(HandlerTeste.NOME);
+            when(rs.getString("chave_idempotencia")).thenReturn((String) linha[1]);
+            when(rs.getString("tipo_payload")).thenReturn(Payload.class.getName());
+            when(rs.getString("payload")).thenReturn("{\"valor\":\"" + linha[1] + "\"}");
+            when(rs.getInt("tentativas")).thenReturn((Integer) linha[2]);
+            when(rs.getLong("idade_us")).thenReturn(1_000L);
+            registros.add(mapper.mapRow(rs, numero++));
+        }
+        return registros;
+    }
+
+    private double processados(String resultado) {
+        return registry.find("wms.outbox.processados").tag("resultado", resultado).counters().stream()
+                .mapToDouble(c -> c.count()).sum();
+    }
+
+    record Payload(String valor) {
+    }
+
+    static class HandlerTeste implements OutboxHandler<Payload> {
+
+        static final String NOME = "teste";
+
+        final List<String> chaves = new CopyOnWriteArrayList<>();
+        volatile boolean falhar;
+
+        @Override
+        public String evento() {
+            return "TESTE";
+        }
+
+        @Override
+        public String nome() {
+            return NOME;
+        }
+
+        @Override
+        public Class<Payload> tipoPayload() {
+            return Payload.class;
+        }
+
+        @Override
+        public void processar(String chaveIdempotencia, Payload payload) {
+            if (falhar)
+                throw new IllegalStateException("boom");
+            chaves.add(payload.valor());
+        }
+    }
+}
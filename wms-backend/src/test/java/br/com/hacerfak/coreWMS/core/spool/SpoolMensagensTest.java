@@ -0,0 +1,164 @@
+package br.com.hacerfak.coreWMS.core.spool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class SpoolMensagensTest {
+
+    // Registro de teste: 8 (criadoEm) + 6 (tamanhos) + "q" + "application/json" + corpo de 10
+    private static final int REGISTRO = 8 + 6 + 1 + 16 + 10;
+    private static final int CABECALHO = 8;
+    // Cabem 4 registros e o marcador de fim por segmento
+    private static final int SEGMENTO = 4 * (CABECALHO + REGISTRO) + 4;
+
+    @TempDir
+    Path diretorio;
+
+    private final List<SpoolMensagens> abertos = new ArrayList<>();
+    private SimpleMeterRegistry registry;
+
+    @AfterEach
+    void fechar() throws IOException {
+        for (SpoolMensagens spool : abertos)
+            spool.fechar();
+    }
+
+    @Test
+    void viraSegmentoELeTudoEmOrdem() throws IOException {
+        SpoolMensagens spool = abrir();
+        for (int i = 0; i < 10; i++)
+            spool.gravar(mensagem(i));
+
+        // 4 + 4 + 2: três segmentos
+        assertThat(segmentos()).hasSize(3);
+        assertThat(profundidade()).isEqualTo(10);
+
+        List<MensagemSpool> lidas = spool.ler(100);
+        assertThat(lidas).extracting(SpoolMensagensTest::corpo)
+                .containsExactly("msg-000000", "msg-000001", "msg-000002", "msg-000003", "msg-000004",
+                        "msg-000005", "msg-000006", "msg-000007", "msg-000008", "msg-000009");
+
+        spool.confirmar();
+        // Os segmentos lidos até o fim somem; fica só o de escrita
+        assertThat(segmentos()).hasSize(1);
+        assertThat(profundidade()).isZero();
+        assertThat(spool.ler(100)).isEmpty();
+    }
+
+    @Test
+    void lerSemConfirmarDevolveAsMesmas() throws IOException {
+        SpoolMensagens spool = abrir();
+        for (int i = 0; i < 6; i++)
+            spool.gravar(mensagem(i));
+
+        assertThat(spool.ler(3)).extracting(SpoolMensagensTest::corpo)
+                .containsExactly("msg-000000", "msg-000001", "msg-000002");
+        assertThat(spool.ler(3)).extracting(SpoolMensagensTest::corpo)
+                .containsExactly("msg-000000", "msg-000001", "msg-000002");
+        spool.confirmar();
+        assertThat(spool.ler(3)).extracting(SpoolMensagensTest::corpo)
+                .containsExactly("msg-000003", "msg-000004", "msg-000005");
+    }
+
+    @Test
+    void restartRetomaDoCheckpointEReenviaONaoConfirmado() throws IOException {
+        SpoolMensagens primeiro = abrir();
+        for (int i = 0; i < 7; i++)
+            primeiro.gravar(mensagem(i));
+        primeiro.ler(2);
+        primeiro.confirmar();
+        // Enviadas mas não marcadas: voltam no restart (at-least-once)
+        primeiro.ler(3);
+        primeiro.fechar();
+        abertos.remove(primeiro);
+
+        SpoolMensagens segundo = abrir();
+        assertThat(profundidade()).isEqualTo(5);
+        segundo.gravar(mensagem(7));
+
+        assertThat(segundo.ler(100)).extracting(SpoolMensagensTest::corpo)
+                .containsExactly("msg-000002", "msg-000003", "msg-000004", "msg-000005", "msg-000006",
+                        "msg-000007");
+    }
+
+    @Test
+    void crcInvalidoEncerraOSegmento() throws IOException {
+        SpoolMensagens primeiro = abrir();
+        for (int i = 0; i < 3; i++)
+            primeiro.gravar(mensagem(i));
+        primeiro.fechar();
+        abertos.remove(primeiro);
+
+        // Escrita interrompida no meio do segundo registro
+        Path segmento = segmentos().get(0);
+        try (RandomAccessFile arquivo = new RandomAccessFile(segmento.toFile(), "rw")) {
+            long posicao = (CABECALHO + REGISTRO) + CABECALHO + REGISTRO - 1;
+            arquivo.seek(posicao);
+            int original = arquivo.read();
+            arquivo.seek(posicao);
+            arquivo.write(original ^ 0xFF);
+        }
+
+        SpoolMensagens segundo = abrir();
+        assertThat(profundidade()).isEqualTo(1);
+        segundo.gravar(mensagem(3));
+
+        assertThat(segundo.ler(100)).extracting(SpoolMensagensTest::corpo)
+                .containsExactly("msg-000000", "msg-000003");
+        segundo.confirmar();
+        assertThat(segmentos()).doesNotContain(segmento);
+    }
+
+    @Test
+    void mensagemMaiorQueOSegmentoEhRecusada() throws IOException {
+        SpoolMensagens spool = abrir();
+        MensagemSpool grande = new MensagemSpool(1L, "q", null, "application/json", new byte[SEGMENTO]);
+
+        assertThatThrownBy(() -> spool.gravar(grande)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(profundidade()).isZero();
+    }
+
+    private SpoolMensagens abrir() throws IOException {
+        registry = new SimpleMeterRegistry();
+        SpoolMensagens spool = new SpoolMensagens(mock(MessageConverter.class), mock(RabbitTemplate.class),
+                registry, diretorio.toString(), SEGMENTO);
+        abertos.add(spool);
+        return spool;
+    }
+
+    private double profundidade() {
+        return registry.get("wms.spool.profundidade").gauge().value();
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.filter(p -> p.getFileName().toString().endsWith(".spool")).sorted().toList();
+        }
+    }
+
+    private static MensagemSpool mensagem(int i) {
+        byte[] corpo = String.format("msg-%06d", i).getBytes(StandardCharsets.UTF_8);
+        return new MensagemSpool(1_000L + i, "q", null, "application/json", corpo);
+    }
+
+    private static String corpo(MensagemSpool m) {
+        return new String(m.corpo(), StandardCharsets.UTF_8);
+    }
+}
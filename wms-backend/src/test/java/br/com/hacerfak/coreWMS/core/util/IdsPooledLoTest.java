@@ -0,0 +1,99 @@
+package br.com.hacerfak.coreWMS.core.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A sequence é simulada como no Postgres com INCREMENT BY 50: cada nextval
+ * devolve o último valor + 50. Conta quantos nextval e quantas consultas
+ * cada reserva custa.
+ */
+class IdsPooledLoTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AtomicLong sequence = new AtomicLong(1);
+    private final AtomicInteger consultas = new AtomicInteger();
+    private final AtomicInteger nextvals = new AtomicInteger();
+    private long incremento = IdsPooledLo.INCREMENTO;
+    private IdsPooledLo ids;
+
+    @BeforeEach
+    void preparar() {
+        ids = new IdsPooledLo(jdbcTemplate);
+        doAnswer(inv -> {
+            consultas.incrementAndGet();
+            RowCallbackHandler handler = inv.getArgument(1);
+            int faixas = inv.getArgument(2);
+            for (int i = 0; i < faixas; i++) {
+                nextvals.incrementAndGet();
+                long valor = sequence.getAndAdd(incremento);
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("inicio")).thenReturn(valor);
+                when(rs.getLong("increment_by")).thenReturn(incremento);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any());
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "1, 1", "50, 1", "51, 2", "500, 10", "5000, 100" })
+    void umaConsultaECeilDeNSobre50Nextval(int linhas, int nextvalEsperados) {
+        Long[] reservados = ids.reservar("tb_movimento_estoque", linhas);
+
+        assertThat(reservados).hasSize(linhas).doesNotContainNull();
+        assertThat(consultas).hasValue(1);
+        // Com o DEFAULT nextval da coluna seriam `linhas` nextval e 50 * linhas ids consumidos
+        assertThat(nextvals).hasValue(nextvalEsperados);
+        assertThat(Arrays.stream(reservados).distinct().count()).isEqualTo(linhas);
+    }
+
+    @Test
+    void naoColideComOBlocoQueOHibernateReservou() {
+        // Hibernate pooled-lo: nextval = v e usa [v, v + 49] em memória
+        long hibernate = sequence.getAndAdd(IdsPooledLo.INCREMENTO);
+        Long[] jdbc = ids.reservar("tb_estoque_saldo", 120);
+        long hibernateDepois = sequence.getAndAdd(IdsPooledLo.INCREMENTO);
+
+        Set<Long> usados = new HashSet<>();
+        for (long id = hibernate; id < hibernate + IdsPooledLo.INCREMENTO; id++)
+            usados.add(id);
+        for (long id = hibernateDepois; id < hibernateDepois + IdsPooledLo.INCREMENTO; id++)
+            usados.add(id);
+        for (Long id : jdbc)
+            assertThat(usados.add(id)).as("id %d repetido", id).isTrue();
+    }
+
+    @Test
+    void sequenceSemAV16Falha() {
+        incremento = 1;
+        assertThatThrownBy(() -> ids.reservar("tb_tarefa_separacao", 10))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("tb_tarefa_separacao_id_seq");
+    }
+
+    @Test
+    void zeroLinhasNaoVaiAoBanco() {
+        assertThat(ids.reservar("tb_produto", 0)).isEmpty();
+        assertThat(consultas).hasValue(0);
+    }
+}
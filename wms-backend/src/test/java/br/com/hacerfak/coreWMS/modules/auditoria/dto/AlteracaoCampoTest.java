@@ -0,0 +1,32 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlteracaoCampoTest {
+
+    @Test
+    void duasAlteracoesViramUmaDoPrimeiroDeAoUltimoPara() {
+        assertThat(new AlteracaoCampo("A", "B").seguidaDe(new AlteracaoCampo("B", "C")))
+                .isEqualTo(new AlteracaoCampo("A", "C"));
+    }
+
+    @Test
+    void voltarAoValorOriginalRetornaNullERemoveNoMerge() {
+        assertThat(new AlteracaoCampo("A", "B").seguidaDe(new AlteracaoCampo("B", "A"))).isNull();
+        assertThat(new AlteracaoCampo(null, "B").seguidaDe(new AlteracaoCampo("B", null))).isNull();
+
+        Map<String, AlteracaoCampo> lote = new LinkedHashMap<>();
+        lote.put("nome", new AlteracaoCampo("A", "B"));
+        lote.put("preco", new AlteracaoCampo(1, 2));
+        lote.merge("nome", new AlteracaoCampo("B", "A"), AlteracaoCampo::seguidaDe);
+        lote.merge("preco", new AlteracaoCampo(2, 3), AlteracaoCampo::seguidaDe);
+
+        assertThat(lote).containsOnlyKeys("preco");
+        assertThat(lote.get("preco")).isEqualTo(new AlteracaoCampo(1, 3));
+    }
+}
@@ -0,0 +1,110 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.service;
+
+import br.com.hacerfak.coreWMS.modules.auditoria.domain.AuditLog;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.FiltroAuditoria;
+import br.com.hacerfak.coreWMS.modules.auditoria.dto.PaginaAuditoria;
+import br.com.hacerfak.coreWMS.modules.auditoria.repository.AuditLogColecoes;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Forma das consultas enviadas ao Mongo. O custo por página em volume real
+ * (10M documentos) não é medido aqui: sem instância Mongo no build.
+ */
+class AuditConsultaServiceTest {
+
+    private static final FiltroAuditoria SEM_FILTRO = new FiltroAuditoria(null, null, null, null, null, null);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final AuditLogColecoes colecoes = mock(AuditLogColecoes.class);
+    private final AuditConsultaService service = new AuditConsultaService(mongoTemplate, colecoes);
+
+    @Test
+    void paginaProfundaEhRangeNoIndiceSemSkipNemCount() {
+        when(colecoes.colecoesDoPeriodo(any(), any())).thenReturn(List.of("tb_audit_log_202610"));
+        when(mongoTemplate.find(any(Query.class), eq(AuditLog.class), eq("tb_audit_log_202610")))
+                .thenAnswer(inv -> registros(((Query) inv.getArgument(0)).getLimit()));
+
+        // Anda 50 páginas de 20 pelo cursor
+        String cursor = null;
+        for (int i = 0; i < 50; i++) {
+            PaginaAuditoria pagina = service.buscar(SEM_FILTRO, cursor, 20, false);
+            assertThat(pagina.itens()).hasSize(20);
+            assertThat(pagina.total()).isNull();
+            cursor = pagina.proximoCursor();
+        }
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, org.mockito.Mockito.times(50)).find(queries.capture(), eq(AuditLog.class),
+                eq("tb_audit_log_202610"));
+        Query ultima = queries.getValue();
+        assertThat(ultima.getSkip()).isZero();
+        assertThat(ultima.getLimit()).isEqualTo(21);
+        assertThat(ultima.getQueryObject().toString()).contains("$or", "dataHora", "id");
+        assertThat(ultima.getSortObject().toJson()).contains("\"dataHora\": -1", "\"id\": -1");
+        verify(mongoTemplate, never()).count(any(Query.class), eq(AuditLog.class), any(String.class));
+    }
+
+    @Test
+    void cursorNaoAbreMesesPosteriores() {
+        LocalDateTime dataHora = LocalDateTime.of(2026, 8, 15, 10, 0);
+        when(colecoes.colecoesDoPeriodo(any(), any())).thenReturn(List.of("tb_audit_log_202610"));
+        when(mongoTemplate.find(any(Query.class), eq(AuditLog.class), any(String.class)))
+                .thenReturn(List.of(registro(dataHora), registro(dataHora.minusMinutes(1))), List.of());
+
+        String cursor = service.buscar(SEM_FILTRO, null, 1, false).proximoCursor();
+        service.buscar(SEM_FILTRO, cursor, 1, false);
+
+        verify(colecoes).colecoesDoPeriodo(isNull(), eq(dataHora));
+    }
+
+    @Test
+    void usuarioViraPrefixoAncoradoEEscapado() {
+        when(colecoes.colecoesDoPeriodo(any(), any())).thenReturn(List.of("tb_audit_log_202610"));
+        when(mongoTemplate.find(any(Query.class), eq(AuditLog.class), any(String.class))).thenReturn(List.of());
+
+        service.buscar(new FiltroAuditoria(null, null, "joao.silva+wms", null, null, null), null, 20, false);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(AuditLog.class), any(String.class));
+        assertThat(query.getValue().getQueryObject().toJson()).contains("^joao\\\\.silva\\\\+wms");
+    }
+
+    @Test
+    void cursorInvalidoEhRecusado() {
+        assertThatThrownBy(() -> service.buscar(SEM_FILTRO, "nao-eh-cursor", 20, false))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<AuditLog> registros(int quantidade) {
+        List<AuditLog> lista = new ArrayList<>(quantidade);
+        LocalDateTime base = LocalDateTime.of(2026, 10, 1, 0, 0);
+        for (int i = 0; i < quantidade; i++)
+            lista.add(registro(base.minusSeconds(i)));
+        return lista;
+    }
+
+    private static AuditLog registro(LocalDateTime dataHora) {
+        AuditLog log = new AuditLog();
+        log.setId(new ObjectId().toHexString());
+        log.setDataHora(dataHora);
+        return log;
+    }
+}
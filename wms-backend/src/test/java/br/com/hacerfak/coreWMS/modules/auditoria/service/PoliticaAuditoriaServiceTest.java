@@ -0,0 +1,97 @@
+package br.com.hacerfak.coreWMS.modules.auditoria.service;
+
+import br.com.hacerfak.coreWMS.core.domain.ModoAuditoria;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.EstoqueSaldo;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.MovimentoEstoque;
+import br.com.hacerfak.coreWMS.modules.expedicao.domain.TarefaSeparacao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Roda o tenant master (sem tb_sistema_config): vale só a anotação e nada
+ * vai ao banco.
+ */
+class PoliticaAuditoriaServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PoliticaAuditoriaService service = new PoliticaAuditoriaService(jdbcTemplate, registry);
+
+    @AfterEach
+    void parar() {
+        service.parar();
+    }
+
+    @Test
+    void padraoDasAnotacoes() {
+        assertThat(service.decidir(MovimentoEstoque.class, "CREATE")).isEqualTo(ModoAuditoria.DESLIGADA);
+        assertThat(service.decidir(EstoqueSaldo.class, "CREATE")).isEqualTo(ModoAuditoria.ALTERACOES);
+        assertThat(service.decidir(EstoqueSaldo.class, "DELETE")).isEqualTo(ModoAuditoria.ALTERACOES);
+        // Sem anotação: snapshot no CREATE/DELETE, campos alterados no UPDATE
+        assertThat(service.decidir(TarefaSeparacao.class, "CREATE")).isEqualTo(ModoAuditoria.COMPLETA);
+        assertThat(service.decidir(TarefaSeparacao.class, "UPDATE")).isEqualTo(ModoAuditoria.ALTERACOES);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    /**
+     * Onda sintética de 1000 linhas separadas, com o mesmo perfil de escrita
+     * por linha usado na estimativa do pedido: 2 movimentos de kardex
+     * (CREATE), 2 saldos (UPDATE) e a tarefa (UPDATE). Conta pela métrica
+     * wms.auditoria.politica, como em produção.
+     */
+    @Test
+    void mensagensDeAuditoriaPorLinhaDaOnda() {
+        int linhas = 1000;
+        for (int i = 0; i < linhas; i++) {
+            service.decidir(MovimentoEstoque.class, "CREATE");
+            service.decidir(MovimentoEstoque.class, "CREATE");
+            service.decidir(EstoqueSaldo.class, "UPDATE");
+            service.decidir(EstoqueSaldo.class, "UPDATE");
+            service.decidir(TarefaSeparacao.class, "UPDATE");
+        }
+
+        double estoqueAntes = 4.0 * linhas;
+        double estoqueDepois = auditadas("MovimentoEstoque") + auditadas("EstoqueSaldo");
+        double tarefa = auditadas("TarefaSeparacao");
+
+        assertThat(auditadas("MovimentoEstoque")).isZero();
+        // 5% de 2000 UPDATEs de saldo: 100 esperados (desvio ~10)
+        assertThat(auditadas("EstoqueSaldo")).isBetween(50.0, 150.0);
+        assertThat(tarefa).isEqualTo(linhas);
+        assertThat(descartadas("MovimentoEstoque") + descartadas("EstoqueSaldo") + estoqueDepois)
+                .isEqualTo(estoqueAntes);
+        System.out.printf("Auditoria por linha da onda: estoque %.2f -> %.3f, total %.2f -> %.3f%n",
+                estoqueAntes / linhas, estoqueDepois / linhas, (estoqueAntes + tarefa) / linhas,
+                (estoqueDepois + tarefa) / linhas);
+    }
+
+    @Test
+    void sobrescritaInvalidaEhRecusada() {
+        assertThatThrownBy(() -> service.validarSobrescrita("AUDITORIA_ESTOQUESALDO_UPDATE", "AMOSTRAGEM:101"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.validarSobrescrita("AUDITORIA_SALDO", "DESLIGADA"))
+                .isInstanceOf(IllegalArgumentException.class);
+        service.validarSobrescrita("AUDITORIA_ESTOQUESALDO_UPDATE", "amostragem:1");
+        service.validarSobrescrita("AUDITORIA_ESTOQUESALDO_UPDATE", "");
+    }
+
+    private double auditadas(String entidade) {
+        return contagem(entidade, "auditada");
+    }
+
+    private double descartadas(String entidade) {
+        return contagem(entidade, "descartada");
+    }
+
+    private double contagem(String entidade, String decisao) {
+        return registry.find("wms.auditoria.politica").tags("entidade", entidade, "decisao", decisao).counters()
+                .stream().mapToDouble(c -> c.count()).sum();
+    }
+}
@@ -0,0 +1,163 @@
+package br.com.hacerfak.coreWMS.modules.estoque.job;
+
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.ChaveFace;
+import br.com.hacerfak.coreWMS.modules.estoque.service.RessuprimentoService;
+import br.com.hacerfak.coreWMS.modules.estoque.service.RessuprimentoService.ResultadoVarredura;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GatilhoRessuprimentoTest {
+
+    // Janela longa: o disparo agendado não roda durante o teste, que chama disparar() direto
+    private static final long JANELA_LONGA_MS = 600_000;
+
+    private final RessuprimentoService service = mock(RessuprimentoService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<GatilhoRessuprimento> gatilhos = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void parar() {
+        gatilhos.forEach(GatilhoRessuprimento::parar);
+        TenantContext.clear();
+    }
+
+    @Test
+    void saidasDaMesmaFaceViramUmaAvaliacao() {
+        GatilhoRessuprimento gatilho = gatilho(JANELA_LONGA_MS);
+        List<Collection<ChaveFace>> chamadas = registrarChamadas(new ConcurrentHashMap<>());
+
+        TenantContext.setTenant("tenant_a");
+        for (int i = 0; i < 100; i++)
+            gatilho.marcar(1L, 100L);
+        gatilho.marcar(2L, 200L);
+        TenantContext.clear();
+
+        gatilho.disparar();
+
+        assertThat(chamadas).hasSize(1);
+        assertThat(chamadas.get(0)).containsExactlyInAnyOrder(new ChaveFace(1L, 100L), new ChaveFace(2L, 200L));
+        assertThat(registry.get("wms.ressuprimento.gatilho.eventos").summary().totalAmount()).isEqualTo(101);
+        assertThat(registry.get("wms.ressuprimento.gatilho.faces").summary().totalAmount()).isEqualTo(2);
+        assertThat(registry.get("wms.ressuprimento.gatilho.coalescidos").counter().count()).isEqualTo(99);
+        assertThat(registry.get("wms.ressuprimento.tarefas").tag("origem", "gatilho").counter().count())
+                .isEqualTo(1);
+
+        // Nada pendente: o próximo disparo não chama o serviço
+        gatilho.disparar();
+        assertThat(chamadas).hasSize(1);
+    }
+
+    @Test
+    void cadaTenantAvaliaSoAsSuasFacesNoSeuContexto() {
+        GatilhoRessuprimento gatilho = gatilho(JANELA_LONGA_MS);
+        Map<String, Collection<ChaveFace>> porTenant = new ConcurrentHashMap<>();
+        registrarChamadas(porTenant);
+
+        TenantContext.setTenant("tenant_a");
+        gatilho.marcar(1L, 100L);
+        TenantContext.setTenant("tenant_b");
+        gatilho.marcar(1L, 100L);
+        gatilho.marcar(3L, 300L);
+        TenantContext.clear();
+
+        gatilho.disparar();
+
+        assertThat(porTenant).containsOnlyKeys("tenant_a", "tenant_b");
+        assertThat(porTenant.get("tenant_a")).containsExactly(new ChaveFace(1L, 100L));
+        assertThat(porTenant.get("tenant_b")).containsExactlyInAnyOrder(new ChaveFace(1L, 100L),
+                new ChaveFace(3L, 300L));
+    }
+
+    @Test
+    void falhaDevolveAsFacesEEsperaAntesDeTentarDeNovo() {
+        GatilhoRessuprimento gatilho = gatilho(JANELA_LONGA_MS);
+        when(service.ressuprirFaces(any())).thenThrow(new IllegalStateException("banco fora"));
+
+        TenantContext.setTenant("tenant_a");
+        gatilho.marcar(1L, 100L);
+        gatilho.disparar();
+        // Ainda dentro da espera: marcação nova se junta à devolvida, sem chamar o serviço
+        // (o disparo limpa o TenantContext da thread)
+        TenantContext.setTenant("tenant_a");
+        gatilho.marcar(2L, 200L);
+        gatilho.disparar();
+
+        verify(service, times(1)).ressuprirFaces(any());
+        assertThat(registry.get("wms.ressuprimento.gatilho.falhas").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void retentativaAgendadaSemNovaMarcacaoLevaAsFacesDevolvidas() {
+        GatilhoRessuprimento gatilho = gatilho(1);
+        List<Set<ChaveFace>> chamadas = new CopyOnWriteArrayList<>();
+        when(service.ressuprirFaces(any())).thenAnswer(inv -> {
+            chamadas.add(Set.copyOf(inv.<Collection<ChaveFace>>getArgument(0)));
+            if (chamadas.size() == 1)
+                throw new IllegalStateException("banco fora");
+            return new ResultadoVarredura(1, 0, 0);
+        });
+
+        TenantContext.setTenant("tenant_a");
+        gatilho.marcar(1L, 100L);
+
+        verify(service, timeout(2_000).times(2)).ressuprirFaces(any());
+        assertThat(chamadas.get(0)).containsExactly(new ChaveFace(1L, 100L));
+        assertThat(chamadas.get(1)).containsExactly(new ChaveFace(1L, 100L));
+    }
+
+    @Test
+    void desisteDepoisDoMaximoDeFalhas() {
+        GatilhoRessuprimento gatilho = gatilho(1);
+        when(service.ressuprirFaces(any())).thenThrow(new IllegalStateException("banco fora"));
+
+        TenantContext.setTenant("tenant_a");
+        gatilho.marcar(1L, 100L);
+
+        // Esperas de 2, 4, 8, 16 e 32 ms entre as 6 tentativas; depois fica para a varredura
+        verify(service, timeout(2_000).times(6)).ressuprirFaces(any());
+        verify(service, after(300).times(6)).ressuprirFaces(any());
+        assertThat(registry.get("wms.ressuprimento.gatilho.falhas").counter().count()).isEqualTo(6);
+    }
+
+    @Test
+    void semMarcacaoNaoHaDisparo() {
+        gatilho(1);
+        verify(service, after(100).never()).ressuprirFaces(any());
+    }
+
+    private GatilhoRessuprimento gatilho(long janelaMs) {
+        GatilhoRessuprimento gatilho = new GatilhoRessuprimento(service, registry, janelaMs);
+        gatilhos.add(gatilho);
+        return gatilho;
+    }
+
+    private List<Collection<ChaveFace>> registrarChamadas(Map<String, Collection<ChaveFace>> porTenant) {
+        List<Collection<ChaveFace>> chamadas = new CopyOnWriteArrayList<>();
+        when(service.ressuprirFaces(any())).thenAnswer(inv -> {
+            Collection<ChaveFace> faces = Set.copyOf(inv.<Collection<ChaveFace>>getArgument(0));
+            chamadas.add(faces);
+            porTenant.put(TenantContext.getTenant(), faces);
+            return new ResultadoVarredura(faces.size(), 1, 1);
+        });
+        return chamadas;
+    }
+}
@@ -0,0 +1,42 @@
+package br.com.hacerfak.coreWMS.modules.estoque.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EstoqueSaldoBatchRepositoryTest {
+
+    /**
+     * O ON CONFLICT só acha o índice se as expressões forem as mesmas; se
+     * divergirem, o Postgres recusa o INSERT (ou, com outro índice que sirva,
+     * a chave passa a ser outra). Sem banco aqui, compara o texto.
+     */
+    @Test
+    void onConflictUsaAsExpressoesDoIndiceUnico() throws IOException {
+        String migracao;
+        try (InputStream is = getClass()
+                .getResourceAsStream("/db/migration/tenant/V15__estoque_saldo_chave_unica.sql")) {
+            migracao = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Matcher indice = Pattern.compile("CREATE UNIQUE INDEX uk_estoque_saldo_chave ON tb_estoque_saldo \\((.*?)\\);",
+                Pattern.DOTALL).matcher(migracao);
+        Matcher conflito = Pattern.compile("ON CONFLICT \\((.*?)\\)\\s*DO UPDATE", Pattern.DOTALL)
+                .matcher(EstoqueSaldoBatchRepository.SQL_INSERT_SALDO);
+
+        assertThat(indice.find()).isTrue();
+        assertThat(conflito.find()).isTrue();
+        assertThat(normalizar(conflito.group(1))).isEqualTo(normalizar(indice.group(1)));
+        assertThat(normalizar(indice.group(1))).contains("COALESCE(data_validade,'-infinity'::date)")
+                .contains("COALESCE(status_qualidade,'')");
+    }
+
+    private static String normalizar(String colunas) {
+        return colunas.replaceAll("\\s+", "");
+    }
+}
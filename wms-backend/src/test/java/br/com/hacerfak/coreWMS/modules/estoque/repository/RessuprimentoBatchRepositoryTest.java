@@ -0,0 +1,128 @@
+package br.com.hacerfak.coreWMS.modules.estoque.repository;
+
+import br.com.hacerfak.coreWMS.core.util.IdsPooledLo;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.NovaTarefa;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ordem dos parâmetros de cada consulta; o SQL em si precisa de banco.
+ */
+class RessuprimentoBatchRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final IdsPooledLo idsPooledLo = mock(IdsPooledLo.class);
+    private final RessuprimentoBatchRepository repository = new RessuprimentoBatchRepository(jdbcTemplate,
+            idsPooledLo);
+
+    private final Connection conexao = mock(Connection.class);
+    private final PreparedStatement ps = mock(PreparedStatement.class);
+
+    @Test
+    void inserirTarefasLigaIdsReservadosEColunasNaOrdemDoUnnest() throws SQLException {
+        when(idsPooledLo.reservar("tb_tarefa_movimentacao", 2)).thenReturn(new Long[] { 1000L, 1001L });
+        Array ids = array("bigint", 1000L, 1001L);
+        Array produtos = array("bigint", 1L, 2L);
+        Array origens = array("bigint", 900L, 901L);
+        Array destinos = array("bigint", 100L, 101L);
+        Array quantidades = array("numeric", new BigDecimal("5"), new BigDecimal("10"));
+        Array lpns = array("bigint", 70L, null);
+        PreparedStatementCreator criador = capturarUpdate(List.of(
+                new NovaTarefa(1L, 900L, 100L, new BigDecimal("5"), 70L),
+                new NovaTarefa(2L, 901L, 101L, new BigDecimal("10"), null)));
+
+        criador.createPreparedStatement(conexao);
+
+        verify(ps).setString(1, "SISTEMA");
+        verify(ps).setString(2, "SISTEMA");
+        // Ids reservados antes das colunas, como no unnest(id, produto_id, ...)
+        verify(ps).setArray(5, ids);
+        verify(ps).setArray(6, produtos);
+        verify(ps).setArray(7, origens);
+        verify(ps).setArray(8, destinos);
+        verify(ps).setArray(9, quantidades);
+        verify(ps).setArray(10, lpns);
+    }
+
+    @Test
+    void listaVaziaNaoReservaIdsNemVaiAoBanco() {
+        assertThat(repository.inserirTarefas(List.of(), "SISTEMA")).isZero();
+        verifyNoInteractions(idsPooledLo, jdbcTemplate);
+    }
+
+    @Test
+    void varreduraCompletaPassaFiltroNulo() throws SQLException {
+        PreparedStatementCreator criador = capturarQuery(() -> repository.buscarFacesAbaixoDoMinimo(null));
+
+        criador.createPreparedStatement(conexao);
+
+        verify(ps).setArray(1, null);
+        verify(ps).setArray(2, null);
+        verify(conexao, never()).createArrayOf(anyString(), any());
+    }
+
+    @Test
+    void gatilhoFiltraPelasConfiguracoes() throws SQLException {
+        Array ids = mock(Array.class);
+        when(conexao.createArrayOf("bigint", new Object[] { 10L, 11L })).thenReturn(ids);
+        PreparedStatementCreator criador = capturarQuery(
+                () -> repository.buscarFacesAbaixoDoMinimo(List.of(10L, 11L)));
+
+        criador.createPreparedStatement(conexao);
+
+        verify(ps).setArray(1, ids);
+        verify(ps).setArray(2, ids);
+    }
+
+    @Test
+    void origensPedemAsFacesDeCadaProduto() throws SQLException {
+        PreparedStatementCreator criador = capturarQuery(() -> repository.buscarOrigens(Map.of(1L, 3)));
+
+        criador.createPreparedStatement(conexao);
+
+        verify(conexao).createArrayOf("bigint", new Object[] { 1L });
+        verify(conexao).createArrayOf("integer", new Object[] { 3 });
+    }
+
+    private Array array(String tipo, Object... valores) throws SQLException {
+        Array array = mock(Array.class);
+        when(conexao.createArrayOf(tipo, valores)).thenReturn(array);
+        return array;
+    }
+
+    private PreparedStatementCreator capturarUpdate(List<NovaTarefa> tarefas) throws SQLException {
+        when(conexao.prepareStatement(anyString())).thenReturn(ps);
+        repository.inserirTarefas(tarefas, "SISTEMA");
+        ArgumentCaptor<PreparedStatementCreator> criador = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbcTemplate).update(criador.capture());
+        return criador.getValue();
+    }
+
+    private PreparedStatementCreator capturarQuery(Runnable consulta) throws SQLException {
+        when(conexao.prepareStatement(anyString())).thenReturn(ps);
+        consulta.run();
+        ArgumentCaptor<PreparedStatementCreator> criador = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbcTemplate).query(criador.capture(), any(RowMapper.class));
+        return criador.getValue();
+    }
+}
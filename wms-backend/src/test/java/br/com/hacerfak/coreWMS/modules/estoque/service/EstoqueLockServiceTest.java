@@ -0,0 +1,224 @@
+package br.com.hacerfak.coreWMS.modules.estoque.service;
+
+import br.com.hacerfak.coreWMS.core.multitenant.TenantContext;
+import br.com.hacerfak.coreWMS.modules.estoque.service.EstoqueLockService.ChaveSaldo;
+import br.com.hacerfak.coreWMS.modules.estoque.service.EstoqueLockService.Modo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EstoqueLockServiceTest {
+
+    private static final String TENANT = "tenant_teste";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @AfterEach
+    void limpar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+        TenantContext.clear();
+    }
+
+    @Test
+    void lotesComChavesCruzadasNaoEntramEmDeadlock() throws Exception {
+        EstoqueLockService service = local(1024, 2_000);
+        List<ChaveSaldo> chaves = new ArrayList<>();
+        for (long p = 1; p <= 20; p++)
+            chaves.add(new ChaveSaldo(p, 100L));
+        List<ChaveSaldo> invertidas = new ArrayList<>(chaves.reversed());
+
+        AtomicInteger concluidas = new AtomicInteger();
+        CyclicBarrier largada = new CyclicBarrier(2);
+        try (ExecutorService pool = Executors.newFixedThreadPool(2)) {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (List<ChaveSaldo> ordem : List.of(chaves, invertidas)) {
+                tarefas.add(pool.submit(() -> {
+                    largada.await();
+                    for (int i = 0; i < 200; i++) {
+                        emTransacao(() -> service.bloquear(ordem));
+                        concluidas.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : tarefas)
+                f.get(30, TimeUnit.SECONDS);
+        }
+        assertThat(concluidas).hasValue(400);
+    }
+
+    @Test
+    void segundaChamadaAbaixoDaMaiorBloqueadaNaoEspera() throws Exception {
+        EstoqueLockService service = local(1024, 5_000);
+        ChaveSaldo[] par = parComIndicesCrescentes(service);
+        ChaveSaldo menor = par[0];
+        ChaveSaldo maior = par[1];
+
+        CountDownLatch ocupada = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        Thread outra = Thread.ofVirtual().start(() -> emTransacao(() -> {
+            service.bloquear(List.of(menor));
+            ocupada.countDown();
+            aguardar(soltar);
+        }));
+        ocupada.await();
+
+        try {
+            long inicio = System.nanoTime();
+            emTransacao(() -> {
+                service.bloquear(List.of(maior));
+                assertThatThrownBy(() -> service.bloquear(List.of(menor)))
+                        .isInstanceOf(CannotAcquireLockException.class)
+                        .hasMessageContaining("fora de ordem");
+            });
+            // Sem esperar o timeout de 5s: tentou e desistiu
+            assertThat(System.nanoTime() - inicio).isLessThan(TimeUnit.SECONDS.toNanos(2));
+        } finally {
+            soltar.countDown();
+            outra.join();
+        }
+    }
+
+    @Test
+    void foraDeOrdemLivreEReentradaPassam() {
+        EstoqueLockService service = local(1024, 1_000);
+        ChaveSaldo[] par = parComIndicesCrescentes(service);
+
+        emTransacao(() -> {
+            service.bloquear(List.of(par[1]));
+            service.bloquear(List.of(par[0]));
+            service.bloquear(List.of(par[0], par[1]));
+        });
+
+        // afterCompletion soltou tudo: outra thread pega as mesmas chaves
+        Thread outra = Thread.ofVirtual().start(() -> emTransacao(() -> service.bloquear(List.of(par[0], par[1]))));
+        assertThat(join(outra)).isTrue();
+    }
+
+    @Test
+    void semTransacaoAtivaFalha() {
+        EstoqueLockService service = local(16, 100);
+        assertThatThrownBy(() -> service.bloquear(List.of(new ChaveSaldo(1L, 1L))))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void advisoryMandaAsChavesEmOrdemNumaIdaAoBanco() throws Exception {
+        EstoqueLockService service = new EstoqueLockService(jdbcTemplate, new SimpleMeterRegistry(), Modo.ADVISORY,
+                16, 1_000);
+
+        emTransacao(() -> service.bloquear(List.of(new ChaveSaldo(9L, 1L), new ChaveSaldo(2L, 7L),
+                new ChaveSaldo(2L, 3L), new ChaveSaldo(9L, 1L))));
+
+        ArgumentCaptor<PreparedStatementCreator> criador = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbcTemplate, times(1)).query(criador.capture(), any(RowCallbackHandler.class));
+        Connection con = mock(Connection.class);
+        when(con.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        criador.getValue().createPreparedStatement(con);
+        verify(con).createArrayOf("integer", new Integer[] { 2, 2, 9 });
+        verify(con).createArrayOf("integer", new Integer[] { 3, 7, 1 });
+
+        // Segunda chamada abaixo da maior já bloqueada: só pg_try_advisory_xact_lock
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class)))
+                .thenReturn(Boolean.FALSE);
+        emTransacao(() -> {
+            service.bloquear(List.of(new ChaveSaldo(9L, 1L)));
+            assertThatThrownBy(() -> service.bloquear(List.of(new ChaveSaldo(2L, 3L))))
+                    .isInstanceOf(CannotAcquireLockException.class);
+        });
+        verify(jdbcTemplate).query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class));
+    }
+
+    @Test
+    void idAcimaDeIntDobraSemPerderOBloqueio() {
+        assertThat(EstoqueLockService.parteAdvisory(42L)).isEqualTo(42);
+        assertThat(EstoqueLockService.parteAdvisory(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(EstoqueLockService.parteAdvisory(1L << 40)).isEqualTo(Long.hashCode(1L << 40));
+    }
+
+    private EstoqueLockService local(int stripes, long timeoutMs) {
+        return new EstoqueLockService(jdbcTemplate, new SimpleMeterRegistry(), Modo.LOCAL, stripes, timeoutMs);
+    }
+
+    // Duas chaves em stripes diferentes, a primeira com índice menor
+    private static ChaveSaldo[] parComIndicesCrescentes(EstoqueLockService service) {
+        ChaveSaldo a = new ChaveSaldo(1L, 1L);
+        for (long p = 2; ; p++) {
+            ChaveSaldo b = new ChaveSaldo(p, 1L);
+            int ia = service.indiceStripe(TENANT, a);
+            int ib = service.indiceStripe(TENANT, b);
+            if (ia < ib)
+                return new ChaveSaldo[] { a, b };
+            if (ib < ia)
+                return new ChaveSaldo[] { b, a };
+        }
+    }
+
+    // Simula o ciclo de uma transação: sincronização ativa e afterCompletion no fim
+    private static void emTransacao(Runnable corpo) {
+        TenantContext.setTenant(TENANT);
+        TransactionSynchronizationManager.initSynchronization();
+        int status = TransactionSynchronization.STATUS_COMMITTED;
+        try {
+            corpo.run();
+        } catch (RuntimeException e) {
+            status = TransactionSynchronization.STATUS_ROLLED_BACK;
+            throw e;
+        } finally {
+            List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            for (TransactionSynchronization s : syncs)
+                s.afterCompletion(status);
+            TenantContext.clear();
+        }
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean join(Thread t) {
+        try {
+            return t.join(Duration.ofSeconds(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
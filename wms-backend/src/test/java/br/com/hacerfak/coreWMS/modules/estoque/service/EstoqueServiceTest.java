@@ -0,0 +1,262 @@
+package br.com.hacerfak.coreWMS.modules.estoque.service;
+
+import br.com.hacerfak.coreWMS.core.outbox.OutboxService;
+import br.com.hacerfak.coreWMS.modules.cadastro.domain.Produto;
+import br.com.hacerfak.coreWMS.modules.cadastro.repository.ProdutoRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.Localizacao;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.MovimentoEstoque;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.StatusQualidade;
+import br.com.hacerfak.coreWMS.modules.estoque.domain.TipoMovimento;
+import br.com.hacerfak.coreWMS.modules.estoque.dto.MovimentoCommand;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoBatchRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoBatchRepository.LinhaSaldo;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.LocalizacaoRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.LpnRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * movimentarLote sobre cópias de trabalho: o que vai para cada escrita
+ * set-based (inserir, atualizar, remover, kardex) e quantos comandos o lote
+ * manda ao banco.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class EstoqueServiceTest {
+
+    private static final Long PRODUTO = 1L;
+    private static final Long LOCAL = 10L;
+
+    @Mock
+    EstoqueSaldoRepository saldoRepository;
+    @Mock
+    ProdutoRepository produtoRepository;
+    @Mock
+    LocalizacaoRepository localizacaoRepository;
+    @Mock
+    LpnRepository lpnRepository;
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+    @Mock
+    EstoqueSaldoBatchRepository saldoBatchRepository;
+    @Mock
+    EstoqueLockService lockService;
+    @Mock
+    OutboxService outboxService;
+
+    private final EntityManager entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+    private EstoqueService service;
+    private final List<LinhaSaldo> noBanco = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() {
+        service = new EstoqueService(saldoRepository, produtoRepository, localizacaoRepository, lpnRepository,
+                eventPublisher, saldoBatchRepository, entityManager, lockService, outboxService);
+        when(produtoRepository.findAllById(any())).thenAnswer(inv -> {
+            List<Produto> produtos = new ArrayList<>();
+            for (Long id : inv.<Iterable<Long>>getArgument(0))
+                produtos.add(Produto.builder().id(id).sku("SKU" + id).nome("P" + id).build());
+            return produtos;
+        });
+        when(localizacaoRepository.findAllById(any())).thenAnswer(inv -> {
+            List<Localizacao> locais = new ArrayList<>();
+            for (Long id : inv.<Iterable<Long>>getArgument(0))
+                locais.add(Localizacao.builder().id(id).build());
+            return locais;
+        });
+        when(saldoBatchRepository.buscarSaldos(anyCollection(), anyCollection())).thenAnswer(inv -> noBanco);
+        when(saldoBatchRepository.inserirSaldos(any())).thenReturn(Map.of());
+        // Nenhum saldo carregado na sessão: nada a sincronizar depois do UPDATE
+        SharedSessionContractImplementor sessao = mock(SharedSessionContractImplementor.class, RETURNS_DEEP_STUBS);
+        when(sessao.getPersistenceContextInternal().getEntity(any(EntityKey.class))).thenReturn(null);
+        when(entityManager.unwrap(SharedSessionContractImplementor.class)).thenReturn(sessao);
+    }
+
+    @Test
+    void entradasNaMesmaChaveViramUmInsertEKardexEmSequencia() {
+        service.movimentarLote(List.of(entrada("5", "L1", null), entrada("3", "L1", null)));
+
+        List<LinhaSaldo> inseridos = capturarInseridos();
+        assertThat(inseridos).hasSize(1);
+        assertThat(inseridos.get(0).getQuantidade()).isEqualByComparingTo("8");
+        assertThat(inseridos.get(0).getStatusQualidade()).isEqualTo(StatusQualidade.DISPONIVEL);
+
+        List<MovimentoEstoque> kardex = capturarKardex();
+        assertThat(kardex).extracting(m -> m.getSaldoAnterior().toPlainString(), m -> m.getSaldoAtual().toPlainString())
+                .containsExactly(tuple("0", "5"),
+                        tuple("5", "8"));
+    }
+
+    @Test
+    void saldoExistenteEAtualizadoEZeradoERemovido() {
+        noBanco.add(linha(100L, "L1", null, "10"));
+        noBanco.add(linha(101L, "L2", null, "4"));
+
+        service.movimentarLote(List.of(entrada("5", "L1", null), saida("4", "L2")));
+
+        ArgumentCaptor<List<LinhaSaldo>> atualizados = listaCaptor();
+        verify(saldoBatchRepository).atualizarSaldos(atualizados.capture());
+        assertThat(atualizados.getValue()).singleElement()
+                .satisfies(s -> {
+                    assertThat(s.getId()).isEqualTo(100L);
+                    assertThat(s.getQuantidade()).isEqualByComparingTo("15");
+                });
+
+        ArgumentCaptor<List<LinhaSaldo>> removidos = listaCaptor();
+        verify(saldoBatchRepository).removerSaldos(removidos.capture());
+        assertThat(removidos.getValue()).extracting(LinhaSaldo::getId).containsExactly(101L);
+        assertThat(capturarInseridos()).isEmpty();
+    }
+
+    @Test
+    void saidaSeguidaDeEntradaNaMesmaChaveSeComportaComoChamadasSeguidas() {
+        noBanco.add(linha(100L, "L1", null, "2"));
+
+        service.movimentarLote(List.of(saida("2", "L1"), entrada("7", "L1", null)));
+
+        ArgumentCaptor<List<LinhaSaldo>> atualizados = listaCaptor();
+        verify(saldoBatchRepository).atualizarSaldos(atualizados.capture());
+        assertThat(atualizados.getValue()).singleElement()
+                .satisfies(s -> assertThat(s.getQuantidade()).isEqualByComparingTo("7"));
+        assertThat(capturarKardex()).extracting(m -> m.getSaldoAtual().toPlainString()).containsExactly("0", "7");
+    }
+
+    @Test
+    void chaveCriadaPorOutraTransacaoCorrigeOKardex() {
+        // ON CONFLICT somou: a linha já tinha 3 quando o INSERT chegou
+        when(saldoBatchRepository.inserirSaldos(any())).thenAnswer(inv -> {
+            List<LinhaSaldo> linhas = inv.getArgument(0);
+            linhas.get(0).setQuantidade(new BigDecimal("8"));
+            return Map.of(linhas.get(0), new BigDecimal("3"));
+        });
+
+        service.movimentarLote(List.of(entrada("5", "L1", null)));
+
+        assertThat(capturarKardex()).singleElement().satisfies(m -> {
+            assertThat(m.getSaldoAnterior()).isEqualByComparingTo("3");
+            assertThat(m.getSaldoAtual()).isEqualByComparingTo("8");
+        });
+    }
+
+    @Test
+    void validadeDiferenteNaoSomaNoMesmoSaldo() {
+        LocalDate vence = LocalDate.of(2030, 1, 31);
+        noBanco.add(linha(100L, null, vence, "10"));
+
+        service.movimentarLote(List.of(entrada("5", null, vence.plusMonths(1)), entrada("1", null, vence)));
+
+        assertThat(capturarInseridos()).singleElement().satisfies(s -> {
+            assertThat(s.getDataValidade()).isEqualTo(vence.plusMonths(1));
+            assertThat(s.getQuantidade()).isEqualByComparingTo("5");
+        });
+        ArgumentCaptor<List<LinhaSaldo>> atualizados = listaCaptor();
+        verify(saldoBatchRepository).atualizarSaldos(atualizados.capture());
+        assertThat(atualizados.getValue()).singleElement()
+                .satisfies(s -> assertThat(s.getQuantidade()).isEqualByComparingTo("11"));
+    }
+
+    @Test
+    void saidaSemSaldoSuficienteNaoGravaNada() {
+        noBanco.add(linha(100L, "L1", null, "2"));
+
+        assertThatThrownBy(() -> service.movimentarLote(List.of(saida("3", "L1"))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(mockingDetails(saldoBatchRepository).getInvocations())
+                .noneMatch(i -> !i.getMethod().getName().equals("buscarSaldos"));
+    }
+
+    /**
+     * Comandos mandados ao banco por lote: medidos pelas chamadas aos
+     * repositórios (cada uma é um comando ou um batch JDBC). Não pode crescer
+     * com o número de linhas.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 10, 500 })
+    void comandosAoBancoNaoCrescemComAsLinhas(int linhas) {
+        List<MovimentoCommand> comandos = new ArrayList<>();
+        for (int i = 0; i < linhas; i++) {
+            noBanco.add(LinhaSaldo.builder().id(1000L + i).version(0L).produtoId(PRODUTO + i).localizacaoId(LOCAL)
+                    .lote("L").statusQualidade(StatusQualidade.DISPONIVEL).quantidade(new BigDecimal("10"))
+                    .quantidadeReservada(BigDecimal.ZERO).build());
+            comandos.add(new MovimentoCommand(PRODUTO + i, LOCAL, BigDecimal.ONE, null, "L", null, null,
+                    TipoMovimento.ENTRADA, "op", null));
+            comandos.add(new MovimentoCommand(PRODUTO + i, LOCAL + 1, BigDecimal.ONE, null, "L", null, null,
+                    TipoMovimento.ENTRADA, "op", null));
+        }
+
+        service.movimentarLote(comandos);
+
+        long aoBanco = mockingDetails(saldoBatchRepository).getInvocations().size()
+                + mockingDetails(produtoRepository).getInvocations().size()
+                + mockingDetails(localizacaoRepository).getInvocations().size()
+                + mockingDetails(saldoRepository).getInvocations().size();
+        // buscarSaldos, produtos, locais, atualizar, remover, inserir, kardex (inserir e
+        // kardex levam junto um SELECT de ids do IdsPooledLo: 9 idas ao banco no total)
+        assertThat(aoBanco).isEqualTo(7);
+        assertThat(capturarInseridos()).hasSize(linhas);
+        assertThat(capturarKardex()).hasSize(2 * linhas);
+    }
+
+    private static MovimentoCommand entrada(String qtd, String lote, LocalDate validade) {
+        return new MovimentoCommand(PRODUTO, LOCAL, new BigDecimal(qtd), null, lote, null, null,
+                TipoMovimento.ENTRADA, "op", null, validade);
+    }
+
+    private static MovimentoCommand saida(String qtd, String lote) {
+        return new MovimentoCommand(PRODUTO, LOCAL, new BigDecimal(qtd), null, lote, null, null,
+                TipoMovimento.SAIDA, "op", null);
+    }
+
+    private static LinhaSaldo linha(Long id, String lote, LocalDate validade, String qtd) {
+        return LinhaSaldo.builder().id(id).version(0L).produtoId(PRODUTO).localizacaoId(LOCAL).lote(lote)
+                .dataValidade(validade).statusQualidade(StatusQualidade.DISPONIVEL).quantidade(new BigDecimal(qtd))
+                .quantidadeReservada(BigDecimal.ZERO).build();
+    }
+
+    private List<LinhaSaldo> capturarInseridos() {
+        ArgumentCaptor<List<LinhaSaldo>> captor = listaCaptor();
+        verify(saldoBatchRepository).inserirSaldos(captor.capture());
+        return captor.getValue();
+    }
+
+    private List<MovimentoEstoque> capturarKardex() {
+        ArgumentCaptor<List<MovimentoEstoque>> captor = listaCaptor();
+        verify(saldoBatchRepository).inserirMovimentos(captor.capture());
+        return captor.getValue();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> ArgumentCaptor<List<T>> listaCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+    }
+}
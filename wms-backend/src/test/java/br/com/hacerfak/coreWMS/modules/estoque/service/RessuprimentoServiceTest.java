@@ -0,0 +1,156 @@
+package br.com.hacerfak.coreWMS.modules.estoque.service;
+
+import br.com.hacerfak.coreWMS.modules.estoque.repository.EstoqueSaldoRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.LpnRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.ChaveFace;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.FaceRessuprimento;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.NovaTarefa;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.RessuprimentoBatchRepository.OrigemRessuprimento;
+import br.com.hacerfak.coreWMS.modules.estoque.repository.TarefaMovimentacaoRepository;
+import br.com.hacerfak.coreWMS.modules.estoque.service.RessuprimentoService.ResultadoVarredura;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RessuprimentoServiceTest {
+
+    private static final Long PRODUTO = 1L;
+    private static final Long OUTRO_PRODUTO = 2L;
+
+    private final RessuprimentoBatchRepository repository = mock(RessuprimentoBatchRepository.class);
+    private final RessuprimentoService service = new RessuprimentoService(repository,
+            mock(EstoqueSaldoRepository.class), mock(TarefaMovimentacaoRepository.class),
+            mock(EstoqueService.class), mock(LpnRepository.class));
+
+    @Test
+    void origemMaisAntigaAtendeUmaFaceEOSaldoRestanteNaoEhReusado() {
+        when(repository.contarFacesAtivas()).thenReturn(30L);
+        when(repository.buscarFacesAbaixoDoMinimo(null)).thenReturn(List.of(
+                face(10L, PRODUTO, 100L, "2", "10"),
+                face(11L, PRODUTO, 101L, "0", "10")));
+        when(repository.buscarOrigens(any())).thenReturn(List.of(
+                origem(500L, PRODUTO, 900L, "5", 70L),
+                origem(501L, PRODUTO, 901L, "20", null)));
+        when(repository.inserirTarefas(anyList(), eq("SISTEMA")))
+                .thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size());
+
+        ResultadoVarredura resultado = service.ressuprirTenant();
+
+        // A primeira face leva a origem mais antiga inteira (5 de 8); a segunda,
+        // sem saldo sobrando nela, vai para a próxima
+        assertThat(tarefasInseridas()).containsExactly(
+                new NovaTarefa(PRODUTO, 900L, 100L, new BigDecimal("5"), 70L),
+                new NovaTarefa(PRODUTO, 901L, 101L, new BigDecimal("10"), null));
+        assertThat(resultado).isEqualTo(new ResultadoVarredura(30, 2, 2));
+    }
+
+    @Test
+    void origemDivididaEntreFacesDoMesmoProduto() {
+        when(repository.buscarFacesAbaixoDoMinimo(null)).thenReturn(List.of(
+                face(10L, PRODUTO, 100L, "6", "10"),
+                face(11L, PRODUTO, 101L, "7", "10")));
+        when(repository.buscarOrigens(any())).thenReturn(List.of(origem(500L, PRODUTO, 900L, "50", null)));
+
+        service.ressuprirTenant();
+
+        assertThat(tarefasInseridas()).containsExactly(
+                new NovaTarefa(PRODUTO, 900L, 100L, new BigDecimal("4"), null),
+                new NovaTarefa(PRODUTO, 900L, 101L, new BigDecimal("3"), null));
+    }
+
+    @Test
+    void origemNoProprioEnderecoDaFaceEhIgnorada() {
+        when(repository.buscarFacesAbaixoDoMinimo(null)).thenReturn(List.of(face(10L, PRODUTO, 100L, "0", "10")));
+        when(repository.buscarOrigens(any())).thenReturn(List.of(
+                origem(500L, PRODUTO, 100L, "50", null),
+                origem(501L, PRODUTO, 901L, "50", null)));
+
+        service.ressuprirTenant();
+
+        assertThat(tarefasInseridas()).extracting(NovaTarefa::origemId).containsExactly(901L);
+    }
+
+    @Test
+    void origensBuscadasUmaVezComAsFacesDeCadaProduto() {
+        when(repository.buscarFacesAbaixoDoMinimo(null)).thenReturn(List.of(
+                face(10L, PRODUTO, 100L, "0", "10"),
+                face(11L, PRODUTO, 101L, "0", "10"),
+                face(12L, OUTRO_PRODUTO, 102L, "0", "10")));
+        when(repository.buscarOrigens(any())).thenReturn(List.of(origem(500L, PRODUTO, 900L, "50", null)));
+
+        ResultadoVarredura resultado = service.ressuprirTenant();
+
+        verify(repository).buscarOrigens(Map.of(PRODUTO, 2, OUTRO_PRODUTO, 1));
+        // Produto sem origem: a face conta como abaixo do mínimo, mas sem tarefa
+        assertThat(tarefasInseridas()).extracting(NovaTarefa::destinoId).containsExactly(100L, 101L);
+        assertThat(resultado.facesAbaixoMinimo()).isEqualTo(3);
+    }
+
+    @Test
+    void nenhumaFaceAbaixoDoMinimoNaoBuscaOrigens() {
+        when(repository.contarFacesAtivas()).thenReturn(5L);
+        when(repository.buscarFacesAbaixoDoMinimo(null)).thenReturn(List.of());
+
+        assertThat(service.ressuprirTenant()).isEqualTo(new ResultadoVarredura(5, 0, 0));
+        verify(repository, never()).buscarOrigens(any());
+        verify(repository, never()).inserirTarefas(anyList(), any());
+    }
+
+    @Test
+    void gatilhoAvaliaSoAsConfiguracoesDasFacesMovimentadas() {
+        List<ChaveFace> faces = List.of(new ChaveFace(PRODUTO, 100L), new ChaveFace(PRODUTO, 555L));
+        when(repository.buscarConfiguracoes(faces)).thenReturn(List.of(10L));
+        when(repository.buscarFacesAbaixoDoMinimo(List.of(10L))).thenReturn(List.of());
+
+        ResultadoVarredura resultado = service.ressuprirFaces(faces);
+
+        InOrder ordem = inOrder(repository);
+        ordem.verify(repository).travar();
+        ordem.verify(repository).buscarConfiguracoes(faces);
+        ordem.verify(repository).buscarFacesAbaixoDoMinimo(List.of(10L));
+        verify(repository, never()).buscarFacesAbaixoDoMinimo(isNull());
+        assertThat(resultado).isEqualTo(new ResultadoVarredura(1, 0, 0));
+    }
+
+    @Test
+    void gatilhoSemFaceDePickingNaoConsultaSaldo() {
+        List<ChaveFace> faces = List.of(new ChaveFace(PRODUTO, 555L));
+        when(repository.buscarConfiguracoes(faces)).thenReturn(List.of());
+
+        assertThat(service.ressuprirFaces(faces)).isEqualTo(new ResultadoVarredura(0, 0, 0));
+        verify(repository, never()).buscarFacesAbaixoDoMinimo(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<NovaTarefa> tarefasInseridas() {
+        ArgumentCaptor<List<NovaTarefa>> tarefas = ArgumentCaptor.forClass(List.class);
+        verify(repository).inserirTarefas(tarefas.capture(), eq("SISTEMA"));
+        return tarefas.getValue();
+    }
+
+    private static FaceRessuprimento face(Long configId, Long produtoId, Long localId, String saldo,
+            String capacidade) {
+        return new FaceRessuprimento(configId, produtoId, localId, new BigDecimal(saldo), new BigDecimal(capacidade));
+    }
+
+    private static OrigemRessuprimento origem(Long saldoId, Long produtoId, Long localId, String disponivel,
+            Long lpnId) {
+        return new OrigemRessuprimento(saldoId, produtoId, localId, new BigDecimal(disponivel), lpnId);
+    }
+}
@@ -0,0 +1,165 @@
+package br.com.hacerfak.coreWMS.modules.operacao.service;
+
+import br.com.hacerfak.coreWMS.modules.operacao.dto.NfeXmlDados;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Paridade do NfeXmlParser (StAX) com a leitura DOM que a portaria fazia
+ * antes (getElementsByTagName + getTagValue do NfeImportService antigo).
+ */
+class NfeXmlParserTest {
+
+    private final NfeXmlParser parser = new NfeXmlParser();
+
+    @ParameterizedTest
+    @ValueSource(strings = { "nfeProc", "NFe", "semTransporta", "emitenteCpf", "nfRef", "camposAusentes" })
+    void mesmoResultadoQueODom(String variante) throws Exception {
+        byte[] xml = montarXml(variante, 30).getBytes(StandardCharsets.UTF_8);
+
+        NfeXmlDados stax = parser.ler(new ByteArrayInputStream(xml));
+
+        assertThat(stax).usingRecursiveComparison().isEqualTo(lerComDom(xml));
+        assertThat(stax.itens()).hasSize(30);
+    }
+
+    @Test
+    void camposDaNotaDeExemplo() throws Exception {
+        NfeXmlDados nfe = parser.ler(new ByteArrayInputStream(
+                montarXml("nfeProc", 2).getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(nfe.chaveAcesso()).isEqualTo("35240112345678000199550010000012341000012345");
+        assertThat(nfe.numero()).isEqualTo("1234");
+        assertThat(nfe.dataEmissao()).isEqualTo(LocalDateTime.of(2024, 1, 15, 10, 30));
+        assertThat(nfe.emitente().cpfCnpj()).isEqualTo("12345678000199");
+        assertThat(nfe.emitente().cidade()).isEqualTo("Sao Paulo");
+        assertThat(nfe.transportadora().nome()).isEqualTo("Transportadora Exemplo");
+        assertThat(nfe.itens().get(1).quantidade()).isEqualByComparingTo("3");
+        assertThat(nfe.itens().get(1).valorUnitario()).isEqualByComparingTo("19.90");
+    }
+
+    @Test
+    void dtdEhRecusado() {
+        String xml = "<?xml version=\"1.0\"?><!DOCTYPE nfe [<!ENTITY x SYSTEM \"file:///etc/passwd\">]>"
+                + "<NFe><infNFe Id=\"NFe1\"><ide><nNF>&x;</nNF></ide></infNFe></NFe>";
+        assertThatThrownBy(() -> parser.ler(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(XMLStreamException.class);
+    }
+
+    // --- Referência: leitura DOM antiga ---
+
+    private static NfeXmlDados lerComDom(byte[] xml) throws Exception {
+        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+        dbFactory.setNamespaceAware(false);
+        Document doc = dbFactory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        doc.getDocumentElement().normalize();
+
+        Element emit = (Element) doc.getElementsByTagName("emit").item(0);
+        Element ender = (Element) emit.getElementsByTagName("enderEmit").item(0);
+        String docEmit = getTagValue("CNPJ", emit);
+        if (docEmit == null || docEmit.isEmpty())
+            docEmit = getTagValue("CPF", emit);
+        NfeXmlDados.Emitente emitente = new NfeXmlDados.Emitente(docEmit, getTagValue("xNome", emit),
+                getTagValue("xFant", emit), getTagValue("IE", emit), getTagValue("CRT", emit),
+                getTagValue("xLgr", ender), getTagValue("nro", ender), getTagValue("xBairro", ender),
+                getTagValue("xMun", ender), getTagValue("UF", ender), getTagValue("CEP", ender),
+                getTagValue("fone", ender));
+
+        NfeXmlDados.Transportadora transportadora = null;
+        NodeList transp = doc.getElementsByTagName("transp");
+        if (transp.getLength() > 0) {
+            NodeList transporta = ((Element) transp.item(0)).getElementsByTagName("transporta");
+            if (transporta.getLength() > 0) {
+                Element t = (Element) transporta.item(0);
+                String cnpj = getTagValue("CNPJ", t);
+                transportadora = new NfeXmlDados.Transportadora(
+                        cnpj != null && !cnpj.isEmpty() ? cnpj : getTagValue("CPF", t), getTagValue("xNome", t));
+            }
+        }
+
+        List<NfeXmlDados.Item> itens = new ArrayList<>();
+        NodeList dets = doc.getElementsByTagName("det");
+        for (int i = 0; i < dets.getLength(); i++) {
+            Element prod = (Element) ((Element) dets.item(i)).getElementsByTagName("prod").item(0);
+            itens.add(new NfeXmlDados.Item(getTagValue("cProd", prod), getTagValue("xProd", prod),
+                    getTagValue("cEAN", prod), getTagValue("NCM", prod), getTagValue("CEST", prod),
+                    getTagValue("uCom", prod), decimal(getTagValue("qCom", prod)),
+                    decimal(getTagValue("vUnCom", prod))));
+        }
+
+        Element infNFe = (Element) doc.getElementsByTagName("infNFe").item(0);
+        String chave = infNFe.hasAttribute("Id") ? infNFe.getAttribute("Id").replace("NFe", "") : null;
+        String dhEmi = getTagValue("dhEmi", doc.getDocumentElement());
+        return new NfeXmlDados(chave, getTagValue("nNF", doc.getDocumentElement()),
+                dhEmi != null ? LocalDateTime.parse(dhEmi, DateTimeFormatter.ISO_DATE_TIME) : null, emitente,
+                transportadora, itens);
+    }
+
+    private static String getTagValue(String tag, Element element) {
+        NodeList lista = element.getElementsByTagName(tag);
+        return lista.getLength() > 0 ? lista.item(0).getTextContent() : null;
+    }
+
+    private static BigDecimal decimal(String valor) {
+        return valor == null || valor.isEmpty() ? null : new BigDecimal(valor);
+    }
+
+    private static String montarXml(String variante, int itens) {
+        boolean proc = variante.equals("nfeProc");
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        if (proc)
+            sb.append("<nfeProc xmlns=\"http://www.portalfiscal.inf.br/nfe\" versao=\"4.00\">");
+        sb.append(proc ? "<NFe>" : "<NFe xmlns=\"http://www.portalfiscal.inf.br/nfe\">")
+                .append("<infNFe Id=\"NFe35240112345678000199550010000012341000012345\" versao=\"4.00\">")
+                .append("<ide><cUF>35</cUF><nNF>1234</nNF><dhEmi>2024-01-15T10:30:00-03:00</dhEmi>");
+        if (variante.equals("nfRef"))
+            sb.append("<NFref><refNF><cUF>35</cUF><nNF>999</nNF></refNF></NFref>");
+        sb.append("</ide><emit>")
+                .append(variante.equals("emitenteCpf") ? "<CPF>12345678909</CPF>" : "<CNPJ>12345678000199</CNPJ>")
+                .append("<xNome>Fornecedor Exemplo LTDA</xNome>");
+        if (!variante.equals("camposAusentes"))
+            sb.append("<xFant>Exemplo</xFant>");
+        sb.append("<enderEmit><xLgr>Rua das Flores</xLgr><nro>100</nro><xBairro>Centro</xBairro>")
+                .append("<xMun>Sao Paulo</xMun><UF>SP</UF><CEP>01001000</CEP>");
+        if (!variante.equals("camposAusentes"))
+            sb.append("<fone>1133334444</fone>");
+        sb.append("</enderEmit><IE>123456789</IE><CRT>3</CRT></emit>")
+                .append("<dest><CNPJ>98765432000188</CNPJ><xNome>Destinatario SA</xNome></dest>");
+        for (int i = 1; i <= itens; i++) {
+            sb.append("<det nItem=\"").append(i).append("\"><prod><cProd>SKU").append(i).append("</cProd>")
+                    .append("<cEAN>").append(i % 7 == 0 ? "SEM GTIN" : "789" + String.format("%010d", i))
+                    .append("</cEAN><xProd>Produto ").append(i).append(" &amp; cia</xProd><NCM>84713012</NCM>");
+            if (!(variante.equals("camposAusentes") && i % 2 == 0))
+                sb.append("<CEST>2106400</CEST>");
+            sb.append("<uCom>UN</uCom><qCom>").append(i + 1).append(".0000</qCom>")
+                    .append("<vUnCom>19.9000000000</vUnCom></prod>")
+                    .append("<imposto><ICMS><ICMS00><CST>00</CST></ICMS00></ICMS></imposto></det>");
+        }
+        sb.append("<transp><modFrete>0</modFrete>");
+        if (!variante.equals("semTransporta"))
+            sb.append("<transporta><CNPJ>11222333000144</CNPJ><xNome>Transportadora Exemplo</xNome></transporta>");
+        sb.append("</transp></infNFe><Signature xmlns=\"http://www.w3.org/2000/09/xmldsig#\"><SignedInfo>")
+                .append("<DigestValue>AAAA</DigestValue></SignedInfo></Signature></NFe>");
+        if (proc)
+            sb.append("<protNFe versao=\"4.00\"><infProt><nProt>135240000000001</nProt></infProt></protNFe>")
+                    .append("</nfeProc>");
+        return sb.toString();
+    }
+}
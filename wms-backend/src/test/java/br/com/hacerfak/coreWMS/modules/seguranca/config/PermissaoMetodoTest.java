@@ -0,0 +1,138 @@
+package br.com.hacerfak.coreWMS.modules.seguranca.config;
+
+import br.com.hacerfak.coreWMS.modules.impressao.controller.FilaImpressaoController;
+import br.com.hacerfak.coreWMS.modules.impressao.repository.FilaImpressaoRepository;
+import br.com.hacerfak.coreWMS.modules.impressao.service.AgenteImpressaoService;
+import br.com.hacerfak.coreWMS.modules.impressao.service.ImpressaoService;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.PermissaoEnum;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.UserRole;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.Usuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDeniedException;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @PreAuthorize avaliado de verdade (mesmo handler do SecurityConfig) sobre
+ * o FilaImpressaoController, que tem os três públicos: admin, usuário com
+ * permissão de perfil e o agente de impressão (ROLE_AGENT, sem bitset).
+ */
+@SpringJUnitConfig(PermissaoMetodoTest.Config.class)
+class PermissaoMetodoTest {
+
+    @Configuration
+    @EnableMethodSecurity
+    static class Config {
+
+        @Bean
+        static MethodSecurityExpressionHandler methodSecurityExpressionHandler() {
+            return new PermissaoExpressionHandler();
+        }
+
+        @Bean
+        FilaImpressaoRepository filaImpressaoRepository() {
+            FilaImpressaoRepository repository = mock(FilaImpressaoRepository.class);
+            when(repository.findAll(any(Pageable.class))).thenReturn(Page.empty());
+            return repository;
+        }
+
+        @Bean
+        FilaImpressaoController filaImpressaoController(FilaImpressaoRepository filaRepository) {
+            return new FilaImpressaoController(mock(ImpressaoService.class), filaRepository,
+                    mock(StringRedisTemplate.class), mock(AgenteImpressaoService.class));
+        }
+    }
+
+    @Autowired
+    FilaImpressaoController controller;
+
+    @AfterEach
+    void limpar() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void adminPassaEmPermissaoEPapel() {
+        autenticar(usuario(UserRole.ADMIN));
+
+        assertThat(controller.listarFila(Pageable.unpaged()).getStatusCode().value()).isEqualTo(200);
+        // hasRole('ADMIN') chega no método (o mock devolve vazio)
+        assertThatThrownBy(() -> controller.verZplGerado(1L))
+                .isNotInstanceOf(AuthorizationDeniedException.class);
+    }
+
+    @Test
+    void usuarioComPermissaoDoPerfilPassaSoNaPermissao() {
+        autenticar(usuario(UserRole.USER, PermissaoEnum.CONFIG_SISTEMA));
+
+        assertThat(controller.listarFila(Pageable.unpaged()).getStatusCode().value()).isEqualTo(200);
+        assertThatThrownBy(() -> controller.verZplGerado(1L)).isInstanceOf(AuthorizationDeniedException.class);
+    }
+
+    @Test
+    void usuarioSemPermissaoENegado() {
+        autenticar(usuario(UserRole.USER, PermissaoEnum.PRODUTO_VISUALIZAR));
+
+        assertThatThrownBy(() -> controller.listarFila(Pageable.unpaged()))
+                .isInstanceOf(AuthorizationDeniedException.class);
+    }
+
+    @Test
+    void agenteChegaNosEndpointsDaFila() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("agente-1",
+                null, List.of(new SimpleGrantedAuthority("ROLE_AGENT"))));
+
+        assertThat(controller.confirmarSucesso(1L).getStatusCode().value()).isEqualTo(200);
+        assertThat(controller.reportarErro(1L, "sem papel").getStatusCode().value()).isEqualTo(200);
+        // Sem chave o próprio método responde 403; o que importa é não ser barrado antes
+        assertThat(controller.aguardarTrabalho(null, null).getStatusCode().value()).isEqualTo(403);
+        assertThatThrownBy(() -> controller.listarFila(Pageable.unpaged()))
+                .isInstanceOf(AuthorizationDeniedException.class);
+    }
+
+    @Test
+    void resultadoSeMantemDepoisDeCompilada() {
+        // MIXED compila a expressão depois de algumas avaliações; o resultado não pode mudar
+        for (int i = 0; i < 300; i++) {
+            autenticar(usuario(UserRole.USER, PermissaoEnum.CONFIG_SISTEMA));
+            assertThat(controller.listarFila(Pageable.unpaged()).getStatusCode().value()).isEqualTo(200);
+
+            autenticar(usuario(UserRole.USER));
+            assertThatThrownBy(() -> controller.listarFila(Pageable.unpaged()))
+                    .isInstanceOf(AuthorizationDeniedException.class);
+        }
+    }
+
+    private static Usuario usuario(UserRole role, PermissaoEnum... permissoes) {
+        BitSet bits = new BitSet();
+        for (PermissaoEnum p : permissoes)
+            bits.set(p.ordinal());
+        return Usuario.builder().login("u").senha("x").nome("U").ativo(true).role(role)
+                .permissoes(bits.toLongArray()).build();
+    }
+
+    private static void autenticar(Usuario usuario) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(usuario, null, usuario.getAuthorities()));
+    }
+}
@@ -0,0 +1,121 @@
+package br.com.hacerfak.coreWMS.modules.seguranca.service;
+
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.PermissaoEnum;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.UserRole;
+import br.com.hacerfak.coreWMS.modules.seguranca.domain.Usuario;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenServiceTest {
+
+    private final TokenService service = new TokenService();
+
+    @BeforeEach
+    void preparar() {
+        ReflectionTestUtils.setField(service, "secret", "segredo-de-teste");
+        service.iniciar();
+    }
+
+    @Test
+    void todasAsPermissoesIdaEVolta() {
+        List<String> nomes = Arrays.stream(PermissaoEnum.values()).map(Enum::name).toList();
+
+        DecodedJWT jwt = service.verificar(service.generateToken(usuario(UserRole.USER), "tenant_a", nomes));
+
+        assertThat(nomes(service.getAuthorities(jwt)))
+                .containsExactlyInAnyOrderElementsOf(concatenar(List.of("ROLE_USER"), nomes));
+        Usuario principal = usuario(UserRole.USER);
+        principal.setPermissoes(service.getPermissoes(jwt));
+        for (PermissaoEnum p : PermissaoEnum.values())
+            assertThat(principal.possuiPermissao(p)).as(p.name()).isTrue();
+    }
+
+    @ParameterizedTest
+    @EnumSource(PermissaoEnum.class)
+    void cadaPermissaoSozinhaVoltaSoEla(PermissaoEnum permissao) {
+        DecodedJWT jwt = service.verificar(
+                service.generateToken(usuario(UserRole.USER), "tenant_a", List.of(permissao.name())));
+
+        assertThat(nomes(service.getAuthorities(jwt))).containsExactlyInAnyOrder("ROLE_USER", permissao.name());
+        Usuario principal = usuario(UserRole.USER);
+        principal.setPermissoes(service.getPermissoes(jwt));
+        for (PermissaoEnum p : PermissaoEnum.values())
+            assertThat(principal.possuiPermissao(p)).as(p.name()).isEqualTo(p == permissao);
+    }
+
+    @Test
+    void rolesENomesDesconhecidosFicamForaDoBitset() {
+        PermissaoEnum ultima = PermissaoEnum.values()[PermissaoEnum.values().length - 1];
+        List<String> authorities = List.of("ROLE_ADMIN", "PERMISSAO_REMOVIDA", PermissaoEnum.PRODUTO_VISUALIZAR.name(),
+                ultima.name());
+
+        DecodedJWT jwt = service.verificar(service.generateToken(usuario(UserRole.USER), "tenant_a", authorities));
+
+        assertThat(nomes(service.getAuthorities(jwt)))
+                .containsExactlyInAnyOrder("ROLE_USER", PermissaoEnum.PRODUTO_VISUALIZAR.name(), ultima.name());
+        // A lista original segue no token para o frontend
+        assertThat(jwt.getClaim(TokenService.CLAIM_ROLES).asList(String.class)).isEqualTo(authorities);
+    }
+
+    @Test
+    void claimsDoUsuarioETenant() {
+        Usuario admin = usuario(UserRole.ADMIN);
+        admin.setVersaoToken(7);
+
+        DecodedJWT jwt = service.verificar(service.generateToken(admin, "tenant_b", List.of()));
+
+        assertThat(jwt.getSubject()).isEqualTo("joao");
+        assertThat(service.getUsuarioId(jwt)).isEqualTo(42L);
+        assertThat(service.getTenant(jwt)).isEqualTo("tenant_b");
+        assertThat(service.getVersao(jwt)).isEqualTo(7);
+        assertThat(service.isAdmin(jwt)).isTrue();
+        // Sem authorities não vai claim "perm"
+        assertThat(service.getPermissoes(jwt)).isEmpty();
+        assertThat(nomes(service.getAuthorities(jwt))).containsExactly("ROLE_ADMIN", "ROLE_USER");
+    }
+
+    @Test
+    void tokenAlteradoOuDeOutroSegredoEhRecusado() {
+        String token = service.generateToken(usuario(UserRole.USER), "tenant_a", List.of());
+        String[] partes = token.split("\\.");
+        String adulterado = partes[0] + "." + partes[1] + "x." + partes[2];
+
+        TokenService outro = new TokenService();
+        ReflectionTestUtils.setField(outro, "secret", "outro-segredo");
+        outro.iniciar();
+
+        assertThat(service.verificar(adulterado)).isNull();
+        assertThat(outro.verificar(token)).isNull();
+        assertThat(service.validateToken("lixo")).isEmpty();
+    }
+
+    private static Usuario usuario(UserRole role) {
+        Usuario usuario = new Usuario();
+        usuario.setId(42L);
+        usuario.setLogin("joao");
+        usuario.setRole(role);
+        return usuario;
+    }
+
+    private static List<String> nomes(Collection<GrantedAuthority> authorities) {
+        return authorities.stream().map(GrantedAuthority::getAuthority).toList();
+    }
+
+    private static List<String> concatenar(List<String> a, List<String> b) {
+        List<String> todos = new ArrayList<>(a);
+        todos.addAll(b);
+        return todos;
+    }
+}